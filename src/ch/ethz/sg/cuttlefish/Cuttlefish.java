@@ -23,9 +23,14 @@ import org.openide.util.Lookup;
 import ch.ethz.sg.cuttlefish.exporter.NetworkExportController;
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
 import ch.ethz.sg.cuttlefish.misc.NetworkStatistics;
+import ch.ethz.sg.cuttlefish.misc.ProgressMeter;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.CxbNetwork;
 import ch.ethz.sg.cuttlefish.networks.CxfNetwork;
+import ch.ethz.sg.cuttlefish.networks.Diagnostics;
+import ch.ethz.sg.cuttlefish.networks.EdgeListNetwork;
 import ch.ethz.sg.cuttlefish.networks.JsonNetwork;
+import ch.ethz.sg.cuttlefish.networks.LoadProgress;
 
 public class Cuttlefish {
 
@@ -227,20 +232,50 @@ public class Cuttlefish {
 	private static void getInputNetwork() {
 		String file = opts.getOptionValue("input");
 		String format = opts.getOptionValue("in-format", "cxf");
+		Diagnostics diagnostics = getDiagnostics();
+		LoadProgress progress = getLoadProgress();
 		out("Opening network: " + file);
 
 		try {
 			if (format.equalsIgnoreCase("cxf")) {
-				network = new CxfNetwork(new File(file));
+				CxfNetwork cxfNetwork = new CxfNetwork();
+				if (opts.hasOption("threads"))
+					cxfNetwork.setLoadThreads(getThreads());
+				cxfNetwork.setDiagnostics(diagnostics);
+				cxfNetwork.setLoadProgress(progress);
+				cxfNetwork.load(new File(file));
+				network = cxfNetwork;
+
+			} else if (format.equalsIgnoreCase("cxb")) {
+				network = new CxbNetwork();
+				network.setDiagnostics(diagnostics);
+				network.setLoadProgress(progress);
+				network.load(new File(file));
 
 			} else if (format.equalsIgnoreCase("graphml")
 					|| format.equalsIgnoreCase("pajek")
 					|| format.equalsIgnoreCase("gexf")) {
 				network = new BrowsableNetwork();
+				network.setDiagnostics(diagnostics);
+				network.setLoadProgress(progress);
 				network.load(new File(file));
 
+			} else if (format.equalsIgnoreCase("edgelist")) {
+				EdgeListNetwork edgeListNetwork = new EdgeListNetwork();
+				edgeListNetwork.setDirected(!opts.hasOption("undirected"));
+				edgeListNetwork.setSelfLoops(!opts.hasOption("no-self-loops"));
+				edgeListNetwork.setDeduplicate(!opts
+						.hasOption("keep-duplicates"));
+				edgeListNetwork.setDiagnostics(diagnostics);
+				edgeListNetwork.setLoadProgress(progress);
+				edgeListNetwork.load(new File(file));
+				network = edgeListNetwork;
+
 			} else if (format.equalsIgnoreCase("json")) {
-				network = new JsonNetwork(new File(file));
+				network = new JsonNetwork();
+				network.setDiagnostics(diagnostics);
+				network.setLoadProgress(progress);
+				network.load(new File(file));
 
 			} else {
 				out("Unsupported input format: " + format);
@@ -253,10 +288,74 @@ public class Cuttlefish {
 			exit(-103, "File could not be read: " + file);
 		}
 
+		if (!diagnostics.isEmpty())
+			out("Problems found in " + file + ":\n" + diagnostics.getReport());
+		if (diagnostics.isStopped())
+			exit(-105, "Loading stopped after " + diagnostics.getErrorCount()
+					+ " errors");
+
 		out("Opened a network with " + network.getVertexCount() + " nodes and "
 				+ network.getEdgeCount() + " edges");
 	}
 
+	private static Diagnostics getDiagnostics() {
+		if (opts.hasOption("fail-fast"))
+			return new Diagnostics(Diagnostics.Policy.FAIL_FAST, 0);
+
+		if (opts.hasOption("max-errors")) {
+			String max = opts.getOptionValue("max-errors");
+			try {
+				return new Diagnostics(Diagnostics.Policy.MAX_ERRORS,
+						Integer.parseInt(max));
+			} catch (NumberFormatException e) {
+				exit(-104, "Invalid number of errors: " + max);
+			}
+		}
+
+		return new Diagnostics();
+	}
+
+	/**
+	 * @return a printer of the progress of loading, at most once a second,
+	 *         or null if it was not asked for
+	 */
+	private static LoadProgress getLoadProgress() {
+		if (!opts.hasOption("progress"))
+			return null;
+
+		final ProgressMeter meter = new ProgressMeter();
+		return new LoadProgress() {
+			private long lastReport = System.currentTimeMillis();
+
+			@Override
+			public void progress(long bytesRead, long totalBytes,
+					int elements) {
+				long now = System.currentTimeMillis();
+				if (now - lastReport < 1000)
+					return;
+
+				lastReport = now;
+				out("Loading: "
+						+ meter.describe(bytesRead, totalBytes, elements));
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		};
+	}
+
+	private static int getThreads() {
+		String threads = opts.getOptionValue("threads");
+		try {
+			return Integer.parseInt(threads);
+		} catch (NumberFormatException e) {
+			exit(-104, "Invalid number of threads: " + threads);
+			return 1;
+		}
+	}
+
 	private static void outputNetwork() {
 		getNetwork(); // load network from input
 		getLayout(); // compute layout
@@ -286,7 +385,8 @@ public class Cuttlefish {
 		Option inputFormat = OptionBuilder
 				.withValueSeparator()
 				.withDescription(
-						"input format: cxf (default), json, graphml, pajek, gexf")
+						"input format: cxf (default), cxb, json, graphml, "
+								+ "pajek, gexf, edgelist")
 				.withLongOpt("in-format").withArgName("input format").hasArg()
 				.create();
 		Option output = OptionBuilder.withValueSeparator()
@@ -295,7 +395,7 @@ public class Cuttlefish {
 		Option outputFormat = OptionBuilder
 				.withValueSeparator()
 				.withDescription(
-						"output format: tikz (default), cxf, applet, "
+						"output format: tikz (default), cxf, cxb, applet, "
 								+ "cmx, graphml, json, gexf, csv, pajek "
 								+ "jpg, svg, pdf, png")
 				.withLongOpt("out-format").withArgName("format").hasArg()
@@ -311,6 +411,32 @@ public class Cuttlefish {
 		Option stats = OptionBuilder.withLongOpt("stats")
 				.withDescription("prints network statistics report")
 				.create("s");
+		Option threads = OptionBuilder
+				.withValueSeparator()
+				.withDescription(
+						"threads parsing large cxf files (default: number of "
+								+ "processors, 1 to parse sequentially)")
+				.withLongOpt("threads").hasArg().withArgName("threads")
+				.create("t");
+		Option failFast = OptionBuilder.withLongOpt("fail-fast")
+				.withDescription("stops loading at the first input error")
+				.create();
+		Option maxErrors = OptionBuilder
+				.withValueSeparator()
+				.withDescription("stops loading after more input errors")
+				.withLongOpt("max-errors").hasArg().withArgName("errors")
+				.create();
+		Option progress = OptionBuilder.withLongOpt("progress")
+				.withDescription("prints the progress of loading the input")
+				.create();
+		Option undirected = OptionBuilder.withLongOpt("undirected")
+				.withDescription("reads an edge list as undirected").create();
+		Option noSelfLoops = OptionBuilder.withLongOpt("no-self-loops")
+				.withDescription("drops the self-loops of an edge list")
+				.create();
+		Option keepDuplicates = OptionBuilder.withLongOpt("keep-duplicates")
+				.withDescription("keeps the repeated edges of an edge list")
+				.create();
 
 		options.addOption(help);
 		options.addOption(input);
@@ -320,6 +446,13 @@ public class Cuttlefish {
 		options.addOption(gui);
 		options.addOption(layout);
 		options.addOption(stats);
+		options.addOption(threads);
+		options.addOption(failFast);
+		options.addOption(maxErrors);
+		options.addOption(progress);
+		options.addOption(undirected);
+		options.addOption(noSelfLoops);
+		options.addOption(keepDuplicates);
 	}
 
 	private static void printUsage() {
@@ -1,6 +1,5 @@
 package ch.ethz.sg.cuttlefish.exporter;
 
-import java.awt.geom.Point2D;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
@@ -12,12 +11,13 @@ import org.gephi.io.exporter.spi.GraphExporter;
 import org.gephi.project.api.Workspace;
 
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
-import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.GraphVersion;
 
 public class AppletExporter implements GraphExporter, CharacterExporter,
 		NetworkExporter {
 
 	private BrowsableNetwork network;
+	private GraphVersion version;
 	private Workspace workspace;
 	private Writer writer;
 
@@ -59,6 +59,12 @@ public class AppletExporter implements GraphExporter, CharacterExporter,
 	@Override
 	public void setNetwork(BrowsableNetwork network) {
 		this.network = network;
+		this.version = null;
+	}
+
+	@Override
+	public void setVersion(GraphVersion version) {
+		this.version = version;
 	}
 
 	public void exportToApplet() throws IOException {
@@ -83,31 +89,40 @@ public class AppletExporter implements GraphExporter, CharacterExporter,
 			String networkFilename, int imageWidth, int imageHeight)
 			throws IOException {
 
+		if (version == null)
+			version = network.freeze();
+
 		writer = new BufferedWriter(new FileWriter(file));
 		writer.append(
 				"<img src='" + imageName + "' width:" + imageWidth + " height:"
 						+ imageHeight + " usemap=#nodes />").append("\n");
 		writer.append("<map name='nodes'>").append("\n");
-		for (Vertex v : network.getVertices()) {
-			int nodeId = v.getId();
+		int nodeCount = version.getNodeCount();
+		for (int i = 0; i < nodeCount; i++) {
+			int nodeId = version.getId(i);
 			int distance = 1;
-			Point2D loc = v.getPosition();
+			double x = version.getX(i);
+			double y = version.getY(i);
 			writer.append(
-					"  <area shape='circle' coords='" + loc.getX() + ","
-							+ loc.getY() + "," + v.getSize() + "' href='"
+					"  <area shape='circle' coords='" + x + "," + y + ","
+							+ version.getSize(i) + "' href='"
 							+ networkFilename + "?source_node=" + nodeId
 							+ "&distance=" + distance + "' alt='"
-							+ v.getLabel() + "' title='" + v.getLabel()
-							+ "' />").append("\n");
+							+ version.getLabel(i) + "' title='"
+							+ version.getLabel(i) + "' />").append("\n");
 		}
 		writer.append("</map>").append("\n");
 		writer.close();
 	}
 
 	public void exportToDynamicApplet(File file) throws IOException {
+		if (version == null)
+			version = network.freeze();
+
 		JsonExporter json = (JsonExporter) NetworkExportController
 				.getExporter("json");
 		json.setNetwork(network);
+		json.setVersion(version);
 		writer = new BufferedWriter(new FileWriter(file));
 		json.setWriter(writer);
 
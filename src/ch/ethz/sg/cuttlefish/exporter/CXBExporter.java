@@ -0,0 +1,95 @@
+package ch.ethz.sg.cuttlefish.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.gephi.io.exporter.spi.ByteExporter;
+import org.gephi.io.exporter.spi.GraphExporter;
+import org.gephi.project.api.Workspace;
+
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.CxbFormat;
+import ch.ethz.sg.cuttlefish.networks.CxbWriter;
+import ch.ethz.sg.cuttlefish.networks.GraphVersion;
+
+/**
+ * Writes a network in the binary Cuttlefish format, see {@link CxbFormat}.
+ * The blocks are stored raw unless compression is enabled, raw files can be
+ * mapped when they are opened.
+ */
+public class CXBExporter implements GraphExporter, ByteExporter,
+		NetworkExporter {
+
+	private BrowsableNetwork network;
+	private GraphVersion version;
+	private Workspace workspace;
+	private OutputStream outputStream;
+	private boolean compressed = false;
+
+	@Override
+	public boolean execute() {
+		try {
+			exportData();
+
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		return true;
+	}
+
+	@Override
+	public void setOutputStream(OutputStream outputStream) {
+		this.outputStream = outputStream;
+	}
+
+	@Override
+	public void setWorkspace(Workspace workspace) {
+		this.workspace = workspace;
+	}
+
+	@Override
+	public Workspace getWorkspace() {
+		return workspace;
+	}
+
+	@Override
+	public void setExportVisible(boolean exportVisible) {
+	}
+
+	@Override
+	public boolean isExportVisible() {
+		return true;
+	}
+
+	@Override
+	public void setNetwork(BrowsableNetwork network) {
+		this.network = network;
+		this.version = null;
+	}
+
+	@Override
+	public void setVersion(GraphVersion version) {
+		this.version = version;
+	}
+
+	/**
+	 * @param compressed
+	 *            whether the blocks are compressed with deflate, which makes
+	 *            the file smaller but prevents mapping it
+	 */
+	public void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+
+	private void exportData() throws IOException {
+		if (version == null)
+			version = network.freeze();
+
+		CxbWriter cxbWriter = new CxbWriter(version);
+		cxbWriter.setCompressed(compressed);
+
+		// the stream is closed by the export controller
+		cxbWriter.write(outputStream);
+	}
+}
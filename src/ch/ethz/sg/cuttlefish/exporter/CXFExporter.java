@@ -7,16 +7,14 @@ import org.gephi.io.exporter.spi.CharacterExporter;
 import org.gephi.io.exporter.spi.GraphExporter;
 import org.gephi.project.api.Workspace;
 
-import ch.ethz.sg.cuttlefish.misc.Utils;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
-import ch.ethz.sg.cuttlefish.networks.CxfNetwork;
-import ch.ethz.sg.cuttlefish.networks.Edge;
-import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.GraphVersion;
 
 public class CXFExporter implements GraphExporter, CharacterExporter,
 		NetworkExporter {
 
 	private BrowsableNetwork network;
+	private GraphVersion version;
 	private Workspace workspace;
 	private Writer writer;
 
@@ -60,26 +58,25 @@ public class CXFExporter implements GraphExporter, CharacterExporter,
 	@Override
 	public void setNetwork(BrowsableNetwork network) {
 		this.network = network;
+		this.version = null;
 	}
 
-	private void exportData() throws IOException {
-		if (Utils.checkForDuplicatedVertexIds(network))
-			Utils.reassignVertexIds(network);
-
-		boolean hideVertexLabels = false;
-		boolean hideEdgeLabels = false;
+	@Override
+	public void setVersion(GraphVersion version) {
+		this.version = version;
+	}
 
-		if (network instanceof CxfNetwork) {
-			// These two variables can only be defined if the network was
-			// loaded from cxf
-			hideVertexLabels = ((CxfNetwork) network).hideVertexLabels();
-			hideEdgeLabels = ((CxfNetwork) network).hideEdgeLabels();
-		}
+	private void exportData() throws IOException {
+		if (version == null)
+			version = network.freeze();
 
-		boolean isDirected = false;
+		boolean hideVertexLabels = version.hideVertexLabels();
+		boolean hideEdgeLabels = version.hideEdgeLabels();
 
-		for (Edge edge : network.getEdges())
-			isDirected = network.isDirected(edge);
+		// the network counts as directed if its last edge is
+		int edgeCount = version.getEdgeCount();
+		boolean isDirected = edgeCount > 0
+				&& version.isEdgeDirected(edgeCount - 1);
 
 		// Setting up the configuration line
 		if ((!isDirected) || hideVertexLabels || hideEdgeLabels)
@@ -95,61 +92,46 @@ public class CXFExporter implements GraphExporter, CharacterExporter,
 		if ((!isDirected) || hideVertexLabels || hideEdgeLabels)
 			writer.append("\n");
 
-		for (Vertex vertex : network.getVertices())
-			printVertex(vertex);
+		int nodeCount = version.getNodeCount();
+		for (int i = 0; i < nodeCount; i++)
+			printVertex(i);
 
-		for (Edge edge : network.getEdges())
-			printEdge(edge);
+		for (int e = 0; e < edgeCount; e++)
+			printEdge(e);
 	}
 
 	/**
 	 * private method to print a vertex in the file
 	 * 
-	 * @param vertex
+	 * @param i
+	 *            the index of the vertex in the version
 	 */
-	private void printVertex(Vertex vertex) throws IOException {
-		writer.append("node: (" + vertex.getId() + ")");
-
-		if (vertex.getLabel() != null)
-			writer.append(" label{" + vertex.getLabel() + "}");
-
-		if (vertex.getFillColor() != null)
-			writer.append(" color{"
-					+ ((double) (vertex.getFillColor()).getRed() / 256.d) + ","
-					+ ((double) (vertex.getFillColor()).getGreen() / 256.d)
-					+ ","
-					+ ((double) (vertex.getFillColor()).getBlue() / 256.d)
-					+ "}");
-
-		if (vertex.getBorderColor() != null)
-			writer.append(" borderColor{"
-					+ ((double) (vertex.getBorderColor()).getRed() / 256.d)
-					+ ","
-					+ ((double) (vertex.getBorderColor()).getGreen() / 256.d)
-					+ ","
-					+ ((double) (vertex.getBorderColor()).getBlue() / 256.d)
-					+ "}");
-
-		writer.append(" size{" + vertex.getSize() + "}");
-
-		if (vertex != null) {
-			writer.append(" shape{" + (vertex.getShape() + "}"));
-		}
+	private void printVertex(int i) throws IOException {
+		writer.append("node: (" + version.getId(i) + ")");
 
-		double x = vertex.getPosition().getX(); // ((Point2D)layout.transform(vertex)).getX();
-		double y = vertex.getPosition().getY(); // ((Point2D)layout.transform(vertex)).getY();
+		if (version.getLabel(i) != null)
+			writer.append(" label{" + version.getLabel(i) + "}");
+
+		printColor(" color", version.getFillRGB(i));
+		printColor(" borderColor", version.getBorderRGB(i));
+
+		writer.append(" size{" + version.getSize(i) + "}");
+		writer.append(" shape{" + version.getShape(i) + "}");
+
+		double x = version.getX(i);
+		double y = version.getY(i);
 		writer.append(" position{" + x + "," + y + "}");
 
-		if (vertex.getWidth() != 1)
-			writer.append(" width{" + vertex.getWidth() + "}");
+		if (version.getWidth(i) != 1)
+			writer.append(" width{" + version.getWidth(i) + "}");
 
-		if (vertex.getVar1() != null)
-			writer.append(" var1{" + vertex.getVar1() + "}");
+		if (version.getVar1(i) != null)
+			writer.append(" var1{" + version.getVar1(i) + "}");
 
-		if (vertex.getVar2() != null)
-			writer.append(" var2{" + vertex.getVar2() + "}");
+		if (version.getVar2(i) != null)
+			writer.append(" var2{" + version.getVar2(i) + "}");
 
-		if (vertex.isExcluded())
+		if (version.isExcluded(i))
 			writer.append(" hide");
 
 		writer.append("\n");
@@ -158,35 +140,41 @@ public class CXFExporter implements GraphExporter, CharacterExporter,
 	/**
 	 * private method to print an edge in the file
 	 * 
-	 * @param edge
+	 * @param e
+	 *            the index of the edge in the version
 	 */
-	private void printEdge(Edge edge) throws IOException {
+	private void printEdge(int e) throws IOException {
 
-		writer.append("edge: (" + edge.getSource().getId() + ","
-				+ edge.getTarget().getId() + ")");
+		writer.append("edge: (" + version.getId(version.getEdgeSource(e))
+				+ "," + version.getId(version.getEdgeTarget(e)) + ")");
 
-		if (edge.getLabel() != null)
-			writer.append(" label{" + edge.getLabel() + "}");
+		if (version.getEdgeLabel(e) != null)
+			writer.append(" label{" + version.getEdgeLabel(e) + "}");
 
-		writer.append(" weight{" + edge.getWeight() + "}");
-		writer.append(" width{" + edge.getWidth() + "}");
+		writer.append(" weight{" + version.getEdgeWeight(e) + "}");
+		writer.append(" width{" + version.getEdgeWidth(e) + "}");
 
-		if (edge.getColor() != null)
-			writer.append(" color{"
-					+ ((double) edge.getColor().getRed() / 256.d) + ","
-					+ ((double) edge.getColor().getGreen() / 256.d) + ","
-					+ ((double) edge.getColor().getBlue() / 256.d) + "}");
+		printColor(" color", version.getEdgeRGB(e));
 
-		if (edge.getVar1() != null)
-			writer.append(" var1{" + edge.getVar1() + "}");
+		if (version.getEdgeVar1(e) != null)
+			writer.append(" var1{" + version.getEdgeVar1(e) + "}");
 
-		if (edge.getVar2() != null)
-			writer.append(" var2{" + edge.getVar2() + "}");
+		if (version.getEdgeVar2(e) != null)
+			writer.append(" var2{" + version.getEdgeVar2(e) + "}");
 
-		if (edge.isExcluded())
+		if (version.isEdgeExcluded(e))
 			writer.append(" hide");
 
 		writer.append("\n");
 	}
 
+	/**
+	 * Prints a packed RGB color as three components in [0, 1).
+	 */
+	private void printColor(String key, int rgb) throws IOException {
+		writer.append(key + "{" + ((double) ((rgb >> 16) & 0xFF) / 256.d)
+				+ "," + ((double) ((rgb >> 8) & 0xFF) / 256.d) + ","
+				+ ((double) (rgb & 0xFF) / 256.d) + "}");
+	}
+
 }
@@ -8,16 +8,19 @@ import org.gephi.io.exporter.spi.GraphExporter;
 import org.gephi.project.api.Workspace;
 
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
-import ch.ethz.sg.cuttlefish.networks.Edge;
-import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.GraphVersion;
 
 public class JsonExporter implements GraphExporter, CharacterExporter,
 		NetworkExporter {
 
 	private BrowsableNetwork network;
+	private GraphVersion version;
 	private Workspace workspace;
 	private Writer writer;
 
+	// whether the next node or edge is the first of its list
+	private boolean first;
+
 	@Override
 	public boolean execute() {
 		try {
@@ -58,60 +61,68 @@ public class JsonExporter implements GraphExporter, CharacterExporter,
 	@Override
 	public void setNetwork(BrowsableNetwork network) {
 		this.network = network;
+		this.version = null;
+	}
+
+	@Override
+	public void setVersion(GraphVersion version) {
+		this.version = version;
 	}
 
 	private void exportData() throws IOException {
-		writer.append("{ nodes: [").append("\n");
-		boolean first = true;
-		for (Vertex v : network.getVertices()) {
-			if (!first) {
-				writer.append(",").append("\n");
-			} else {
-				first = false;
-			}
-			writer.append("     {id: " + v.getId());
-			writer.append(", size: " + v.getSize());
-			writer.append(", width: " + v.getWidth());
-
-			if (v.getLabel() != null)
-				writer.append(", label: \"" + v.getLabel() + "\"");
-			if (v.getFillColor() != null)
-				writer.append(", color: \"{"
-						+ ((double) v.getFillColor().getRed() / 256.d) + ","
-						+ ((double) v.getFillColor().getGreen() / 256.d) + ","
-						+ ((double) v.getFillColor().getBlue() / 256.d)
-						+ "}\"}");
-			else
-				writer.append("}");
+		if (version == null)
+			version = network.freeze();
 
-		}
+		writer.append("{ nodes: [").append("\n");
+		first = true;
+		int nodeCount = version.getNodeCount();
+		for (int i = 0; i < nodeCount; i++)
+			printVertex(i);
 		writer.append("     ], edges: [").append("\n");
 		first = true;
-		for (Edge e : network.getEdges()) {
-			if (!first) {
-				writer.append(",").append("\n");
-			} else {
-				first = false;
-			}
-			writer.append("     {id_origin: "
-					+ (e.getSource() != null ? e.getSource().getId() : network
-							.getEndpoints(e).getFirst().getId()));
-			writer.append(", id_dest: "
-					+ (e.getTarget() != null ? e.getTarget().getId() : network
-							.getEndpoints(e).getSecond().getId()));
-			writer.append(", label: " + e.getLabel());
-			writer.append(", weight: " + e.getWeight());
-			writer.append(", width: " + e.getWidth());
-			if (e.getColor() != null)
-				writer.append(", color: \"{"
-						+ ((double) e.getColor().getRed() / 256.d) + ","
-						+ ((double) e.getColor().getGreen() / 256.d) + ","
-						+ ((double) e.getColor().getBlue() / 256.d) + "}\"}");
-			else
-				writer.append("} />");
-		}
+		int edgeCount = version.getEdgeCount();
+		for (int e = 0; e < edgeCount; e++)
+			printEdge(e);
 		writer.append("     ]}").append("\n");
 
 	}
 
+	private void printVertex(int i) throws IOException {
+		if (!first) {
+			writer.append(",").append("\n");
+		} else {
+			first = false;
+		}
+		writer.append("     {id: " + version.getId(i));
+		writer.append(", size: " + version.getSize(i));
+		writer.append(", width: " + version.getWidth(i));
+
+		if (version.getLabel(i) != null)
+			writer.append(", label: \"" + version.getLabel(i) + "\"");
+		writer.append(", color: \"" + formatColor(version.getFillRGB(i))
+				+ "\"}");
+	}
+
+	private void printEdge(int e) throws IOException {
+		if (!first) {
+			writer.append(",").append("\n");
+		} else {
+			first = false;
+		}
+		writer.append("     {id_origin: "
+				+ version.getId(version.getEdgeSource(e)));
+		writer.append(", id_dest: " + version.getId(version.getEdgeTarget(e)));
+		writer.append(", label: " + version.getEdgeLabel(e));
+		writer.append(", weight: " + version.getEdgeWeight(e));
+		writer.append(", width: " + version.getEdgeWidth(e));
+		writer.append(", color: \"" + formatColor(version.getEdgeRGB(e))
+				+ "\"}");
+	}
+
+	private static String formatColor(int rgb) {
+		return "{" + ((double) ((rgb >> 16) & 0xFF) / 256.d) + ","
+				+ ((double) ((rgb >> 8) & 0xFF) / 256.d) + ","
+				+ ((double) (rgb & 0xFF) / 256.d) + "}";
+	}
+
 }
@@ -1,6 +1,7 @@
 package ch.ethz.sg.cuttlefish.exporter;
 
 import java.io.File;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -9,11 +10,14 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import org.gephi.io.exporter.api.ExportController;
+import org.gephi.io.exporter.spi.CharacterExporter;
 import org.gephi.io.exporter.spi.Exporter;
 import org.openide.util.Lookup;
 
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.PositionSource;
 
 public class NetworkExportController {
 
@@ -33,6 +37,7 @@ public class NetworkExportController {
 		gephiExporters.add("svg");
 
 		cuttlefishExporters.put("cxf", CXFExporter.class);
+		cuttlefishExporters.put("cxb", CXBExporter.class);
 		cuttlefishExporters.put("tikz", TikzExporter.class);
 		cuttlefishExporters.put("applet", AppletExporter.class);
 		cuttlefishExporters.put("json", JsonExporter.class);
@@ -51,19 +56,67 @@ public class NetworkExportController {
 
 	public static void export(BrowsableNetwork network, File file,
 			Exporter exporter) throws Exception {
+		export(network, file, exporter, null);
+	}
+
+	/**
+	 * Exports the network with the positions of the given source, see
+	 * {@link BrowsableNetwork#freeze(PositionSource)}.
+	 */
+	public static void export(BrowsableNetwork network, File file,
+			Exporter exporter, PositionSource positions) throws Exception {
+		prepare(network, exporter, positions);
+		write(file, exporter);
+	}
+
+	/**
+	 * Hands the network to the exporter. The Cuttlefish exporters get a
+	 * frozen copy and can then be written from another thread while the
+	 * network is edited, see {@link #write(File, Exporter)}.
+	 * 
+	 * @param positions
+	 *            where to read the positions from, or null to read them from
+	 *            the nodes
+	 */
+	public static void prepare(BrowsableNetwork network, Exporter exporter,
+			PositionSource positions) {
+		if (exporter instanceof NetworkExporter) {
+			// The Cuttlefish exporters write a normalized copy of the
+			// network, so the layout is neither moved nor interrupted
+			((NetworkExporter) exporter).setNetwork(network);
+			((NetworkExporter) exporter).setVersion(network.freeze(positions)
+					.normalized());
+		} else {
+			// Certain Gephi exporters need a normalized layout i.e., all
+			// vertices are translated near the origin
+			LayoutLoader.getInstance().normalizeLayout();
+			// they only see the attributes stored in Gephi columns
+			network.exportAttributes();
+		}
+	}
 
+	/**
+	 * Writes a prepared exporter to the file. The Gephi exporters read the
+	 * graph and must be written on the thread that edits it.
+	 */
+	public static void write(File file, Exporter exporter) throws Exception {
 		ExportController ec = Lookup.getDefault()
 				.lookup(ExportController.class);
 
-		// Certain Gephi exporters need a normalized layout i.e., all vertices
-		// are translated near the origin
-		LayoutLoader.getInstance().normalizeLayout();
-
 		if (!file.exists())
 			file.createNewFile();
 
-		if (exporter instanceof NetworkExporter)
-			((NetworkExporter) exporter).setNetwork(network);
+		// text formats are compressed when the name of the file asks for it
+		if (exporter instanceof CharacterExporter
+				&& CompressedStreams.isCompressedName(file)) {
+			Writer writer = CompressedStreams.openWriter(file);
+			try {
+				ec.exportWriter(writer, (CharacterExporter) exporter);
+			} finally {
+				writer.close();
+			}
+			return;
+		}
 
 		ec.exportFile(file, exporter);
 	}
@@ -1,9 +1,17 @@
 package ch.ethz.sg.cuttlefish.exporter;
 
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.GraphVersion;
 
 public interface NetworkExporter {
 
 	public void setNetwork(BrowsableNetwork network);
 
+	/**
+	 * Sets the positions to export, which are frozen while the layout keeps
+	 * running. Without a version the exporter freezes the network itself when
+	 * the export starts.
+	 */
+	public void setVersion(GraphVersion version);
+
 }
@@ -6,8 +6,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Locale;
@@ -17,16 +16,14 @@ import org.gephi.io.exporter.spi.CharacterExporter;
 import org.gephi.io.exporter.spi.GraphExporter;
 import org.gephi.project.api.Workspace;
 
-import ch.ethz.sg.cuttlefish.misc.Pair;
-import ch.ethz.sg.cuttlefish.misc.Utils;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
-import ch.ethz.sg.cuttlefish.networks.Edge;
-import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.GraphVersion;
 
 public class TikzExporter implements GraphExporter, CharacterExporter,
 		NetworkExporter {
 
 	private BrowsableNetwork network;
+	private GraphVersion version;
 	private Workspace workspace;
 	private Writer writer;
 
@@ -40,7 +37,8 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	private double maxY = 0;
 	private boolean hideVertexLabels = false;
 	private boolean hideEdgeLabels = false;
-	private Map<Color, String> colors;
+	// names of the colors defined in the document, by packed RGB
+	private Map<Integer, String> colors;
 	private DecimalFormat formatter;
 	private boolean fixedSize = false;
 	private double width = 0, height = 0;
@@ -56,7 +54,7 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	private Point2D center = null;
 
 	public TikzExporter() {
-		colors = new HashMap<Color, String>();
+		colors = new HashMap<Integer, String>();
 		DecimalFormatSymbols symbols = new DecimalFormatSymbols(
 				Locale.getDefault());
 		symbols.setDecimalSeparator('.');
@@ -106,40 +104,34 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	@Override
 	public void setNetwork(BrowsableNetwork network) {
 		this.network = network;
+		this.version = null;
+	}
+
+	@Override
+	public void setVersion(GraphVersion version) {
+		this.version = version;
 	}
 
 	private void exportData() throws IOException {
+		if (version == null)
+			version = network.freeze();
+
 		if (fixedSize) {
 			computeScaleCoordinates();
 		}
 
-		if (Utils.checkForDuplicatedVertexIds(network))
-			Utils.reassignVertexIds(network);
-
 		// We find the maximum value of Y to revert the y coordinate when
 		// writing the nodes in tex
-		for (Vertex vertex : network.getVertices()) {
-			double y = vertex.getPosition().getY();
+		int nodeCount = version.getNodeCount();
+		for (int i = 0; i < nodeCount; i++) {
+			double y = version.getY(i);
 			if (y > maxY)
 				maxY = y;
 		}
 
-		double k = java.lang.Double.MAX_VALUE;
-		// calculate min (2*dist / (size1+size2) as max node scale that avoids
-		// node overlapping
-		for (Vertex v1 : network.getVertices()) {
-			for (Vertex v2 : network.getVertices()) {
-				if (v2.getId() > v1.getId()) {
-					double dist = v1.getPosition().distance(v2.getPosition());
-					double knew = 2 * dist / (v1.getSize() + v2.getSize());
-					if (knew < k)
-						k = knew;
-				}
-			}
-		}
-
-		// is this necessary??
-		// nodeSizeFactor = 0.75 * k;
+		// The node scale that avoids overlapping, min(2*dist/(size1+size2))
+		// over all pairs, used to be computed here but was never applied
+		// and cost O(|V|^2) for every export.
 
 		writer.append("\\documentclass{minimal}").append("\n");
 		writer.append("\\usepackage{tikz, tkz-graph}").append("\n");
@@ -160,8 +152,8 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 
 		// Vertices will appear in the main layer while edges will be in the
 		// background
-		for (Vertex v : network.getVertices())
-			exportVertex(v);
+		for (int i = 0; i < nodeCount; i++)
+			exportVertex(i);
 
 		writer.append("\\begin{pgfonlayer}{background}").append("\n");
 		// Arrow style for directed networks
@@ -184,15 +176,18 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 
 	private void computeScaleCoordinates() {
 		// first find the min and max values used as coordinates
-		for (Vertex v : network.getVertices()) {
-			if (v.getPosition().getX() < xmin)
-				xmin = v.getPosition().getX();
-			if (v.getPosition().getX() > xmax)
-				xmax = v.getPosition().getX();
-			if (v.getPosition().getY() < ymin)
-				ymin = v.getPosition().getY();
-			if (v.getPosition().getY() > ymax)
-				ymax = v.getPosition().getY();
+		int nodeCount = version.getNodeCount();
+		for (int i = 0; i < nodeCount; i++) {
+			double x = version.getX(i);
+			double y = version.getY(i);
+			if (x < xmin)
+				xmin = x;
+			if (x > xmax)
+				xmax = x;
+			if (y < ymin)
+				ymin = y;
+			if (y > ymax)
+				ymax = y;
 		}
 		// compute the scaling factors alpha and beta
 		alpha = width / (xmax - xmin);
@@ -208,28 +203,28 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	 * @throws IOException
 	 */
 	private void defineColors() throws IOException {
-
-		for (Vertex vertex : network.getVertices()) {
-			Color fColor = (Color) vertex.getFillColor();
-			if (fColor != null && !colors.containsKey(fColor)) {
-				colors.put(fColor, "COLOR" + colors.size());
-				writeColor(fColor);
-			}
-			Color cColor = (Color) vertex.getBorderColor();
-			if (cColor != null && !colors.containsKey(cColor)) {
-				colors.put(cColor, "COLOR" + colors.size());
-				writeColor(cColor);
-			}
+		int nodeCount = version.getNodeCount();
+		for (int i = 0; i < nodeCount; i++) {
+			defineColor(version.getFillRGB(i));
+			defineColor(version.getBorderRGB(i));
 		}
-		for (Edge edge : network.getEdges()) {
-			Color color = edge.getColor();
-			if (color != null && !colors.containsKey(color)) {
-				colors.put(color, "COLOR" + colors.size());
-				writeColor(color);
-			}
+		int edgeCount = version.getEdgeCount();
+		for (int e = 0; e < edgeCount; e++)
+			defineColor(version.getEdgeRGB(e));
+	}
+
+	private void defineColor(int rgb) throws IOException {
+		Color color = new Color(rgb);
+		if (!colors.containsKey(color.getRGB())) {
+			colors.put(color.getRGB(), "COLOR" + colors.size());
+			writeColor(color);
 		}
 	}
 
+	private String colorName(int rgb) {
+		return colors.get(new Color(rgb).getRGB());
+	}
+
 	/**
 	 * Private method that defines a color in the Tikz document.
 	 * 
@@ -239,7 +234,7 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	 */
 	private void writeColor(Color color) throws IOException {
 		writer.append(
-				"\\definecolor{" + colors.get(color) + "}{rgb}{"
+				"\\definecolor{" + colors.get(color.getRGB()) + "}{rgb}{"
 						+ (color.getRed() / 255.0) + ","
 						+ (color.getGreen() / 255.0) + ","
 						+ (color.getBlue() / 255.0) + "}").append("\n");
@@ -248,60 +243,51 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	/**
 	 * Prints the necessary information to display a vertex in the tikz output
 	 * 
-	 * @param vertex
+	 * @param i
+	 *            the index of the vertex in the version
 	 * @throws IOException
 	 */
-	private void exportVertex(Vertex vertex) throws IOException {
-		Point2D coordinates = null;
+	private void exportVertex(int i) throws IOException {
+		double x = version.getX(i);
+		double y = version.getY(i);
 		// if the size is fixed we have to scale the coordinates
 		if (fixedSize) {
-			Point2D origCoordinates = vertex.getPosition();
-			coordinates = new Point2D.Double(alpha
-					* (origCoordinates.getX() - xmin), beta
-					* (origCoordinates.getY() - ymin));
+			x = alpha * (x - xmin);
+			y = beta * (y - ymin);
 			s = Math.max(alpha, beta);
 		} else {
-			coordinates = vertex.getPosition();
 			s = 1;
 		}
 
 		writer.append("\\node at ("
-				+ formatter.format(coordinates.getX()
-						* (coordinateFactor / 10.0))
-				+ ","
-				+ formatter.format((maxY - coordinates.getY())
-						* (coordinateFactor / 10.0)) + ") [");
-		if (vertex != null) {
-			writer.append(vertex.getShape()).append(",");
-		}
-		writer.append(" line width=" + formatter.format(vertex.getWidth() * s)
-				+ ",");
-
-		if ((vertex.getBorderColor() != null) && (vertex.getWidth() > 0))
-			writer.append(" draw=" + colors.get(vertex.getBorderColor()) + ",");
-		if (vertex.getFillColor() != null)
-			writer.append(" fill=" + colors.get(vertex.getFillColor()) + ",");
+				+ formatter.format(x * (coordinateFactor / 10.0)) + ","
+				+ formatter.format((maxY - y) * (coordinateFactor / 10.0))
+				+ ") [");
+		writer.append(version.getShape(i)).append(",");
+		writer.append(" line width="
+				+ formatter.format(version.getWidth(i) * s) + ",");
+
+		if (version.getWidth(i) > 0)
+			writer.append(" draw=" + colorName(version.getBorderRGB(i)) + ",");
+		writer.append(" fill=" + colorName(version.getFillRGB(i)) + ",");
 		writer.append(" inner sep=0pt,");
 		writer.append(" minimum size = "
-				+ formatter.format((vertex.getSize()) * nodeSizeFactor * s)
+				+ formatter.format(version.getSize(i) * nodeSizeFactor * s)
 				+ "pt,");
 
-		if ((vertex.getLabel() != null) && (!hideVertexLabels)) {
+		if ((version.getLabel(i) != null) && (!hideVertexLabels)) {
 			writer.append(" label={[label distance=0]" +
 			// calculateAngle(vertex)
-					"315" + ":" + escapeChars(vertex.getLabel()) + "}");
+					"315" + ":" + escapeChars(version.getLabel(i)) + "}");
 		}
 		if (nodeStyle.compareToIgnoreCase("ball") == 0) {
 			writer.append(", shading=ball,");
-			if (vertex.getFillColor() != null) // The color reappears in the
-												// shading
-				writer.append(" ball color="
-						+ colors.get(vertex.getFillColor()));
-			else
-				writer.append(" ball color=black");
+			// The color reappears in the shading
+			writer.append(" ball color="
+					+ colorName(version.getFillRGB(i)));
 		}
 
-		writer.append("] (" + vertex.getId() + ") {};\n");
+		writer.append("] (" + version.getId(i) + ") {};\n");
 	}
 
 	private String escapeChars(String s) {
@@ -323,24 +309,32 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 		} else {
 			s = 1;
 		}
-		ArrayList<Edge> edgeList = new ArrayList<Edge>(network.getEdges());
-		if (edgeList.size() == 0)
+		int edgeCount = version.getEdgeCount();
+		if (edgeCount == 0)
 			return;
-		Collections.sort(edgeList, new Comparator<Edge>() {
+		Integer[] edgeList = new Integer[edgeCount];
+		for (int e = 0; e < edgeCount; e++)
+			edgeList[e] = e;
+		Arrays.sort(edgeList, new Comparator<Integer>() {
 			@Override
-			public int compare(Edge edge1, Edge edge2) {
-				if (network.isDirected(edge1) != network.isDirected(edge2)) {
-					if (network.isDirected(edge1))
+			public int compare(Integer edge1, Integer edge2) {
+				boolean directed1 = version.isEdgeDirected(edge1);
+				boolean directed2 = version.isEdgeDirected(edge2);
+				if (directed1 != directed2) {
+					if (directed1)
 						return -1;
 					else
 						return 1;
 				}
-				if (edge1.getColor() != edge2.getColor()) {
-					return edge1.getColor().hashCode()
-							- edge2.getColor().hashCode();
+				int color1 = version.getEdgeRGB(edge1);
+				int color2 = version.getEdgeRGB(edge2);
+				if (color1 != color2) {
+					return color1 - color2;
 				}
-				if (edge1.getWidth() != edge2.getWidth()) {
-					if (edge1.getWidth() < edge2.getWidth())
+				double width1 = version.getEdgeWidth(edge1);
+				double width2 = version.getEdgeWidth(edge2);
+				if (width1 != width2) {
+					if (width1 < width2)
 						return -1;
 					else
 						return 1;
@@ -349,53 +343,45 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 			}
 		});
 
-		Edge curEdge = null;
-		Color curColor = null;
+		int curEdge = -1;
+		int curColor = 0;
 		double curWidth = java.lang.Double.MAX_VALUE;
-		for (Edge edge : edgeList) {
-			Color color = edge.getColor();
-			double width = edge.getWidth();
+		for (int edge : edgeList) {
+			int color = version.getEdgeRGB(edge);
+			double width = version.getEdgeWidth(edge);
 			// If any of the edge properties is different from the current edge
 			// settings,
 			// we need to redefine the edge settings
-			if (curEdge == null
-					|| (curEdge != null && network.isDirected(curEdge) != network
-							.isDirected(edge)) || !color.equals(curColor)
+			if (curEdge < 0
+					|| version.isEdgeDirected(curEdge) != version
+							.isEdgeDirected(edge) || color != curColor
 					|| width != curWidth) {
 				curEdge = edge;
 				curColor = color;
 				curWidth = width;
 				writer.append("\\tikzset{EdgeStyle/.style = {");
-				if (network.isDirected(curEdge))
+				if (version.isEdgeDirected(curEdge))
 					writer.append("->, ");
 				else
 					writer.append("-, ");
 				writer.append("shorten >=1pt, >=stealth, bend right=10, ");
 				writer.append("line width="
 						+ formatter.format(curWidth * edgeSizeFactor * s));
-				if (curColor != null)
-					writer.append(", color=" + colors.get(curColor) + "}}")
-							.append("\n");
-				else
-					writer.append("}}").append("\n");
-			}
-			Vertex v1, v2;
-			if (network.isDirected(edge)) {
-				v1 = network.getSource(edge);
-				v2 = network.getDest(edge);
-			} else {
-				Pair<Vertex> endpoints = network.getEndpoints(edge);
-				v1 = endpoints.getFirst();
-				v2 = endpoints.getSecond();
+				writer.append(", color=" + colorName(curColor) + "}}")
+						.append("\n");
 			}
-			if (v1.getId() == v2.getId()) {
+			int v1 = version.getEdgeSource(edge);
+			int v2 = version.getEdgeTarget(edge);
+			if (version.getId(v1) == version.getId(v2)) {
 				exportLoopEdge(edge, v1);
 				continue;
 			}
 			writer.append("\\Edge ");
-			if ((edge.getLabel() != null) && (!hideEdgeLabels))
-				writer.append("[label=" + escapeChars(edge.getLabel()) + "]");
-			writer.append("(" + v1.getId() + ")(" + v2.getId() + ")\n");
+			String label = version.getEdgeLabel(edge);
+			if ((label != null) && (!hideEdgeLabels))
+				writer.append("[label=" + escapeChars(label) + "]");
+			writer.append("(" + version.getId(v1) + ")(" + version.getId(v2)
+					+ ")\n");
 		}
 	}
 
@@ -403,12 +389,12 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	 * Private method that exports a loop edge
 	 * 
 	 * @param edge
-	 *            the loop edge
-	 * @param v1
-	 *            the vertex that has the loop edge
+	 *            the index of the loop edge
+	 * @param v
+	 *            the index of the vertex that has the loop edge
 	 * @throws IOException
 	 */
-	private void exportLoopEdge(Edge edge, Vertex v) throws IOException {
+	private void exportLoopEdge(int edge, int v) throws IOException {
 		double angle = calculateAngle(v);
 
 		if ((angle > 124) && (angle < 226)) // two kinds of loops, in the left
@@ -417,12 +403,14 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 		else
 			writer.append("\\Loop[dist=1cm,dir=EA,");
 		writer.append("style={->,shorten >=1pt,>=stealth,line width="
-				+ formatter.format(edge.getWidth() * edgeSizeFactor));
-		writer.append("}, color=" + colors.get(edge.getColor()));
-		if ((edge.getLabel() != null) && (!hideEdgeLabels))
-			writer.append(", label=" + edge.getLabel());
-
-		writer.append("](" + v.getId() + ")\n");
+				+ formatter.format(version.getEdgeWidth(edge)
+						* edgeSizeFactor));
+		writer.append("}, color=" + colorName(version.getEdgeRGB(edge)));
+		String label = version.getEdgeLabel(edge);
+		if ((label != null) && (!hideEdgeLabels))
+			writer.append(", label=" + label);
+
+		writer.append("](" + version.getId(v) + ")\n");
 	}
 
 	/**
@@ -431,26 +419,41 @@ public class TikzExporter implements GraphExporter, CharacterExporter,
 	 * that they are on the other side of the center of the network.
 	 * 
 	 * @param v
-	 *            vertex that is going to be painted
+	 *            index of the vertex that is going to be painted
 	 * @return
 	 */
-	private double calculateAngle(Vertex v) {
+	private double calculateAngle(int v) {
 		if (center == null)
-			center = Utils.caculateCenter(network);
-		Point2D vPos = v.getPosition();
-		if (vPos.getX() > center.getX()) {
-			if (vPos.getY() < center.getY())
+			center = calculateCenter();
+		double x = version.getX(v);
+		double y = version.getY(v);
+		if (x > center.getX()) {
+			if (y < center.getY())
 				return 45;
 			else
 				return 315;
 		} else {
-			if (vPos.getY() < center.getY())
+			if (y < center.getY())
 				return 135;
 			else
 				return 225;
 		}
 	}
 
+	/**
+	 * @return the mean of the frozen positions, as Utils.caculateCenter()
+	 *         computes it on the network
+	 */
+	private Point2D calculateCenter() {
+		int nodeCount = version.getNodeCount();
+		double x = 0, y = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			x += version.getX(i);
+			y += version.getY(i);
+		}
+		return new Point2D.Double(x / nodeCount, y / nodeCount);
+	}
+
 	public void setSize(double width, double height) {
 		this.width = width;
 		this.height = height;
@@ -23,11 +23,16 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import ch.ethz.sg.cuttlefish.misc.FileChooser;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.CxbNetwork;
 import ch.ethz.sg.cuttlefish.networks.CxfNetwork;
 import ch.ethz.sg.cuttlefish.networks.DBNetwork;
+import ch.ethz.sg.cuttlefish.networks.EdgeListNetwork;
 import ch.ethz.sg.cuttlefish.networks.ExploreNetwork;
 import ch.ethz.sg.cuttlefish.networks.InteractiveCxfNetwork;
 import ch.ethz.sg.cuttlefish.networks.JsonNetwork;
+import ch.ethz.sg.cuttlefish.networks.LoadProgress;
+import ch.ethz.sg.cuttlefish.networks.MappedNetwork;
+import ch.ethz.sg.cuttlefish.networks.NetworkCache;
 import ch.ethz.sg.cuttlefish.networks.UserNetwork;
 
 public class NetworkInitializer {
@@ -39,219 +44,371 @@ public class NetworkInitializer {
 	private static String dbUrl = "";
 	private int driverIndex = 0;
 
+	// cache of parsed networks, null unless enabled
+	private static NetworkCache cache = Boolean.getBoolean("cuttlefish.cache")
+			? new NetworkCache(NetworkCache.getDefaultDirectory(),
+					NetworkCache.DEFAULT_MAX_BYTES) : null;
+
 	private File networkFile;
 
 	public NetworkInitializer() {
 
 	}
 
-	public BrowsableNetwork initNetwork(String selected) {
-		BrowsableNetwork network = null;
-
-		try {
-			if (selected.equalsIgnoreCase("cxf")) {
-				network = initCxfNetwork();
-
-			} else if (selected.equalsIgnoreCase("pajek")) {
-				network = initFileNetwork("Pajek", "net");
-
-			} else if (selected.equalsIgnoreCase("interactive")) {
-				network = initInteractiveCxfNetwork();
-
-			} else if (selected.equalsIgnoreCase("graphml")) {
-				network = initFileNetwork("GraphML", "graphml");
+	public static NetworkCache getCache() {
+		return cache;
+	}
 
-			} else if (selected.equalsIgnoreCase("user")) {
-				network = initUserNetwork();
+	/**
+	 * @param networkCache
+	 *            the cache used when opening CXF and Gephi files, or null to
+	 *            parse them every time
+	 */
+	public static void setCache(NetworkCache networkCache) {
+		cache = networkCache;
+	}
 
-			} else if (selected.equalsIgnoreCase("explore")) {
-				network = initCxfDBNetwork();
+	/**
+	 * Loads the file into the network from the cache, or parses it and
+	 * stores it in the cache.
+	 */
+	private static void loadCached(File file, BrowsableNetwork network)
+			throws IOException {
+		NetworkCache networkCache = cache;
 
-			} else if (selected.equalsIgnoreCase("db")) {
-				network = initDBNetwork();
+		if (networkCache == null) {
+			network.load(file);
+		} else if (!networkCache.load(file, network)) {
+			network.load(file);
 
-			} else if (selected.equalsIgnoreCase("json")) {
-				network = initJsonNetwork();
+			// a cancelled load is not complete
+			LoadProgress progress = network.getLoadProgress();
+			if (progress == null || !progress.isCancelled())
+				networkCache.store(file, network);
+		}
+	}
 
-			} else if (selected.equalsIgnoreCase("gexf")) {
-				network = initFileNetwork("GEXF", "gexf");
+	/**
+	 * Creates and loads a network chosen with
+	 * {@link NetworkInitializer#choose(String)}. It does not use the user
+	 * interface, so that it can run on a worker thread.
+	 */
+	public interface Loader {
+
+		/**
+		 * @param progress
+		 *            the receiver of the progress, which can cancel the
+		 *            loading, or null
+		 * @return the network
+		 */
+		BrowsableNetwork load(LoadProgress progress) throws IOException;
+	}
 
-			} else if (selected.equalsIgnoreCase("csv")) {
-				network = initFileNetwork("CSV", "csv");
+	/**
+	 * Asks for the input of the selected network and loads it.
+	 * 
+	 * @return the network, or null if the user cancelled or if it could not
+	 *         be loaded
+	 */
+	public BrowsableNetwork initNetwork(String selected) {
+		Loader loader = choose(selected);
+		if (loader == null)
+			return null;
 
-			} else {
-				network = initBrowsableNetwork();
-			}
+		BrowsableNetwork network = null;
+		try {
+			network = load(loader, null);
 
 		} catch (FileNotFoundException e) {
-			network = null;
 			ch.ethz.sg.cuttlefish.Cuttlefish.err("File not found! "
 					+ networkFile.getAbsolutePath());
 
 		} catch (IOException e) {
-			network = null;
 			e.printStackTrace();
 		}
 
+		// one summary of the problems found in the input
+		if (network != null)
+			network.getDiagnostics().publish();
+
 		return network;
 	}
 
-	private BrowsableNetwork initBrowsableNetwork() {
-		BrowsableNetwork network = new BrowsableNetwork();
-		network.setNetworkLoaded(true);
+	/**
+	 * Asks the user for the input of the selected network, on the event
+	 * dispatch thread. Networks without input files are created at once.
+	 * 
+	 * @return the loader of the network, or null if the user cancelled
+	 */
+	public Loader choose(String selected) {
+		File file;
+		FileLoader loader;
+
+		if (selected.equalsIgnoreCase("cxf")) {
+			file = chooseFile("Select a CXF file", "cxf");
+			loader = new FileLoader(file, true) {
+				@Override
+				BrowsableNetwork create() {
+					return new CxfNetwork();
+				}
+			};
+
+		} else if (selected.equalsIgnoreCase("cxb")) {
+			file = chooseFile("Select a CXB file", "cxb");
+			loader = new FileLoader(file, false) {
+				@Override
+				BrowsableNetwork create() {
+					return new CxbNetwork();
+				}
+			};
 
-		return network;
-	}
+		} else if (selected.equalsIgnoreCase("pajek")) {
+			file = chooseFile("Select a Pajek file", "net");
+			loader = new FileLoader(file, true);
 
-	private BrowsableNetwork initFileNetwork(String name, String extension)
-			throws IOException {
-		BrowsableNetwork network = null;
+		} else if (selected.equalsIgnoreCase("interactive")) {
+			return chooseInteractiveCxfNetwork();
 
-		JFileChooser fc = new FileChooser();
-		fc.setDialogTitle("Select a " + name + " file");
+		} else if (selected.equalsIgnoreCase("graphml")) {
+			file = chooseFile("Select a GraphML file", "graphml");
+			loader = new FileLoader(file, true);
 
-		if (extension != null && !extension.isEmpty()) {
-			fc.setFileFilter(new FileNameExtensionFilter("." + extension
-					+ " files", extension));
-		}
+		} else if (selected.equalsIgnoreCase("user")) {
+			file = chooseFile("Select a CFF file", "cff");
+			loader = new FileLoader(file, false) {
+				@Override
+				BrowsableNetwork create() {
+					return new UserNetwork();
+				}
+			};
+
+		} else if (selected.equalsIgnoreCase("tables")) {
+			return chooseTableNetwork();
+
+		} else if (selected.equalsIgnoreCase("edgelist")) {
+			file = chooseFile("Select an edge list", "txt", "edges", "tsv",
+					"csv", "gz");
+			loader = new FileLoader(file, true) {
+				@Override
+				BrowsableNetwork create() {
+					return new EdgeListNetwork();
+				}
+			};
+
+		} else if (selected.equalsIgnoreCase("mapped")) {
+			file = chooseFile("Select an edge list or a graph store", "cfmg",
+					"txt", "edges", "tsv", "csv", "gz");
+			loader = new FileLoader(file, false) {
+				@Override
+				BrowsableNetwork create() {
+					return new MappedNetwork();
+				}
+			};
 
-		int returnVal = fc.showOpenDialog(null);
+		} else if (selected.equalsIgnoreCase("explore")) {
+			return chooseCxfDBNetwork();
 
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			networkFile = fc.getSelectedFile();
-			network = new BrowsableNetwork();
-			network.load(networkFile);
-			network.setNetworkLoaded(true);
-		} else {
-			System.out.println("Input cancelled by user");
-		}
+		} else if (selected.equalsIgnoreCase("db")) {
+			return loaded(initDBNetwork());
 
-		return network;
-	}
+		} else if (selected.equalsIgnoreCase("json")) {
+			file = chooseFile("Select a JSON file");
+			loader = new FileLoader(file, false) {
+				@Override
+				BrowsableNetwork create() {
+					return new JsonNetwork();
+				}
+			};
 
-	private JsonNetwork initJsonNetwork() throws IOException {
-		JsonNetwork jsonNetwork = null;
+		} else if (selected.equalsIgnoreCase("gexf")) {
+			file = chooseFile("Select a GEXF file", "gexf");
+			loader = new FileLoader(file, true);
+
+		} else if (selected.equalsIgnoreCase("csv")) {
+			file = chooseFile("Select a CSV file", "csv");
+			loader = new FileLoader(file, true);
 
-		JFileChooser fc = new FileChooser();
-		fc.setDialogTitle("Select a JSON file");
-		int returnVal = fc.showOpenDialog(null);
-
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			networkFile = fc.getSelectedFile();
-			jsonNetwork = new JsonNetwork();
-			jsonNetwork.load(networkFile);
-			jsonNetwork.setNetworkLoaded(true);
 		} else {
-			System.out.println("Input cancelled by user");
+			return loaded(initBrowsableNetwork());
 		}
 
-		return jsonNetwork;
+		return file == null ? null : loader;
+	}
+
+	/**
+	 * Runs a loader returned by choose(), on any thread.
+	 * 
+	 * @return the network
+	 * @throws IOException
+	 *             if the input could not be read
+	 */
+	public BrowsableNetwork load(Loader loader, LoadProgress progress)
+			throws IOException {
+		return loader.load(progress);
 	}
 
-	private UserNetwork initUserNetwork() {
-		UserNetwork userNetwork = null;
+	/**
+	 * @return a loader returning a network that is already loaded
+	 */
+	private static Loader loaded(final BrowsableNetwork network) {
+		return new Loader() {
+			@Override
+			public BrowsableNetwork load(LoadProgress progress) {
+				return network;
+			}
+		};
+	}
 
+	/**
+	 * Asks for a file.
+	 * 
+	 * @param extensions
+	 *            the extensions of the files shown, none to show all files
+	 * @return the file, or null if the user cancelled
+	 */
+	private File chooseFile(String title, String... extensions) {
 		JFileChooser fc = new FileChooser();
-		fc.setDialogTitle("Select a CFF file");
-		fc.setFileFilter(new FileNameExtensionFilter(".cff files", "cff"));
-		int returnVal = fc.showOpenDialog(null);
-
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			networkFile = fc.getSelectedFile();
-			userNetwork = new UserNetwork();
-			userNetwork.load(networkFile);
-			userNetwork.setNetworkLoaded(true);
-		} else {
+		fc.setDialogTitle(title);
+
+		if (extensions.length > 0) {
+			StringBuilder description = new StringBuilder();
+			for (String extension : extensions)
+				description.append(description.length() == 0 ? "." : ", .")
+						.append(extension);
+			description.append(" files");
+
+			fc.setFileFilter(new FileNameExtensionFilter(description
+					.toString(), extensions));
+		}
+
+		if (fc.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) {
 			System.out.println("Input cancelled by user");
+			return null;
 		}
 
-		return userNetwork;
+		networkFile = fc.getSelectedFile();
+		return networkFile;
 	}
 
-	private CxfNetwork initCxfNetwork() throws FileNotFoundException {
-		CxfNetwork cxfNetwork = null;
+	private BrowsableNetwork initBrowsableNetwork() {
+		BrowsableNetwork network = new BrowsableNetwork();
+		network.setNetworkLoaded(true);
 
-		JFileChooser fc = new FileChooser();
-		fc.setDialogTitle("Select a CXF file");
-		fc.setFileFilter(new FileNameExtensionFilter(".cxf files", "cxf"));
-		int returnVal = fc.showOpenDialog(null);
-
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			ch.ethz.sg.cuttlefish.gui.Cuttlefish.currentDirectory = fc
-					.getCurrentDirectory();
-			System.out
-					.println("Current directory: " + fc.getCurrentDirectory());
-			networkFile = fc.getSelectedFile();
-			cxfNetwork = new CxfNetwork();
-			cxfNetwork.load(networkFile);
-			cxfNetwork.setNetworkLoaded(true);
-		} else {
-			System.out.println("Input cancelled by user");
+		return network;
+	}
+
+	/**
+	 * Loader of a file into a new network, a BrowsableNetwork read by Gephi
+	 * unless create() is overridden.
+	 */
+	private static class FileLoader implements Loader {
+		private final File file;
+		private final boolean cached;
+
+		/**
+		 * @param cached
+		 *            whether the network goes through the cache, see
+		 *            {@link NetworkInitializer#setCache(NetworkCache)}
+		 */
+		FileLoader(File file, boolean cached) {
+			this.file = file;
+			this.cached = cached;
+		}
+
+		BrowsableNetwork create() {
+			return new BrowsableNetwork();
 		}
 
-		return cxfNetwork;
+		@Override
+		public BrowsableNetwork load(LoadProgress progress) throws IOException {
+			BrowsableNetwork network = create();
+
+			network.setLoadProgress(progress);
+			if (cached)
+				loadCached(file, network);
+			else
+				network.load(file);
+			network.setLoadProgress(null);
+			network.setNetworkLoaded(true);
+
+			return network;
+		}
 	}
 
-	private InteractiveCxfNetwork initInteractiveCxfNetwork()
-			throws FileNotFoundException {
-		InteractiveCxfNetwork interactiveCxfNetwork = null;
+	private Loader chooseTableNetwork() {
+		final File nodeFile = chooseFile("Select the node table", "tsv",
+				"csv", "txt");
+		if (nodeFile == null)
+			return null;
 
-		JFileChooser fc = new FileChooser();
-		fc.setDialogTitle("Select a CXF file");
-		fc.setFileFilter(new FileNameExtensionFilter(".cxf files", "cxf"));
-		int returnVal = fc.showOpenDialog(null);
-
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			ch.ethz.sg.cuttlefish.gui.Cuttlefish.currentDirectory = fc
-					.getCurrentDirectory();
-			System.out
-					.println("Current directory: " + fc.getCurrentDirectory());
-			networkFile = fc.getSelectedFile();
-			interactiveCxfNetwork = new InteractiveCxfNetwork();
-			interactiveCxfNetwork.load(networkFile);
-			interactiveCxfNetwork.setNetworkLoaded(true);
-		} else {
-			System.out.println("Input cancelled by user");
+		final File edgeFile = chooseFile("Select the edge table", "tsv",
+				"csv", "txt");
+		if (edgeFile == null)
 			return null;
-		}
 
-		fc = new FileChooser();
-		fc.setDialogTitle("Select a CEF file");
-		fc.setFileFilter(new FileNameExtensionFilter(".cef files", "cef"));
-		returnVal = fc.showOpenDialog(null);
+		return new Loader() {
+			@Override
+			public BrowsableNetwork load(LoadProgress progress)
+					throws IOException {
+				UserNetwork userNetwork = new UserNetwork();
+				if (nodeFile.getName().toLowerCase().contains(".csv"))
+					userNetwork.setDelimiter(',');
+				userNetwork.setLoadProgress(progress);
+				userNetwork.load(nodeFile, edgeFile);
+				userNetwork.setLoadProgress(null);
+				userNetwork.setNetworkLoaded(true);
+
+				return userNetwork;
+			}
+		};
+	}
 
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			networkFile = fc.getSelectedFile();
-			interactiveCxfNetwork.loadInstructions(networkFile);
-		} else {
-			System.out.println("Input cancelled by user");
-		}
+	private Loader chooseInteractiveCxfNetwork() {
+		final File file = chooseFile("Select a CXF file", "cxf");
+		if (file == null)
+			return null;
+
+		// the network is opened without instructions if none is chosen
+		final File instructions = chooseFile("Select a CEF file", "cef");
 
-		return interactiveCxfNetwork;
+		return new Loader() {
+			@Override
+			public BrowsableNetwork load(LoadProgress progress)
+					throws IOException {
+				InteractiveCxfNetwork network = new InteractiveCxfNetwork();
+				network.setLoadProgress(progress);
+				network.load(file);
+				network.setLoadProgress(null);
+				network.setNetworkLoaded(true);
+
+				if (instructions != null)
+					network.loadInstructions(instructions);
+
+				return network;
+			}
+		};
 	}
 
-	private ExploreNetwork initCxfDBNetwork() throws FileNotFoundException {
-		ExploreNetwork cxfDBNetwork = null;
-
-		FileChooser fc = new FileChooser();
-		fc.setDialogTitle("Select a CXF file");
-		fc.setFileFilter(new FileNameExtensionFilter(".cxf files", "cxf"));
-		int returnVal = fc.showOpenDialog(null);
-
-		if (returnVal == JFileChooser.APPROVE_OPTION) {
-			ch.ethz.sg.cuttlefish.gui.Cuttlefish.currentDirectory = fc
-					.getCurrentDirectory();
-			System.out
-					.println("Current directory: " + fc.getCurrentDirectory());
-			networkFile = fc.getSelectedFile();
-			cxfDBNetwork = new ExploreNetwork();
-			cxfDBNetwork.connect(new CxfNetwork(networkFile));
-			cxfDBNetwork.setNetworkLoaded(true);
-		} else {
-			System.out.println("Input cancelled by user");
-		}
+	private Loader chooseCxfDBNetwork() {
+		final File file = chooseFile("Select a CXF file", "cxf");
+		if (file == null)
+			return null;
 
-		return cxfDBNetwork;
+		return new Loader() {
+			@Override
+			public BrowsableNetwork load(LoadProgress progress)
+					throws IOException {
+				ExploreNetwork cxfDBNetwork = new ExploreNetwork();
+				CxfNetwork cxfNetwork = new CxfNetwork();
+				cxfNetwork.setLoadProgress(progress);
+				cxfNetwork.load(file);
+				cxfNetwork.setLoadProgress(null);
+				cxfDBNetwork.connect(cxfNetwork);
+				cxfDBNetwork.setNetworkLoaded(true);
+
+				return cxfDBNetwork;
+			}
+		};
 	}
 
 	private DBNetwork initDBNetwork() {
@@ -48,6 +48,7 @@ import ch.ethz.sg.cuttlefish.misc.Observer;
 import ch.ethz.sg.cuttlefish.misc.Subject;
 import ch.ethz.sg.cuttlefish.networks.BrowsableForestNetwork;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.ChangeJournal;
 import ch.ethz.sg.cuttlefish.networks.Edge;
 import ch.ethz.sg.cuttlefish.networks.InteractiveCxfNetwork;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
@@ -70,6 +71,9 @@ public class NetworkPanel extends JPanel implements Subject, INetworkBrowser,
 	private NetworkRenderer networkRenderer = null;
 	private GraphMouse gMouse;
 
+	// Changes to the graph since the layout was last reset
+	private ChangeJournal.Cursor layoutChanges = null;
+
 	public NetworkPanel() {
 		super();
 		width = 1096;
@@ -153,6 +157,7 @@ public class NetworkPanel extends JPanel implements Subject, INetworkBrowser,
 	@Override
 	public void setNetwork(BrowsableNetwork network) {
 		this.network = network;
+		layoutChanges = BrowsableNetwork.getJournal().newCursor();
 		layoutLoader.setNetwork(network);
 		/*
 		 * Default layout: ARF If the network is not a forest and the layout is
@@ -215,9 +220,31 @@ public class NetworkPanel extends JPanel implements Subject, INetworkBrowser,
 					.getOriginalNetwork());
 		}
 
+		// Attribute changes only need a repaint, the layout is reset when
+		// vertices or edges were added or removed
+		if (!hasStructuralChanges()) {
+			repaintViewer();
+			return;
+		}
+
 		resumeLayout();
 	}
 
+	private boolean hasStructuralChanges() {
+		final boolean[] structural = { false };
+
+		boolean complete = layoutChanges.read(new ChangeJournal.Reader() {
+			@Override
+			public void change(int type, int id) {
+				if (type != ChangeJournal.NODE_CHANGED
+						&& type != ChangeJournal.EDGE_CHANGED)
+					structural[0] = true;
+			}
+		});
+
+		return !complete || structural[0];
+	}
+
 	@Override
 	public void stopLayout() {
 		layoutLoader.stopLayout();
@@ -25,7 +25,6 @@ package ch.ethz.sg.cuttlefish.gui.menus;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
 
@@ -43,8 +42,11 @@ import ch.ethz.sg.cuttlefish.exporter.NetworkExportController;
 import ch.ethz.sg.cuttlefish.exporter.TikzExporter;
 import ch.ethz.sg.cuttlefish.gui.CuttlefishToolbars;
 import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
+import ch.ethz.sg.cuttlefish.gui.tasks.ExportNetworkWorker;
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
 import ch.ethz.sg.cuttlefish.layout.arf.ARFLayout;
 import ch.ethz.sg.cuttlefish.layout.arf.WeightedARFLayout;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
 import ch.ethz.sg.cuttlefish.misc.Conversion;
 import ch.ethz.sg.cuttlefish.misc.CxfToCmx;
 import ch.ethz.sg.cuttlefish.misc.FileChooser;
@@ -75,6 +77,7 @@ public class ExportMenu extends AbstractMenu {
 	private JMenuItem toGexf;
 	private JMenuItem toCsv;
 	private JMenuItem toJson;
+	private JMenuItem toCxb;
 
 	private JFileChooser snapshotFileChooser;
 	private JFileChooser appletFileChooser;
@@ -112,11 +115,13 @@ public class ExportMenu extends AbstractMenu {
 		toGexf = new JMenuItem("GEXF");
 		toCsv = new JMenuItem("CSV");
 		toJson = new JMenuItem("JSON");
+		toCxb = new JMenuItem("Binary cxb");
 
 		this.add(toTikz);
 		this.add(toGraphml);
 		this.add(toPajek);
 		this.add(toJson);
+		this.add(toCxb);
 		this.add(toGexf);
 		this.add(toCsv);
 
@@ -184,6 +189,13 @@ public class ExportMenu extends AbstractMenu {
 			}
 		});
 
+		toCxb.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				doExport("CXB", "cxb");
+			}
+		});
+
 		toSVG.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
@@ -217,6 +229,8 @@ public class ExportMenu extends AbstractMenu {
 						AppletExporter applet = (AppletExporter) NetworkExportController
 								.getExporter("applet");
 						applet.setNetwork(networkPanel.getNetwork());
+						applet.setVersion(networkPanel.getNetwork().freeze(
+								PositionBuffer.RUNNING_LAYOUT));
 						applet.exportToDynamicApplet(fc.getSelectedFile());
 					}
 					fc = getAppletChooser();
@@ -226,6 +240,8 @@ public class ExportMenu extends AbstractMenu {
 						AppletExporter applet = (AppletExporter) NetworkExportController
 								.getExporter("applet");
 						applet.setNetwork(networkPanel.getNetwork());
+						applet.setVersion(networkPanel.getNetwork().freeze(
+								PositionBuffer.RUNNING_LAYOUT));
 						applet.exportInitialPage(fc.getSelectedFile(),
 								imageFilename, networkFilename, imageWidth,
 								imageHeight);
@@ -404,14 +420,16 @@ public class ExportMenu extends AbstractMenu {
 
 					if (returnVal == JFileChooser.APPROVE_OPTION) {
 						File file = fc.getSelectedFile();
-						PrintStream p = new PrintStream(file);
+						PrintStream p = new PrintStream(CompressedStreams
+								.openOutput(file));
 						int[][] myAdjMatrix = Conversion
 								.graphToAdjacencyMatrix(networkPanel
 										.getNetwork());
 						Conversion.printMatrix(myAdjMatrix, p);
+						p.close();
 					}
-				} catch (FileNotFoundException fnfEx) {
-					errorPopup(fnfEx,
+				} catch (IOException ioEx) {
+					errorPopup(ioEx,
 							"Error trying to write andjacency list file!");
 				}
 			}
@@ -427,11 +445,13 @@ public class ExportMenu extends AbstractMenu {
 
 					if (returnVal == JFileChooser.APPROVE_OPTION) {
 						File file = fc.getSelectedFile();
-						PrintStream p = new PrintStream(file);
+						PrintStream p = new PrintStream(CompressedStreams
+								.openOutput(file));
 						Conversion.writeEdgeList(networkPanel.getNetwork(), p);
+						p.close();
 					}
-				} catch (FileNotFoundException fnfEx) {
-					errorPopup(fnfEx,
+				} catch (IOException ioEx) {
+					errorPopup(ioEx,
 							"Error trying to write andjacency list file!");
 				}
 			}
@@ -566,10 +586,12 @@ public class ExportMenu extends AbstractMenu {
 			try {
 				Exporter exporter = NetworkExportController
 						.getExporter(extension);
-				NetworkExportController.export(networkPanel.getNetwork(),
-						fc.getSelectedFile(), exporter);
+				ExportNetworkWorker.export(networkPanel.getNetwork(),
+						fc.getSelectedFile(), exporter,
+						PositionBuffer.RUNNING_LAYOUT,
+						"Output error when saving in " + name + "!");
 			} catch (Exception ex) {
-				errorPopup(ex, "Output error when saving in GraphML!");
+				errorPopup(ex, "Output error when saving in " + name + "!");
 			}
 		}
 	}
@@ -39,7 +39,9 @@ import ch.ethz.sg.cuttlefish.exporter.NetworkExportController;
 import ch.ethz.sg.cuttlefish.gui.Cuttlefish;
 import ch.ethz.sg.cuttlefish.gui.CuttlefishToolbars;
 import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
+import ch.ethz.sg.cuttlefish.gui.tasks.ExportNetworkWorker;
 import ch.ethz.sg.cuttlefish.gui.undoable.UndoableControl;
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
 import ch.ethz.sg.cuttlefish.misc.FileChooser;
 import ch.ethz.sg.cuttlefish.misc.NetworkStatistics;
@@ -165,8 +167,9 @@ public class NetworkMenu extends AbstractMenu implements Observer,
 
 					Exporter exporter = NetworkExportController
 							.getExporter("cxf");
-					NetworkExportController.export(networkPanel.getNetwork(),
-							saveTo, exporter);
+					ExportNetworkWorker.export(networkPanel.getNetwork(),
+							saveTo, exporter, PositionBuffer.RUNNING_LAYOUT,
+							"Could not write to file");
 				} catch (Exception e1) {
 					JOptionPane.showMessageDialog(null, e1.getMessage(),
 							"Could not write to file",
@@ -190,8 +193,9 @@ public class NetworkMenu extends AbstractMenu implements Observer,
 						file.createNewFile();
 						Exporter exporter = NetworkExportController
 								.getExporter("cxf");
-						NetworkExportController.export(
-								networkPanel.getNetwork(), file, exporter);
+						ExportNetworkWorker.export(networkPanel.getNetwork(),
+								file, exporter, PositionBuffer.RUNNING_LAYOUT,
+								"Impossible to write");
 					} catch (Exception ioEx) {
 						JOptionPane.showMessageDialog(null, ioEx.getMessage(),
 								"Error", JOptionPane.ERROR_MESSAGE);
@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
@@ -36,29 +37,38 @@ import javax.swing.KeyStroke;
 import ch.ethz.sg.cuttlefish.gui.CuttlefishToolbars;
 import ch.ethz.sg.cuttlefish.gui.NetworkInitializer;
 import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
+import ch.ethz.sg.cuttlefish.gui.tasks.OpenNetworkWorker;
 import ch.ethz.sg.cuttlefish.gui.toolbars.DBToolbar;
 import ch.ethz.sg.cuttlefish.misc.Observer;
 import ch.ethz.sg.cuttlefish.misc.Subject;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
 import ch.ethz.sg.cuttlefish.networks.DBNetwork;
 import ch.ethz.sg.cuttlefish.networks.InteractiveCxfNetwork;
+import ch.ethz.sg.cuttlefish.networks.NetworkCache;
 
 public class OpenMenu extends AbstractMenu implements Subject {
 
 	private static final long serialVersionUID = 1L;
 	private JMenuItem cxfNetwork;
+	private JMenuItem cxbNetwork;
 	private JMenuItem dbNetwork;
 	private JMenuItem interactiveNetwork;
 	private JMenuItem exploreNetwork;
 	private JMenuItem pajekNetwork;
 	private JMenuItem graphmlNetwork;
 	private JMenuItem jsonNetwork;
+	private JMenuItem tableNetwork;
+	private JMenuItem edgeListNetwork;
+	private JMenuItem mappedNetwork;
 	private JMenuItem testSimulation;
 	private JMenuItem baSimulation;
 	private JMenuItem gexfNetwork;
+	private JCheckBoxMenuItem cacheNetworks;
 	private List<Observer> observers;
 
 	private HashMap<JMenuItem, String> networkMap;
+	// the network being opened, if any
+	private OpenNetworkWorker opening = null;
 
 	public OpenMenu(NetworkPanel networkPanel, CuttlefishToolbars toolbars) {
 		super(networkPanel, toolbars);
@@ -69,15 +79,21 @@ public class OpenMenu extends AbstractMenu implements Subject {
 
 	private void initialize() {
 		cxfNetwork = new JMenuItem("Cxf network");
+		cxbNetwork = new JMenuItem("Binary cxb network");
 		interactiveNetwork = new JMenuItem("Interactive network");
 		exploreNetwork = new JMenuItem("Explore cxf network");
 		dbNetwork = new JMenuItem("Database network");
 		pajekNetwork = new JMenuItem("Pajek network");
 		graphmlNetwork = new JMenuItem("GraphML network");
 		jsonNetwork = new JMenuItem("Json network");
+		tableNetwork = new JMenuItem("Node and edge tables");
+		edgeListNetwork = new JMenuItem("Edge list");
+		mappedNetwork = new JMenuItem("Large edge list (mapped)");
 		testSimulation = new JMenuItem("Test simulation");
 		baSimulation = new JMenuItem("BA simulation");
 		gexfNetwork = new JMenuItem("GEXF network");
+		cacheNetworks = new JCheckBoxMenuItem("Cache parsed networks",
+				NetworkInitializer.getCache() != null);
 
 		cxfNetwork.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_C,
 				ActionEvent.ALT_MASK));
@@ -95,12 +111,16 @@ public class OpenMenu extends AbstractMenu implements Subject {
 
 		networkMap = new HashMap<JMenuItem, String>();
 		networkMap.put(cxfNetwork, "cxf");
+		networkMap.put(cxbNetwork, "cxb");
 		networkMap.put(exploreNetwork, "explore");
 		networkMap.put(dbNetwork, "db");
 		networkMap.put(interactiveNetwork, "interactive");
 		networkMap.put(pajekNetwork, "pajek");
 		networkMap.put(graphmlNetwork, "graphml");
 		networkMap.put(jsonNetwork, "json");
+		networkMap.put(tableNetwork, "tables");
+		networkMap.put(edgeListNetwork, "edgelist");
+		networkMap.put(mappedNetwork, "mapped");
 		networkMap.put(testSimulation, "test");
 		networkMap.put(baSimulation, "ba-simulation");
 		networkMap.put(gexfNetwork, "gexf");
@@ -115,6 +135,7 @@ public class OpenMenu extends AbstractMenu implements Subject {
 		baSimulation.setMnemonic('B');
 
 		this.add(cxfNetwork);
+		this.add(cxbNetwork);
 		this.add(exploreNetwork);
 		this.add(dbNetwork);
 		this.add(interactiveNetwork);
@@ -123,9 +144,14 @@ public class OpenMenu extends AbstractMenu implements Subject {
 		this.add(graphmlNetwork);
 		this.add(jsonNetwork);
 		this.add(gexfNetwork);
+		this.add(tableNetwork);
+		this.add(edgeListNetwork);
+		this.add(mappedNetwork);
 		this.addSeparator();
 		this.add(baSimulation);
 		this.add(testSimulation);
+		this.addSeparator();
+		this.add(cacheNetworks);
 		this.setVisible(true);
 
 		cxfNetwork.addActionListener(new ActionListener() {
@@ -136,6 +162,14 @@ public class OpenMenu extends AbstractMenu implements Subject {
 				notifyObservers();
 			}
 		});
+		cxbNetwork.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				networkSelected(cxbNetwork);
+				toolbars.getSimulationToolbar().setVisible(false);
+				toolbars.getDBToolbar().setVisible(false);
+				notifyObservers();
+			}
+		});
 		exploreNetwork.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
@@ -185,6 +219,30 @@ public class OpenMenu extends AbstractMenu implements Subject {
 				notifyObservers();
 			}
 		});
+		tableNetwork.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				networkSelected(tableNetwork);
+				toolbars.getSimulationToolbar().setVisible(false);
+				toolbars.getDBToolbar().setVisible(false);
+				notifyObservers();
+			}
+		});
+		edgeListNetwork.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				networkSelected(edgeListNetwork);
+				toolbars.getSimulationToolbar().setVisible(false);
+				toolbars.getDBToolbar().setVisible(false);
+				notifyObservers();
+			}
+		});
+		mappedNetwork.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				networkSelected(mappedNetwork);
+				toolbars.getSimulationToolbar().setVisible(false);
+				toolbars.getDBToolbar().setVisible(false);
+				notifyObservers();
+			}
+		});
 		baSimulation.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				networkSelected(baSimulation);
@@ -209,14 +267,29 @@ public class OpenMenu extends AbstractMenu implements Subject {
 				notifyObservers();
 			}
 		});
+		cacheNetworks.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (cacheNetworks.isSelected())
+					NetworkInitializer.setCache(new NetworkCache(NetworkCache
+							.getDefaultDirectory(),
+							NetworkCache.DEFAULT_MAX_BYTES));
+				else
+					NetworkInitializer.setCache(null);
+			}
+		});
 	}
 
 	private void networkSelected(JMenuItem selected) {
-		BrowsableNetwork network = null;
+		// one network is opened at a time
+		if (opening != null && !opening.isDone())
+			return;
+
 		String networkSelected = networkMap.get(selected);
+		NetworkInitializer initializer = new NetworkInitializer();
+		NetworkInitializer.Loader loader = null;
 
 		try {
-			network = new NetworkInitializer().initNetwork(networkSelected);
+			loader = initializer.choose(networkSelected);
 
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(null,
@@ -226,10 +299,19 @@ public class OpenMenu extends AbstractMenu implements Subject {
 		}
 
 		// User input was cancelled; do not reset existing network
-		if (network == null || !network.isNetworkLoaded()) {
+		if (loader == null)
 			return;
-		}
 
+		opening = new OpenNetworkWorker(networkPanel, initializer, loader) {
+			@Override
+			protected void opened(BrowsableNetwork network) {
+				networkOpened(network);
+			}
+		};
+		opening.start();
+	}
+
+	private void networkOpened(BrowsableNetwork network) {
 		if (network instanceof DBNetwork) {
 			/*
 			 * Toolbar should be initialized only after connection has been
@@ -246,6 +328,7 @@ public class OpenMenu extends AbstractMenu implements Subject {
 
 		networkPanel.setNetwork(network);
 		networkPanel.repaintViewer();
+		notifyObservers();
 	}
 
 	@Override
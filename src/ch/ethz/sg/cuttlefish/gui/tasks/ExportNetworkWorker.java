@@ -0,0 +1,79 @@
+package ch.ethz.sg.cuttlefish.gui.tasks;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+import org.gephi.io.exporter.spi.Exporter;
+
+import ch.ethz.sg.cuttlefish.Cuttlefish;
+import ch.ethz.sg.cuttlefish.exporter.NetworkExportController;
+import ch.ethz.sg.cuttlefish.exporter.NetworkExporter;
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.PositionSource;
+
+/**
+ * Writes a network off the event dispatch thread. The network is frozen when
+ * the worker is created, see {@link NetworkExportController#prepare}, so it
+ * can be edited and laid out while the file is written. Errors are shown in
+ * a dialog once the export is done.
+ */
+public class ExportNetworkWorker extends SwingWorker<Object, Object> {
+
+	private final File file;
+	private final Exporter exporter;
+	private final String errorMessage;
+
+	/**
+	 * Must be called on the event dispatch thread.
+	 */
+	private ExportNetworkWorker(BrowsableNetwork network, File file,
+			Exporter exporter, PositionSource positions, String errorMessage) {
+		this.file = file;
+		this.exporter = exporter;
+		this.errorMessage = errorMessage;
+
+		NetworkExportController.prepare(network, exporter, positions);
+	}
+
+	/**
+	 * Exports the network in the background if the exporter writes a frozen
+	 * copy, as the Cuttlefish exporters do. The Gephi exporters read the
+	 * graph and are written at once.
+	 *
+	 * @param errorMessage
+	 *            reported if the export fails
+	 */
+	public static void export(BrowsableNetwork network, File file,
+			Exporter exporter, PositionSource positions, String errorMessage)
+			throws Exception {
+		if (exporter instanceof NetworkExporter)
+			new ExportNetworkWorker(network, file, exporter, positions,
+					errorMessage).execute();
+		else
+			NetworkExportController.export(network, file, exporter,
+					positions);
+	}
+
+	@Override
+	protected Object doInBackground() throws Exception {
+		NetworkExportController.write(file, exporter);
+		return null;
+	}
+
+	@Override
+	protected void done() {
+		try {
+			get();
+		} catch (InterruptedException iEx) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException exEx) {
+			exEx.getCause().printStackTrace();
+			JOptionPane.showMessageDialog(null, exEx.getCause().getMessage(),
+					"Error", JOptionPane.ERROR_MESSAGE);
+			Cuttlefish.err(errorMessage);
+		}
+	}
+}
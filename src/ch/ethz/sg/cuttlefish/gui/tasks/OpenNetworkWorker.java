@@ -0,0 +1,237 @@
+package ch.ethz.sg.cuttlefish.gui.tasks;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import ch.ethz.sg.cuttlefish.gui.NetworkInitializer;
+import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
+import ch.ethz.sg.cuttlefish.misc.ProgressMeter;
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.LoadProgress;
+
+/**
+ * Loads a network chosen with {@link NetworkInitializer#choose(String)} off
+ * the event dispatch thread, showing the bytes read, the elements created and
+ * the remaining time in a dialog with a cancel button.
+ *
+ * All networks share the graph of the workspace. It is only cleared when the
+ * loader adds the new network, see {@link BrowsableNetwork#deferClearing()},
+ * so the network shown before stays if the loading is cancelled or fails
+ * before. The loaded network is handed to {@link #opened(BrowsableNetwork)}.
+ */
+public abstract class OpenNetworkWorker extends
+		SwingWorker<BrowsableNetwork, OpenNetworkWorker.Progress> {
+
+	// milliseconds before the dialog shows up, and between its updates
+	private static final int POPUP_MILLIS = 500;
+	private static final long UPDATE_MILLIS = 100;
+
+	private final NetworkPanel networkPanel;
+	private final NetworkInitializer initializer;
+	private final NetworkInitializer.Loader loader;
+
+	private final ProgressMeter meter = new ProgressMeter();
+	private final JDialog dialog;
+	private final JProgressBar progressBar;
+	private final JLabel note;
+	private final Timer popup;
+
+	// set on the event dispatch thread, read by the loader
+	private volatile boolean stopped = false;
+	// read and written by the loader only
+	private long lastUpdate = 0;
+
+	/**
+	 * A report of the loader, handed to the event dispatch thread.
+	 */
+	static final class Progress {
+		final long bytesRead;
+		final long totalBytes;
+		final int elements;
+
+		Progress(long bytesRead, long totalBytes, int elements) {
+			this.bytesRead = bytesRead;
+			this.totalBytes = totalBytes;
+			this.elements = elements;
+		}
+	}
+
+	public OpenNetworkWorker(NetworkPanel networkPanel,
+			NetworkInitializer initializer, NetworkInitializer.Loader loader) {
+		this.networkPanel = networkPanel;
+		this.initializer = initializer;
+		this.loader = loader;
+
+		dialog = new JDialog(SwingUtilities.getWindowAncestor(networkPanel),
+				"Opening the network");
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setIndeterminate(true);
+		note = new JLabel("Reading the input");
+		JButton cancel = new JButton("Cancel");
+
+		JPanel panel = new JPanel(new BorderLayout(8, 8));
+		panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+		panel.add(note, BorderLayout.NORTH);
+		panel.add(progressBar, BorderLayout.CENTER);
+		panel.add(cancel, BorderLayout.EAST);
+		dialog.getContentPane().add(panel);
+		dialog.setSize(420, 110);
+		dialog.setLocationRelativeTo(networkPanel);
+		dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+
+		cancel.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				stop();
+			}
+		});
+		dialog.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				stop();
+			}
+		});
+
+		// small files are opened without showing the dialog
+		popup = new Timer(POPUP_MILLIS, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (!isDone())
+					dialog.setVisible(true);
+			}
+		});
+		popup.setRepeats(false);
+	}
+
+	/**
+	 * Takes over the loaded network, on the event dispatch thread.
+	 */
+	protected abstract void opened(BrowsableNetwork network);
+
+	/**
+	 * Asks the loader to stop. It stops at its next report of the progress.
+	 */
+	private void stop() {
+		stopped = true;
+		note.setText("Cancelling");
+		progressBar.setIndeterminate(true);
+	}
+
+	/**
+	 * Starts the worker, see {@link SwingWorker#execute()}.
+	 */
+	public void start() {
+		networkPanel.stopLayout();
+		networkPanel.getStatusBar().setBusyMessage("Opening a network", this);
+		popup.start();
+		execute();
+	}
+
+	@Override
+	protected BrowsableNetwork doInBackground() throws IOException {
+		BrowsableNetwork network;
+		boolean unchanged;
+
+		BrowsableNetwork.deferClearing();
+		try {
+			network = initializer.load(loader, new LoadProgress() {
+				@Override
+				public void progress(long bytesRead, long totalBytes,
+						int elements) {
+					long now = System.currentTimeMillis();
+					if (now - lastUpdate < UPDATE_MILLIS)
+						return;
+
+					lastUpdate = now;
+					publish(new Progress(bytesRead, totalBytes, elements));
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return stopped;
+				}
+			});
+		} finally {
+			unchanged = BrowsableNetwork.endDeferredClearing();
+		}
+
+		// cancelled before the graph was replaced, the previous network stays
+		if (unchanged && (stopped || network == null))
+			return null;
+
+		// a loader that added nothing still clears the previous network
+		if (unchanged)
+			network.clearGraph();
+
+		return network;
+	}
+
+	@Override
+	protected void process(List<Progress> reports) {
+		if (stopped)
+			return;
+
+		Progress last = reports.get(reports.size() - 1);
+		int percent = meter.percent(last.bytesRead, last.totalBytes);
+
+		progressBar.setIndeterminate(percent < 0);
+		if (percent >= 0)
+			progressBar.setValue(percent);
+		note.setText(meter.describe(last.bytesRead, last.totalBytes,
+				last.elements));
+	}
+
+	@Override
+	protected void done() {
+		popup.stop();
+		dialog.dispose();
+
+		BrowsableNetwork network = null;
+		try {
+			network = get();
+		} catch (InterruptedException iEx) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException exEx) {
+			exEx.getCause().printStackTrace();
+			JOptionPane.showMessageDialog(networkPanel, "The network could "
+					+ "not be opened: " + exEx.getCause().getMessage(),
+					"Open error", JOptionPane.ERROR_MESSAGE);
+		}
+
+		if (network == null) {
+			networkPanel.getStatusBar().setMessage(
+					stopped ? "Opening cancelled" : "Network not opened");
+			networkPanel.repaintViewer();
+			return;
+		}
+
+		// one summary of the problems found in the input
+		network.getDiagnostics().publish();
+
+		// the user may have cancelled a dialog of the network
+		if (!network.isNetworkLoaded()) {
+			networkPanel.getStatusBar().setMessage("Ready");
+			return;
+		}
+
+		networkPanel.getStatusBar().setMessage("Network opened");
+		opened(network);
+	}
+}
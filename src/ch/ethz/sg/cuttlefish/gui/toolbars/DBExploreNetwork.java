@@ -36,6 +36,7 @@ import javax.swing.WindowConstants;
 
 import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
 import ch.ethz.sg.cuttlefish.networks.BrowsableForestNetwork;
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
 import ch.ethz.sg.cuttlefish.networks.DBNetwork;
 
 public class DBExploreNetwork extends JFrame {
@@ -496,8 +497,7 @@ public class DBExploreNetwork extends JFrame {
     }
 
 	public void refresh() {
-		int numNodes = getDBNetwork().getVertexCount();
-		int numEdges = getDBNetwork().getEdgeCount();
+		long version = BrowsableNetwork.getJournal().getVersion();
 		getDBNetwork().setNodeFilter("");
 		getDBNetwork().setEdgeFilter("");
 		if(vertexSQLFilter.length() > 0)
@@ -506,8 +506,7 @@ public class DBExploreNetwork extends JFrame {
 			getDBNetwork().setEdgeFilter(edgeSQLFilter);
 		String nodeSQLQuery = "SELECT * FROM " + getDBNetwork().getFullNodeTableName();
 		getDBNetwork().nodeQuery(nodeSQLQuery);
-		if(getDBNetwork().getVertexCount() != numNodes || 
-				getDBNetwork().getEdgeCount() != numEdges) {
+		if (BrowsableNetwork.getJournal().getVersion() != version) {
 			networkPanel.onNetworkChange();
 		}
 		getDBNetwork().setNodeFilter("");
@@ -40,6 +40,7 @@ import javax.swing.SwingWorker;
 
 import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
 import ch.ethz.sg.cuttlefish.networks.BrowsableForestNetwork;
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
 import ch.ethz.sg.cuttlefish.networks.DBNetwork;
 import ch.ethz.sg.cuttlefish.networks.Edge;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
@@ -247,8 +248,7 @@ public class DBExploreNode extends JFrame {
 	}	
 		
 	public void refresh() {
-		int numNodes = getDBNetwork().getVertexCount();
-		int numEdges = getDBNetwork().getEdgeCount();
+		long version = BrowsableNetwork.getJournal().getVersion();
 		getDBNetwork().setNodeFilter("");
 		getDBNetwork().setEdgeFilter("");				
 		int distance = Integer.parseInt(distanceField.getText());				
@@ -258,8 +258,7 @@ public class DBExploreNode extends JFrame {
 		if(ignoreDirection.isSelected()) {
 			getDBNetwork().extendNeighborhood(Integer.parseInt(nodeField.getText()), distance, false, visitedVertices, visitedEdges);
 		}
-		if(getDBNetwork().getVertexCount() != numNodes || 
-				getDBNetwork().getEdgeCount() != numEdges) {
+		if (BrowsableNetwork.getJournal().getVersion() != version) {
 			networkPanel.onNetworkChange();
 		}
 	}
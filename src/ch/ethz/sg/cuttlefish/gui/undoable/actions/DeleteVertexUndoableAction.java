@@ -6,6 +6,7 @@ import java.util.List;
 import ch.ethz.sg.cuttlefish.gui.undoable.UndoableAction;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
 import ch.ethz.sg.cuttlefish.networks.Edge;
+import ch.ethz.sg.cuttlefish.networks.EdgeVisitor;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public class DeleteVertexUndoableAction extends UndoableAction {
@@ -19,9 +20,12 @@ public class DeleteVertexUndoableAction extends UndoableAction {
 		this.vertex = vertex;
 		this.incidentEdges = new ArrayList<Edge>();
 
-		for (Edge e : network.getIncidentEdges(vertex)) {
-			this.incidentEdges.add(e);
-		}
+		network.forEachIncidentEdge(vertex, new EdgeVisitor() {
+			@Override
+			public void visit(Edge e) {
+				incidentEdges.add(new Edge(e.getInternalEdge()));
+			}
+		});
 	}
 
 	@Override
@@ -3,7 +3,6 @@ package ch.ethz.sg.cuttlefish.gui.visualization;
 import java.awt.geom.Point2D;
 import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
-import java.util.Collection;
 
 import javax.media.opengl.GL2;
 import javax.media.opengl.GLAutoDrawable;
@@ -19,8 +18,9 @@ import ch.ethz.sg.cuttlefish.gui.visualization.renderers.EdgeRenderer;
 import ch.ethz.sg.cuttlefish.gui.visualization.renderers.LabelRenderer;
 import ch.ethz.sg.cuttlefish.gui.visualization.renderers.VertexRenderer;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
-import ch.ethz.sg.cuttlefish.networks.Edge;
+import ch.ethz.sg.cuttlefish.networks.EdgeVisitor;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.VertexVisitor;
 
 import com.jogamp.opengl.util.FPSAnimator;
 
@@ -51,6 +51,7 @@ public class NetworkRenderer implements GLEventListener {
 	private GLCanvas canvas;
 	private FPSAnimator animator = null;
 	private boolean animateLabels = false;
+	private final PositionBuffer positions = new PositionBuffer();
 
 	private final int ANIMATION_FPS = 60;
 	private final int RENDER_MARGIN = 50;
@@ -161,6 +162,9 @@ public class NetworkRenderer implements GLEventListener {
 		GL2 gl = drawable.getGL().getGL2();
 		this.drawable = drawable;
 
+		// Take the positions published last by a running layout
+		positions.beginFrame();
+
 		// Apply transformations
 		double transx = -origin.getX(), transy = -origin.getY();
 
@@ -242,23 +246,31 @@ public class NetworkRenderer implements GLEventListener {
 	 * shifts is so that it appears in the center of JUNG's VisualizationViewer.
 	 */
 	public void centerNetwork() {
-		double top = Double.MAX_VALUE;
-		double bottom = Double.MAX_VALUE;
-		double left = Double.MAX_VALUE;
-		double right = Double.MAX_VALUE;
-
-		for (Vertex v : getVertices()) {
-			Point2D p = v.getPosition();
-
-			if (top < p.getY() || top == Double.MAX_VALUE)
-				top = p.getY();
-			if (bottom > p.getY() || bottom == Double.MAX_VALUE)
-				bottom = p.getY();
-			if (left > p.getX() || left == Double.MAX_VALUE)
-				left = p.getX();
-			if (right < p.getX() || right == Double.MAX_VALUE)
-				right = p.getX();
-		}
+		// top, bottom, left, right
+		final double[] bounds = { Double.MAX_VALUE, Double.MAX_VALUE,
+				Double.MAX_VALUE, Double.MAX_VALUE };
+
+		forEachVertex(new VertexVisitor() {
+			@Override
+			public void visit(Vertex v) {
+				double x = v.getX();
+				double y = v.getY();
+
+				if (bounds[0] < y || bounds[0] == Double.MAX_VALUE)
+					bounds[0] = y;
+				if (bounds[1] > y || bounds[1] == Double.MAX_VALUE)
+					bounds[1] = y;
+				if (bounds[2] > x || bounds[2] == Double.MAX_VALUE)
+					bounds[2] = x;
+				if (bounds[3] < x || bounds[3] == Double.MAX_VALUE)
+					bounds[3] = x;
+			}
+		});
+
+		double top = bounds[0];
+		double bottom = bounds[1];
+		double left = bounds[2];
+		double right = bounds[3];
 
 		double deltaX = this.getCenter().getX() - (right + left) / 2;
 		double deltaY = this.getCenter().getY() - (top + bottom) / 2;
@@ -314,6 +326,13 @@ public class NetworkRenderer implements GLEventListener {
 		this.zoomPos = zoomCenter;
 	}
 
+	/**
+	 * @return the positions the vertices are drawn at
+	 */
+	public PositionBuffer getPositions() {
+		return positions;
+	}
+
 	public double getScaleFactor() {
 		return scaleFactor;
 	}
@@ -326,12 +345,28 @@ public class NetworkRenderer implements GLEventListener {
 		return this.graphMouse;
 	}
 
-	public Collection<Vertex> getVertices() {
-		return networkPanel.getNetwork().getVertices();
+	public void forEachVertex(VertexVisitor visitor) {
+		networkPanel.getNetwork().forEachVertex(visitor);
 	}
 
-	public Collection<Edge> getEdges() {
-		return networkPanel.getNetwork().getEdges();
+	public void forEachEdge(EdgeVisitor visitor) {
+		networkPanel.getNetwork().forEachEdge(visitor);
+	}
+
+	/**
+	 * Visits the vertices that are not excluded, see
+	 * {@link BrowsableNetwork#getVisibleView()}.
+	 */
+	public void forEachVisibleVertex(VertexVisitor visitor) {
+		networkPanel.getNetwork().getVisibleView().forEachVertex(visitor);
+	}
+
+	/**
+	 * Visits the edges that are not excluded, see
+	 * {@link BrowsableNetwork#getVisibleView()}.
+	 */
+	public void forEachVisibleEdge(EdgeVisitor visitor) {
+		networkPanel.getNetwork().getVisibleView().forEachEdge(visitor);
 	}
 
 	public BrowsableNetwork getNetwork() {
@@ -0,0 +1,186 @@
+package ch.ethz.sg.cuttlefish.gui.visualization;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+import ch.ethz.sg.cuttlefish.networks.GraphSnapshot;
+import ch.ethz.sg.cuttlefish.networks.PositionSource;
+
+/**
+ * Hands the node positions computed by a running layout over to the
+ * renderer. The layout thread copies the positions into a back frame after
+ * every step and publishes it with an atomic swap. The renderer picks up the
+ * latest published frame when it starts drawing and reads only that frame,
+ * so it never sees a step half done and never waits for the layout.
+ *
+ * Three frames are used, so that neither side ever writes a frame the other
+ * one is reading. While no layout is running the renderer reads the
+ * positions from the nodes, as edits must show immediately.
+ *
+ * Other threads can copy the latest frame with
+ * {@link #copyLatest(GraphSnapshot, float[], float[])}.
+ */
+public class PositionBuffer {
+
+	private static final class Frame {
+		float[] x = new float[0];
+		float[] y = new float[0];
+		boolean fresh = false;
+	}
+
+	// owned by the layout thread
+	private Frame back = new Frame();
+	// owned by the rendering thread
+	private Frame front = new Frame();
+	private final AtomicReference<Frame> latest = new AtomicReference<Frame>(
+			new Frame());
+
+	// attempts to copy the latest frame before reading the nodes instead
+	private static final int COPY_ATTEMPTS = 3;
+
+	// the buffer of the running layout, if any
+	private static volatile PositionBuffer running = null;
+
+	private volatile boolean active = false;
+	private boolean frontValid = false;
+	// number of published frames, to tell whether a copied frame was reused
+	private volatile long published = 0;
+
+	/**
+	 * Copies the current positions of the nodes of the graph and publishes
+	 * them. Called by the layout thread.
+	 */
+	public void publish(Graph graph) {
+		int maxId = -1;
+		for (Node n : graph.getNodes())
+			maxId = Math.max(maxId, n.getId());
+
+		if (back.x.length <= maxId) {
+			back.x = new float[maxId + 1 + (maxId >> 2)];
+			back.y = new float[back.x.length];
+		}
+		// nodes missing from the frame are read from the graph
+		Arrays.fill(back.x, Float.NaN);
+
+		for (Node n : graph.getNodes()) {
+			NodeData data = n.getNodeData();
+			back.x[n.getId()] = data.x();
+			back.y[n.getId()] = data.y();
+		}
+
+		back.fresh = true;
+		back = latest.getAndSet(back);
+		published++;
+		active = true;
+		running = this;
+	}
+
+	/**
+	 * Stops serving buffered positions, called when the layout ends.
+	 */
+	public void deactivate() {
+		active = false;
+		if (running == this)
+			running = null;
+	}
+
+	/**
+	 * Copies the positions of the nodes of the structure from the latest
+	 * frame published by the running layout. Nodes missing from the frame
+	 * are read from the graph. Can be called by any thread.
+	 *
+	 * @return false if no layout is running or no consistent frame could be
+	 *         copied, in which case the arrays have to be filled otherwise
+	 */
+	public static boolean copyLatest(GraphSnapshot structure, float[] x,
+			float[] y) {
+		PositionBuffer buffer = running;
+		return buffer != null && buffer.copy(structure, x, y);
+	}
+
+	/**
+	 * Freezes networks with the positions of the running layout, see
+	 * {@link #copyLatest(GraphSnapshot, float[], float[])}.
+	 */
+	public static final PositionSource RUNNING_LAYOUT = new PositionSource() {
+		@Override
+		public boolean copyPositions(GraphSnapshot structure, float[] x,
+				float[] y) {
+			return copyLatest(structure, x, y);
+		}
+	};
+
+	private boolean copy(GraphSnapshot structure, float[] x, float[] y) {
+		for (int attempt = 0; attempt < COPY_ATTEMPTS && active; attempt++) {
+			long stamp = published;
+			Frame frame = latest.get();
+			float[] frameX = frame.x;
+			float[] frameY = frame.y;
+
+			for (int i = 0; i < x.length; i++) {
+				Node n = structure.getNode(i);
+				int id = n.getId();
+
+				if (id < frameX.length && id < frameY.length
+						&& !Float.isNaN(frameX[id])) {
+					x[i] = frameX[id];
+					y[i] = frameY[id];
+				} else {
+					x[i] = n.getNodeData().x();
+					y[i] = n.getNodeData().y();
+				}
+			}
+
+			// the layout only writes a published frame again after it has
+			// published another one
+			if (published == stamp)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Picks up the latest published frame. Called by the rendering thread
+	 * before drawing.
+	 */
+	public void beginFrame() {
+		if (!active) {
+			frontValid = false;
+			return;
+		}
+
+		if (latest.get().fresh) {
+			front.fresh = false;
+			front = latest.getAndSet(front);
+			frontValid = true;
+		}
+	}
+
+	public float getX(Node n) {
+		int id = n.getId();
+
+		if (frontValid && id < front.x.length && !Float.isNaN(front.x[id]))
+			return front.x[id];
+
+		return n.getNodeData().x();
+	}
+
+	public float getY(Node n) {
+		int id = n.getId();
+
+		if (frontValid && id < front.x.length && !Float.isNaN(front.x[id]))
+			return front.y[id];
+
+		return n.getNodeData().y();
+	}
+
+	public Point2D getPosition(Node n) {
+		return new Point2D.Float(getX(n), getY(n));
+	}
+}
@@ -8,48 +8,63 @@ public final class Utilities {
 
 	public static Point2D getBorderPoint(Vertex v, Point2D fromPoint,
 			double scale) {
-		double angle = calculateAngle(fromPoint, v.getPosition());
+		return getBorderPoint(v, v.getPosition(), fromPoint, scale);
+	}
+
+	/**
+	 * Same as {@link #getBorderPoint(Vertex, Point2D, double)} for the vertex
+	 * drawn at the given center.
+	 */
+	public static Point2D getBorderPoint(Vertex v, Point2D center,
+			Point2D fromPoint, double scale) {
+		double angle = calculateAngle(fromPoint, center);
 
-		return getBorderPoint(v, angle, scale);
+		return getBorderPoint(v, center, angle, scale);
 	}
 
 	public static Point2D getBorderPoint(Vertex v, double angrad, double scale) {
-		double x, y;
-		Point2D b = null;
+		return getBorderPoint(v, v.getPosition(), angrad, scale);
+	}
 
-		if (v.getShape().equalsIgnoreCase(Constants.SHAPE_DISK)) {
-			x = v.getPosition().getX() - v.getSize() * Math.cos(angrad) / scale;
-			y = v.getPosition().getY() - v.getSize() * Math.sin(angrad) / scale;
+	public static Point2D getBorderPoint(Vertex v, Point2D center,
+			double angrad, double scale) {
+		String shape = v.getShape();
 
-			b = new Point2D.Float();
-			b.setLocation(x, y);
+		if (!shape.equalsIgnoreCase(Constants.SHAPE_DISK)
+				&& !shape.equalsIgnoreCase(Constants.SHAPE_SQUARE))
+			return null;
 
-		} else if (v.getShape().equalsIgnoreCase(Constants.SHAPE_SQUARE)) {
-			double size = v.getSize();
-			double r = size;
-			double pi = Math.PI;
-
-			if (rangeContains(angrad, 0, 0.25 * pi)
-					|| rangeContains(angrad, 1.75 * pi, 2 * pi)) {
-				r = size / Math.cos(angrad);
-			} else if (rangeContains(angrad, 0.25 * pi, 0.75 * pi)) {
-				r = size / Math.sin(angrad);
-			} else if (rangeContains(angrad, 0.75 * pi, 1.25 * pi)) {
-				r = -size / Math.cos(angrad);
-			} else {
-				r = -size / Math.sin(angrad);
-			}
-
-			r /= scale;
-
-			x = v.getPosition().getX() - r * Math.cos(angrad);
-			y = v.getPosition().getY() - r * Math.sin(angrad);
-
-			b = new Point2D.Float();
-			b.setLocation(x, y);
+		double r = getBorderRadius(shape, v.getSize(), angrad, scale);
+		double x = center.getX() - r * Math.cos(angrad);
+		double y = center.getY() - r * Math.sin(angrad);
+
+		return new Point2D.Float((float) x, (float) y);
+	}
+
+	/**
+	 * @return the distance from the center of a vertex with the given shape
+	 *         and size to its border in the direction of the angle
+	 */
+	public static double getBorderRadius(String shape, double size,
+			double angrad, double scale) {
+		if (!shape.equalsIgnoreCase(Constants.SHAPE_SQUARE))
+			return size / scale;
+
+		double r;
+		double pi = Math.PI;
+
+		if (rangeContains(angrad, 0, 0.25 * pi)
+				|| rangeContains(angrad, 1.75 * pi, 2 * pi)) {
+			r = size / Math.cos(angrad);
+		} else if (rangeContains(angrad, 0.25 * pi, 0.75 * pi)) {
+			r = size / Math.sin(angrad);
+		} else if (rangeContains(angrad, 0.75 * pi, 1.25 * pi)) {
+			r = -size / Math.cos(angrad);
+		} else {
+			r = -size / Math.sin(angrad);
 		}
 
-		return b;
+		return r / scale;
 	}
 
 	public static double getBorderDistance(Vertex v, Point2D point, double scale) {
@@ -74,11 +89,15 @@ public final class Utilities {
 	}
 
 	public static double calculateAngle(final Point2D from, final Point2D to) {
-		double fx = from.getX();
-		double fy = from.getY();
-		double tx = to.getX();
-		double ty = to.getY();
-		double d = from.distance(to);
+		return calculateAngle(from.getX(), from.getY(), to.getX(), to.getY());
+	}
+
+	/**
+	 * Same as {@link #calculateAngle(Point2D, Point2D)} for coordinates.
+	 */
+	public static double calculateAngle(double fx, double fy, double tx,
+			double ty) {
+		double d = Point2D.distance(fx, fy, tx, ty);
 
 		double angle = Math.asin((ty - fy) / d);
 
@@ -12,6 +12,7 @@ import ch.ethz.sg.cuttlefish.gui.undoable.actions.CreateVertexUndoableAction;
 import ch.ethz.sg.cuttlefish.gui.undoable.actions.SetVertexPositionUndoableAction;
 import ch.ethz.sg.cuttlefish.gui.visualization.NetworkRenderer;
 import ch.ethz.sg.cuttlefish.networks.Edge;
+import ch.ethz.sg.cuttlefish.networks.MappedNetwork;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public final class GraphMouseImpl implements GraphMouse {
@@ -95,6 +96,20 @@ public final class GraphMouseImpl implements GraphMouse {
 			action.execute();
 			UndoableControl.getController().actionExecuted(action);
 
+		} else if (e.getButton() == MouseEvent.BUTTON1
+				&& e.getClickCount() == 2
+				&& networkPanel.getNetwork() instanceof MappedNetwork) {
+			// browse the store from the vertex
+			Vertex v = pickSupport.pickVertex(p);
+
+			if (v != null
+					&& ((MappedNetwork) networkPanel.getNetwork())
+							.showNeighborhood(v.getId(),
+									MappedNetwork.DEFAULT_DEPTH)) {
+				networkPanel.onNetworkChange();
+				networkPanel.repaintViewer();
+			}
+
 		} else if (e.getButton() == MouseEvent.BUTTON3) {
 			Vertex v = pickSupport.pickVertex(p);
 
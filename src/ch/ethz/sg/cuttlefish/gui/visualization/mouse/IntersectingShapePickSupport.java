@@ -12,7 +12,9 @@ import ch.ethz.sg.cuttlefish.gui.visualization.NetworkRenderer;
 import ch.ethz.sg.cuttlefish.gui.visualization.Utilities;
 import ch.ethz.sg.cuttlefish.gui.visualization.renderers.EdgeRenderer;
 import ch.ethz.sg.cuttlefish.networks.Edge;
+import ch.ethz.sg.cuttlefish.networks.EdgeVisitor;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.VertexVisitor;
 
 public class IntersectingShapePickSupport implements PickSupport {
 
@@ -22,30 +24,34 @@ public class IntersectingShapePickSupport implements PickSupport {
 		this.nr = nr;
 	}
 
-	public Vertex pickVertex(Point2D p) {
-		Vertex picked = null;
+	public Vertex pickVertex(final Point2D p) {
+		final Vertex[] picked = { null };
 
-		for (Vertex v : nr.getVertices()) {
-			if (containsPoint(v, p, nr.getScaleFactor())) {
-				picked = v;
-				break;
+		nr.forEachVertex(new VertexVisitor() {
+			@Override
+			public void visit(Vertex v) {
+				if (picked[0] == null
+						&& containsPoint(v, p, nr.getScaleFactor()))
+					picked[0] = new Vertex(v.getInternalNode());
 			}
-		}
+		});
 
-		return picked;
+		return picked[0];
 	}
 
-	public Edge pickEdge(Point2D p) {
-		Edge picked = null;
+	public Edge pickEdge(final Point2D p) {
+		final Edge[] picked = { null };
 
-		for (Edge e : nr.getEdges()) {
-			if (containsPoint(e, p, nr.getScaleFactor())) {
-				picked = e;
-				break;
+		nr.forEachEdge(new EdgeVisitor() {
+			@Override
+			public void visit(Edge e) {
+				if (picked[0] == null
+						&& containsPoint(e, p, nr.getScaleFactor()))
+					picked[0] = new Edge(e.getInternalEdge());
 			}
-		}
+		});
 
-		return picked;
+		return picked[0];
 	}
 
 	public static boolean containsPoint(Edge edge, Point2D p, double scaleFactor) {
@@ -88,10 +94,19 @@ public class IntersectingShapePickSupport implements PickSupport {
 
 	public static boolean containsPoint(Vertex vertex, Point2D p,
 			double scaleFactor) {
+		return containsPoint(vertex, vertex.getPosition(), p, scaleFactor);
+	}
+
+	/**
+	 * Same as {@link #containsPoint(Vertex, Point2D, double)} for the vertex
+	 * drawn at the given center.
+	 */
+	public static boolean containsPoint(Vertex vertex, Point2D center,
+			Point2D p, double scaleFactor) {
 		Shape vertexShape = null;
 		double size = vertex.getSize() / scaleFactor;
-		double x = vertex.getPosition().getX() - size;
-		double y = vertex.getPosition().getY() - size;
+		double x = center.getX() - size;
+		double y = center.getY() - size;
 
 		if (vertex.getShape().equals(Constants.SHAPE_DISK)) {
 			vertexShape = new Ellipse2D.Double(x, y, 2 * size, 2 * size);
@@ -103,4 +118,20 @@ public class IntersectingShapePickSupport implements PickSupport {
 		return vertexShape.contains(p);
 	}
 
+	/**
+	 * Same as {@link #containsPoint(Vertex, Point2D, Point2D, double)} for a
+	 * vertex with the given shape and size and for coordinates.
+	 */
+	public static boolean containsPoint(String shape, double size,
+			double cx, double cy, double px, double py, double scaleFactor) {
+		double r = size / scaleFactor;
+		double dx = px - cx;
+		double dy = py - cy;
+
+		if (shape.equals(Constants.SHAPE_SQUARE))
+			return -r <= dx && dx < r && -r <= dy && dy < r;
+
+		return dx * dx + dy * dy < r * r;
+	}
+
 }
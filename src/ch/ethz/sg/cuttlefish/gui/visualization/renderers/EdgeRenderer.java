@@ -6,11 +6,16 @@ import javax.media.opengl.GL;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GLAutoDrawable;
 
+import org.gephi.graph.api.Node;
+
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
 import ch.ethz.sg.cuttlefish.gui.visualization.NetworkRenderer;
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
 import ch.ethz.sg.cuttlefish.gui.visualization.Utilities;
 import ch.ethz.sg.cuttlefish.gui.visualization.mouse.IntersectingShapePickSupport;
 import ch.ethz.sg.cuttlefish.networks.Edge;
+import ch.ethz.sg.cuttlefish.networks.EdgeVisitor;
+import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public class EdgeRenderer extends ShapeRenderer {
 
@@ -81,16 +86,11 @@ public class EdgeRenderer extends ShapeRenderer {
 		gl.glEndList();
 	}
 
-	@Override
-	public void render() {
-
-		for (Edge edge : renderer.getEdges()) {
-			if (edge.isExcluded())
-				continue;
-
+	private final EdgeVisitor drawVisitor = new EdgeVisitor() {
+		@Override
+		public void visit(Edge edge) {
 			float lineWidth = (float) edge.getWidth();
-			float[] color = edge.getColor().getColorComponents(null);
-			gl.glColor3f(color[0], color[1], color[2]);
+			setColor(gl, edge.getRGB());
 			gl.glLineWidth(lineWidth);
 
 			if (edge.isLoop())
@@ -103,6 +103,11 @@ public class EdgeRenderer extends ShapeRenderer {
 			else
 				drawLine(edge);
 		}
+	};
+
+	@Override
+	public void render() {
+		renderer.forEachVisibleEdge(drawVisitor);
 
 		if (incompFrom != null && incompTo != null)
 			drawIncompleteEdge();
@@ -111,21 +116,25 @@ public class EdgeRenderer extends ShapeRenderer {
 	// Draws a quad curve to represent an edge.
 	// http://antoineleclair.ca/2011/08/27/understanding-quadratic-bezier-curves/
 	private void drawCurve(Edge e) {
-		Point2D from = e.getSource().getPosition();
-		Point2D to = e.getTarget().getPosition();
-		double fx = from.getX();
-		double fy = from.getY();
-		double tx = to.getX();
-		double ty = to.getY();
-		double a = Utilities.calculateAngle(from, to);
+		PositionBuffer positions = renderer.getPositions();
+		Node source = e.getSourceNode();
+		Node target = e.getTargetNode();
+		double fx = positions.getX(source);
+		double fy = positions.getY(source);
+		double tx = positions.getX(target);
+		double ty = positions.getY(target);
+		double a = Utilities.calculateAngle(fx, fy, tx, ty);
 		double h = QUADCURVE_CTRL_POINT.getY() / scaleFactor;
+		boolean directed = renderer.getNetwork().isDirected();
+		String targetShape = Vertex.getShape(target);
+		double targetSize = Vertex.getSize(target);
 
 		// Calculate Control Point
 		double cx = (fx + tx) / 2 - h * Math.sin(a);
 		double cy = (fy + ty) / 2 + h * Math.cos(a);
 		float t = 0;
 		double x = 0, y = 0;
-		Point2D c = new Point2D.Double(cx, cy);
+		double mx = cx, my = cy;
 
 		gl.glBegin(GL.GL_LINE_STRIP);
 		while (t <= 1) {
@@ -138,13 +147,15 @@ public class EdgeRenderer extends ShapeRenderer {
 			y = c1y + (c2y - c1y) * t;
 			gl.glVertex2d(x, y);
 
-			if (renderer.getNetwork().isDirected()) {
+			if (directed) {
 				// store the point to direct the arrow
-				if (0.495 < t && t < 0.505)
-					c.setLocation(x, y);
+				if (0.495 < t && t < 0.505) {
+					mx = x;
+					my = y;
+				}
 
-				if (IntersectingShapePickSupport.containsPoint(e.getTarget(),
-						new Point2D.Double(x, y), scaleFactor)) {
+				if (IntersectingShapePickSupport.containsPoint(targetShape,
+						targetSize, tx, ty, x, y, scaleFactor)) {
 					// hit border!
 					break;
 				}
@@ -152,10 +163,9 @@ public class EdgeRenderer extends ShapeRenderer {
 		}
 		gl.glEnd();
 
-		if (renderer.getNetwork().isDirected()) {
+		if (directed) {
 			// draw arrow
-			Point2D b = new Point2D.Double(x, y);
-			double arrowAngle = Utilities.calculateAngle(c, b);
+			double arrowAngle = Utilities.calculateAngle(mx, my, x, y);
 			gl.glPushMatrix();
 			gl.glTranslated(x, y, 0);
 			gl.glRotated(Math.toDegrees(arrowAngle), 0, 0, 1);
@@ -166,14 +176,20 @@ public class EdgeRenderer extends ShapeRenderer {
 	}
 
 	private void drawLine(Edge e) {
-		Point2D from = e.getSource().getPosition();
-		Point2D to = e.getTarget().getPosition();
-		double a = Math.toDegrees(Utilities.calculateAngle(from, to));
-		double dist = from.distance(to);
+		PositionBuffer positions = renderer.getPositions();
+		Node source = e.getSourceNode();
+		Node target = e.getTargetNode();
+		double fx = positions.getX(source);
+		double fy = positions.getY(source);
+		double tx = positions.getX(target);
+		double ty = positions.getY(target);
+		double angrad = Utilities.calculateAngle(fx, fy, tx, ty);
+		double a = Math.toDegrees(angrad);
+		double dist = Point2D.distance(fx, fy, tx, ty);
 
 		// draw line
 		gl.glPushMatrix();
-		gl.glTranslated(from.getX(), from.getY(), 0);
+		gl.glTranslated(fx, fy, 0);
 		gl.glScaled(dist, dist, 1);
 		gl.glRotated(a, 0, 0, 1);
 		gl.glCallList(DLIST_LINE);
@@ -181,10 +197,11 @@ public class EdgeRenderer extends ShapeRenderer {
 
 		if (renderer.getNetwork().isDirected()) {
 			// draw arrow on line
-			Point2D b = Utilities.getBorderPoint(e.getTarget(), from,
-					scaleFactor);
+			double r = Utilities.getBorderRadius(Vertex.getShape(target),
+					Vertex.getSize(target), angrad, scaleFactor);
 			gl.glPushMatrix();
-			gl.glTranslated(b.getX(), b.getY(), 0);
+			gl.glTranslated(tx - r * Math.cos(angrad),
+					ty - r * Math.sin(angrad), 0);
 			gl.glRotated(a, 0, 0, 1);
 			gl.glScaled(1 / scaleFactor, 1 / scaleFactor, 1);
 			gl.glCallList(DLIST_ARROW);
@@ -223,9 +240,11 @@ public class EdgeRenderer extends ShapeRenderer {
 	}
 
 	private void drawLoop(Edge e) {
-		double tx = e.getSource().getPosition().getX();
-		double ty = e.getSource().getPosition().getY();
-		double sf = e.getSource().getSize() / scaleFactor;
+		PositionBuffer positions = renderer.getPositions();
+		Node source = e.getSourceNode();
+		double tx = positions.getX(source);
+		double ty = positions.getY(source);
+		double sf = Vertex.getSize(source) / scaleFactor;
 
 		gl.glPushMatrix();
 		gl.glTranslated(tx, ty, 0);
@@ -5,11 +5,16 @@ import java.awt.geom.Point2D;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GLAutoDrawable;
 
+import org.gephi.graph.api.Node;
+
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
 import ch.ethz.sg.cuttlefish.gui.visualization.NetworkRenderer;
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
 import ch.ethz.sg.cuttlefish.gui.visualization.Utilities;
 import ch.ethz.sg.cuttlefish.networks.Edge;
+import ch.ethz.sg.cuttlefish.networks.EdgeVisitor;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.VertexVisitor;
 
 import com.jogamp.opengl.util.gl2.GLUT;
 
@@ -31,56 +36,67 @@ public class LabelRenderer {
 		glut = new GLUT();
 	}
 
+	private final VertexVisitor vertexLabelVisitor = new VertexVisitor() {
+		@Override
+		public void visit(Vertex v) {
+			if (v.getLabel() != null && !v.getLabel().isEmpty())
+				drawLabel(v);
+		}
+	};
+
+	private final EdgeVisitor edgeLabelVisitor = new EdgeVisitor() {
+		@Override
+		public void visit(Edge e) {
+			if (e.getLabel() != null && !e.getLabel().isEmpty()
+					&& !e.isLoop())
+				drawLabel(e);
+		}
+	};
+
 	public void drawLabels() {
 		if (HIDE_LABELS)
 			return;
 
-		if (!renderer.getNetwork().hideVertexLabels()) {
-			for (Vertex v : renderer.getVertices()) {
-				if (!v.isExcluded() && v.getLabel() != null
-						&& !v.getLabel().isEmpty())
-					drawLabel(v);
-			}
-		}
+		if (!renderer.getNetwork().hideVertexLabels())
+			renderer.forEachVisibleVertex(vertexLabelVisitor);
 
-		if (!renderer.getNetwork().hideEdgeLabels()) {
-			for (Edge e : renderer.getEdges()) {
-				if (!e.isExcluded() && e.getLabel() != null
-						&& !e.getLabel().isEmpty() && !e.isLoop())
-					drawLabel(e);
-			}
-		}
+		if (!renderer.getNetwork().hideEdgeLabels())
+			renderer.forEachVisibleEdge(edgeLabelVisitor);
 	}
 
 	private void drawLabel(Vertex v) {
-		String text = v.getLabel();
-		float[] c = v.getBorderColor().getColorComponents(null);
-		Point2D pos = v.getPosition();
-		double x = pos.getX() + v.getSize() / scaleFactor;
-		double y = pos.getY() + (v.getSize() + VERTEX_LABEL_OFFSET)
+		PositionBuffer positions = renderer.getPositions();
+		Node node = v.getInternalNode();
+		double size = v.getSize();
+		double x = positions.getX(node) + size / scaleFactor;
+		double y = positions.getY(node) + (size + VERTEX_LABEL_OFFSET)
 				/ scaleFactor;
-		pos.setLocation(x, y);
 
-		gl.glColor3f(c[0], c[1], c[2]);
-		renderText(text, pos);
+		ShapeRenderer.setColor(gl, v.getBorderRGB());
+		renderText(v.getLabel(), x, y);
 	}
 
 	private void drawLabel(Edge e) {
-		Point2D from, to;
+		PositionBuffer positions = renderer.getPositions();
+		Node from = e.getSourceNode();
+		Node to = e.getTargetNode();
 		double lineWidth = e.getWidth();
 
-		if (e.getSource().getPosition().getX() < e.getTarget().getPosition()
-				.getX()) {
-			from = e.getSource().getPosition();
-			to = e.getTarget().getPosition();
-		} else {
-			from = e.getTarget().getPosition();
-			to = e.getSource().getPosition();
+		if (positions.getX(from) >= positions.getX(to)) {
+			Node swap = from;
+			from = to;
+			to = swap;
 		}
 
-		double angle = Utilities.calculateAngle(from, to);
-		double l = getTextLength(e.getLabel());
-		double d = from.distance(to);
+		double fx = positions.getX(from);
+		double fy = positions.getY(from);
+		double tx = positions.getX(to);
+		double ty = positions.getY(to);
+		String label = e.getLabel();
+
+		double angle = Utilities.calculateAngle(fx, fy, tx, ty);
+		double l = getTextLength(label);
+		double d = Point2D.distance(fx, fy, tx, ty);
 		double x = 0.5 * (d - l);
 		double y = 0;
 
@@ -88,21 +104,20 @@ public class LabelRenderer {
 			y = 0.5 + (0.5 * lineWidth / scaleFactor);
 		}
 
-		float[] c = e.getColor().getColorComponents(null);
-		gl.glColor3f(c[0], c[1], c[2]);
+		ShapeRenderer.setColor(gl, e.getRGB());
 		gl.glPushMatrix();
-		gl.glTranslated(from.getX(), from.getY(), 0);
+		gl.glTranslated(fx, fy, 0);
 		gl.glRotated(Math.toDegrees(angle), 0, 0, 1);
-		renderText(e.getLabel(), new Point2D.Double(x, -y));
+		renderText(label, x, -y);
 		gl.glPopMatrix();
 	}
 
-	private void renderText(String text, Point2D pos) {
+	private void renderText(String text, double x, double y) {
 		double scale = (TEXT_SIZE * 0.01) / scaleFactor;
 
 		gl.glPushMatrix();
 		gl.glLineWidth(1f);
-		gl.glTranslated(pos.getX(), pos.getY(), 0);
+		gl.glTranslated(x, y, 0);
 		gl.glRotated(180, 1, 0, 0);
 		gl.glScaled(scale, scale, 1);
 		glut.glutStrokeString(TEXT_FONT, text);
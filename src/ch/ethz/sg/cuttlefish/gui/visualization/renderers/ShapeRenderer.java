@@ -40,6 +40,14 @@ public abstract class ShapeRenderer {
 		return displayList.get(shapeName);
 	}
 
+	/**
+	 * Sets the current colour from packed RGB, as returned by
+	 * {@link java.awt.Color#getRGB()}.
+	 */
+	protected static void setColor(GL2 gl, int rgb) {
+		gl.glColor3ub((byte) (rgb >> 16), (byte) (rgb >> 8), (byte) rgb);
+	}
+
 	public void transform(double translateX, double translateY,
 			double scaleFactor) {
 		this.scaleFactor = scaleFactor;
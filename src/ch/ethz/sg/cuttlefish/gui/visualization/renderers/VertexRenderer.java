@@ -7,7 +7,9 @@ import javax.media.opengl.glu.GLUquadric;
 
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
 import ch.ethz.sg.cuttlefish.gui.visualization.NetworkRenderer;
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.VertexVisitor;
 
 public class VertexRenderer extends ShapeRenderer {
 
@@ -37,21 +39,22 @@ public class VertexRenderer extends ShapeRenderer {
 		gl.glEndList();
 	}
 
+	private final VertexVisitor drawVisitor = new VertexVisitor() {
+		@Override
+		public void visit(Vertex v) {
+			drawVertex(v);
+		}
+	};
+
 	@Override
 	public void render() {
-
-		for (Vertex v : renderer.getVertices()) {
-			if (!v.isExcluded()) {
-				drawVertex(v);
-			}
-		}
+		renderer.forEachVisibleVertex(drawVisitor);
 	}
 
 	private void drawVertex(Vertex vertex) {
-		double x = vertex.getPosition().getX();
-		double y = vertex.getPosition().getY();
-		float[] bc = vertex.getBorderColor().getColorComponents(null);
-		float[] fc = vertex.getFillColor().getColorComponents(null);
+		PositionBuffer positions = renderer.getPositions();
+		double x = positions.getX(vertex.getInternalNode());
+		double y = positions.getY(vertex.getInternalNode());
 		int listIndex = getDisplayListIndex(vertex.getShape());
 
 		double bs = vertex.getSize() / scaleFactor;
@@ -61,7 +64,7 @@ public class VertexRenderer extends ShapeRenderer {
 		gl.glPushMatrix();
 		gl.glTranslated(x, y, 0);
 		gl.glScaled(bs, bs, 1);
-		gl.glColor3f(bc[0], bc[1], bc[2]);
+		setColor(gl, vertex.getBorderRGB());
 
 		gl.glCallList(listIndex);
 
@@ -71,7 +74,7 @@ public class VertexRenderer extends ShapeRenderer {
 		gl.glPushMatrix();
 		gl.glTranslated(x, y, 0);
 		gl.glScaled(fs, fs, 1);
-		gl.glColor3f(fc[0], fc[1], fc[2]);
+		setColor(gl, vertex.getFillRGB());
 
 		gl.glCallList(listIndex);
 
@@ -216,7 +216,12 @@ public class LayoutLoader {
 		LayoutController layoutController = Lookup.getDefault().lookup(
 				LayoutController.class);
 
-		return layoutController.getModel().getSelectedLayout();
+		Layout layout = layoutController.getModel().getSelectedLayout();
+
+		if (layout instanceof PublishingLayout)
+			return ((PublishingLayout) layout).getLayout();
+
+		return layout;
 	}
 
 	private void setLayout(Layout layout) {
@@ -227,6 +232,11 @@ public class LayoutLoader {
 		if (layoutController.canStop())
 			layoutController.stopLayout();
 
+		// the renderer draws the positions of the last completed step
+		if (isGUI())
+			layout = new PublishingLayout(layout, networkPanel
+					.getNetworkRenderer().getPositions());
+
 		layoutController.setLayout(layout);
 
 		if (!network.isEmpty() && layoutController.canExecute()) {
@@ -0,0 +1,74 @@
+package ch.ethz.sg.cuttlefish.layout;
+
+import org.gephi.graph.api.GraphModel;
+import org.gephi.layout.spi.Layout;
+import org.gephi.layout.spi.LayoutBuilder;
+import org.gephi.layout.spi.LayoutProperty;
+
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
+
+/**
+ * Runs a layout and publishes the node positions to the renderer after every
+ * step, so that the renderer never reads a step that is half done.
+ */
+final class PublishingLayout implements Layout {
+
+	private final Layout layout;
+	private final PositionBuffer positions;
+	private GraphModel graphModel;
+
+	PublishingLayout(Layout layout, PositionBuffer positions) {
+		this.layout = layout;
+		this.positions = positions;
+	}
+
+	/**
+	 * @return the layout that is run
+	 */
+	Layout getLayout() {
+		return layout;
+	}
+
+	@Override
+	public void initAlgo() {
+		layout.initAlgo();
+	}
+
+	@Override
+	public void setGraphModel(GraphModel graphModel) {
+		this.graphModel = graphModel;
+		layout.setGraphModel(graphModel);
+	}
+
+	@Override
+	public void goAlgo() {
+		layout.goAlgo();
+		positions.publish(graphModel.getGraphVisible());
+	}
+
+	@Override
+	public boolean canAlgo() {
+		return layout.canAlgo();
+	}
+
+	@Override
+	public void endAlgo() {
+		layout.endAlgo();
+		positions.deactivate();
+	}
+
+	@Override
+	public LayoutProperty[] getProperties() {
+		return layout.getProperties();
+	}
+
+	@Override
+	public void resetPropertiesValues() {
+		layout.resetPropertiesValues();
+	}
+
+	@Override
+	public LayoutBuilder getBuilder() {
+		return layout.getBuilder();
+	}
+}
@@ -17,7 +17,6 @@
 
 package ch.ethz.sg.cuttlefish.layout.arf;
 
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +31,7 @@ import org.gephi.layout.spi.LayoutProperty;
 
 import ch.ethz.sg.cuttlefish.Cuttlefish;
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
+import ch.ethz.sg.cuttlefish.networks.GraphSnapshot;
 
 /**
  * 
@@ -114,6 +114,13 @@ public class ARFLayout implements Layout {
 	private GraphModel graphModel = null;
 	private Graph graph = null;
 
+	// positions of the snapshot nodes while a step is computed
+	private float[] x = null;
+	private float[] y = null;
+	private final float[] force = new float[2];
+	// structure of the graph, built once and only rebuilt if it changes
+	private GraphSnapshot snapshot = null;
+
 	public ARFLayout(LayoutBuilder layoutBuilder, boolean incremental,
 			boolean keepInitialPositions) {
 		this.layoutBuilder = layoutBuilder;
@@ -144,6 +151,7 @@ public class ARFLayout implements Layout {
 
 		if (!keepInitialPositions)
 			randomizePositions();
+		snapshot = GraphSnapshot.build(graph);
 
 		if (LayoutLoader.VERBOSE_LAYOUT)
 			Cuttlefish.debug(this, "Layout initialized. Change threshold = "
@@ -181,6 +189,7 @@ public class ARFLayout implements Layout {
 
 	@Override
 	public void endAlgo() {
+		snapshot = null;
 
 		if (LayoutLoader.VERBOSE_LAYOUT) {
 			Cuttlefish.debug(this, "Layout ended. Iterations: " + iterations
@@ -190,27 +199,43 @@ public class ARFLayout implements Layout {
 
 	private void advancePositions() {
 		double c = 0;
-		int nodeCount = graph.getNodeCount();
+		if (snapshot == null || !snapshot.isCurrent(graph))
+			snapshot = GraphSnapshot.build(graph);
+		else
+			snapshot.refreshPositions();
+		int nodeCount = snapshot.getNodeCount();
+		double log = Math.log10(nodeCount) == 0 ? 1 : Math.log10(nodeCount);
+
+		if (x == null || x.length != nodeCount) {
+			x = new float[nodeCount];
+			y = new float[nodeCount];
+		}
+		snapshot.copyPositions(x, y);
 
+		// positions are updated in place, so later nodes already see the
+		// moves of the earlier ones, as when working on the node data
 		for (int iter = 0; iter < updatesPerFrame; ++iter) {
-			for (Node n : graph.getNodes()) {
-				Point2D.Float f = getForceforNode(n);
-				double log = Math.log10(nodeCount) == 0 ? 1 : Math
-						.log10(nodeCount);
-				double delta = graph.getDegree(n) > 1 ? (deltaT / log)
-						/ Math.pow(graph.getDegree(n), 0.4) : (deltaT / log);
+			for (int n = 0; n < nodeCount; n++) {
+				getForceforNode(snapshot, n, force);
+				int degree = snapshot.getDegree(n);
+				double delta = degree > 1 ? (deltaT / log)
+						/ Math.pow(degree, 0.4) : (deltaT / log);
 
-				f.setLocation(f.getX() * delta, f.getY() * delta);
+				double fx = force[0] * delta;
+				double fy = force[1] * delta;
 
-				n.getNodeData().setX(
-						n.getNodeData().x() + (float) (f.getX() / sensitivity));
-				n.getNodeData().setY(
-						n.getNodeData().y() + (float) (f.getY() / sensitivity));
+				x[n] += (float) (fx / sensitivity);
+				y[n] += (float) (fy / sensitivity);
 
-				c += Math.abs(f.getX()) + Math.abs(f.getY());
+				c += Math.abs(fx) + Math.abs(fy);
 			}
 		}
 
+		for (int n = 0; n < nodeCount; n++) {
+			snapshot.getNode(n).getNodeData().setX(x[n]);
+			snapshot.getNode(n).getNodeData().setY(y[n]);
+		}
+
 		setChange(c);
 		align(100, 100);
 	}
@@ -259,44 +284,53 @@ public class ARFLayout implements Layout {
 		}
 	}
 
-	private Point2D.Float getForceforNode(Node node) {
-		double numNodes = graph.getNodeCount();
+	/**
+	 * Computes the force on a node from the positions in x and y and stores it
+	 * in mDot.
+	 */
+	private void getForceforNode(GraphSnapshot snapshot, int node,
+			float[] mDot) {
+		int numNodes = snapshot.getNodeCount();
+		float nodeX = x[node];
+		float nodeY = y[node];
 
-		Point2D.Float mDot = new Point2D.Float();
+		mDot[0] = 0;
+		mDot[1] = 0;
 
-		if (node.getNodeData().x() == 0 && node.getNodeData().y() == 0) {
-			return mDot;
+		if (nodeX == 0 && nodeY == 0) {
+			return;
 		}
 
-		for (Node otherNode : graph.getNodes()) {
+		float scale = (float) (attraction / Math.sqrt(numNodes));
+
+		for (int otherNode = 0; otherNode < numNodes; otherNode++) {
 			if (node == otherNode)
 				continue;
 
-			if (otherNode.getNodeData().x() == 0
-					&& otherNode.getNodeData().y() == 0) {
+			if (x[otherNode] == 0 && y[otherNode] == 0) {
 				continue;
 			}
 
-			float tempX = otherNode.getNodeData().x() - node.getNodeData().x();
-			float tempY = otherNode.getNodeData().y() - node.getNodeData().y();
+			float tempX = x[otherNode] - nodeX;
+			float tempY = y[otherNode] - nodeY;
 
-			float multiplier = graph.isAdjacent(node, otherNode) ? a : 1;
-			multiplier *= attraction / Math.sqrt(numNodes);
+			float multiplier = snapshot.isAdjacent(node, otherNode) ? a : 1;
+			multiplier *= scale;
 
-			mDot.setLocation(mDot.getX() + tempX * multiplier, mDot.getY()
-					+ tempY * multiplier);
+			mDot[0] += tempX * multiplier;
+			mDot[1] += tempY * multiplier;
 
 			multiplier = 1 / (float) Math.sqrt(tempX * tempX + tempY * tempY);
-			mDot.setLocation(mDot.getX() - tempX * multiplier * b, mDot.getY()
-					- tempY * multiplier * b);
+			mDot[0] -= tempX * multiplier * b;
+			mDot[1] -= tempY * multiplier * b;
 		}
 
-		if (incremental && mDot.distance(0, 0) > forceCutoff) {
-			float mult = forceCutoff / (float) mDot.distance(0, 0);
-			mDot.setLocation(mDot.getX() * mult, mDot.getY() * mult);
+		float length = (float) Math.sqrt(mDot[0] * mDot[0] + mDot[1] * mDot[1]);
+		if (incremental && length > forceCutoff) {
+			float mult = forceCutoff / length;
+			mDot[0] *= mult;
+			mDot[1] *= mult;
 		}
-
-		return mDot;
 	}
 
 	@Override
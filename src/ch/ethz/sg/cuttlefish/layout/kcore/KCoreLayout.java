@@ -19,6 +19,7 @@ import org.gephi.layout.spi.LayoutProperty;
 
 import ch.ethz.sg.cuttlefish.Cuttlefish;
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
+import ch.ethz.sg.cuttlefish.networks.GraphSnapshot;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public class KCoreLayout implements Layout {
@@ -63,7 +64,6 @@ public class KCoreLayout implements Layout {
 			return;
 
 		cmax = -1;
-		maxDegree = -1;
 		cmaxRadius = Double.MAX_VALUE;
 		finished = false;
 
@@ -71,9 +71,6 @@ public class KCoreLayout implements Layout {
 
 			if (cmax < coreness.get(n))
 				cmax = coreness.get(n);
-
-			if (graph.getDegree(n) > maxDegree)
-				maxDegree = graph.getDegree(n);
 		}
 
 		computeRho(graph, cmax);
@@ -159,50 +156,66 @@ public class KCoreLayout implements Layout {
 	}
 
 	private void computeGraphCoreness() {
-		Map<Node, Integer> degree = new HashMap<Node, Integer>();
+		GraphSnapshot snapshot = GraphSnapshot.build(graph);
+		int nodeCount = snapshot.getNodeCount();
+		int[] degree = new int[nodeCount];
+		boolean[] removed = new boolean[nodeCount];
+		int[] shell = new int[nodeCount];
+		int remaining = nodeCount;
+		maxDegree = -1;
 
-		for (Node n : graph.getNodes()) {
-			degree.put(n, graph.getDegree(n));
+		for (int n = 0; n < nodeCount; n++) {
+			degree[n] = snapshot.getDegree(n);
+			maxDegree = Math.max(maxDegree, degree[n]);
 		}
 
-		while (!degree.isEmpty()) {
-			// Get a vertex of minimum degree
-			Node minDegreeV = null;
-			for (Node n : degree.keySet()) {
-				if (minDegreeV == null
-						|| degree.get(minDegreeV) > degree.get(n)) {
-					minDegreeV = n;
+		while (remaining > 0) {
+			// Get the minimum degree of the remaining vertices
+			int minDegree = Integer.MAX_VALUE;
+			for (int n = 0; n < nodeCount; n++) {
+				if (!removed[n] && degree[n] < minDegree) {
+					minDegree = degree[n];
 				}
 			}
 
-			computeCore(degree, degree.get(minDegreeV));
+			remaining -= computeCore(snapshot, degree, removed, shell,
+					minDegree);
 		}
 	}
 
-	private void computeCore(Map<Node, Integer> degree, int core) {
+	/**
+	 * Removes all remaining vertices of degree at most core and assigns them
+	 * that coreness.
+	 * 
+	 * @return the number of vertices removed
+	 */
+	private int computeCore(GraphSnapshot snapshot, int[] degree,
+			boolean[] removed, int[] shell, int core) {
 		Color c = new Color(new Random().nextInt());
-		List<Node> shell = new ArrayList<Node>();
-
-		for (Node n : degree.keySet()) {
-			if (degree.get(n) <= core) {
-				coreness.put(n, core);
-				shell.add(n);
-				new Vertex(n).setFillColor(c);
+		int shellSize = 0;
+
+		for (int n = 0; n < degree.length; n++) {
+			if (!removed[n] && degree[n] <= core) {
+				Node node = snapshot.getNode(n);
+				coreness.put(node, core);
+				shell[shellSize++] = n;
+				Vertex.setFillColor(node, c);
 			}
 		}
 
-		for (Node v : shell) {
-			degree.remove(v);
-			for (Edge e : graph.getEdges(v)) {
-				Node adjacentV = graph.getOpposite(v, e);
+		for (int i = 0; i < shellSize; i++) {
+			int v = shell[i];
+			removed[v] = true;
+			for (int k = snapshot.getNeighborStart(v); k < snapshot
+					.getNeighborEnd(v); k++) {
+				int adjacentV = snapshot.getNeighbor(k);
 
-				if (degree.containsKey(adjacentV)) {
-					int newDegree = degree.get(adjacentV) - 1;
-					degree.remove(adjacentV);
-					degree.put(adjacentV, newDegree);
-				}
+				if (!removed[adjacentV])
+					degree[adjacentV]--;
 			}
 		}
+
+		return shellSize;
 	}
 
 	private boolean singleCoreCheck() {
@@ -2,7 +2,6 @@ package ch.ethz.sg.cuttlefish.layout.kcore;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,7 +10,6 @@ import java.util.Random;
 import java.util.Set;
 
 import org.gephi.graph.api.Edge;
-import org.gephi.graph.api.EdgeIterable;
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphModel;
 import org.gephi.graph.api.Node;
@@ -21,6 +19,7 @@ import org.gephi.layout.spi.LayoutProperty;
 
 import ch.ethz.sg.cuttlefish.Cuttlefish;
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
+import ch.ethz.sg.cuttlefish.networks.GraphSnapshot;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public class WeightedKCoreLayout implements Layout {
@@ -40,7 +39,6 @@ public class WeightedKCoreLayout implements Layout {
 
 	private int coreIndex = 0;
 	private double lastCore = 0;
-	private Map<Edge, Float> normalizedWeight = new HashMap<Edge, Float>();
 	private int maxDegree;
 
 	private double paramAlpha;
@@ -81,15 +79,11 @@ public class WeightedKCoreLayout implements Layout {
 		}
 
 		cmax = -1;
-		maxDegree = -1;
 		finished = false;
 
 		for (Node v : graph.getNodes()) {
 			if (cmax < coreness.get(v))
 				cmax = coreness.get(v);
-
-			if (graph.getDegree(v) > maxDegree)
-				maxDegree = graph.getDegree(v);
 		}
 
 		computeRho(graph, cmax);
@@ -193,96 +187,120 @@ public class WeightedKCoreLayout implements Layout {
 	}
 
 	private void computeGraphCoreness() {
-		Map<Node, Integer> degree = new HashMap<Node, Integer>();
-		Map<Node, Integer> weightedDegree = new HashMap<Node, Integer>();
+		GraphSnapshot snapshot = GraphSnapshot.build(graph);
+		int nodeCount = snapshot.getNodeCount();
+		int[] degree = new int[nodeCount];
+		int[] weightedDegree = new int[nodeCount];
+		boolean[] removed = new boolean[nodeCount];
+		int[] shell = new int[nodeCount];
+		float[] normalizedWeight = normalizeWeights(snapshot);
+		int remaining = nodeCount;
 		coreIndex = 0;
+		maxDegree = -1;
 
-		for (Node v : graph.getNodes()) {
-			degree.put(v, graph.getDegree(v));
+		for (int v = 0; v < nodeCount; v++) {
+			degree[v] = snapshot.getDegree(v);
+			maxDegree = Math.max(maxDegree, degree[v]);
 		}
 
-		normalizeWeights(graph.getEdges());
-		computeWeightedDegree(degree, weightedDegree, paramAlpha, paramBeta);
+		computeWeightedDegree(snapshot, normalizedWeight, degree, removed,
+				weightedDegree, paramAlpha, paramBeta);
 
-		int minWeight;
-		while (!weightedDegree.isEmpty()) {
-			// Get a vertex of minimum degree
+		while (remaining > 0) {
+			// Get the minimum weighted degree of the remaining vertices
+			int minWeight = Integer.MAX_VALUE;
+			for (int v = 0; v < nodeCount; v++) {
+				if (!removed[v] && weightedDegree[v] < minWeight)
+					minWeight = weightedDegree[v];
+			}
 
-			minWeight = Collections.min(weightedDegree.values());
-			computeCore(weightedDegree, degree, minWeight);
+			remaining -= computeCore(snapshot, normalizedWeight, degree,
+					removed, weightedDegree, shell, minWeight);
 		}
 	}
 
-	private void normalizeWeights(final EdgeIterable edges) {
-		normalizedWeight = new HashMap<Edge, Float>();
+	/**
+	 * @return the weights of the edges of the snapshot divided by the
+	 *         smallest one
+	 */
+	private float[] normalizeWeights(GraphSnapshot snapshot) {
+		float[] normalizedWeight = new float[snapshot.getEdgeCount()];
+		float minimumWeight = Float.MAX_VALUE;
 
-		for (Edge e : edges) {
-			normalizedWeight.put(e, ((Edge) e).getWeight());
-		}
+		for (int e = 0; e < normalizedWeight.length; e++)
+			minimumWeight = Math.min(minimumWeight,
+					snapshot.getEdgeWeight(e));
 
-		float minimumWeight = Collections.min(normalizedWeight.values());
+		for (int e = 0; e < normalizedWeight.length; e++)
+			normalizedWeight[e] = snapshot.getEdgeWeight(e) / minimumWeight;
 
-		for (Edge e : normalizedWeight.keySet()) {
-			float w = normalizedWeight.get(e) / minimumWeight;
-			normalizedWeight.put(e, w);
-		}
+		return normalizedWeight;
 	}
 
-	private void computeWeightedDegree(final Map<Node, Integer> degree,
-			Map<Node, Integer> weightedDegree, final double alpha,
-			final double beta) {
+	private void computeWeightedDegree(GraphSnapshot snapshot,
+			float[] normalizedWeight, int[] degree, boolean[] removed,
+			int[] weightedDegree, final double alpha, final double beta) {
 
 		double weightSum;
 		double w;
 
-		weightedDegree.clear();
-		for (Node v : degree.keySet()) {
-			weightSum = 0;
+		for (int v = 0; v < degree.length; v++) {
+			if (removed[v])
+				continue;
 
-			for (Edge e : graph.getEdges(v)) {
-				Node opposite = graph.getOpposite(v, e);
-				if (degree.containsKey(opposite)) {
-					weightSum += normalizedWeight.get(e);
-				}
+			weightSum = 0;
+			for (int k = snapshot.getNeighborStart(v); k < snapshot
+					.getNeighborEnd(v); k++) {
+				if (!removed[snapshot.getNeighbor(k)])
+					weightSum += normalizedWeight[snapshot.getNeighborEdge(k)];
 			}
 
-			w = Math.pow(degree.get(v), alpha) * Math.pow(weightSum, beta);
+			w = Math.pow(degree[v], alpha) * Math.pow(weightSum, beta);
 			w = Math.pow(w, 1 / (alpha + beta));
-			weightedDegree.put(v, (int) Math.round(w));
+			weightedDegree[v] = (int) Math.round(w);
 		}
 	}
 
-	private void computeCore(Map<Node, Integer> weightedDegree,
-			Map<Node, Integer> degree, final double core) {
-		List<Node> shell = new ArrayList<Node>();
+	/**
+	 * Removes all remaining vertices of weighted degree at most core and
+	 * assigns them the current core index.
+	 * 
+	 * @return the number of vertices removed
+	 */
+	private int computeCore(GraphSnapshot snapshot, float[] normalizedWeight,
+			int[] degree, boolean[] removed, int[] weightedDegree,
+			int[] shell, final double core) {
+		int shellSize = 0;
 
 		if (core > lastCore) {
 			coreIndex++;
 			lastCore = core;
 		}
 
-		for (Node v : weightedDegree.keySet()) {
-			if (weightedDegree.get(v) <= core) {
-				coreness.put(v, coreIndex);
-				shell.add(v);
+		for (int v = 0; v < degree.length; v++) {
+			if (!removed[v] && weightedDegree[v] <= core) {
+				coreness.put(snapshot.getNode(v), coreIndex);
+				shell[shellSize++] = v;
 			}
 		}
 
-		for (Node v : shell) {
-			degree.remove(v);
-			weightedDegree.remove(v);
+		for (int i = 0; i < shellSize; i++) {
+			int v = shell[i];
+			removed[v] = true;
 
-			for (Edge e : graph.getEdges(v)) {
-				Node adjacentV = graph.getOpposite(v, e);
+			for (int k = snapshot.getNeighborStart(v); k < snapshot
+					.getNeighborEnd(v); k++) {
+				int adjacentV = snapshot.getNeighbor(k);
 
-				if (degree.containsKey(adjacentV)) {
-					int newDegree = degree.get(adjacentV) - 1;
-					degree.put(adjacentV, newDegree);
-				}
+				if (!removed[adjacentV])
+					degree[adjacentV]--;
 			}
 		}
 
-		computeWeightedDegree(degree, weightedDegree, paramAlpha, paramBeta);
+		computeWeightedDegree(snapshot, normalizedWeight, degree, removed,
+				weightedDegree, paramAlpha, paramBeta);
+
+		return shellSize;
 	}
 
 	private boolean singleCoreCheck() {
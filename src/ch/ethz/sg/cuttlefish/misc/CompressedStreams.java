@@ -0,0 +1,435 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Opens files that may be compressed with gzip or deflate (zlib). Compressed
+ * input is recognised by its first bytes, whatever the name of the file.
+ * Output is compressed according to the extension of the file: .gz for gzip,
+ * .zz or .deflate for deflate.
+ *
+ * The inflation or deflation runs on its own thread, which exchanges blocks
+ * with the caller through a bounded queue, so that parsing or formatting
+ * overlaps with it. The streams must be closed; closing an output stream
+ * waits until all the data is written.
+ */
+public final class CompressedStreams {
+
+	private static final int BLOCK_BYTES = 1 << 16;
+	private static final int QUEUE_BLOCKS = 16;
+
+	// marks the end of the data in a queue
+	private static final byte[] END = new byte[0];
+
+	private CompressedStreams() {
+	}
+
+	/**
+	 * @return whether the file starts with a gzip or a zlib header
+	 */
+	public static boolean isCompressed(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			return isCompressed(in.read(), in.read());
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean isCompressed(int b0, int b1) {
+		if (b0 == 0x1f && b1 == 0x8b)
+			return true;
+
+		// deflate with a 32K window and no preset dictionary, as written by
+		// zlib and java.util.zip; other headers are too close to plain text
+		return b0 == 0x78 && b1 >= 0 && ((b0 << 8) | b1) % 31 == 0
+				&& (b1 & 0x20) == 0;
+	}
+
+	/**
+	 * @return whether output to the file is compressed, by its extension
+	 */
+	public static boolean isCompressedName(File file) {
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".gz") || name.endsWith(".zz")
+				|| name.endsWith(".deflate");
+	}
+
+	/**
+	 * Opens the file for reading, decompressing it if it is compressed. A
+	 * plain file is returned as a FileInputStream, on which skip() seeks.
+	 */
+	public static InputStream openInput(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int b0 = in.read();
+			int b1 = in.read();
+			in.getChannel().position(0);
+
+			if (!isCompressed(b0, b1))
+				return in;
+
+			InputStream source = new BufferedInputStream(in, BLOCK_BYTES);
+			if (b0 == 0x1f)
+				source = new GZIPInputStream(source, BLOCK_BYTES);
+			else
+				source = new InflaterInputStream(source);
+
+			return new PipedInput(in, source, "Inflating " + file.getName());
+		} catch (IOException ioEx) {
+			in.close();
+			throw ioEx;
+		}
+	}
+
+	/**
+	 * Tells how far the file under a stream returned by openInput() has been
+	 * read, e.g. to report progress against its length. Compressed files are
+	 * read a few blocks ahead of the data returned by the stream.
+	 *
+	 * @return the position in the file, or -1 for other streams or if it
+	 *         cannot be told
+	 */
+	public static long getFilePosition(InputStream in) {
+		try {
+			if (in instanceof FileInputStream)
+				return ((FileInputStream) in).getChannel().position();
+			if (in instanceof PipedInput)
+				return ((PipedInput) in).file.getChannel().position();
+		} catch (IOException ioEx) {
+			// e.g. closed
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Opens the file for writing, compressing it if its name says so.
+	 */
+	public static OutputStream openOutput(File file) throws IOException {
+		String name = file.getName().toLowerCase();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				file), BLOCK_BYTES);
+
+		if (!isCompressedName(file))
+			return out;
+
+		try {
+			OutputStream sink;
+			if (name.endsWith(".gz"))
+				sink = new GZIPOutputStream(out, BLOCK_BYTES);
+			else
+				sink = new DeflaterOutputStream(out);
+
+			return new PipedOutput(sink, "Deflating " + file.getName());
+		} catch (IOException ioEx) {
+			out.close();
+			throw ioEx;
+		}
+	}
+
+	/**
+	 * @return a reader of the file in the default charset, like FileReader
+	 */
+	public static Reader openReader(File file) throws IOException {
+		return new InputStreamReader(openInput(file));
+	}
+
+	/**
+	 * @return a writer of the file in the default charset, like FileWriter
+	 */
+	public static Writer openWriter(File file) throws IOException {
+		return new OutputStreamWriter(openOutput(file));
+	}
+
+	/**
+	 * Input read from the source by a thread, one block ahead of the caller
+	 * at least and QUEUE_BLOCKS blocks at most.
+	 */
+	private static final class PipedInput extends InputStream implements
+			Runnable {
+
+		// the compressed file under the source
+		private final FileInputStream file;
+		private final InputStream source;
+		private final BlockingQueue<byte[]> queue;
+		private final Thread thread;
+
+		// set by the thread before it queues END
+		private volatile IOException error = null;
+
+		private byte[] block = END;
+		private int pos = 0;
+		private boolean ended = false;
+
+		PipedInput(FileInputStream file, InputStream source, String name) {
+			this.file = file;
+			this.source = source;
+			queue = new ArrayBlockingQueue<byte[]>(QUEUE_BLOCKS);
+			thread = new Thread(this, name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					byte[] b = new byte[BLOCK_BYTES];
+					int n = 0;
+					int r;
+					while (n < b.length
+							&& (r = source.read(b, n, b.length - n)) >= 0)
+						n += r;
+
+					if (n > 0)
+						queue.put(n < b.length ? Arrays.copyOf(b, n) : b);
+					if (n < b.length)
+						break;
+				}
+			} catch (IOException ioEx) {
+				error = ioEx;
+			} catch (InterruptedException iEx) {
+				// closed by the reader
+				closeSource();
+				return;
+			}
+
+			closeSource();
+			try {
+				queue.put(END);
+			} catch (InterruptedException iEx) {
+				// closed by the reader
+			}
+		}
+
+		private void closeSource() {
+			try {
+				source.close();
+			} catch (IOException ioEx) {
+				ioEx.printStackTrace();
+			}
+		}
+
+		/**
+		 * @return false at the end of the data
+		 */
+		private boolean fill() throws IOException {
+			if (ended)
+				return false;
+			if (pos < block.length)
+				return true;
+
+			try {
+				block = queue.take();
+			} catch (InterruptedException iEx) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			pos = 0;
+
+			if (block == END) {
+				ended = true;
+				if (error != null)
+					throw error;
+				return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+
+			return block[pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+
+			int n = Math.min(len, block.length - pos);
+			System.arraycopy(block, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && fill()) {
+				int k = (int) Math.min(n - skipped, block.length - pos);
+				pos += k;
+				skipped += k;
+			}
+
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return block.length - pos;
+		}
+
+		@Override
+		public void close() {
+			ended = true;
+			block = END;
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Output written to the sink by a thread. Writes only block when
+	 * QUEUE_BLOCKS blocks are waiting.
+	 */
+	private static final class PipedOutput extends OutputStream implements
+			Runnable {
+
+		private final OutputStream sink;
+		private final BlockingQueue<byte[]> queue;
+		private final Thread thread;
+
+		private volatile IOException error = null;
+
+		private byte[] block = new byte[BLOCK_BYTES];
+		private int count = 0;
+		private boolean closed = false;
+
+		PipedOutput(OutputStream sink, String name) {
+			this.sink = sink;
+			queue = new ArrayBlockingQueue<byte[]>(QUEUE_BLOCKS);
+			thread = new Thread(this, name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			try {
+				try {
+					byte[] b;
+					while ((b = queue.take()) != END)
+						sink.write(b);
+				} finally {
+					sink.close();
+				}
+			} catch (IOException ioEx) {
+				error = ioEx;
+				// let the writer reach close() instead of blocking
+				try {
+					while (queue.take() != END)
+						;
+				} catch (InterruptedException iEx) {
+					Thread.currentThread().interrupt();
+				}
+			} catch (InterruptedException iEx) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void check() throws IOException {
+			if (error != null)
+				throw error;
+			if (closed)
+				throw new IOException("Stream closed");
+		}
+
+		private void put(byte[] b) throws IOException {
+			try {
+				queue.put(b);
+			} catch (InterruptedException iEx) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+
+		private void flushBlock() throws IOException {
+			check();
+			if (count == 0)
+				return;
+
+			put(count < block.length ? Arrays.copyOf(block, count) : block);
+			block = new byte[BLOCK_BYTES];
+			count = 0;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == block.length)
+				flushBlock();
+
+			block[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == block.length)
+					flushBlock();
+
+				int n = Math.min(len, block.length - count);
+				System.arraycopy(b, off, block, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		/**
+		 * Hands the buffered data to the thread, without waiting for it to
+		 * be written.
+		 */
+		@Override
+		public void flush() throws IOException {
+			flushBlock();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+
+			try {
+				flushBlock();
+			} finally {
+				closed = true;
+				put(END);
+			}
+
+			try {
+				thread.join();
+			} catch (InterruptedException iEx) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+
+			if (error != null)
+				throw error;
+		}
+	}
+}
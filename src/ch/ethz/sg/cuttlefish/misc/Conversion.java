@@ -24,7 +24,6 @@ package ch.ethz.sg.cuttlefish.misc;
 import java.awt.geom.Point2D;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -86,8 +85,8 @@ public class Conversion {
 
 	public static double[][] readMatrix(File file) throws IOException {
 
-		FileReader fileReader = new FileReader(file);
-		BufferedReader input = new BufferedReader(fileReader);
+		BufferedReader input = new BufferedReader(
+				CompressedStreams.openReader(file));
 
 		ArrayList<String> lines = new ArrayList<String>();
 		{
@@ -0,0 +1,192 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+import org.gephi.data.attributes.api.AttributeColumn;
+import org.gephi.data.attributes.api.AttributeController;
+import org.gephi.data.attributes.api.AttributeOrigin;
+import org.gephi.data.attributes.api.AttributeTable;
+import org.gephi.data.attributes.api.AttributeType;
+import org.openide.util.Lookup;
+
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedEdge;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
+
+/**
+ * Setters of the Gephi data columns that the importers fill with the
+ * attributes declared in their files. A setter is compiled once per declared
+ * attribute and parses the values into the type of its column.
+ */
+final class DataColumns {
+
+	/**
+	 * Sets an attribute value read from a file on a node.
+	 */
+	interface NodeSetter {
+		void set(StagedVertex v, String value);
+	}
+
+	/**
+	 * Sets an attribute value read from a file on an edge.
+	 */
+	interface EdgeSetter {
+		void set(StagedEdge e, String value);
+	}
+
+	/**
+	 * Sets a Gephi column, parsing the values into its type.
+	 */
+	private abstract static class ColumnSetter implements NodeSetter,
+			EdgeSetter {
+		private final int index;
+
+		ColumnSetter(AttributeColumn column) {
+			this.index = column.getIndex();
+		}
+
+		abstract Object parse(String value);
+
+		@Override
+		public void set(StagedVertex v, String value) {
+			v.setAttribute(index, parse(value));
+		}
+
+		@Override
+		public void set(StagedEdge e, String value) {
+			e.setAttribute(index, parse(value));
+		}
+	}
+
+	/**
+	 * Skips the values of attributes that would overwrite the properties of
+	 * Gephi.
+	 */
+	private static final class IgnoredSetter implements NodeSetter,
+			EdgeSetter {
+		@Override
+		public void set(StagedVertex v, String value) {
+		}
+
+		@Override
+		public void set(StagedEdge e, String value) {
+		}
+	}
+
+	private static final IgnoredSetter IGNORED = new IgnoredSetter();
+
+	private DataColumns() {
+	}
+
+	/**
+	 * @return the Gephi type of a GraphML attr.type or a GEXF attribute type,
+	 *         string if it is unknown
+	 */
+	static AttributeType toAttributeType(String type) {
+		if (type == null)
+			return AttributeType.STRING;
+		else if (type.equalsIgnoreCase("int")
+				|| type.equalsIgnoreCase("integer"))
+			return AttributeType.INT;
+		else if (type.equalsIgnoreCase("long"))
+			return AttributeType.LONG;
+		else if (type.equalsIgnoreCase("float"))
+			return AttributeType.FLOAT;
+		else if (type.equalsIgnoreCase("double"))
+			return AttributeType.DOUBLE;
+		else if (type.equalsIgnoreCase("boolean"))
+			return AttributeType.BOOLEAN;
+		else
+			return AttributeType.STRING;
+	}
+
+	/**
+	 * @return the setter of the node column with the given name
+	 */
+	static NodeSetter nodeSetter(String name, AttributeType type) {
+		ColumnSetter setter = compile(getTable(true), name, type);
+		return setter != null ? setter : IGNORED;
+	}
+
+	/**
+	 * @return the setter of the edge column with the given name
+	 */
+	static EdgeSetter edgeSetter(String name, AttributeType type) {
+		ColumnSetter setter = compile(getTable(false), name, type);
+		return setter != null ? setter : IGNORED;
+	}
+
+	private static AttributeTable getTable(boolean nodes) {
+		AttributeController controller = Lookup.getDefault().lookup(
+				AttributeController.class);
+		return nodes ? controller.getModel().getNodeTable() : controller
+				.getModel().getEdgeTable();
+	}
+
+	/**
+	 * Adds a data column with the given name, or reuses the one added by a
+	 * previous import with its type.
+	 * 
+	 * @return null for names of the properties of Gephi or the columns of
+	 *         Cuttlefish, which are ignored
+	 */
+	private static ColumnSetter compile(AttributeTable table, String name,
+			AttributeType type) {
+		AttributeColumn column = table.getColumn(name);
+		if (column == null)
+			column = table.addColumn(name, name, type, AttributeOrigin.DATA,
+					null);
+		else if (column.getOrigin() != AttributeOrigin.DATA)
+			return null;
+
+		switch (column.getType()) {
+		case INT:
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return Integer.valueOf(value.trim());
+				}
+			};
+		case LONG:
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return Long.valueOf(value.trim());
+				}
+			};
+		case FLOAT:
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return Float.valueOf(value);
+				}
+			};
+		case DOUBLE:
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return Double.valueOf(value);
+				}
+			};
+		case BOOLEAN:
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return Boolean.valueOf(value.trim());
+				}
+			};
+		case STRING:
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return value;
+				}
+			};
+		default:
+			final AttributeType columnType = column.getType();
+			return new ColumnSetter(column) {
+				@Override
+				Object parse(String value) {
+					return columnType.parse(value.trim());
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,382 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+
+import ch.ethz.sg.cuttlefish.misc.DataColumns.EdgeSetter;
+import ch.ethz.sg.cuttlefish.misc.DataColumns.NodeSetter;
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedEdge;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
+
+/**
+ * Imports a network from GEXF 1.1 or 1.2 straight into its graph, without
+ * the draft Container of the Gephi importers. The file is streamed and its
+ * nodes and edges are staged in a {@link NetworkBuilder}, which adds them in
+ * one batch at the end.
+ *
+ * The declared attributes are stored in Gephi data columns of their type, see
+ * {@link DataColumns}, and the viz colour, position, size and thickness are
+ * set on the vertices and edges. Dynamic attributes and spells are read as
+ * static values, nested nodes as plain nodes.
+ */
+public class GexfImporter {
+
+	// GEXF elements and attributes
+	private static final String GRAPH = "graph";
+	private static final String ATTRIBUTES = "attributes";
+	private static final String ATTRIBUTE = "attribute";
+	private static final String DEFAULT = "default";
+	private static final String NODE = "node";
+	private static final String EDGE = "edge";
+	private static final String ATTVALUE = "attvalue";
+	private static final String COLOR = "color";
+	private static final String POSITION = "position";
+	private static final String SIZE = "size";
+	private static final String THICKNESS = "thickness";
+	private static final String ATTR_CLASS = "class";
+	private static final String ATTR_ID = "id";
+	private static final String ATTR_TITLE = "title";
+	private static final String ATTR_TYPE = "type";
+	private static final String ATTR_FOR = "for";
+	private static final String ATTR_VALUE = "value";
+	private static final String ATTR_LABEL = "label";
+	private static final String ATTR_SOURCE = "source";
+	private static final String ATTR_TARGET = "target";
+	private static final String ATTR_WEIGHT = "weight";
+	private static final String GRAPH_DEFAULTEDGETYPE = "defaultedgetype";
+	private static final String UNDIRECTED = "undirected";
+	private static final String DIRECTED = "directed";
+
+	// nodes and edges between two reports of the progress
+	private static final int PROGRESS_ELEMENTS = 1 << 12;
+
+	private final File gexfFile;
+	private BrowsableNetwork network;
+	private NetworkBuilder builder;
+
+	// the setters compiled from the attribute declarations, by attribute id
+	private Map<String, NodeSetter> nodeSetters;
+	private Map<String, EdgeSetter> edgeSetters;
+	// the default values of the attributes that declare one
+	private Map<NodeSetter, String> nodeDefaults;
+	private Map<EdgeSetter, String> edgeDefaults;
+
+	// the element whose attvalues and viz elements are being read, if any
+	private StagedVertex vertex;
+	private StagedEdge edge;
+
+	public GexfImporter(File gexfFile) {
+		this.gexfFile = gexfFile;
+	}
+
+	/**
+	 * Adds the nodes and edges of the file to the network in one batch.
+	 *
+	 * If the diagnostics of the network stop the loading, the elements read
+	 * before are added.
+	 *
+	 * @return false if the loading was cancelled by the progress receiver, in
+	 *         which case nothing is added
+	 */
+	public boolean importGraph(BrowsableNetwork network) throws IOException {
+		this.network = network;
+		this.builder = new NetworkBuilder(network);
+		nodeSetters = new HashMap<String, NodeSetter>();
+		edgeSetters = new HashMap<String, EdgeSetter>();
+		nodeDefaults = new LinkedHashMap<NodeSetter, String>();
+		edgeDefaults = new LinkedHashMap<EdgeSetter, String>();
+		vertex = null;
+		edge = null;
+
+		InputStream in = CompressedStreams.openInput(gexfFile);
+		boolean completed = false;
+		try {
+			XMLStreamReader xmlReader = XMLInputFactory.newInstance()
+					.createXMLStreamReader(in);
+			// the class of the attributes being declared
+			boolean edgeAttributes = false;
+
+			while (xmlReader.hasNext()) {
+				int event = xmlReader.next();
+
+				if (event == XMLEvent.START_ELEMENT) {
+					String name = xmlReader.getLocalName();
+
+					if (name.equalsIgnoreCase(ATTVALUE)) {
+						readAttValue(xmlReader);
+					} else if (name.equalsIgnoreCase(NODE)) {
+						if (!readNode(xmlReader))
+							break;
+					} else if (name.equalsIgnoreCase(EDGE)) {
+						if (!readEdge(xmlReader))
+							break;
+					} else if (name.equalsIgnoreCase(COLOR)
+							|| name.equalsIgnoreCase(POSITION)
+							|| name.equalsIgnoreCase(SIZE)
+							|| name.equalsIgnoreCase(THICKNESS)) {
+						readViz(xmlReader, name);
+					} else if (name.equalsIgnoreCase(ATTRIBUTE)) {
+						readAttribute(xmlReader, edgeAttributes);
+					} else if (name.equalsIgnoreCase(ATTRIBUTES)) {
+						edgeAttributes = EDGE.equalsIgnoreCase(xmlReader
+								.getAttributeValue(null, ATTR_CLASS));
+					} else if (name.equalsIgnoreCase(GRAPH)) {
+						readGraph(xmlReader);
+					}
+
+				} else if (event == XMLEvent.END_ELEMENT) {
+					String name = xmlReader.getLocalName();
+
+					if (name.equalsIgnoreCase(NODE)
+							|| name.equalsIgnoreCase(EDGE)) {
+						vertex = null;
+						edge = null;
+						if (!reportProgress(in))
+							return false;
+					}
+				}
+			}
+			completed = true;
+		} catch (XMLStreamException xmlEx) {
+			throw new IOException("Malformed GEXF in " + gexfFile.getName()
+					+ ": " + xmlEx.getMessage(), xmlEx);
+		} catch (FactoryConfigurationError fcErr) {
+			throw new IOException("No XML parser: " + fcErr.getMessage(),
+					fcErr);
+		} finally {
+			// nothing is added if the import is cancelled or fails
+			if (completed)
+				builder.commit();
+			nodeSetters = null;
+			edgeSetters = null;
+			nodeDefaults = null;
+			edgeDefaults = null;
+			vertex = null;
+			edge = null;
+			in.close();
+		}
+
+		return true;
+	}
+
+	private void readGraph(XMLStreamReader xmlReader) {
+		String edgeType = xmlReader.getAttributeValue(null,
+				GRAPH_DEFAULTEDGETYPE);
+
+		// directed unless declared otherwise, like the Gephi importer
+		network.setDirected(!UNDIRECTED.equalsIgnoreCase(edgeType));
+	}
+
+	/**
+	 * Compiles the setter of an attribute and reads its default value.
+	 */
+	private void readAttribute(XMLStreamReader xmlReader,
+			boolean edgeAttribute) throws XMLStreamException {
+		String id = xmlReader.getAttributeValue(null, ATTR_ID);
+		String title = xmlReader.getAttributeValue(null, ATTR_TITLE);
+		String type = xmlReader.getAttributeValue(null, ATTR_TYPE);
+
+		String defaultValue = null;
+		boolean elemEnd = false;
+		while (xmlReader.hasNext() && !elemEnd) {
+			int event = xmlReader.next();
+
+			if (event == XMLEvent.START_ELEMENT) {
+				if (xmlReader.getLocalName().equalsIgnoreCase(DEFAULT))
+					defaultValue = xmlReader.getElementText();
+			} else if (event == XMLEvent.END_ELEMENT) {
+				if (xmlReader.getLocalName().equalsIgnoreCase(ATTRIBUTE))
+					elemEnd = true;
+			}
+		}
+
+		if (id == null)
+			return;
+		if (title == null || title.isEmpty())
+			title = id;
+		boolean hasDefault = defaultValue != null && !defaultValue.isEmpty();
+
+		if (edgeAttribute) {
+			EdgeSetter setter = DataColumns.edgeSetter(title,
+					DataColumns.toAttributeType(type));
+			edgeSetters.put(id, setter);
+			if (hasDefault)
+				edgeDefaults.put(setter, defaultValue);
+		} else {
+			NodeSetter setter = DataColumns.nodeSetter(title,
+					DataColumns.toAttributeType(type));
+			nodeSetters.put(id, setter);
+			if (hasDefault)
+				nodeDefaults.put(setter, defaultValue);
+		}
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean readNode(XMLStreamReader xmlReader) {
+		String id = xmlReader.getAttributeValue(null, ATTR_ID);
+		String label = xmlReader.getAttributeValue(null, ATTR_LABEL);
+
+		vertex = id == null ? null : builder.addVertex(id);
+		edge = null;
+		if (vertex == null)
+			return network.getDiagnostics().error("Duplicate node",
+					"Missing or double node identifier " + id + " in "
+							+ gexfFile.getName());
+
+		if (label != null)
+			vertex.setLabel(label);
+		for (Map.Entry<NodeSetter, String> entry : nodeDefaults.entrySet())
+			try {
+				entry.getKey().set(vertex, entry.getValue());
+			} catch (IllegalArgumentException iaEx) {
+				warnMalformed(DEFAULT, entry.getValue());
+			}
+
+		return true;
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean readEdge(XMLStreamReader xmlReader) {
+		String source = xmlReader.getAttributeValue(null, ATTR_SOURCE);
+		String target = xmlReader.getAttributeValue(null, ATTR_TARGET);
+		String weight = xmlReader.getAttributeValue(null, ATTR_WEIGHT);
+		String type = xmlReader.getAttributeValue(null, ATTR_TYPE);
+		String label = xmlReader.getAttributeValue(null, ATTR_LABEL);
+
+		boolean directed = network.isDirected();
+		if (type != null)
+			directed = !type.equalsIgnoreCase(UNDIRECTED);
+
+		float w = 1;
+		if (weight != null)
+			try {
+				w = Float.parseFloat(weight);
+			} catch (NumberFormatException nfEx) {
+				warnMalformed(ATTR_WEIGHT, weight);
+			}
+
+		vertex = null;
+		edge = null;
+		// the endpoints have to be declared before the edge
+		if (source != null && target != null)
+			edge = builder.addEdge(source, target, w, directed);
+		if (edge == null)
+			return network.getDiagnostics().error("Malformed edge",
+					"Malformed edge (nonexistent endpoint): (" + source + ","
+							+ target + ") in " + gexfFile.getName());
+
+		if (label != null)
+			edge.setLabel(label);
+		for (Map.Entry<EdgeSetter, String> entry : edgeDefaults.entrySet())
+			try {
+				entry.getKey().set(edge, entry.getValue());
+			} catch (IllegalArgumentException iaEx) {
+				warnMalformed(DEFAULT, entry.getValue());
+			}
+
+		return true;
+	}
+
+	private void readAttValue(XMLStreamReader xmlReader) {
+		// "for" in GEXF 1.2, "id" in 1.1
+		String id = xmlReader.getAttributeValue(null, ATTR_FOR);
+		if (id == null)
+			id = xmlReader.getAttributeValue(null, ATTR_ID);
+		String value = xmlReader.getAttributeValue(null, ATTR_VALUE);
+		if (id == null || value == null || value.isEmpty())
+			return;
+
+		try {
+			if (vertex != null) {
+				NodeSetter setter = nodeSetters.get(id);
+				if (setter != null)
+					setter.set(vertex, value);
+			} else if (edge != null) {
+				EdgeSetter setter = edgeSetters.get(id);
+				if (setter != null)
+					setter.set(edge, value);
+			}
+		} catch (IllegalArgumentException iaEx) {
+			warnMalformed(id, value);
+		}
+	}
+
+	/**
+	 * Reads the viz elements of the current node or edge.
+	 */
+	private void readViz(XMLStreamReader xmlReader, String name) {
+		if (vertex == null && edge == null)
+			return;
+
+		try {
+			if (name.equalsIgnoreCase(COLOR)) {
+				Color color = new Color(parseInt(xmlReader, "r"), parseInt(
+						xmlReader, "g"), parseInt(xmlReader, "b"));
+				if (vertex != null)
+					vertex.setFillColor(color);
+				else
+					edge.setColor(color);
+
+			} else if (name.equalsIgnoreCase(POSITION) && vertex != null) {
+				vertex.setPosition(parseDouble(xmlReader, "x"),
+						parseDouble(xmlReader, "y"));
+
+			} else if (name.equalsIgnoreCase(SIZE) && vertex != null) {
+				vertex.setSize(parseDouble(xmlReader, ATTR_VALUE));
+
+			} else if (name.equalsIgnoreCase(THICKNESS) && edge != null) {
+				edge.setWidth(parseDouble(xmlReader, ATTR_VALUE));
+			}
+		} catch (IllegalArgumentException iaEx) {
+			warnMalformed(name, iaEx.getMessage());
+		}
+	}
+
+	private static int parseInt(XMLStreamReader xmlReader, String attr) {
+		String value = xmlReader.getAttributeValue(null, attr);
+		return value == null ? 0 : Integer.parseInt(value.trim());
+	}
+
+	private static double parseDouble(XMLStreamReader xmlReader, String attr) {
+		String value = xmlReader.getAttributeValue(null, attr);
+		return value == null ? 0 : Double.parseDouble(value);
+	}
+
+	/**
+	 * Reports the progress every PROGRESS_ELEMENTS nodes and edges.
+	 *
+	 * @return false if the loading has to stop
+	 */
+	private boolean reportProgress(InputStream in) {
+		int elements = builder.getVertexCount() + builder.getEdgeCount();
+		if (elements % PROGRESS_ELEMENTS != 0)
+			return true;
+
+		return network.reportProgress(CompressedStreams.getFilePosition(in),
+				gexfFile.length(), elements);
+	}
+
+
+	private void warnMalformed(String attribute, String value) {
+		network.getDiagnostics().warning("Malformed value",
+				"Malformed value \"" + value + "\" of " + attribute + " in "
+						+ gexfFile.getName());
+	}
+}
@@ -24,8 +24,11 @@ package ch.ethz.sg.cuttlefish.misc;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
@@ -33,9 +36,14 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
 
+import org.gephi.data.attributes.api.AttributeType;
+
+import ch.ethz.sg.cuttlefish.misc.DataColumns.EdgeSetter;
+import ch.ethz.sg.cuttlefish.misc.DataColumns.NodeSetter;
 import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
-import ch.ethz.sg.cuttlefish.networks.Edge;
-import ch.ethz.sg.cuttlefish.networks.Vertex;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedEdge;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
 
 /**
  * @author Ilias Rinis
@@ -46,6 +54,12 @@ import ch.ethz.sg.cuttlefish.networks.Vertex;
  *         GraphMLExporter class of Cuttlefish, and also with the respective
  *         Gephi operation. It has been tested for interoperability until Gephi
  *         0.8.1 beta.
+ * 
+ *         Each &lt;key&gt; declaration is compiled into a setter of its type,
+ *         which the &lt;data&gt; elements of nodes and edges look up by their
+ *         key. Keys named like the attributes of Cuttlefish (label, x, y, size,
+ *         width, weight, r, g, b) set them, other keys are stored in Gephi
+ *         data columns of the same type.
  */
 
 public class GraphMLImporter {
@@ -53,10 +67,12 @@ public class GraphMLImporter {
 	// GraphML Elements and Attributes
 	private static final String GRAPHML = "graphml";
 	private static final String KEY = "key";
+	private static final String DEFAULT = "default";
 	private static final String GRAPH = "graph";
 	private static final String NODE = "node";
 	private static final String EDGE = "edge";
 	private static final String DATA = "data";
+	private static final String ALL = "all";
 	private static final String ATTR_NAME = "attr.name";
 	private static final String ATTR_TYPE = "attr.type";
 	private static final String ATTR_FOR = "for";
@@ -80,25 +96,138 @@ public class GraphMLImporter {
 	private static final String EDGE_B = "b";
 	private static final String GRAPH_EDGEDEFAULT = "edgedefault";
 
+	// nodes and edges between two reports of the progress
+	private static final int PROGRESS_ELEMENTS = 1 << 12;
+
+	// setters of the attributes of Cuttlefish, by lower case key name
+	private static final Map<String, NodeSetter> NODE_ATTRIBUTES =
+			new HashMap<String, NodeSetter>();
+	private static final Map<String, EdgeSetter> EDGE_ATTRIBUTES =
+			new HashMap<String, EdgeSetter>();
+
+	static {
+		NODE_ATTRIBUTES.put(NODE_LABEL, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setLabel(value);
+			}
+		});
+		NODE_ATTRIBUTES.put(NODE_X, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setPosition(Double.parseDouble(value), v.getY());
+			}
+		});
+		NODE_ATTRIBUTES.put(NODE_Y, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setPosition(v.getX(), Double.parseDouble(value));
+			}
+		});
+		NODE_ATTRIBUTES.put(NODE_SIZE, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setSize(Double.parseDouble(value));
+			}
+		});
+		NODE_ATTRIBUTES.put(NODE_R, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setFillRGB(withComponent(v.getFillRGB(), 16, value));
+			}
+		});
+		NODE_ATTRIBUTES.put(NODE_G, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setFillRGB(withComponent(v.getFillRGB(), 8, value));
+			}
+		});
+		NODE_ATTRIBUTES.put(NODE_B, new NodeSetter() {
+			@Override
+			public void set(StagedVertex v, String value) {
+				v.setFillRGB(withComponent(v.getFillRGB(), 0, value));
+			}
+		});
+
+		EDGE_ATTRIBUTES.put(EDGE_LABEL, new EdgeSetter() {
+			@Override
+			public void set(StagedEdge e, String value) {
+				e.setLabel(value);
+			}
+		});
+		EDGE_ATTRIBUTES.put(EDGE_WIDTH, new EdgeSetter() {
+			@Override
+			public void set(StagedEdge e, String value) {
+				e.setWidth(Double.parseDouble(value));
+			}
+		});
+		EDGE_ATTRIBUTES.put(EDGE_WEIGHT, new EdgeSetter() {
+			@Override
+			public void set(StagedEdge e, String value) {
+				e.setWeight(Double.parseDouble(value));
+			}
+		});
+		EDGE_ATTRIBUTES.put(EDGE_R, new EdgeSetter() {
+			@Override
+			public void set(StagedEdge e, String value) {
+				e.setRGB(withComponent(e.getRGB(), 16, value));
+			}
+		});
+		EDGE_ATTRIBUTES.put(EDGE_G, new EdgeSetter() {
+			@Override
+			public void set(StagedEdge e, String value) {
+				e.setRGB(withComponent(e.getRGB(), 8, value));
+			}
+		});
+		EDGE_ATTRIBUTES.put(EDGE_B, new EdgeSetter() {
+			@Override
+			public void set(StagedEdge e, String value) {
+				e.setRGB(withComponent(e.getRGB(), 0, value));
+			}
+		});
+	}
+
 	private File graphmlFile;
 	private BrowsableNetwork network;
+	private NetworkBuilder builder;
+
+	// the setters compiled from the keys, by key id
+	private Map<String, NodeSetter> nodeSetters;
+	private Map<String, EdgeSetter> edgeSetters;
+	// the default values of the keys that declare one
+	private Map<NodeSetter, String> nodeDefaults;
+	private Map<EdgeSetter, String> edgeDefaults;
 
 	public GraphMLImporter(File graphmlFile) {
 		this.graphmlFile = graphmlFile;
 	}
 
-	public boolean importGraph(BrowsableNetwork network)
-			throws FileNotFoundException {
+	/**
+	 * Adds the nodes and edges of the file to the network in one batch. If
+	 * the diagnostics of the network stop the loading, the elements read
+	 * before are added.
+	 * 
+	 * @return false if there is no network, or if the loading was cancelled
+	 *         by its progress receiver, in which case nothing is added
+	 */
+	public boolean importGraph(BrowsableNetwork network) throws IOException {
 
 		if (network != null) {
 			this.network = network;
+			this.builder = new NetworkBuilder(network);
 		} else {
 			return false;
 		}
 
+		nodeSetters = new HashMap<String, NodeSetter>();
+		edgeSetters = new HashMap<String, EdgeSetter>();
+		nodeDefaults = new LinkedHashMap<NodeSetter, String>();
+		edgeDefaults = new LinkedHashMap<EdgeSetter, String>();
+
+		InputStream fis = null;
+		boolean completed = false;
 		try {
-			FileInputStream fis;
-			fis = new FileInputStream(graphmlFile);
+			fis = CompressedStreams.openInput(graphmlFile);
 			XMLStreamReader xmlReader = XMLInputFactory.newInstance()
 					.createXMLStreamReader(fis);
 
@@ -113,9 +242,15 @@ public class GraphMLImporter {
 					} else if (name.equalsIgnoreCase(GRAPH)) {
 						readGraph(xmlReader);
 					} else if (name.equalsIgnoreCase(NODE)) {
-						readNode(xmlReader);
+						if (!readNode(xmlReader))
+							break;
+						if (!reportProgress(fis))
+							return false;
 					} else if (name.equalsIgnoreCase(EDGE)) {
-						readEdge(xmlReader);
+						if (!readEdge(xmlReader))
+							break;
+						if (!reportProgress(fis))
+							return false;
 					} else if (name.equalsIgnoreCase(GRAPHML)) {
 						// Ignore <graphml> element
 					}
@@ -125,21 +260,36 @@ public class GraphMLImporter {
 					// String name = xmlReader.getLocalName();
 				}
 			}
+			completed = true;
 		} catch (XMLStreamException e) {
-			e.printStackTrace();
+			throw new IOException("Malformed GraphML in "
+					+ graphmlFile.getName() + ": " + e.getMessage(), e);
 		} catch (FactoryConfigurationError e) {
-			e.printStackTrace();
+			throw new IOException("No XML parser: " + e.getMessage(), e);
+		} finally {
+			// nothing is added if the import is cancelled or fails
+			if (completed)
+				builder.commit();
+			nodeSetters = null;
+			edgeSetters = null;
+			nodeDefaults = null;
+			edgeDefaults = null;
+			if (fis != null)
+				try {
+					fis.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
 		}
 		return true;
 	}
 
-	@SuppressWarnings("unused")
-	private void readKey(XMLStreamReader xmlReader) {
-		/*
-		 * Currently, the attributes defined in GraphML for data types are not
-		 * useful.
-		 */
-		String attrName, attrType, attrFor, attrId;
+	/**
+	 * Compiles the setters of a key, for nodes, edges or both, and reads its
+	 * default value.
+	 */
+	private void readKey(XMLStreamReader xmlReader) throws XMLStreamException {
+		String attrName = null, attrType = null, attrFor = ALL, attrId = null;
 
 		for (int i = 0; i < xmlReader.getAttributeCount(); ++i) {
 			String attr = xmlReader.getAttributeLocalName(i);
@@ -154,6 +304,86 @@ public class GraphMLImporter {
 				attrId = xmlReader.getAttributeValue(i);
 			}
 		}
+
+		String defaultValue = null;
+		boolean elemEnd = false;
+		while (xmlReader.hasNext() && !elemEnd) {
+			int event = xmlReader.next();
+
+			if (event == XMLEvent.START_ELEMENT) {
+				if (xmlReader.getLocalName().equalsIgnoreCase(DEFAULT))
+					defaultValue = xmlReader.getElementText();
+			} else if (event == XMLEvent.END_ELEMENT) {
+				if (xmlReader.getLocalName().equalsIgnoreCase(KEY))
+					elemEnd = true;
+			}
+		}
+
+		if (attrId == null)
+			return;
+		if (attrName == null || attrName.isEmpty())
+			attrName = attrId;
+		AttributeType type = DataColumns.toAttributeType(attrType);
+
+		boolean all = attrFor.equalsIgnoreCase(ALL);
+		if (all || attrFor.equalsIgnoreCase(NODE)) {
+			NodeSetter setter = compileNodeSetter(attrName, type);
+			nodeSetters.put(attrId, setter);
+			if (defaultValue != null && !defaultValue.isEmpty())
+				nodeDefaults.put(setter, defaultValue);
+		}
+		if (all || attrFor.equalsIgnoreCase(EDGE)) {
+			EdgeSetter setter = compileEdgeSetter(attrName, type);
+			edgeSetters.put(attrId, setter);
+			if (defaultValue != null && !defaultValue.isEmpty())
+				edgeDefaults.put(setter, defaultValue);
+		}
+	}
+
+	/**
+	 * Reports the progress every PROGRESS_ELEMENTS nodes and edges.
+	 * 
+	 * @return false if the loading has to stop
+	 */
+	private boolean reportProgress(InputStream in) {
+		int elements = builder.getVertexCount() + builder.getEdgeCount();
+		if (elements % PROGRESS_ELEMENTS != 0)
+			return true;
+
+		return network.reportProgress(CompressedStreams.getFilePosition(in),
+				graphmlFile.length(), elements);
+	}
+
+	private NodeSetter compileNodeSetter(String name, AttributeType type) {
+		NodeSetter setter = NODE_ATTRIBUTES.get(name.toLowerCase());
+		if (setter != null)
+			return setter;
+
+		return DataColumns.nodeSetter(name, type);
+	}
+
+	private EdgeSetter compileEdgeSetter(String name, AttributeType type) {
+		EdgeSetter setter = EDGE_ATTRIBUTES.get(name.toLowerCase());
+		if (setter != null)
+			return setter;
+
+		return DataColumns.edgeSetter(name, type);
+	}
+
+	private static int parseInt(String value) {
+		return Integer.parseInt(value.trim());
+	}
+
+	/**
+	 * @return the packed RGB colour with the component at the given shift
+	 *         replaced by the parsed value
+	 */
+	private static int withComponent(int rgb, int shift, String value) {
+		int component = parseInt(value);
+		if (component < 0 || component > 255)
+			throw new IllegalArgumentException("Color component " + value);
+
+		return (rgb & ~(0xFF << shift)) | (component << shift);
 	}
 
 	private void readGraph(XMLStreamReader xmlReader) {
@@ -170,19 +400,22 @@ public class GraphMLImporter {
 		network.setDirected(edgeDefault.equalsIgnoreCase(EDGE_DIRECTED));
 	}
 
-	private void readNode(XMLStreamReader xmlReader) throws XMLStreamException {
-		int attrId = 0;
-		Vertex v = null;
-
-		for (int i = 0; i < xmlReader.getAttributeCount(); ++i) {
-			String attr = xmlReader.getAttributeLocalName(i);
-
-			if (attr.equalsIgnoreCase(NODE_ID)) {
-				attrId = Integer.parseInt(xmlReader.getAttributeValue(i));
-			}
-		}
-
-		v = new Vertex(attrId);
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean readNode(XMLStreamReader xmlReader)
+			throws XMLStreamException {
+		String attrId = xmlReader.getAttributeValue(null, NODE_ID);
+		StagedVertex v = null;
+
+		if (attrId != null)
+			v = builder.addVertex(attrId);
+		if (v != null)
+			setNodeDefaults(v);
+		else if (!network.getDiagnostics().error("Duplicate node",
+				"Missing or double node identifier " + attrId + " in "
+						+ graphmlFile.getName()))
+			return false;
 
 		boolean elemEnd = false;
 
@@ -190,7 +423,8 @@ public class GraphMLImporter {
 			int event = xmlReader.next();
 
 			if (event == XMLEvent.START_ELEMENT) {
-				if (xmlReader.getLocalName().equalsIgnoreCase(DATA)) {
+				if (xmlReader.getLocalName().equalsIgnoreCase(DATA)
+						&& v != null) {
 					readNodeData(xmlReader, v);
 				}
 
@@ -201,88 +435,77 @@ public class GraphMLImporter {
 			}
 		}
 
-		network.addVertex(v);
+		return true;
 	}
 
-	private void readNodeData(XMLStreamReader xmlReader, Vertex v)
+	private void readNodeData(XMLStreamReader xmlReader, StagedVertex v)
 			throws XMLStreamException {
-		String key = "", value = "";
-
-		for (int i = 0; i < xmlReader.getAttributeCount(); ++i) {
-			String attr = xmlReader.getAttributeLocalName(i);
-
-			if (attr.equalsIgnoreCase(KEY)) {
-				key = xmlReader.getAttributeValue(i);
-			}
+		String key = xmlReader.getAttributeValue(null, KEY);
+		String value = xmlReader.getElementText();
+		if (key == null || value.isEmpty())
+			return;
+
+		NodeSetter setter = nodeSetters.get(key);
+		if (setter == null) {
+			// an undeclared key is taken as the name of a string
+			setter = compileNodeSetter(key, AttributeType.STRING);
+			nodeSetters.put(key, setter);
 		}
 
-		value = xmlReader.getElementText();
-		double x = v.getPosition() != null ? v.getPosition().getX() : 0;
-		double y = v.getPosition() != null ? v.getPosition().getY() : 0;
-		int r = v.getFillColor().getRed(), g = v.getFillColor().getGreen(), b = v
-				.getFillColor().getBlue();
+		try {
+			setter.set(v, value);
+		} catch (IllegalArgumentException iaEx) {
+			warnMalformed(key, value);
+		}
+	}
 
-		if (!value.isEmpty()) {
-			if (key.equalsIgnoreCase(NODE_LABEL)) {
-				v.setLabel(value);
-			} else if (key.equalsIgnoreCase(NODE_X)) {
-				v.setPosition(Double.parseDouble(value), y);
-			} else if (key.equalsIgnoreCase(NODE_Y)) {
-				v.setPosition(x, Double.parseDouble(value));
-			} else if (key.equalsIgnoreCase(NODE_SIZE)) {
-				v.setSize(Double.parseDouble(value));
-			} else if (key.equalsIgnoreCase(NODE_R)) {
-				r = Integer.parseInt(value);
-				v.setFillColor(new Color(r, g, b));
-			} else if (key.equalsIgnoreCase(NODE_G)) {
-				g = Integer.parseInt(value);
-				v.setFillColor(new Color(r, g, b));
-			} else if (key.equalsIgnoreCase(NODE_B)) {
-				b = Integer.parseInt(value);
-				v.setFillColor(new Color(r, g, b));
+	private void setNodeDefaults(StagedVertex v) {
+		for (Map.Entry<NodeSetter, String> entry : nodeDefaults.entrySet())
+			try {
+				entry.getKey().set(v, entry.getValue());
+			} catch (IllegalArgumentException iaEx) {
+				warnMalformed(DEFAULT, entry.getValue());
 			}
-		}
 	}
 
-	private void readEdge(XMLStreamReader xmlReader) throws XMLStreamException {
-		int src = 0, dest = 0;
-		boolean directed = false;
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean readEdge(XMLStreamReader xmlReader)
+			throws XMLStreamException {
+		String src = null, dest = null;
+		boolean directed = network.isDirected();
 		boolean elemEnd = false;
-		Edge e = null;
+		StagedEdge e = null;
 
 		for (int i = 0; i < xmlReader.getAttributeCount(); ++i) {
 			String attr = xmlReader.getAttributeLocalName(i);
 
 			if (attr.equalsIgnoreCase(EDGE_SRC)) {
-				src = Integer.parseInt(xmlReader.getAttributeValue(i));
+				src = xmlReader.getAttributeValue(i);
 			} else if (attr.equalsIgnoreCase(EDGE_DEST)) {
-				dest = Integer.parseInt(xmlReader.getAttributeValue(i));
+				dest = xmlReader.getAttributeValue(i);
 			} else if (attr.equalsIgnoreCase(EDGE_DIRECTED)) {
 				directed = Boolean.parseBoolean(xmlReader.getAttributeValue(i));
 			}
 		}
 
-		Vertex vs = null, vt = null;
-
-		for (Vertex v : network.getVertices()) {
-			if (v.getId() == src)
-				vs = v;
-			if (v.getId() == dest)
-				vt = v;
-
-			if (vs != null && vt != null)
-				break;
-		}
-
-		if (vs != null && vt != null) {
-			e = new Edge(vs, vt, 1, directed);
-		}
+		// the endpoints have to be declared before the edge
+		if (src != null && dest != null)
+			e = builder.addEdge(src, dest, 1, directed);
+		if (e != null)
+			setEdgeDefaults(e);
+		else if (!network.getDiagnostics().error("Malformed edge",
+				"Malformed edge (nonexistent endpoint): (" + src + "," + dest
+						+ ") in " + graphmlFile.getName()))
+			return false;
 
 		while (xmlReader.hasNext() && !elemEnd) {
 			int event = xmlReader.next();
 
 			if (event == XMLEvent.START_ELEMENT) {
-				if (xmlReader.getLocalName().equalsIgnoreCase(DATA)) {
+				if (xmlReader.getLocalName().equalsIgnoreCase(DATA)
+						&& e != null) {
 					readEdgeData(xmlReader, e);
 				}
 
@@ -293,43 +516,43 @@ public class GraphMLImporter {
 			}
 		}
 
-		network.addEdge(e);
+		return true;
 	}
 
-	private void readEdgeData(XMLStreamReader xmlReader, Edge e)
+	private void readEdgeData(XMLStreamReader xmlReader, StagedEdge e)
 			throws XMLStreamException {
-		String key = "", value = "";
-
-		for (int i = 0; i < xmlReader.getAttributeCount(); ++i) {
-			String attr = xmlReader.getAttributeLocalName(i);
-
-			if (attr.equalsIgnoreCase(KEY)) {
-				key = xmlReader.getAttributeValue(i);
-			}
+		String key = xmlReader.getAttributeValue(null, KEY);
+		String value = xmlReader.getElementText();
+		if (key == null || value.isEmpty())
+			return;
+
+		EdgeSetter setter = edgeSetters.get(key);
+		if (setter == null) {
+			// an undeclared key is taken as the name of a string
+			setter = compileEdgeSetter(key, AttributeType.STRING);
+			edgeSetters.put(key, setter);
 		}
 
-		value = xmlReader.getElementText();
-		int r = e.getColor().getRed(), g = e.getColor().getGreen(), b = e
-				.getColor().getBlue();
+		try {
+			setter.set(e, value);
+		} catch (IllegalArgumentException iaEx) {
+			warnMalformed(key, value);
+		}
+	}
 
-		if (!value.isEmpty()) {
-			if (key.equalsIgnoreCase(EDGE_LABEL)) {
-				e.setLabel(value);
-			} else if (key.equalsIgnoreCase(EDGE_WIDTH)) {
-				e.setWidth(Double.parseDouble(value));
-			} else if (key.equalsIgnoreCase(EDGE_WEIGHT)) {
-				e.setWeight(Double.parseDouble(value));
-			} else if (key.equalsIgnoreCase(EDGE_R)) {
-				r = Integer.parseInt(value);
-				e.setColor(new Color(r, g, b));
-			} else if (key.equalsIgnoreCase(EDGE_G)) {
-				g = Integer.parseInt(value);
-				e.setColor(new Color(r, g, b));
-			} else if (key.equalsIgnoreCase(EDGE_B)) {
-				b = Integer.parseInt(value);
-				e.setColor(new Color(r, g, b));
+	private void setEdgeDefaults(StagedEdge e) {
+		for (Map.Entry<EdgeSetter, String> entry : edgeDefaults.entrySet())
+			try {
+				entry.getKey().set(e, entry.getValue());
+			} catch (IllegalArgumentException iaEx) {
+				warnMalformed(DEFAULT, entry.getValue());
 			}
-		}
+	}
+
 
+	private void warnMalformed(String key, String value) {
+		network.getDiagnostics().warning("Malformed value",
+				"Malformed value \"" + value + "\" of key " + key + " in "
+						+ graphmlFile.getName());
 	}
 }
@@ -0,0 +1,131 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from int keys to int values. Avoids the boxing and
+ * the per entry objects of a HashMap<Integer, Integer> when large index
+ * tables have to be built.
+ *
+ * Keys may take any value, missing keys are reported through the no entry
+ * value given to the constructor.
+ */
+public class IntIntHashMap {
+
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private final int noEntryValue;
+	private int[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	public IntIntHashMap(int expectedSize, int noEntryValue) {
+		this.noEntryValue = noEntryValue;
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expectedSize)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int slot(int key) {
+		int i = hash(key) & mask;
+		while (used[i] && keys[i] != key)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	public int get(int key) {
+		int i = slot(key);
+		return used[i] ? values[i] : noEntryValue;
+	}
+
+	public boolean containsKey(int key) {
+		return used[slot(key)];
+	}
+
+	public void put(int key, int value) {
+		int i = slot(key);
+		if (!used[i]) {
+			if (size + 1 > keys.length * LOAD_FACTOR) {
+				rehash(keys.length << 1);
+				i = slot(key);
+			}
+			used[i] = true;
+			keys[i] = key;
+			size++;
+		}
+		values[i] = value;
+	}
+
+	public int remove(int key) {
+		int i = slot(key);
+		if (!used[i])
+			return noEntryValue;
+
+		int old = values[i];
+		used[i] = false;
+		size--;
+
+		// re-insert the rest of the cluster so lookups do not stop early
+		int j = (i + 1) & mask;
+		while (used[j]) {
+			int k = keys[j];
+			int v = values[j];
+			used[j] = false;
+			int s = slot(k);
+			used[s] = true;
+			keys[s] = k;
+			values[s] = v;
+			j = (j + 1) & mask;
+		}
+
+		return old;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int s = slot(oldKeys[i]);
+				used[s] = true;
+				keys[s] = oldKeys[i];
+				values[s] = oldValues[i];
+			}
+		}
+	}
+}
@@ -3,7 +3,7 @@ package ch.ethz.sg.cuttlefish.misc;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Collection;
 
@@ -42,12 +42,13 @@ public class PSTricksExporter {
 	public void exportToPSTricks(File file){
 		PrintStream p;
 		try {
-			p = new PrintStream(file);
+			p = new PrintStream(CompressedStreams.openOutput(file));
 			exportGraphToPSTricks(network, p, true);
-		} catch (FileNotFoundException fnfEx) {
-			JOptionPane.showMessageDialog(null,fnfEx.getMessage(),"Error",JOptionPane.ERROR_MESSAGE);
+			p.close();
+		} catch (IOException ioEx) {
+			JOptionPane.showMessageDialog(null,ioEx.getMessage(),"Error",JOptionPane.ERROR_MESSAGE);
 			Cuttlefish.err("Error trying to save in PSTricks");
-			fnfEx.printStackTrace();
+			ioEx.printStackTrace();
 		}
 	}
 	
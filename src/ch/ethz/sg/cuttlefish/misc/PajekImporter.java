@@ -0,0 +1,293 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.ethz.sg.cuttlefish.networks.BrowsableNetwork;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
+
+/**
+ * Imports a network from a Pajek .net file straight into its graph, without
+ * the draft Container of the Gephi importers. The lines are streamed and the
+ * vertices and edges staged in a {@link NetworkBuilder}, which adds them in
+ * one batch at the end.
+ *
+ * Reads the *Vertices section with labels and coordinates, *Arcs and *Edges
+ * with optional weights, their list forms and *Matrix. Vertices up to the
+ * declared count are created even if they are not listed. Other sections,
+ * like partitions and vectors, and the drawing options are skipped.
+ */
+public class PajekImporter {
+
+	// lines between two reports of the progress
+	private static final int PROGRESS_LINES = 1 << 12;
+
+	private enum Section {
+		NONE, VERTICES, ARCS, EDGES, ARCSLIST, EDGESLIST, MATRIX
+	}
+
+	private final File pajekFile;
+	private BrowsableNetwork network;
+	private NetworkBuilder builder;
+
+	private Section section;
+	private int declaredVertices;
+	private boolean verticesComplete;
+	private boolean hasArcs;
+	private boolean hasEdges;
+	private int matrixRow;
+	private int line;
+
+	public PajekImporter(File pajekFile) {
+		this.pajekFile = pajekFile;
+	}
+
+	/**
+	 * Adds the vertices and edges of the file to the network in one batch.
+	 *
+	 * If the diagnostics of the network stop the loading, the elements read
+	 * before are added.
+	 *
+	 * @return false if the loading was cancelled by the progress receiver, in
+	 *         which case nothing is added
+	 */
+	public boolean importGraph(BrowsableNetwork network) throws IOException {
+		this.network = network;
+		this.builder = new NetworkBuilder(network);
+		section = Section.NONE;
+		declaredVertices = 0;
+		verticesComplete = false;
+		hasArcs = false;
+		hasEdges = false;
+		line = 0;
+
+		InputStream in = CompressedStreams.openInput(pajekFile);
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					in));
+			String text;
+			while ((text = reader.readLine()) != null) {
+				line++;
+				if (!readLine(text.trim()))
+					break;
+
+				if (line % PROGRESS_LINES == 0
+						&& !network.reportProgress(CompressedStreams
+								.getFilePosition(in), pajekFile.length(),
+								builder.getVertexCount()
+										+ builder.getEdgeCount()))
+					return false;
+			}
+		} finally {
+			in.close();
+		}
+
+		addDeclaredVertices();
+		// mixed files keep the direction of each edge
+		network.setDirected(hasArcs || !hasEdges);
+		builder.commit();
+
+		return true;
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean readLine(String text) {
+		if (text.isEmpty() || text.charAt(0) == '%')
+			return true;
+
+		try {
+			if (text.charAt(0) == '*') {
+				readSection(text);
+				return true;
+			}
+
+			String[] tokens = split(text);
+			switch (section) {
+			case VERTICES:
+				return readVertex(tokens);
+			case ARCS:
+			case EDGES:
+				return readEdge(tokens, section == Section.ARCS);
+			case ARCSLIST:
+			case EDGESLIST:
+				return readEdgeList(tokens, section == Section.ARCSLIST);
+			case MATRIX:
+				return readMatrixRow(tokens);
+			default:
+				return true;
+			}
+		} catch (NumberFormatException nfEx) {
+			return network.getDiagnostics().error("Malformed line",
+					"Malformed line " + line + " of " + pajekFile.getName()
+							+ ": " + text);
+		}
+	}
+
+	private void readSection(String text) {
+		String[] tokens = split(text);
+		String name = tokens[0].toLowerCase();
+
+		if (section == Section.VERTICES)
+			addDeclaredVertices();
+
+		if (name.equals("*vertices")) {
+			section = Section.VERTICES;
+			if (tokens.length > 1)
+				declaredVertices = Integer.parseInt(tokens[1]);
+		} else if (name.equals("*arcs")) {
+			section = Section.ARCS;
+			hasArcs = true;
+		} else if (name.equals("*edges")) {
+			section = Section.EDGES;
+			hasEdges = true;
+		} else if (name.equals("*arcslist")) {
+			section = Section.ARCSLIST;
+			hasArcs = true;
+		} else if (name.equals("*edgeslist")) {
+			section = Section.EDGESLIST;
+			hasEdges = true;
+		} else if (name.equals("*matrix")) {
+			section = Section.MATRIX;
+			hasArcs = true;
+			matrixRow = 0;
+		} else {
+			section = Section.NONE;
+		}
+	}
+
+	/**
+	 * Stages the vertices up to the declared count that are not listed, once
+	 * the vertices section is over.
+	 */
+	private void addDeclaredVertices() {
+		if (verticesComplete)
+			return;
+
+		for (int id = 1; id <= declaredVertices; id++)
+			if (!builder.hasVertex(id))
+				builder.addVertex(id);
+		verticesComplete = true;
+	}
+
+	/**
+	 * Reads a line like: 1 "label" 0.25 0.5 0.0 ic Red
+	 */
+	private boolean readVertex(String[] tokens) {
+		int id = Integer.parseInt(tokens[0]);
+		StagedVertex v = builder.addVertex(id);
+		if (v == null)
+			return network.getDiagnostics().error("Duplicate node",
+					"Double node identifier " + id + " in line " + line
+							+ " of " + pajekFile.getName());
+
+		if (tokens.length > 1)
+			v.setLabel(tokens[1]);
+		if (tokens.length > 3 && isNumber(tokens[2]) && isNumber(tokens[3]))
+			v.setPosition(Double.parseDouble(tokens[2]),
+					Double.parseDouble(tokens[3]));
+
+		return true;
+	}
+
+	/**
+	 * Reads a line like: 1 2 0.5 c Blue
+	 */
+	private boolean readEdge(String[] tokens, boolean directed) {
+		if (tokens.length < 2)
+			throw new NumberFormatException();
+
+		float weight = 1;
+		if (tokens.length > 2 && isNumber(tokens[2]))
+			weight = Float.parseFloat(tokens[2]);
+
+		return addEdge(Integer.parseInt(tokens[0]),
+				Integer.parseInt(tokens[1]), weight, directed);
+	}
+
+	/**
+	 * Reads a line like: 1 2 3 4, for the edges from 1 to 2, 3 and 4
+	 */
+	private boolean readEdgeList(String[] tokens, boolean directed) {
+		int source = Integer.parseInt(tokens[0]);
+
+		for (int i = 1; i < tokens.length; i++)
+			if (!addEdge(source, Integer.parseInt(tokens[i]), 1, directed))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Reads the next row of the adjacency matrix, whose non zero entries are
+	 * the weights of the arcs.
+	 */
+	private boolean readMatrixRow(String[] tokens) {
+		matrixRow++;
+
+		for (int i = 0; i < tokens.length; i++) {
+			float weight = Float.parseFloat(tokens[i]);
+			if (weight != 0 && !addEdge(matrixRow, i + 1, weight, true))
+				return false;
+		}
+
+		return true;
+	}
+
+	private boolean addEdge(int source, int target, float weight,
+			boolean directed) {
+		if (builder.addEdge(source, target, weight, directed) != null)
+			return true;
+
+		return network.getDiagnostics().error("Malformed edge",
+				"Malformed edge (nonexistent endpoint): (" + source + ","
+						+ target + ") in line " + line + " of "
+						+ pajekFile.getName());
+	}
+
+	/**
+	 * Splits a line at blanks, keeping quoted labels together.
+	 */
+	private static String[] split(String text) {
+		List<String> tokens = new ArrayList<String>();
+		int n = text.length();
+		int i = 0;
+
+		while (true) {
+			while (i < n && Character.isWhitespace(text.charAt(i)))
+				i++;
+			if (i == n)
+				break;
+
+			int end;
+			if (text.charAt(i) == '"') {
+				end = text.indexOf('"', i + 1);
+				if (end < 0)
+					end = n;
+				tokens.add(text.substring(i + 1, end));
+				i = Math.min(end + 1, n);
+			} else {
+				end = i;
+				while (end < n && !Character.isWhitespace(text.charAt(end)))
+					end++;
+				tokens.add(text.substring(i, end));
+				i = end;
+			}
+		}
+
+		return tokens.toArray(new String[tokens.size()]);
+	}
+
+	private static boolean isNumber(String token) {
+		char c = token.isEmpty() ? ' ' : token.charAt(0);
+		return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+	}
+
+}
@@ -0,0 +1,69 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+/**
+ * Describes the progress of reading a file since the meter was created, with
+ * an estimate of the remaining time, for progress dialogs and console output.
+ */
+public final class ProgressMeter {
+
+	private final long start = System.currentTimeMillis();
+
+	/**
+	 * @return the part that has been read, from 0 to 100, or -1 if the total
+	 *         is unknown
+	 */
+	public int percent(long bytesRead, long totalBytes) {
+		if (bytesRead < 0 || totalBytes <= 0)
+			return -1;
+
+		return (int) Math.min(100, bytesRead * 100 / totalBytes);
+	}
+
+	/**
+	 * @return the remaining time in milliseconds, or -1 if it is unknown
+	 */
+	public long remainingMillis(long bytesRead, long totalBytes) {
+		if (percent(bytesRead, totalBytes) < 0 || bytesRead == 0)
+			return -1;
+
+		long elapsed = System.currentTimeMillis() - start;
+		return (long) ((double) elapsed * (totalBytes - bytesRead) / bytesRead);
+	}
+
+	/**
+	 * @return a line like "12.5 of 50.0 MB, 300000 elements, 4 s left"
+	 */
+	public String describe(long bytesRead, long totalBytes, int elements) {
+		StringBuilder text = new StringBuilder();
+
+		if (bytesRead >= 0) {
+			text.append(megabytes(bytesRead));
+			if (totalBytes > 0)
+				text.append(" of ").append(megabytes(totalBytes));
+			text.append(" MB");
+		}
+		if (elements >= 0) {
+			if (text.length() > 0)
+				text.append(", ");
+			text.append(elements).append(" elements");
+		}
+
+		long remaining = remainingMillis(bytesRead, totalBytes);
+		if (remaining >= 0)
+			text.append(", ").append(duration(remaining)).append(" left");
+
+		return text.toString();
+	}
+
+	private static String megabytes(long bytes) {
+		return String.format("%.1f", bytes / (double) (1 << 20));
+	}
+
+	private static String duration(long millis) {
+		long seconds = (millis + 999) / 1000;
+		if (seconds < 60)
+			return seconds + " s";
+
+		return seconds / 60 + " min " + seconds % 60 + " s";
+	}
+}
@@ -0,0 +1,105 @@
+package ch.ethz.sg.cuttlefish.misc;
+
+import java.util.Arrays;
+
+/**
+ * Array of elements identified by an int id that supports adding, removing
+ * and accessing by position in constant time. A removed element is replaced
+ * by the last one, so positions are not stable, which is fine for uniform
+ * random sampling.
+ *
+ * @param <T>
+ *            type of the elements
+ */
+public class SwapRemoveList<T> {
+
+	private Object[] elements;
+	private int[] ids;
+	private int size = 0;
+	private final IntIntHashMap positions;
+
+	public SwapRemoveList(int expectedSize) {
+		int capacity = Math.max(expectedSize, 16);
+		elements = new Object[capacity];
+		ids = new int[capacity];
+		positions = new IntIntHashMap(capacity, -1);
+	}
+
+	/**
+	 * Adds the element unless an element with the same id is already present.
+	 *
+	 * @return true if the element was added
+	 */
+	public boolean add(int id, T element) {
+		if (positions.containsKey(id))
+			return false;
+
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+
+		elements[size] = element;
+		ids[size] = id;
+		positions.put(id, size);
+		size++;
+
+		return true;
+	}
+
+	/**
+	 * Removes the element with the given id, moving the last element into its
+	 * position.
+	 *
+	 * @return true if an element was removed
+	 */
+	public boolean remove(int id) {
+		int pos = positions.remove(id);
+
+		if (pos < 0)
+			return false;
+
+		int last = --size;
+		if (pos != last) {
+			elements[pos] = elements[last];
+			ids[pos] = ids[last];
+			positions.put(ids[pos], pos);
+		}
+		elements[last] = null;
+
+		return true;
+	}
+
+	public boolean contains(int id) {
+		return positions.containsKey(id);
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int position) {
+		if (position >= size)
+			throw new IndexOutOfBoundsException("Position: " + position
+					+ ", size: " + size);
+
+		return (T) elements[position];
+	}
+
+	/**
+	 * @return a uniformly chosen element, or null if the list is empty
+	 */
+	public T random() {
+		if (size == 0)
+			return null;
+
+		return get((int) (Math.random() * size));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		positions.clear();
+		size = 0;
+	}
+}
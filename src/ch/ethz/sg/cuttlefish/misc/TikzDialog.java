@@ -20,9 +20,10 @@ import javax.swing.JTextField;
 import javax.swing.LayoutStyle.ComponentPlacement;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import ch.ethz.sg.cuttlefish.exporter.NetworkExportController;
 import ch.ethz.sg.cuttlefish.exporter.TikzExporter;
 import ch.ethz.sg.cuttlefish.gui.NetworkPanel;
+import ch.ethz.sg.cuttlefish.gui.tasks.ExportNetworkWorker;
+import ch.ethz.sg.cuttlefish.gui.visualization.PositionBuffer;
 import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public class TikzDialog extends JFrame {
@@ -583,8 +584,9 @@ public class TikzDialog extends JFrame {
 		}
 
 		try {
-			NetworkExportController.export(networkPanel.getNetwork(),
-					outputFile, tikzExporter);
+			ExportNetworkWorker.export(networkPanel.getNetwork(), outputFile,
+					tikzExporter, PositionBuffer.RUNNING_LAYOUT,
+					"Output error when saving in Tikz");
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -192,5 +192,6 @@ public class Utils {
 		int curId = 0;
 		for (Vertex vertex : network.getVertices())
 			vertex.setId(curId++);
+		network.reindexVertices();
 	}
 }
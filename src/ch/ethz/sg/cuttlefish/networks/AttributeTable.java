@@ -0,0 +1,126 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.util.Arrays;
+
+/**
+ * Primitive storage for the attributes that are read while rendering. The
+ * values are kept in parallel arrays indexed by the id of the Gephi node or
+ * edge, so reading them involves no lookup by name, no boxing and no
+ * allocation. Elements that were never written report the defaults given to
+ * the constructor.
+ *
+ * The values belong to the Gephi element and not to a network: they survive
+ * removing the element from the graph, as the Gephi attributes did. A new
+ * element may get the id of an element that no longer exists, so its slot is
+ * reset when it is created, see {@link #reset(int)}.
+ */
+final class AttributeTable {
+
+	// Flags are kept as one bit mask each, see getMask()
+	static final int FLAG_EXCLUDED = 0;
+	static final int FLAG_ROOT = 1;
+	static final int FLAG_SHADOWED = 2;
+
+	private final int defaultColor;
+	private final byte defaultShape;
+	private final float defaultWidth;
+
+	private int[] colors = new int[0];
+	private byte[] shapes = new byte[0];
+	private float[] widths = new float[0];
+	private final ElementMask[] masks = { new ElementMask(),
+			new ElementMask(), new ElementMask() };
+
+	AttributeTable(int defaultColor, byte defaultShape, float defaultWidth) {
+		this.defaultColor = defaultColor;
+		this.defaultShape = defaultShape;
+		this.defaultWidth = defaultWidth;
+	}
+
+	private void ensureCapacity(int slot) {
+		if (slot < colors.length)
+			return;
+
+		int oldLength = colors.length;
+		int length = Math.max(slot + 1, Math.max(1024, oldLength * 2));
+
+		colors = Arrays.copyOf(colors, length);
+		shapes = Arrays.copyOf(shapes, length);
+		widths = Arrays.copyOf(widths, length);
+
+		Arrays.fill(colors, oldLength, length, defaultColor);
+		Arrays.fill(shapes, oldLength, length, defaultShape);
+		Arrays.fill(widths, oldLength, length, defaultWidth);
+	}
+
+	/**
+	 * @return the colour as packed ARGB
+	 */
+	int getColor(int slot) {
+		int[] a = colors;
+		return slot < a.length ? a[slot] : defaultColor;
+	}
+
+	synchronized void setColor(int slot, int argb) {
+		ensureCapacity(slot);
+		colors[slot] = argb;
+	}
+
+	byte getShape(int slot) {
+		byte[] a = shapes;
+		return slot < a.length ? a[slot] : defaultShape;
+	}
+
+	synchronized void setShape(int slot, byte shape) {
+		ensureCapacity(slot);
+		shapes[slot] = shape;
+	}
+
+	float getWidth(int slot) {
+		float[] a = widths;
+		return slot < a.length ? a[slot] : defaultWidth;
+	}
+
+	synchronized void setWidth(int slot, float width) {
+		ensureCapacity(slot);
+		widths[slot] = width;
+	}
+
+	/**
+	 * Gives the slot its default values and clears its flags.
+	 */
+	synchronized void reset(int slot) {
+		if (slot < colors.length) {
+			colors[slot] = defaultColor;
+			shapes[slot] = defaultShape;
+			widths[slot] = defaultWidth;
+		}
+
+		for (ElementMask mask : masks)
+			mask.set(slot, false);
+	}
+
+	boolean hasFlag(int slot, int flag) {
+		return masks[flag].get(slot);
+	}
+
+	void setFlag(int slot, int flag, boolean value) {
+		masks[flag].set(slot, value);
+	}
+
+	/**
+	 * @return the live mask of the slots that have the flag set
+	 */
+	ElementMask getMask(int flag) {
+		return masks[flag];
+	}
+
+	/**
+	 * Packs colour components between 0 and 1 into an opaque ARGB int.
+	 */
+	static int packColor(float r, float g, float b) {
+		return 0xFF000000 | (Math.round(r * 255) & 0xFF) << 16
+				| (Math.round(g * 255) & 0xFF) << 8
+				| (Math.round(b * 255) & 0xFF);
+	}
+}
@@ -80,7 +80,7 @@ public class BASimulation extends BrowsableNetwork implements ISimulation {
 		
 		//preferential attachment of parameter 2
 		addEdge(new Edge(v, dest));
-		dest.setLabel(Integer.toString(getNeighborCount(dest)));
+		dest.setLabel(Integer.toString(getDegree(dest)));
 	//	dest2.setLabel(Integer.toString(getNeighborCount(dest2)));
 			
 		return (getVertexCount() < 100);
@@ -82,10 +82,43 @@ public class BrowsableForestNetwork extends BrowsableNetwork implements
 		return originalNetwork;
 	}
 
+	@Override
 	public int getDegree(Vertex vertex) {
 		return forest.getDegree(vertex.getInternalNode());
 	}
 
+	@Override
+	public int getInDegree(Vertex vertex) {
+		return forest.getInDegree(vertex.getInternalNode());
+	}
+
+	@Override
+	public int getOutDegree(Vertex vertex) {
+		return forest.getOutDegree(vertex.getInternalNode());
+	}
+
+	// The degree table of the network counts the whole graph, the degrees in
+	// the forest are counted on each call instead
+	@Override
+	public int getMaxDegree() {
+		int degree = 0;
+
+		for (Node n : forest.getNodesTree())
+			degree = Math.max(degree, forest.getDegree(n));
+
+		return degree;
+	}
+
+	@Override
+	public int[] getDegreeHistogram() {
+		int[] histogram = new int[getMaxDegree() + 1];
+
+		for (Node n : forest.getNodesTree())
+			histogram[forest.getDegree(n)]++;
+
+		return histogram;
+	}
+
 	@Override
 	public int getEdgeCount() {
 		return forest.getEdgesTree().toArray().length;
@@ -102,6 +135,11 @@ public class BrowsableForestNetwork extends BrowsableNetwork implements
 		return edgesTree;
 	}
 
+	@Override
+	public void forEachEdge(EdgeVisitor visitor) {
+		visitEdges(forest.getEdgesTree(), visitor);
+	}
+
 	public int getPredecessorCount(Vertex vertex) {
 		int cnt = 0;
 		Node n = forest.getParent(vertex.getInternalNode());
@@ -156,6 +194,11 @@ public class BrowsableForestNetwork extends BrowsableNetwork implements
 		return vertices;
 	}
 
+	@Override
+	public void forEachVertex(VertexVisitor visitor) {
+		visitNodes(forest.getNodesTree(), visitor);
+	}
+
 	public boolean isPredecessor(Vertex v1, Vertex v2) {
 		return forest.isAncestor(v1.getInternalNode(), v2.getInternalNode());
 	}
@@ -30,7 +30,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.Iterator;
 
 import org.gephi.graph.api.Graph;
 import org.gephi.graph.api.GraphController;
@@ -45,7 +44,13 @@ import org.gephi.project.api.Workspace;
 import org.openide.util.Lookup;
 
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
+import ch.ethz.sg.cuttlefish.misc.GexfImporter;
+import ch.ethz.sg.cuttlefish.misc.GraphMLImporter;
+import ch.ethz.sg.cuttlefish.misc.IntIntHashMap;
 import ch.ethz.sg.cuttlefish.misc.Pair;
+import ch.ethz.sg.cuttlefish.misc.PajekImporter;
+import ch.ethz.sg.cuttlefish.misc.SwapRemoveList;
 
 public class BrowsableNetwork implements Serializable {
 
@@ -83,6 +88,70 @@ public class BrowsableNetwork implements Serializable {
 	 */
 	private String networkFileName = null;
 
+	/**
+	 * Array copy of the graph structure, built on demand and rebuilt when it
+	 * no longer matches the graph, which other networks on the same graph may
+	 * have changed. Its positions are never refreshed, as versions share it.
+	 */
+	private transient GraphSnapshot snapshot = null;
+
+	/**
+	 * Where the loaders report the problems found in their input.
+	 */
+	private transient Diagnostics diagnostics = null;
+
+	/**
+	 * Receives the progress of load(), null if nobody listens.
+	 */
+	private transient LoadProgress loadProgress = null;
+
+	/**
+	 * Nodes and edges in swap-remove arrays for constant time random
+	 * sampling, kept up to date by the mutators of this class.
+	 */
+	private transient SwapRemoveList<Node> nodeSample = null;
+	private transient SwapRemoveList<org.gephi.graph.api.Edge> edgeSample;
+
+	/**
+	 * Maps vertex ids to the ids of the Gephi nodes, kept up to date by the
+	 * mutators of this class. It is rebuilt from the graph when the structure
+	 * version of the journal shows that the graph was changed otherwise. An id
+	 * shared by several vertices maps to one of them, duplicateVertexIds
+	 * counts the others.
+	 */
+	private transient IntIntHashMap vertexIndex = null;
+	private transient IntIntHashMap duplicateVertexIds = null;
+	// the structure version of the journal the existing indices match
+	private transient long indexVersion = -1;
+
+	// Degrees of the nodes, maintained as edges are added and removed
+	private transient DegreeTable degrees = null;
+
+	/**
+	 * Changes made through any network since the journal was first
+	 * requested. It is shared, as all networks are views of the graph of the
+	 * same workspace.
+	 */
+	private static volatile ChangeJournal journal = null;
+
+	/**
+	 * The networks whose clear waits for their loader, see
+	 * {@link #deferClearing()}, and whether the loader has changed the graph.
+	 */
+	private static final class Deferral {
+		final ArrayList<BrowsableNetwork> pending = new ArrayList<BrowsableNetwork>();
+		boolean graphChanged = false;
+	}
+
+	// the deferral of the load running on the current thread, if any
+	private static final ThreadLocal<Deferral> deferral = new ThreadLocal<Deferral>();
+
+	// set while the clear of this network waits for its first batch
+	private transient boolean clearPending = false;
+
+	// Vertices and edges that are not excluded, built on demand
+	private transient FilteredView visibleView = null;
+
 	/**
 	 * Creates a new Network accessor interface by clearing the underlying graph
 	 * structure.
@@ -103,8 +172,10 @@ public class BrowsableNetwork implements Serializable {
 
 		setGraph();
 
-		if (clearGraph)
+		if (clearGraph) {
 			this.graph.clear();
+			recordReset();
+		}
 	}
 
 	protected BrowsableNetwork(BrowsableNetwork other) {
@@ -118,7 +189,7 @@ public class BrowsableNetwork implements Serializable {
 		this.graphModel = Lookup.getDefault().lookup(GraphController.class)
 				.getModel();
 		setGraph();
-		this.graph.clear();
+		clearGraph();
 	}
 
 	private void setGraph() {
@@ -126,6 +197,7 @@ public class BrowsableNetwork implements Serializable {
 			graph = graphModel.getDirectedGraphVisible();
 		else
 			graph = graphModel.getUndirectedGraphVisible();
+		visibleView = null;
 	}
 
 	public void updateAnnotations() {
@@ -184,28 +256,30 @@ public class BrowsableNetwork implements Serializable {
 			Vertex.copyIDToLabel(node);
 	}
 
+	/**
+	 * Draws the shadowed vertices small and grey, and all edges thin and grey
+	 * if there is any shadowed vertex.
+	 */
 	public void applyShadows() {
-		for (Vertex vertex : getVertices()) {
-			boolean isShadowed = vertex.isShadowed();
-			if (isShadowed) {
-				Color shadowColor = Color.white;
-				Color c = vertex.getFillColor();
-				if (c != null)
-					shadowColor = c;
-
-				shadowColor = new Color(shadowColor.getRed(),
-						shadowColor.getGreen(), shadowColor.getBlue(), 200);
-
-				vertex.setFillColor(Color.LIGHT_GRAY);
-				vertex.setSize(5);
-
-				for (org.gephi.graph.api.Edge edge : graph.getEdges()) {
-					Edge.setColor(edge, Color.LIGHT_GRAY);
-					Edge.setWidth(edge, 0.5);
-				}
-			}
+		ElementMask shadowed = Vertex.getShadowedMask();
+		boolean anyShadowed = false;
+
+		for (Node node : graph.getNodes()) {
+			if (!shadowed.get(node.getId()))
+				continue;
+
+			Vertex.setFillColor(node, Color.LIGHT_GRAY);
+			node.getNodeData().setSize(5);
+			anyShadowed = true;
 		}
 
+		if (!anyShadowed)
+			return;
+
+		for (org.gephi.graph.api.Edge edge : graph.getEdges()) {
+			Edge.setColor(edge, Color.LIGHT_GRAY);
+			Edge.setWidth(edge, 0.5);
+		}
 	}
 
 	public boolean isDirected(Edge e) {
@@ -254,39 +328,100 @@ public class BrowsableNetwork implements Serializable {
 		return directed ? d : u;
 	}
 
+	/**
+	 * Returns a uniformly chosen edge in constant time, or null if the network
+	 * has no edges.
+	 */
 	public Edge randomEdge() {
-		int edgeIndex = (int) (Math.random() * getEdgeCount());
-		Iterator<Edge> itEdge = getEdges().iterator();
-		Edge e = null;
+		syncSamplingIndex();
+		org.gephi.graph.api.Edge e = edgeSample.random();
 
-		if (edgeIndex == 0)
-			return itEdge.next();
-
-		while ((edgeIndex >= 0) && itEdge.hasNext()) {
-			edgeIndex--;
-			e = itEdge.next();
+		if (e != null && !graph.contains(e)) {
+			// the graph was modified behind our back
+			dropSamplingIndex();
+			return randomEdge();
 		}
 
-		return e;
+		return e == null ? null : new Edge(e);
 	}
 
+	/**
+	 * Returns a uniformly chosen vertex in constant time, or null if the
+	 * network is empty.
+	 */
 	public Vertex randomVertex() {
-		if (isEmpty())
-			return null;
+		syncSamplingIndex();
+		Node n = nodeSample.random();
+
+		if (n != null && !graph.contains(n)) {
+			dropSamplingIndex();
+			return randomVertex();
+		}
+
+		return n == null ? null : new Vertex(n);
+	}
+
+	/**
+	 * Rebuilds the sampling arrays if they do not exist or the graph was
+	 * changed by another network or through Gephi.
+	 */
+	private void syncSamplingIndex() {
+		dropStaleIndices();
+		if (nodeSample != null)
+			return;
+
+		nodeSample = new SwapRemoveList<Node>(graph.getNodeCount());
+		edgeSample = new SwapRemoveList<org.gephi.graph.api.Edge>(
+				graph.getEdgeCount());
+
+		for (Node n : graph.getNodes())
+			nodeSample.add(n.getId(), n);
+
+		for (org.gephi.graph.api.Edge e : graph.getEdges())
+			edgeSample.add(e.getId(), e);
+	}
+
+	private void dropSamplingIndex() {
+		nodeSample = null;
+		edgeSample = null;
+	}
 
-		int vertexIndex = (int) (Math.random() * getVertexCount());
-		Iterator<Vertex> itVertex = getVertices().iterator();
-		Vertex v = null;
+	private void sampleAddNode(Node n) {
+		if (nodeSample != null)
+			nodeSample.add(n.getId(), n);
+	}
 
-		if (vertexIndex == 0)
-			return itVertex.next();
+	private void sampleAddEdge(org.gephi.graph.api.Edge e) {
+		if (edgeSample != null)
+			edgeSample.add(e.getId(), e);
+	}
 
-		while ((vertexIndex >= 0) && itVertex.hasNext()) {
-			vertexIndex--;
-			v = itVertex.next();
+	/**
+	 * Updates the sampling arrays, the degrees and the journal before Gephi
+	 * drops the edges of a node.
+	 */
+	private void forgetEdges(Node n) {
+		if ((edgeSample == null && degrees == null && journal == null)
+				|| !graph.contains(n))
+			return;
+
+		for (org.gephi.graph.api.Edge e : graph.getEdges(n)) {
+			record(ChangeJournal.EDGE_REMOVED, e.getId());
+			if (edgeSample != null)
+				edgeSample.remove(e.getId());
+			if (degrees != null)
+				degrees.removeEdge(e.getSource().getId(), e.getTarget()
+						.getId());
 		}
+	}
 
-		return v;
+	/**
+	 * Copies the rendering attributes of the vertices and edges into Gephi
+	 * attribute columns, which is needed before exporting with Gephi.
+	 */
+	public void exportAttributes() {
+		Vertex.exportAttributes(graph.getNodes());
+		Edge.exportAttributes(graph.getEdges());
 	}
 
 	public Collection<Vertex> getVertices() {
@@ -298,6 +433,80 @@ public class BrowsableNetwork implements Serializable {
 		return vertices;
 	}
 
+	/**
+	 * Calls the visitor for every vertex of the network without creating a
+	 * collection or a wrapper per vertex, see {@link VertexVisitor}.
+	 * 
+	 * @param visitor
+	 */
+	public void forEachVertex(VertexVisitor visitor) {
+		visitNodes(graph.getNodes(), visitor);
+	}
+
+	/**
+	 * @return a view of the vertices and edges that are not excluded, which
+	 *         follows later changes to the exclusion
+	 */
+	public FilteredView getVisibleView() {
+		if (visibleView == null)
+			visibleView = new FilteredView(graph).hide(
+					Vertex.getExcludedMask(), Edge.getExcludedMask());
+
+		return visibleView;
+	}
+
+	/**
+	 * Calls the visitor for every neighbor of the given vertex, see
+	 * {@link VertexVisitor}.
+	 * 
+	 * @param v
+	 * @param visitor
+	 */
+	public void forEachNeighbor(Vertex v, VertexVisitor visitor) {
+		visitNodes(graph.getNeighbors(v.getInternalNode()), visitor);
+	}
+
+	/**
+	 * Calls the visitor for every edge of the network without creating a
+	 * collection or a wrapper per edge, see {@link EdgeVisitor}.
+	 * 
+	 * @param visitor
+	 */
+	public void forEachEdge(EdgeVisitor visitor) {
+		visitEdges(graph.getEdges(), visitor);
+	}
+
+	/**
+	 * Calls the visitor for every edge incident to the given vertex, see
+	 * {@link EdgeVisitor}.
+	 * 
+	 * @param v
+	 * @param visitor
+	 */
+	public void forEachIncidentEdge(Vertex v, EdgeVisitor visitor) {
+		visitEdges(graph.getEdges(v.getInternalNode()), visitor);
+	}
+
+	protected static void visitNodes(Iterable<Node> nodes,
+			VertexVisitor visitor) {
+		Vertex flyweight = new Vertex((Node) null);
+
+		for (Node node : nodes) {
+			flyweight.internalNode = node;
+			visitor.visit(flyweight);
+		}
+	}
+
+	protected static void visitEdges(
+			Iterable<org.gephi.graph.api.Edge> edges, EdgeVisitor visitor) {
+		Edge flyweight = new Edge();
+
+		for (org.gephi.graph.api.Edge e : edges) {
+			flyweight.wrap(e);
+			visitor.visit(flyweight);
+		}
+	}
+
 	/**
 	 * For compatibility reasons
 	 * 
@@ -319,7 +528,8 @@ public class BrowsableNetwork implements Serializable {
 	}
 
 	public Collection<Edge> getIncidentEdges(Vertex vertex) {
-		Collection<Edge> edges = new ArrayList<Edge>(graph.getEdgeCount());
+		Collection<Edge> edges = new ArrayList<Edge>(graph.getDegree(vertex
+				.getInternalNode()));
 
 		for (org.gephi.graph.api.Edge e : graph.getEdges(vertex
 				.getInternalNode())) {
@@ -360,26 +570,84 @@ public class BrowsableNetwork implements Serializable {
 		return new Vertex(opp);
 	}
 
-	public final int getMaxDegree() {
-		int degree = 0;
+	/**
+	 * @return the highest degree in the network, in constant time
+	 */
+	public int getMaxDegree() {
+		return syncDegrees().getMaxDegree();
+	}
 
-		for (Node n : graph.getNodes()) {
-			degree = Math.max(degree, graph.getDegree(n));
-		}
+	/**
+	 * Returns the degree of a vertex in constant time. It is the sum of the in
+	 * and out degrees, so a self loop counts twice.
+	 */
+	public int getDegree(Vertex v) {
+		return syncDegrees().getDegree(v.getInternalNode().getId());
+	}
 
-		return degree;
+	public int getInDegree(Vertex v) {
+		return syncDegrees().getInDegree(v.getInternalNode().getId());
+	}
+
+	public int getOutDegree(Vertex v) {
+		return syncDegrees().getOutDegree(v.getInternalNode().getId());
+	}
+
+	/**
+	 * @return an array whose element d holds the number of vertices of degree
+	 *         d, up to the maximum degree
+	 */
+	public int[] getDegreeHistogram() {
+		return syncDegrees().getHistogram();
+	}
+
+	/**
+	 * Counts the degrees again if they do not exist or the graph was changed
+	 * by another network or through Gephi.
+	 */
+	private DegreeTable syncDegrees() {
+		dropStaleIndices();
+		if (degrees == null)
+			degrees = new DegreeTable(graph);
+
+		return degrees;
 	}
 
 	public void clearGraph() {
+		Deferral d = deferral.get();
+		if (d != null && !d.graphChanged) {
+			if (!clearPending) {
+				clearPending = true;
+				d.pending.add(this);
+			}
+			return;
+		}
+
 		graph.clear();
+		invalidateSnapshot();
+		dropSamplingIndex();
+		degrees = null;
+		reindexVertices();
+		recordReset();
 	}
 
 	public void clearEdges() {
+		dropStaleIndices();
 		graph.clearEdges();
+		invalidateSnapshot();
+		if (edgeSample != null)
+			edgeSample.clear();
+		degrees = null;
+		recordReset();
+		markIndicesCurrent();
 	}
 
 	public void clearEdges(Vertex v) {
+		dropStaleIndices();
+		forgetEdges(v.getInternalNode());
 		graph.clearEdges(v.getInternalNode());
+		invalidateSnapshot();
+		markIndicesCurrent();
 	}
 
 	public Collection<Vertex> getNeighbors(Vertex v) {
@@ -391,12 +659,33 @@ public class BrowsableNetwork implements Serializable {
 		return neighbors;
 	}
 
+	/**
+	 * Counts the distinct neighbors of a vertex. Use getDegree() when the
+	 * number of edges is enough, it does not iterate.
+	 */
 	public int getNeighborCount(Vertex v) {
-		return graph.getNeighbors(v.getInternalNode()).toArray().length;
+		int count = 0;
+
+		for (Node n : graph.getNeighbors(v.getInternalNode()))
+			count++;
+
+		return count;
 	}
 
 	public void removeVertex(Vertex v) {
-		graph.removeNode(v.getInternalNode());
+		dropStaleIndices();
+		// Gephi drops the incident edges together with the node
+		forgetEdges(v.getInternalNode());
+		if (graph.removeNode(v.getInternalNode())) {
+			record(ChangeJournal.NODE_REMOVED, v.getInternalNode().getId());
+			if (nodeSample != null)
+				nodeSample.remove(v.getInternalNode().getId());
+			if (degrees != null)
+				degrees.removeNode(v.getInternalNode().getId());
+			unindexVertex(v.getInternalNode());
+		}
+		invalidateSnapshot();
+		markIndicesCurrent();
 
 		if (getVertexCount() == 0)
 			clearGraph();
@@ -425,13 +714,187 @@ public class BrowsableNetwork implements Serializable {
 	}
 
 	public void addVertices(Collection<Vertex> vertices) {
+		dropStaleIndices();
 		for (Vertex v : vertices) {
-			graph.addNode(v.getInternalNode());
+			if (graph.addNode(v.getInternalNode())) {
+				record(ChangeJournal.NODE_ADDED, v.getInternalNode().getId());
+				sampleAddNode(v.getInternalNode());
+				indexVertex(v.getInternalNode());
+				if (degrees != null)
+					degrees.addNode(v.getInternalNode().getId());
+			}
 		}
+		invalidateSnapshot();
+		markIndicesCurrent();
 	}
 
 	public void addVertex(Vertex v) {
-		graph.addNode(v.getInternalNode());
+		dropStaleIndices();
+		if (graph.addNode(v.getInternalNode())) {
+			record(ChangeJournal.NODE_ADDED, v.getInternalNode().getId());
+			sampleAddNode(v.getInternalNode());
+			indexVertex(v.getInternalNode());
+			if (degrees != null)
+				degrees.addNode(v.getInternalNode().getId());
+		}
+		invalidateSnapshot();
+		markIndicesCurrent();
+	}
+
+	/**
+	 * Returns the vertex of the network with the given id in constant time. If
+	 * several vertices share the id, any of them is returned.
+	 * 
+	 * @param id
+	 *            the vertex id, see {@link Vertex#getId()}
+	 * @return the vertex or null if there is none with that id
+	 */
+	public Vertex getVertexById(int id) {
+		Node n = lookupNode(id);
+		return n == null ? null : new Vertex(n);
+	}
+
+	/**
+	 * Returns the edge between the vertices with the given ids, or null if
+	 * either vertex or the edge does not exist. A directed edge is only
+	 * returned if it goes from the first vertex to the second one.
+	 */
+	public Edge findEdge(int sourceId, int targetId) {
+		Node source = lookupNode(sourceId);
+		Node target = lookupNode(targetId);
+
+		if (source == null || target == null)
+			return null;
+
+		org.gephi.graph.api.Edge e = graph.getEdge(source, target);
+		if (e == null) {
+			e = graph.getEdge(target, source);
+			if (e != null && e.isDirected())
+				e = null;
+		}
+
+		return e == null ? null : new Edge(e);
+	}
+
+	/**
+	 * Drops the id index. Must be called after changing the id of vertices
+	 * that are already in the network.
+	 */
+	public void reindexVertices() {
+		vertexIndex = null;
+	}
+
+	Node lookupNode(int id) {
+		syncVertexIndex();
+		int nodeId = vertexIndex.get(id);
+
+		if (nodeId == Integer.MIN_VALUE)
+			return null;
+
+		Node n = graph.getNode(nodeId);
+		if (n == null || Vertex.getId(n) != id) {
+			// the id was changed without calling reindexVertices()
+			reindexVertices();
+			syncVertexIndex();
+			nodeId = vertexIndex.get(id);
+			n = nodeId == Integer.MIN_VALUE ? null : graph.getNode(nodeId);
+		}
+
+		return n;
+	}
+
+	private void syncVertexIndex() {
+		dropStaleIndices();
+		if (vertexIndex != null)
+			return;
+
+		vertexIndex = new IntIntHashMap(graph.getNodeCount(),
+				Integer.MIN_VALUE);
+		duplicateVertexIds = null;
+
+		for (Node n : graph.getNodes())
+			indexVertex(n);
+	}
+
+	private void indexVertex(Node n) {
+		if (vertexIndex == null)
+			return;
+
+		int id = Vertex.getId(n);
+		if (!vertexIndex.containsKey(id)) {
+			vertexIndex.put(id, n.getId());
+			return;
+		}
+
+		if (duplicateVertexIds == null)
+			duplicateVertexIds = new IntIntHashMap(16, 0);
+		duplicateVertexIds.put(id, duplicateVertexIds.get(id) + 1);
+	}
+
+	/**
+	 * Removes a node that is no longer in the graph from the id index.
+	 */
+	private void unindexVertex(Node n) {
+		if (vertexIndex == null)
+			return;
+
+		int id = Vertex.getId(n);
+		boolean indexed = vertexIndex.get(id) == n.getId();
+		int duplicates = duplicateVertexIds == null ? 0 : duplicateVertexIds
+				.get(id);
+
+		if (duplicates == 0) {
+			if (indexed)
+				vertexIndex.remove(id);
+			return;
+		}
+
+		if (duplicates == 1)
+			duplicateVertexIds.remove(id);
+		else
+			duplicateVertexIds.put(id, duplicates - 1);
+
+		// another vertex with the same id takes its place
+		if (indexed)
+			for (Node other : graph.getNodes())
+				if (Vertex.getId(other) == id) {
+					vertexIndex.put(id, other.getId());
+					break;
+				}
+	}
+
+	/**
+	 * Drops the indices that no longer match the graph because it was changed
+	 * by another network or through Gephi. Called before every access to the
+	 * indices and before this network changes the graph.
+	 */
+	private void dropStaleIndices() {
+		long version = structureVersion();
+		if (indexVersion == version)
+			return;
+
+		vertexIndex = null;
+		degrees = null;
+		dropSamplingIndex();
+		indexVersion = version;
+	}
+
+	/**
+	 * Marks the indices, updated with a change made by this network, as
+	 * matching the graph again.
+	 */
+	private void markIndicesCurrent() {
+		indexVersion = structureVersion();
+	}
+
+	/**
+	 * @return the structure version of the journal, see
+	 *         {@link ChangeJournal#getStructureVersion()}; the journal is
+	 *         created, so that later changes are counted
+	 */
+	private static long structureVersion() {
+		ChangeJournal j = journal;
+		return (j != null ? j : getJournal()).getStructureVersion();
 	}
 
 	public Point2D getPointNearGraph() {
@@ -466,7 +929,55 @@ public class BrowsableNetwork implements Serializable {
 	}
 
 	public void addEdge(Edge e) {
-		graph.addEdge(e.getInternalEdge());
+		org.gephi.graph.api.Edge internal = e.getInternalEdge();
+
+		dropStaleIndices();
+		if (graph.addEdge(internal)) {
+			record(ChangeJournal.EDGE_ADDED, internal.getId());
+			sampleAddEdge(internal);
+			if (degrees != null)
+				degrees.addEdge(internal.getSource().getId(), internal
+						.getTarget().getId());
+		}
+		invalidateSnapshot();
+		markIndicesCurrent();
+	}
+
+	/**
+	 * Adds the nodes and edges staged by a NetworkBuilder while holding the
+	 * write lock of the graph. The indices that exist are updated with the
+	 * new elements, so that adding a few elements to a large network costs
+	 * no rebuild.
+	 */
+	void addBatch(Node[] nodes, int nodeCount,
+			org.gephi.graph.api.Edge[] edges, int edgeCount) {
+		applyPendingClear();
+
+		dropStaleIndices();
+		graph.writeLock();
+		try {
+			for (int i = 0; i < nodeCount; i++)
+				if (graph.addNode(nodes[i])) {
+					record(ChangeJournal.NODE_ADDED, nodes[i].getId());
+					indexVertex(nodes[i]);
+					sampleAddNode(nodes[i]);
+					if (degrees != null)
+						degrees.addNode(nodes[i].getId());
+				}
+			for (int i = 0; i < edgeCount; i++)
+				if (graph.addEdge(edges[i])) {
+					record(ChangeJournal.EDGE_ADDED, edges[i].getId());
+					sampleAddEdge(edges[i]);
+					if (degrees != null)
+						degrees.addEdge(edges[i].getSource().getId(),
+								edges[i].getTarget().getId());
+				}
+		} finally {
+			graph.writeUnlock();
+		}
+
+		invalidateSnapshot();
+		markIndicesCurrent();
 	}
 
 	public void addEdge(Vertex v1, Vertex v2) {
@@ -485,7 +996,19 @@ public class BrowsableNetwork implements Serializable {
 	}
 
 	public void removeEdge(Edge e) {
-		graph.removeEdge(e.getInternalEdge());
+		org.gephi.graph.api.Edge internal = e.getInternalEdge();
+
+		dropStaleIndices();
+		if (graph.removeEdge(internal)) {
+			record(ChangeJournal.EDGE_REMOVED, internal.getId());
+			if (edgeSample != null)
+				edgeSample.remove(internal.getId());
+			if (degrees != null)
+				degrees.removeEdge(internal.getSource().getId(), internal
+						.getTarget().getId());
+		}
+		invalidateSnapshot();
+		markIndicesCurrent();
 	}
 
 	public boolean isDirected() {
@@ -496,11 +1019,175 @@ public class BrowsableNetwork implements Serializable {
 		this.directed = directed;
 
 		setGraph();
+		invalidateSnapshot();
+		dropSamplingIndex();
+		degrees = null;
+		reindexVertices();
+		recordReset();
+	}
+
+	/**
+	 * Returns an array copy of the current graph, see {@link GraphSnapshot}.
+	 * The structure is cached until it changes, the positions are read from
+	 * the nodes on every call into arrays of the returned snapshot.
+	 * 
+	 * @return the snapshot of the graph
+	 */
+	public GraphSnapshot getSnapshot() {
+		return getCachedSnapshot().withCurrentPositions();
+	}
+
+	private GraphSnapshot getCachedSnapshot() {
+		if (snapshot == null || !snapshot.isCurrent(graph))
+			snapshot = GraphSnapshot.build(graph);
+
+		return snapshot;
+	}
+
+	/**
+	 * Returns the sink of the problems found while loading the network, see
+	 * {@link Diagnostics}. By default all the problems are collected.
+	 * 
+	 * @return the diagnostics of the network
+	 */
+	public Diagnostics getDiagnostics() {
+		if (diagnostics == null)
+			diagnostics = new Diagnostics();
+
+		return diagnostics;
+	}
+
+	/**
+	 * Sets the sink of the problems found while loading, e.g. to share it
+	 * between networks or to stop at the first error.
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * Sets the receiver of the progress of load(), which can also cancel it.
+	 * Loaders that do not report progress ignore it.
+	 */
+	public void setLoadProgress(LoadProgress loadProgress) {
+		this.loadProgress = loadProgress;
+	}
+
+	public LoadProgress getLoadProgress() {
+		return loadProgress;
+	}
+
+	/**
+	 * Reports the progress of load() to its receiver, if any. The importers
+	 * that fill a network from outside report through it too.
+	 * 
+	 * @return false if the loading has to stop
+	 */
+	public boolean reportProgress(long bytesRead, long totalBytes,
+			int elements) {
+		LoadProgress progress = loadProgress;
+		if (progress == null)
+			return true;
+
+		progress.progress(bytesRead, totalBytes, elements);
+		return !progress.isCancelled();
+	}
+
+	/**
+	 * Takes a copy of the network with the positions held by the nodes, see
+	 * {@link #freeze(PositionSource)}.
+	 * 
+	 * @return the current version of the graph
+	 */
+	public GraphVersion freeze() {
+		return freeze(null);
+	}
+
+	/**
+	 * Takes a copy of the vertices, edges and attributes of the network that
+	 * stays consistent while the layout keeps running and the network is
+	 * edited, see {@link GraphVersion}. The structure is shared with the
+	 * cached snapshot.
+	 * 
+	 * @param positions
+	 *            where to read the positions from, or null to read them from
+	 *            the nodes
+	 * @return the current version of the graph
+	 */
+	public GraphVersion freeze(PositionSource positions) {
+		graph.readLock();
+		try {
+			return new GraphVersion(this, getCachedSnapshot(), getJournal()
+					.getVersion(), positions);
+		} finally {
+			graph.readUnlock();
+		}
+	}
+
+	/**
+	 * Drops the cached snapshot. Subclasses that modify the graph without
+	 * going through the methods of this class must call it.
+	 */
+	protected void invalidateSnapshot() {
+		snapshot = null;
+	}
+
+	/**
+	 * Returns the journal of the changes made to the graph, see
+	 * {@link ChangeJournal}. Changes are recorded from the first call on.
+	 * 
+	 * @return the journal
+	 */
+	public static synchronized ChangeJournal getJournal() {
+		if (journal == null)
+			journal = new ChangeJournal();
+
+		return journal;
+	}
+
+	private static void record(int type, int id) {
+		ChangeJournal j = journal;
+		if (j != null)
+			j.append(type, id);
+	}
+
+	private static void recordReset() {
+		ChangeJournal j = journal;
+		if (j != null)
+			j.reset();
+	}
+
+	/**
+	 * Records in the journal that attributes of the node were changed. Called
+	 * by the setters of Vertex, except for the position.
+	 */
+	static void recordChanged(Node n) {
+		record(ChangeJournal.NODE_CHANGED, n.getId());
+	}
+
+	/**
+	 * Records in the journal that attributes of the edge were changed. Called
+	 * by the setters of Edge.
+	 */
+	static void recordChanged(org.gephi.graph.api.Edge e) {
+		record(ChangeJournal.EDGE_CHANGED, e.getId());
+	}
+
+	/**
+	 * Records in the journal that the weight of the edge was changed, which
+	 * makes the snapshots stale.
+	 */
+	static void recordWeightChanged(org.gephi.graph.api.Edge e) {
+		ChangeJournal j = journal;
+		if (j != null)
+			j.appendWeightChange(e.getId());
 	}
 
 	public void fixVertices(boolean fixed) {
-		for (Node n : graph.getNodes())
+		for (Node n : graph.getNodes()) {
 			n.getNodeData().setFixed(fixed);
+			recordChanged(n);
+		}
 	}
 
 	public String toString() {
@@ -530,12 +1217,37 @@ public class BrowsableNetwork implements Serializable {
 	}
 
 	/**
-	 * Will load a network file, based on the Gephi ImportController
+	 * Will load a network file. GEXF, GraphML and Pajek files, compressed or
+	 * not, are streamed straight into the graph by the importers of
+	 * Cuttlefish; other formats go through the Gephi ImportController, which
+	 * builds a draft of the whole graph before copying it.
 	 * 
 	 * @param netFile
 	 * @throws IOException
 	 */
 	public void load(File netFile) throws IOException {
+		String name = netFile.getName().toLowerCase();
+		if (CompressedStreams.isCompressedName(netFile))
+			name = name.substring(0, name.lastIndexOf('.'));
+
+		// false if the loading was cancelled, the graph is unchanged then
+		boolean loaded;
+		if (name.endsWith(".gexf")) {
+			loaded = new GexfImporter(netFile).importGraph(this);
+		} else if (name.endsWith(".graphml")) {
+			loaded = new GraphMLImporter(netFile).importGraph(this);
+		} else if (name.endsWith(".net") || name.endsWith(".paj")) {
+			loaded = new PajekImporter(netFile).importGraph(this);
+		} else {
+			importWithGephi(netFile);
+			return;
+		}
+
+		if (loaded)
+			recordReset();
+	}
+
+	private void importWithGephi(File netFile) throws IOException {
 		Workspace workspace = Lookup.getDefault()
 				.lookup(ProjectController.class).getCurrentWorkspace();
 
@@ -547,8 +1259,93 @@ public class BrowsableNetwork implements Serializable {
 		container = importController.importFile(netFile);
 		container.getLoader().setEdgeDefault(EdgeDefault.DIRECTED);
 
+		// the file is parsed, the graph is not changed yet
+		if (!reportProgress(netFile.length(), netFile.length(), -1))
+			return;
+
 		// Append imported data to GraphAPI
+		applyPendingClear();
+		ElementMask oldNodes = new ElementMask();
+		ElementMask oldEdges = new ElementMask();
+		for (Node n : graph.getNodes())
+			oldNodes.set(n.getId(), true);
+		for (org.gephi.graph.api.Edge e : graph.getEdges())
+			oldEdges.set(e.getId(), true);
+
 		importController.process(container, new DefaultProcessor(), workspace);
+
+		// Gephi created the new elements, clear what old ones left in their ids
+		for (Node n : graph.getNodes())
+			if (!oldNodes.get(n.getId()))
+				Vertex.resetAttributes(n);
+		for (org.gephi.graph.api.Edge e : graph.getEdges())
+			if (!oldEdges.get(e.getId()))
+				Edge.resetAttributes(e);
+		invalidateSnapshot();
+		dropSamplingIndex();
+		degrees = null;
+		reindexVertices();
+		recordReset();
+	}
+
+	/**
+	 * Makes clearGraph() of the networks created and loaded on the calling
+	 * thread wait until their loader adds its vertices and edges, so that the
+	 * graph keeps the network shown before while another one is opened in the
+	 * background. A loading that is cancelled before it adds anything leaves
+	 * the graph as it was. Networks used on other threads are cleared at once.
+	 * Ended by {@link #endDeferredClearing()} on the same thread.
+	 */
+	public static void deferClearing() {
+		deferral.set(new Deferral());
+	}
+
+	/**
+	 * Ends {@link #deferClearing()} on the calling thread. The clears still
+	 * pending are dropped.
+	 * 
+	 * @return whether a clear was still pending, i.e. no loader has changed
+	 *         the graph meanwhile
+	 */
+	public static boolean endDeferredClearing() {
+		Deferral d = deferral.get();
+		deferral.remove();
+		if (d == null)
+			return false;
+
+		for (BrowsableNetwork network : d.pending)
+			network.clearPending = false;
+
+		return !d.pending.isEmpty();
+	}
+
+	/**
+	 * @return whether the graph is going to be cleared before the next batch
+	 *         of this network, so that its current vertices do not count
+	 */
+	boolean isClearPending() {
+		return clearPending;
+	}
+
+	/**
+	 * Clears the graph if a deferred clear of this network is pending, right
+	 * before its loader changes it. Later calls of clearGraph() take effect at
+	 * once, on any network.
+	 */
+	private void applyPendingClear() {
+		if (!clearPending)
+			return;
+
+		Deferral d = deferral.get();
+		if (d != null) {
+			d.graphChanged = true;
+			for (BrowsableNetwork network : d.pending)
+				network.clearPending = false;
+			d.pending.clear();
+		}
+		clearPending = false;
+
+		clearGraph();
 	}
 
 	public void printNetwork() {
@@ -0,0 +1,157 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+/**
+ * Append-only log of the changes made to the graph through BrowsableNetwork.
+ * Every change increments the version of the journal. Consumers keep a
+ * {@link Cursor} and process only the changes made since they last read it,
+ * instead of scanning the whole graph.
+ *
+ * Only the latest changes are kept. A cursor that falls too far behind, or
+ * that was created before the graph was cleared or reloaded, cannot be read
+ * and its consumer has to rescan the graph.
+ */
+public final class ChangeJournal {
+
+	public static final int NODE_ADDED = 0;
+	public static final int NODE_REMOVED = 1;
+	public static final int NODE_CHANGED = 2;
+	public static final int EDGE_ADDED = 3;
+	public static final int EDGE_REMOVED = 4;
+	public static final int EDGE_CHANGED = 5;
+
+	/**
+	 * Receives the changes read from a cursor.
+	 */
+	public interface Reader {
+
+		/**
+		 * @param type
+		 *            one of the change constants of ChangeJournal
+		 * @param id
+		 *            the id of the Gephi node or edge
+		 */
+		public void change(int type, int id);
+	}
+
+	private static final int CAPACITY = 1 << 16;
+
+	private final byte[] types = new byte[CAPACITY];
+	private final int[] ids = new int[CAPACITY];
+
+	private long version = 0;
+	// incremented when nodes or edges are added or removed, read unlocked
+	private volatile long structureVersion = 0;
+	// incremented when edge weights are changed, read unlocked
+	private volatile long weightVersion = 0;
+	// changes up to this version have been dropped by a reset
+	private long resetVersion = 0;
+
+	synchronized void append(int type, int id) {
+		version++;
+		if (type != NODE_CHANGED && type != EDGE_CHANGED)
+			structureVersion++;
+		types[(int) version & (CAPACITY - 1)] = (byte) type;
+		ids[(int) version & (CAPACITY - 1)] = id;
+	}
+
+	/**
+	 * Records a change of the weight of an edge, which also counts as a
+	 * change of its attributes.
+	 */
+	synchronized void appendWeightChange(int id) {
+		append(EDGE_CHANGED, id);
+		weightVersion++;
+	}
+
+	/**
+	 * Records that the whole graph changed, e.g. when it is cleared.
+	 */
+	synchronized void reset() {
+		version++;
+		structureVersion++;
+		resetVersion = version;
+	}
+
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return a counter of the changes of the structure only, which ignores
+	 *         changed attributes
+	 */
+	public long getStructureVersion() {
+		return structureVersion;
+	}
+
+	/**
+	 * @return a counter of the changes of edge weights
+	 */
+	public long getWeightVersion() {
+		return weightVersion;
+	}
+
+	/**
+	 * @return a cursor positioned at the current version
+	 */
+	public Cursor newCursor() {
+		return new Cursor(getVersion());
+	}
+
+	/**
+	 * Position of a consumer in the journal.
+	 */
+	public final class Cursor {
+
+		private long position;
+
+		private Cursor(long position) {
+			this.position = position;
+		}
+
+		public long getVersion() {
+			return position;
+		}
+
+		public boolean hasChanges() {
+			return position != ChangeJournal.this.getVersion();
+		}
+
+		/**
+		 * Passes the changes made since the last read to the reader, oldest
+		 * first, and moves the cursor to the current version.
+		 *
+		 * @return false if the changes are no longer available and the graph
+		 *         has to be rescanned; the cursor is moved all the same
+		 */
+		public boolean read(Reader reader) {
+			byte[] readTypes;
+			int[] readIds;
+			int count;
+
+			synchronized (ChangeJournal.this) {
+				long from = position;
+				position = version;
+
+				if (from < resetVersion || version - from > CAPACITY)
+					return false;
+
+				count = (int) (version - from);
+				readTypes = new byte[count];
+				readIds = new int[count];
+
+				for (int i = 0; i < count; i++) {
+					int slot = (int) (from + 1 + i) & (CAPACITY - 1);
+					readTypes[i] = types[slot];
+					readIds[i] = ids[slot];
+				}
+			}
+
+			// the reader may change the graph, so it is called unlocked
+			for (int i = 0; i < count; i++)
+				reader.change(readTypes[i], readIds[i]);
+
+			return true;
+		}
+	}
+}
@@ -25,7 +25,6 @@ import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
-import java.util.HashMap;
 
 
 public class ContestSimulation extends BrowsableNetwork implements ISimulation {
@@ -57,13 +56,13 @@ public class ContestSimulation extends BrowsableNetwork implements ISimulation {
 
 	public boolean update(long passedTime) {
 		setIncremental(false);
-		HashMap<Integer, Vertex> hash = new HashMap<Integer, Vertex>();
+		Vertex[] voters = new Vertex[voters_size + 1];
 
 		for (int i = 1; i <= voters_size; i++) {
 			Vertex v = new Vertex(i);
 			v.setLabel("" + i);
 			addVertex(v);
-			hash.put(i, v);
+			voters[i] = v;
 		}
 
 		for (Vertex v : getVertices()) {
@@ -75,7 +74,7 @@ public class ContestSimulation extends BrowsableNetwork implements ISimulation {
 			for (int vote_count = 0; vote_count < votes.length; vote_count++) {
 				int index = (int) (Math.random() * possibilities.size());
 				int to_id = possibilities.get(index);
-				Vertex v_dest = hash.get(to_id);
+				Vertex v_dest = voters[to_id];
 
 				Edge e = new Edge(v, v_dest, true);
 				e.setWeight(votes[vote_count]);
@@ -88,8 +87,6 @@ public class ContestSimulation extends BrowsableNetwork implements ISimulation {
 			}
 		}
 
-		hash.clear();
-
 		return false;
 	}
 }
@@ -0,0 +1,104 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+/**
+ * Layout of the binary Cuttlefish format (.cxb), written by {@link CxbWriter}
+ * and read by {@link CxbReader}. All numbers are big endian.
+ *
+ * The file starts with a header of {@link #HEADER_BYTES} bytes: magic,
+ * version, flags, node count, edge count and string count as ints, followed
+ * by one entry per block with its offset and stored length as longs, and its
+ * raw length and compression as ints. The blocks come after the header in the
+ * order nodes, edges, strings, each aligned to 8 bytes.
+ *
+ * The node and edge blocks are columnar: every column holds one value per
+ * element, see the column constants, and is followed by the next column. The
+ * last column holds one flag byte per element. Labels, shapes and var1/var2
+ * are indices into the string pool, -1 for none; edges refer to their
+ * endpoints by node index, not by id.
+ *
+ * The string pool starts with count + 1 int offsets into the UTF-8 bytes that
+ * follow them, string i being the bytes between offsets i and i + 1.
+ *
+ * A block is either stored raw, so that it can be read in place from a
+ * mapping of the file, or compressed with deflate.
+ */
+public final class CxbFormat {
+
+	public static final int MAGIC = 0x43465842; // "CFXB"
+	public static final int VERSION = 1;
+
+	public static final int BLOCK_NODES = 0;
+	public static final int BLOCK_EDGES = 1;
+	public static final int BLOCK_STRINGS = 2;
+	public static final int BLOCK_COUNT = 3;
+
+	// offset of the block entries in the header
+	public static final int BLOCK_TABLE = 24;
+	public static final int BLOCK_ENTRY_BYTES = 24;
+	public static final int HEADER_BYTES = BLOCK_TABLE + BLOCK_COUNT
+			* BLOCK_ENTRY_BYTES;
+
+	public static final int COMPRESSION_NONE = 0;
+	public static final int COMPRESSION_DEFLATE = 1;
+
+	// header flags
+	public static final int HIDE_NODE_LABELS = 1;
+	public static final int HIDE_EDGE_LABELS = 2;
+	public static final int UNDIRECTED = 4;
+	public static final int STRAIGHT_EDGES = 8;
+
+	// node columns, four bytes per value
+	public static final int NODE_ID = 0;
+	public static final int NODE_X = 1;
+	public static final int NODE_Y = 2;
+	public static final int NODE_FILL = 3;
+	public static final int NODE_BORDER = 4;
+	public static final int NODE_SIZE = 5;
+	public static final int NODE_WIDTH = 6;
+	public static final int NODE_SHAPE = 7;
+	public static final int NODE_LABEL = 8;
+	public static final int NODE_VAR1 = 9;
+	public static final int NODE_VAR2 = 10;
+	public static final int NODE_COLUMNS = 11;
+
+	// node flags
+	public static final int NODE_HIDDEN = 1;
+	public static final int NODE_FIXED = 2;
+	public static final int NODE_ROOT = 4;
+
+	// edge columns, four bytes per value
+	public static final int EDGE_SOURCE = 0;
+	public static final int EDGE_TARGET = 1;
+	public static final int EDGE_WEIGHT = 2;
+	public static final int EDGE_WIDTH = 3;
+	public static final int EDGE_COLOR = 4;
+	public static final int EDGE_LABEL = 5;
+	public static final int EDGE_VAR1 = 6;
+	public static final int EDGE_VAR2 = 7;
+	public static final int EDGE_COLUMNS = 8;
+
+	// edge flags
+	public static final int EDGE_HIDDEN = 1;
+	public static final int EDGE_DIRECTED = 2;
+
+	private CxbFormat() {
+	}
+
+	/**
+	 * @return the offset of a four byte column within its block
+	 */
+	public static int columnOffset(int column, int count) {
+		return column * 4 * count;
+	}
+
+	/**
+	 * @return the raw length of a node or edge block
+	 */
+	public static long blockLength(int columns, int count) {
+		return align((long) columns * 4 * count + count, 4);
+	}
+
+	public static long align(long length, int alignment) {
+		return (length + alignment - 1) / alignment * alignment;
+	}
+}
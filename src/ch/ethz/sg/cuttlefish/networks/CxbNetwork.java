@@ -0,0 +1,25 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Network loaded from the binary Cuttlefish format, see {@link CxbFormat}.
+ */
+public class CxbNetwork extends BrowsableNetwork {
+
+	private static final long serialVersionUID = 1L;
+
+	public CxbNetwork() {
+	}
+
+	public CxbNetwork(File file) throws IOException {
+		load(file);
+	}
+
+	@Override
+	public void load(File file) throws IOException {
+		new CxbReader(file, this).read();
+		this.setNetworkFileName(file.getName());
+	}
+}
@@ -0,0 +1,297 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedEdge;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
+
+/**
+ * Reads a file in the binary Cuttlefish format, see {@link CxbFormat}, into
+ * a network of any type. The file is mapped and raw blocks are read in place,
+ * column by column, without parsing; strings are decoded once each, when
+ * first used.
+ */
+final class CxbReader {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File file;
+	private final BrowsableNetwork network;
+
+	// the string pool of the file
+	private ByteBuffer stringBlock;
+	private String[] strings;
+
+	CxbReader(File file, BrowsableNetwork network) {
+		this.file = file;
+		this.network = network;
+	}
+
+	/**
+	 * Replaces the vertices and edges of the network with those of the file.
+	 */
+	void read() throws IOException {
+		network.hideVertexLabels = false;
+		network.hideEdgeLabels = false;
+		network.clearGraph();
+
+		ByteBuffer data = map();
+
+		if (data.capacity() < CxbFormat.HEADER_BYTES
+				|| data.getInt(0) != CxbFormat.MAGIC)
+			throw new IOException(file + " is not a cxb file");
+		if (data.getInt(4) != CxbFormat.VERSION)
+			throw new IOException(file + " has an unsupported version");
+
+		int flags = data.getInt(8);
+		int nodeCount = data.getInt(12);
+		int edgeCount = data.getInt(16);
+		int stringCount = data.getInt(20);
+
+		if (nodeCount < 0 || edgeCount < 0 || stringCount < 0)
+			throw corrupt();
+
+		ByteBuffer nodes = block(data, CxbFormat.BLOCK_NODES);
+		ByteBuffer edges = block(data, CxbFormat.BLOCK_EDGES);
+		stringBlock = block(data, CxbFormat.BLOCK_STRINGS);
+		strings = new String[stringCount];
+
+		if (nodes.capacity() != CxbFormat.blockLength(
+				CxbFormat.NODE_COLUMNS, nodeCount)
+				|| edges.capacity() != CxbFormat.blockLength(
+						CxbFormat.EDGE_COLUMNS, edgeCount)
+				|| stringBlock.capacity() < 4L * (stringCount + 1))
+			throw corrupt();
+
+		network.hideVertexLabels = (flags & CxbFormat.HIDE_NODE_LABELS) != 0;
+		network.hideEdgeLabels = (flags & CxbFormat.HIDE_EDGE_LABELS) != 0;
+		network.edgeShape = (flags & CxbFormat.STRAIGHT_EDGES) != 0
+				? Constants.LINE_STRAIGHT : Constants.LINE_CURVED;
+		network.setDirected((flags & CxbFormat.UNDIRECTED) == 0);
+
+		NetworkBuilder builder = new NetworkBuilder(network, nodeCount,
+				edgeCount);
+		try {
+			int[] ids = new int[nodeCount];
+			if (addNodes(nodes, nodeCount, ids, builder))
+				addEdges(edges, edgeCount, ids, builder);
+			// what was read before the diagnostics stopped is kept, as in the
+			// other formats, nothing if the file turns out corrupt
+			builder.commit();
+		} finally {
+			stringBlock = null;
+			strings = null;
+		}
+	}
+
+	private ByteBuffer map() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large to be mapped");
+
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @return the block, in place if it is stored raw
+	 */
+	private ByteBuffer block(ByteBuffer data, int block) throws IOException {
+		int entry = CxbFormat.BLOCK_TABLE + block * CxbFormat.BLOCK_ENTRY_BYTES;
+		long offset = data.getLong(entry);
+		long stored = data.getLong(entry + 8);
+		int raw = data.getInt(entry + 16);
+		int compression = data.getInt(entry + 20);
+
+		if (offset < CxbFormat.HEADER_BYTES || stored < 0 || raw < 0
+				|| offset + stored > data.capacity())
+			throw corrupt();
+
+		ByteBuffer slice = data.duplicate();
+		slice.position((int) offset);
+		slice.limit((int) (offset + stored));
+		slice = slice.slice();
+
+		if (compression == CxbFormat.COMPRESSION_NONE) {
+			if (stored != raw)
+				throw corrupt();
+			return slice;
+		}
+		if (compression != CxbFormat.COMPRESSION_DEFLATE)
+			throw new IOException(file + " uses an unknown compression");
+
+		byte[] input = new byte[(int) stored];
+		slice.get(input);
+		byte[] output = new byte[raw];
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(input);
+			int n = 0;
+			while (n < raw && !inflater.finished() && !inflater.needsInput())
+				n += inflater.inflate(output, n, raw - n);
+			if (n != raw)
+				throw corrupt();
+		} catch (DataFormatException e) {
+			throw corrupt();
+		} finally {
+			inflater.end();
+		}
+
+		return ByteBuffer.wrap(output);
+	}
+
+	private IOException corrupt() {
+		return new IOException(file + " is corrupt");
+	}
+
+	/**
+	 * @return the string of the pool, or null for the index -1
+	 */
+	private String string(int index) throws IOException {
+		if (index == -1)
+			return null;
+		if (index < 0 || index >= strings.length)
+			throw corrupt();
+
+		if (strings[index] == null) {
+			int base = 4 * (strings.length + 1);
+			int from = stringBlock.getInt(4 * index);
+			int to = stringBlock.getInt(4 * index + 4);
+			if (from < 0 || to < from || base + to > stringBlock.capacity())
+				throw corrupt();
+
+			byte[] bytes = new byte[to - from];
+			ByteBuffer source = stringBlock.duplicate();
+			source.position(base + from);
+			source.get(bytes);
+			strings[index] = new String(bytes, UTF8);
+		}
+
+		return strings[index];
+	}
+
+	private static int getInt(ByteBuffer block, int column, int count,
+			int index) {
+		return block.getInt(CxbFormat.columnOffset(column, count) + index * 4);
+	}
+
+	private static float getFloat(ByteBuffer block, int column, int count,
+			int index) {
+		return block
+				.getFloat(CxbFormat.columnOffset(column, count) + index * 4);
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean addNodes(ByteBuffer nodes, int n, int[] ids,
+			NetworkBuilder builder) throws IOException {
+		int flagsOffset = CxbFormat.columnOffset(CxbFormat.NODE_COLUMNS, n);
+
+		for (int i = 0; i < n; i++) {
+			int id = getInt(nodes, CxbFormat.NODE_ID, n, i);
+			ids[i] = id;
+
+			StagedVertex v = builder.addVertex(id);
+			if (v == null) {
+				if (!network.getDiagnostics().error("Double node identifier",
+						"Double node identifier " + id))
+					return false;
+				continue;
+			}
+
+			v.setPosition(getFloat(nodes, CxbFormat.NODE_X, n, i),
+					getFloat(nodes, CxbFormat.NODE_Y, n, i));
+			v.setFillRGB(getInt(nodes, CxbFormat.NODE_FILL, n, i));
+			v.setBorderRGB(getInt(nodes, CxbFormat.NODE_BORDER, n, i));
+			v.setSize(getFloat(nodes, CxbFormat.NODE_SIZE, n, i));
+			v.setWidth(getInt(nodes, CxbFormat.NODE_WIDTH, n, i));
+
+			String shape = string(getInt(nodes, CxbFormat.NODE_SHAPE, n, i));
+			if (shape != null)
+				v.setShape(shape);
+			String label = string(getInt(nodes, CxbFormat.NODE_LABEL, n, i));
+			if (label != null)
+				v.setLabel(label);
+			String var1 = string(getInt(nodes, CxbFormat.NODE_VAR1, n, i));
+			if (var1 != null)
+				v.setVar1(var1);
+			String var2 = string(getInt(nodes, CxbFormat.NODE_VAR2, n, i));
+			if (var2 != null)
+				v.setVar2(var2);
+
+			byte flags = nodes.get(flagsOffset + i);
+			if ((flags & CxbFormat.NODE_HIDDEN) != 0)
+				v.setExcluded(true);
+			if ((flags & CxbFormat.NODE_FIXED) != 0)
+				v.setFixed(true);
+			if ((flags & CxbFormat.NODE_ROOT) != 0)
+				v.setIsRoot(true);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean addEdges(ByteBuffer edges, int m, int[] ids,
+			NetworkBuilder builder) throws IOException {
+		int flagsOffset = CxbFormat.columnOffset(CxbFormat.EDGE_COLUMNS, m);
+
+		for (int e = 0; e < m; e++) {
+			int source = getInt(edges, CxbFormat.EDGE_SOURCE, m, e);
+			int target = getInt(edges, CxbFormat.EDGE_TARGET, m, e);
+			if (source < 0 || source >= ids.length || target < 0
+					|| target >= ids.length)
+				throw corrupt();
+
+			byte flags = edges.get(flagsOffset + e);
+			StagedEdge edge = builder.addEdge(ids[source], ids[target],
+					getFloat(edges, CxbFormat.EDGE_WEIGHT, m, e),
+					(flags & CxbFormat.EDGE_DIRECTED) != 0);
+			if (edge == null) {
+				if (!network.getDiagnostics().error("Malformed edge",
+						"Malformed edge (nonexistent endpoint): ("
+								+ ids[source] + "," + ids[target] + ")"))
+					return false;
+				continue;
+			}
+
+			edge.setWidth(getFloat(edges, CxbFormat.EDGE_WIDTH, m, e));
+			edge.setRGB(getInt(edges, CxbFormat.EDGE_COLOR, m, e));
+
+			String label = string(getInt(edges, CxbFormat.EDGE_LABEL, m, e));
+			if (label != null)
+				edge.setLabel(label);
+			String var1 = string(getInt(edges, CxbFormat.EDGE_VAR1, m, e));
+			if (var1 != null)
+				edge.setVar1(var1);
+			String var2 = string(getInt(edges, CxbFormat.EDGE_VAR2, m, e));
+			if (var2 != null)
+				edge.setVar2(var2);
+
+			if ((flags & CxbFormat.EDGE_HIDDEN) != 0)
+				edge.setExcluded(true);
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,259 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
+
+/**
+ * Writes a version of a network in the binary Cuttlefish format, see
+ * {@link CxbFormat}. The blocks are built in memory and written at once.
+ */
+public final class CxbWriter {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final GraphVersion version;
+	private boolean compressed = false;
+
+	public CxbWriter(GraphVersion version) {
+		this.version = version;
+	}
+
+	/**
+	 * @param compressed
+	 *            whether the blocks are compressed with deflate, which makes
+	 *            the file smaller but prevents reading it in place
+	 */
+	public void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Writes the network to the stream, which is flushed but not closed.
+	 */
+	public void write(OutputStream outputStream) throws IOException {
+		int nodeCount = version.getNodeCount();
+		int edgeCount = version.getEdgeCount();
+		StringPool strings = new StringPool();
+
+		byte[][] blocks = new byte[CxbFormat.BLOCK_COUNT][];
+		blocks[CxbFormat.BLOCK_NODES] = writeNodes(nodeCount, strings);
+		blocks[CxbFormat.BLOCK_EDGES] = writeEdges(edgeCount, strings);
+		blocks[CxbFormat.BLOCK_STRINGS] = strings.toBlock();
+
+		int[] rawLengths = new int[CxbFormat.BLOCK_COUNT];
+		int[] compression = new int[CxbFormat.BLOCK_COUNT];
+		for (int b = 0; b < blocks.length; b++) {
+			rawLengths[b] = blocks[b].length;
+			if (compressed) {
+				byte[] deflated = deflate(blocks[b]);
+				if (deflated.length < blocks[b].length) {
+					blocks[b] = deflated;
+					compression[b] = CxbFormat.COMPRESSION_DEFLATE;
+				}
+			}
+		}
+
+		int flags = 0;
+		if (version.hideVertexLabels())
+			flags |= CxbFormat.HIDE_NODE_LABELS;
+		if (version.hideEdgeLabels())
+			flags |= CxbFormat.HIDE_EDGE_LABELS;
+		if (!version.isDirected())
+			flags |= CxbFormat.UNDIRECTED;
+		if (Constants.LINE_STRAIGHT.equals(version.getEdgeShape()))
+			flags |= CxbFormat.STRAIGHT_EDGES;
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				outputStream));
+		out.writeInt(CxbFormat.MAGIC);
+		out.writeInt(CxbFormat.VERSION);
+		out.writeInt(flags);
+		out.writeInt(nodeCount);
+		out.writeInt(edgeCount);
+		out.writeInt(strings.size());
+
+		long offset = CxbFormat.HEADER_BYTES;
+		for (int b = 0; b < blocks.length; b++) {
+			out.writeLong(offset);
+			out.writeLong(blocks[b].length);
+			out.writeInt(rawLengths[b]);
+			out.writeInt(compression[b]);
+			offset = CxbFormat.align(offset + blocks[b].length, 8);
+		}
+
+		long written = CxbFormat.HEADER_BYTES;
+		for (byte[] block : blocks) {
+			out.write(block);
+			written += block.length;
+			for (; written % 8 != 0; written++)
+				out.write(0);
+		}
+
+		out.flush();
+	}
+
+	private byte[] writeNodes(int n, StringPool strings) {
+		ByteBuffer block = allocate(CxbFormat.NODE_COLUMNS, n);
+
+		for (int i = 0; i < n; i++) {
+			putInt(block, CxbFormat.NODE_ID, n, i, version.getId(i));
+			putFloat(block, CxbFormat.NODE_X, n, i, version.getX(i));
+			putFloat(block, CxbFormat.NODE_Y, n, i, version.getY(i));
+			putInt(block, CxbFormat.NODE_FILL, n, i, version.getFillRGB(i));
+			putInt(block, CxbFormat.NODE_BORDER, n, i,
+					version.getBorderRGB(i));
+			putFloat(block, CxbFormat.NODE_SIZE, n, i,
+					(float) version.getSize(i));
+			putInt(block, CxbFormat.NODE_WIDTH, n, i, version.getWidth(i));
+			putInt(block, CxbFormat.NODE_SHAPE, n, i,
+					strings.add(version.getShape(i)));
+			putInt(block, CxbFormat.NODE_LABEL, n, i,
+					strings.add(version.getLabel(i)));
+			putInt(block, CxbFormat.NODE_VAR1, n, i,
+					strings.add(version.getVar1(i)));
+			putInt(block, CxbFormat.NODE_VAR2, n, i,
+					strings.add(version.getVar2(i)));
+
+			int flags = 0;
+			if (version.isExcluded(i))
+				flags |= CxbFormat.NODE_HIDDEN;
+			if (version.isFixed(i))
+				flags |= CxbFormat.NODE_FIXED;
+			if (version.isRoot(i))
+				flags |= CxbFormat.NODE_ROOT;
+			block.put(CxbFormat.columnOffset(CxbFormat.NODE_COLUMNS, n) + i,
+					(byte) flags);
+		}
+
+		return block.array();
+	}
+
+	private byte[] writeEdges(int m, StringPool strings) {
+		ByteBuffer block = allocate(CxbFormat.EDGE_COLUMNS, m);
+
+		for (int e = 0; e < m; e++) {
+			putInt(block, CxbFormat.EDGE_SOURCE, m, e,
+					version.getEdgeSource(e));
+			putInt(block, CxbFormat.EDGE_TARGET, m, e,
+					version.getEdgeTarget(e));
+			putFloat(block, CxbFormat.EDGE_WEIGHT, m, e,
+					(float) version.getEdgeWeight(e));
+			putFloat(block, CxbFormat.EDGE_WIDTH, m, e,
+					(float) version.getEdgeWidth(e));
+			putInt(block, CxbFormat.EDGE_COLOR, m, e, version.getEdgeRGB(e));
+			putInt(block, CxbFormat.EDGE_LABEL, m, e,
+					strings.add(version.getEdgeLabel(e)));
+			putInt(block, CxbFormat.EDGE_VAR1, m, e,
+					strings.add(version.getEdgeVar1(e)));
+			putInt(block, CxbFormat.EDGE_VAR2, m, e,
+					strings.add(version.getEdgeVar2(e)));
+
+			int flags = 0;
+			if (version.isEdgeExcluded(e))
+				flags |= CxbFormat.EDGE_HIDDEN;
+			if (version.isEdgeDirected(e))
+				flags |= CxbFormat.EDGE_DIRECTED;
+			block.put(CxbFormat.columnOffset(CxbFormat.EDGE_COLUMNS, m) + e,
+					(byte) flags);
+		}
+
+		return block.array();
+	}
+
+	private static ByteBuffer allocate(int columns, int count) {
+		long length = CxbFormat.blockLength(columns, count);
+		if (length > Integer.MAX_VALUE)
+			throw new IllegalStateException("Network too large for cxb");
+
+		return ByteBuffer.allocate((int) length);
+	}
+
+	private static void putInt(ByteBuffer block, int column, int count,
+			int index, int value) {
+		block.putInt(CxbFormat.columnOffset(column, count) + index * 4, value);
+	}
+
+	private static void putFloat(ByteBuffer block, int column, int count,
+			int index, float value) {
+		block.putFloat(CxbFormat.columnOffset(column, count) + index * 4,
+				value);
+	}
+
+	private static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater();
+		deflater.setInput(data);
+		deflater.finish();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+				data.length / 2 + 64);
+		byte[] buffer = new byte[1 << 16];
+		while (!deflater.finished())
+			out.write(buffer, 0, deflater.deflate(buffer));
+		deflater.end();
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Strings of the network, each stored once.
+	 */
+	private static final class StringPool {
+
+		private final Map<String, Integer> indices;
+		private final ByteArrayOutputStream bytes;
+		private int[] offsets = new int[1024];
+		private int count = 0;
+
+		StringPool() {
+			indices = new HashMap<String, Integer>();
+			bytes = new ByteArrayOutputStream();
+		}
+
+		/**
+		 * @return the index of the string, or -1 for null
+		 */
+		int add(String s) {
+			if (s == null)
+				return -1;
+
+			Integer index = indices.get(s);
+			if (index != null)
+				return index;
+
+			byte[] encoded = s.getBytes(UTF8);
+			bytes.write(encoded, 0, encoded.length);
+
+			if (count + 2 > offsets.length)
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			offsets[++count] = bytes.size();
+
+			indices.put(s, count - 1);
+			return count - 1;
+		}
+
+		int size() {
+			return count;
+		}
+
+		byte[] toBlock() {
+			ByteBuffer block = ByteBuffer.allocate(4 * (count + 1)
+					+ bytes.size());
+			for (int i = 0; i <= count; i++)
+				block.putInt(offsets[i]);
+			block.put(bytes.toByteArray());
+
+			return block.array();
+		}
+	}
+}
@@ -0,0 +1,527 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Single pass lexer for the Cuttlefish eXtended Format. The bytes of the input
+ * are scanned in one buffer and the fields of each record are read in place:
+ * numbers are parsed straight from the buffer, and strings are only created
+ * for the values that are kept, like labels.
+ *
+ * A record starts at every line beginning with a command (node, edge,
+ * addNode, ..., layout) or with '[', and goes on over the following lines.
+ * Fields are separated by whitespace, except between braces. The first line
+ * of the input always starts a record.
+ *
+ * The field accessors take offsets relative to the start of the current
+ * field, and are valid until the next call to nextField() or nextRecord().
+ */
+final class CxfLexer {
+
+	private static final String[] COMMANDS = { "node", "edge", "addnode",
+			"addedge", "removenode", "removeedge", "editnode", "editedge",
+			"layout" };
+	private static final int LOOKAHEAD = 10;
+
+	// powers of ten that are exact as doubles
+	private static final double[] POWERS = new double[23];
+
+	static {
+		POWERS[0] = 1;
+		for (int i = 1; i < POWERS.length; i++)
+			POWERS[i] = POWERS[i - 1] * 10;
+	}
+
+	private final InputStream in;
+	private final Charset charset = Charset.defaultCharset();
+
+	private byte[] data;
+	// offset in the input of data[0]
+	private long base = 0;
+	private int pos = 0;
+	private int limit = 0;
+	private boolean eof = false;
+
+	private int line = 1;
+	private int recordLine = 0;
+	private long recordOffset = 0;
+	private boolean started = false;
+	private boolean inRecord = false;
+
+	// the current field
+	private int start = 0;
+	private int end = 0;
+
+	CxfLexer(InputStream in) {
+		this(in, 0, 1);
+	}
+
+	/**
+	 * Lexer over an input that was positioned at the beginning of a record,
+	 * found at the given offset and line of the whole file.
+	 */
+	CxfLexer(InputStream in, long offset, int line) {
+		this.in = in;
+		this.data = new byte[1 << 16];
+		this.base = offset;
+		this.line = line;
+	}
+
+	/**
+	 * Lexer over the first length bytes of the array, which must start at
+	 * the beginning of a record.
+	 */
+	CxfLexer(byte[] data, int length) {
+		this.in = null;
+		this.data = data;
+		this.limit = length;
+		this.eof = true;
+	}
+
+	void close() throws IOException {
+		if (in != null)
+			in.close();
+	}
+
+	/**
+	 * @return the offset of the first record starting at or after the given
+	 *         offset, which is greater than 0, or the size of the file if
+	 *         there is none
+	 */
+	static long nextRecordStart(FileChannel channel, long offset)
+			throws IOException {
+		long size = channel.size();
+		byte[] window = new byte[1 << 16];
+
+		// a record starts after a newline
+		long base = offset - 1;
+		while (base < size) {
+			ByteBuffer buffer = ByteBuffer.wrap(window);
+			while (buffer.hasRemaining())
+				if (channel.read(buffer, base + buffer.position()) < 0)
+					break;
+			int n = buffer.position();
+
+			long next = base + n;
+			for (int i = 0; i < n; i++) {
+				if (window[i] != '\n')
+					continue;
+				if (n - i - 1 < LOOKAHEAD && next < size && i > 0) {
+					// read the window again from the newline
+					next = base + i;
+					break;
+				}
+				if (startsRecord(window, i + 1, n))
+					return base + i + 1;
+			}
+			base = next;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Skips what is left of the current record.
+	 *
+	 * @return false at the end of the input
+	 */
+	boolean nextRecord() throws IOException {
+		if (started)
+			while (nextField())
+				;
+		started = true;
+
+		if (pos == limit && !fill(pos))
+			return false;
+
+		recordLine = line;
+		recordOffset = base + pos;
+		inRecord = true;
+		return true;
+	}
+
+	/**
+	 * @return the line where the current record starts, counting from 1
+	 */
+	int getLine() {
+		return recordLine;
+	}
+
+	/**
+	 * @return the offset in the input where the current record starts
+	 */
+	long getRecordOffset() {
+		return recordOffset;
+	}
+
+	/**
+	 * @return false if there are no more fields in the current record
+	 */
+	boolean nextField() throws IOException {
+		if (!inRecord)
+			return false;
+
+		while (true) {
+			if (pos == limit && !fill(pos)) {
+				inRecord = false;
+				return false;
+			}
+
+			byte b = data[pos];
+			if (b == '\n') {
+				pos++;
+				line++;
+				if (startsRecord()) {
+					inRecord = false;
+					return false;
+				}
+			} else if (b == ' ' || b == '\t' || b == '\r')
+				pos++;
+			else
+				break;
+		}
+
+		start = pos;
+		boolean braces = false;
+		while (pos < limit || fill(start)) {
+			byte b = data[pos];
+			if (b == '\n' || (!braces && (b == ' ' || b == '\t' || b == '\r')))
+				break;
+			if (b == '{')
+				braces = true;
+			else if (b == '}')
+				braces = false;
+			pos++;
+		}
+		end = pos;
+
+		return true;
+	}
+
+	private boolean startsRecord() throws IOException {
+		while (limit - pos < LOOKAHEAD && fill(pos))
+			;
+
+		return startsRecord(data, pos, limit);
+	}
+
+	private static boolean startsRecord(byte[] bytes, int at, int limit) {
+		if (at == limit)
+			return false;
+		if (bytes[at] == '[')
+			return true;
+
+		for (String command : COMMANDS)
+			if (matches(bytes, at, limit, command, true))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Reads more input into the buffer, dropping the bytes before keep.
+	 */
+	private boolean fill(int keep) throws IOException {
+		if (eof)
+			return false;
+
+		if (keep > 0) {
+			System.arraycopy(data, keep, data, 0, limit - keep);
+			base += keep;
+			limit -= keep;
+			pos -= keep;
+			start -= keep;
+		}
+		if (limit == data.length)
+			data = Arrays.copyOf(data, data.length * 2);
+
+		int n = in.read(data, limit, data.length - limit);
+		if (n < 0) {
+			eof = true;
+			return false;
+		}
+
+		limit += n;
+		return true;
+	}
+
+	private boolean matches(int at, int bound, String s, boolean ignoreCase) {
+		return matches(data, at, bound, s, ignoreCase);
+	}
+
+	private static boolean matches(byte[] bytes, int at, int bound, String s,
+			boolean ignoreCase) {
+		if (bound - at < s.length())
+			return false;
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = (char) bytes[at + i];
+			if (ignoreCase)
+				c = Character.toLowerCase(c);
+			if (c != s.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	int length() {
+		return end - start;
+	}
+
+	char charAt(int i) {
+		return (char) data[start + i];
+	}
+
+	/**
+	 * @return the offset of the first occurrence of c from the given offset,
+	 *         or -1
+	 */
+	int indexOf(char c, int from) {
+		for (int i = start + from; i < end; i++)
+			if (data[i] == c)
+				return i - start;
+
+		return -1;
+	}
+
+	boolean contains(char c) {
+		return indexOf(c, 0) >= 0;
+	}
+
+	boolean startsWith(String prefix) {
+		return matches(start, end, prefix, false);
+	}
+
+	/**
+	 * @param s
+	 *            the string to compare, lower case if ignoreCase is set
+	 */
+	boolean regionMatches(int offset, String s, boolean ignoreCase) {
+		return matches(start + offset, end, s, ignoreCase);
+	}
+
+	String text(int from, int to) {
+		return new String(data, start + from, to - from, charset);
+	}
+
+	String text() {
+		return text(0, length());
+	}
+
+	// offset of the opening bracket of the value of the field
+	private int open() {
+		for (int i = start; i < end; i++)
+			if (data[i] == '{' || data[i] == '(')
+				return i - start;
+
+		return -1;
+	}
+
+	// offset of the closing bracket, or the end of the field if it is missing
+	private int close(int open) {
+		int c = indexOf(charAt(open) == '{' ? '}' : ')', open + 1);
+		return c < 0 ? length() : c;
+	}
+
+	/**
+	 * @return the name of a field like name{value}
+	 */
+	String name() {
+		int open = open();
+		return text(0, open < 0 ? length() : open);
+	}
+
+	/**
+	 * @return the text between the braces or parentheses of the field, or an
+	 *         empty string if there are none
+	 */
+	String value() {
+		int open = open();
+		if (open < 0)
+			return "";
+
+		return text(open + 1, close(open));
+	}
+
+	double number() {
+		int open = open();
+		if (open < 0)
+			throw malformed(0, length());
+
+		return parseDouble(start + open + 1, start + close(open));
+	}
+
+	int integer() {
+		int open = open();
+		if (open < 0)
+			throw malformed(0, length());
+
+		return parseInt(start + open + 1, start + close(open));
+	}
+
+	/**
+	 * Parses a value like {x,y} with exactly as many numbers as the array
+	 * holds.
+	 */
+	void numbers(double[] values) {
+		int open = open();
+		if (open < 0)
+			throw malformed(0, length());
+
+		int from = start + open + 1;
+		int to = start + close(open);
+		for (int k = 0; k < values.length; k++) {
+			int comma = k < values.length - 1 ? find(',', from, to) : to;
+			if (comma < 0)
+				throw malformed(open, to - start);
+			values[k] = parseDouble(from, comma);
+			from = comma + 1;
+		}
+	}
+
+	/**
+	 * Parses a value like (a,b) with exactly as many integers as the array
+	 * holds.
+	 */
+	void integers(int[] values) {
+		int open = open();
+		if (open < 0)
+			throw malformed(0, length());
+
+		int from = start + open + 1;
+		int to = start + close(open);
+		for (int k = 0; k < values.length; k++) {
+			int comma = k < values.length - 1 ? find(',', from, to) : to;
+			if (comma < 0)
+				throw malformed(open, to - start);
+			values[k] = parseInt(from, comma);
+			from = comma + 1;
+		}
+	}
+
+	private int find(char c, int from, int to) {
+		for (int i = from; i < to; i++)
+			if (data[i] == c)
+				return i;
+
+		return -1;
+	}
+
+	private NumberFormatException malformed(int from, int to) {
+		return new NumberFormatException("For input string: \""
+				+ text(from, to) + "\"");
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * Parses the decimal number between the absolute offsets. Numbers of up
+	 * to 15 digits with small exponents are converted exactly without
+	 * creating a string, the others are passed to Double.parseDouble().
+	 */
+	private double parseDouble(int from, int to) {
+		while (from < to && data[from] <= ' ')
+			from++;
+		while (to > from && data[to - 1] <= ' ')
+			to--;
+
+		int i = from;
+		boolean negative = false;
+		if (i < to && (data[i] == '-' || data[i] == '+'))
+			negative = data[i++] == '-';
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean seen = false;
+
+		for (; i < to && isDigit(data[i]); i++, seen = true) {
+			mantissa = mantissa * 10 + (data[i] - '0');
+			if (mantissa != 0 && ++digits > 15)
+				return slowDouble(from, to);
+		}
+		if (i < to && data[i] == '.')
+			for (i++; i < to && isDigit(data[i]); i++, seen = true) {
+				mantissa = mantissa * 10 + (data[i] - '0');
+				scale--;
+				if (mantissa != 0 && ++digits > 15)
+					return slowDouble(from, to);
+			}
+		if (!seen)
+			return slowDouble(from, to);
+
+		if (i < to && (data[i] == 'e' || data[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (data[i] == '-' || data[i] == '+'))
+				negativeExponent = data[i++] == '-';
+
+			int exponent = 0;
+			boolean exponentSeen = false;
+			for (; i < to && isDigit(data[i]) && exponent < 1000; i++) {
+				exponent = exponent * 10 + (data[i] - '0');
+				exponentSeen = true;
+			}
+			if (!exponentSeen)
+				return slowDouble(from, to);
+
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		if (i != to)
+			return slowDouble(from, to);
+
+		double value;
+		if (mantissa == 0)
+			value = 0;
+		else if (scale >= 0 && scale < POWERS.length)
+			value = mantissa * POWERS[scale];
+		else if (scale < 0 && -scale < POWERS.length)
+			value = mantissa / POWERS[-scale];
+		else
+			return slowDouble(from, to);
+
+		return negative ? -value : value;
+	}
+
+	private double slowDouble(int from, int to) {
+		return Double.parseDouble(new String(data, from, to - from, charset));
+	}
+
+	private int parseInt(int from, int to) {
+		while (from < to && data[from] <= ' ')
+			from++;
+		while (to > from && data[to - 1] <= ' ')
+			to--;
+
+		int i = from;
+		boolean negative = false;
+		if (i < to && (data[i] == '-' || data[i] == '+'))
+			negative = data[i++] == '-';
+
+		if (i == to)
+			throw malformed(from - start, to - start);
+
+		long value = 0;
+		for (; i < to; i++) {
+			if (!isDigit(data[i]))
+				throw malformed(from - start, to - start);
+			value = value * 10 + (data[i] - '0');
+			if (value > (long) Integer.MAX_VALUE + 1)
+				throw malformed(from - start, to - start);
+		}
+
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE)
+			throw malformed(from - start, to - start);
+
+		return (int) value;
+	}
+}
@@ -21,23 +21,28 @@
 
 package ch.ethz.sg.cuttlefish.networks;
 
-import java.awt.Color;
-import java.awt.geom.Point2D;
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import javax.swing.JOptionPane;
-
-import ch.ethz.sg.cuttlefish.Cuttlefish;
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
 
 /**
  * Class for the loading of network data from the Cuttlefish eXtended Format
@@ -47,48 +52,112 @@ import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
 public class CxfNetwork extends BrowsableNetwork {
 
 	private static final long serialVersionUID = 1L;
-	FileReader fr;
-	BufferedReader br;
+	private static final int CHUNK_SIZE = 8 << 20;
+	// records read between two reports of the progress
+	private static final int PROGRESS_RECORDS = 1 << 12;
+	// marks a border width that is not given
+	static final int NO_WIDTH = Integer.MIN_VALUE;
+	transient CxfLexer lexer;
 
 	// By default CxfNetwork does not allow
 	// parallel edges
 	private boolean multiGraph = false;
-	int lineNum = 0;
-	String line = null;
-	int instructionIndex = 0;
+	private int loadThreads = Runtime.getRuntime().availableProcessors();
 	File graphFile;
 
 	/**
-	 * Class as data structure for the parsed tokens
+	 * Class as data structure for the parsed tokens. The numbers are kept in
+	 * primitive fields, so that a loader can read all the records into the
+	 * same token, see {@link #clear()}.
 	 */
 	class Token {
 		int line;
-		String type = null;
-		Integer id = null;
-		Integer id_source = null;
-		Integer id_dest = null;
-		String label = null;
-		Double weight = null;
-		Color color = null;
-		Color borderColor = null;
-		Double size = null;
-		String shape = null;
-		Integer borderWidth = null;
-		String var1 = null;
-		String var2 = null;
-		Point2D position = null;
-		int sleepTime = 0;
-		int maxUpdateSteps = 50;
-		boolean hide = false;
-		boolean isRoot = false;
-		boolean freeze = false;
-		boolean commit = false;
-
-		Map<String, String> params = null;
-	}
-
-	ArrayList<Token> instructionTokens = null;
-	HashMap<Integer, Vertex> hash = null;
+		// offset of the record in the input
+		long offset;
+		String type;
+		boolean hasId;
+		int id;
+		boolean hasEndpoints;
+		int id_source;
+		int id_dest;
+		String label;
+		// NaN if not given
+		double weight;
+		// packed RGB with the alpha bits set, 0 if not given
+		int color;
+		int borderColor;
+		// NaN if not given
+		double size;
+		String shape;
+		// NO_WIDTH if not given
+		int borderWidth;
+		String var1;
+		String var2;
+		boolean hasPosition;
+		double x;
+		double y;
+		int sleepTime;
+		int maxUpdateSteps;
+		boolean hide;
+		boolean isRoot;
+		boolean freeze;
+		boolean commit;
+
+		Map<String, String> params;
+		List<String> warnings;
+		// the problem with a number of the record, which is then ignored
+		String malformed;
+
+		// the numbers of the field being parsed
+		final int[] pair = new int[2];
+		final double[] rgb = new double[3];
+		final double[] xy = new double[2];
+
+		Token() {
+			clear();
+		}
+
+		/**
+		 * Resets the token before reading the next record into it.
+		 */
+		void clear() {
+			type = null;
+			hasId = false;
+			hasEndpoints = false;
+			label = null;
+			weight = Double.NaN;
+			color = 0;
+			borderColor = 0;
+			size = Double.NaN;
+			shape = null;
+			borderWidth = NO_WIDTH;
+			var1 = null;
+			var2 = null;
+			hasPosition = false;
+			sleepTime = 0;
+			maxUpdateSteps = 50;
+			hide = false;
+			isRoot = false;
+			freeze = false;
+			commit = false;
+			params = null;
+			warnings = null;
+			malformed = null;
+		}
+
+		void warn(String problem) {
+			if (warnings == null)
+				warnings = new ArrayList<String>();
+			warnings.add(problem);
+		}
+
+		/**
+		 * @return the endpoints as written in the messages
+		 */
+		String endpoints() {
+			return hasEndpoints ? id_source + "," + id_dest : "null,null";
+		}
+	}
 
 	/**
 	 * Void general constructor
@@ -128,26 +197,22 @@ public class CxfNetwork extends BrowsableNetwork {
 		multiGraph = b;
 	}
 
+	/**
+	 * Sets the number of threads parsing files larger than one chunk, 1 to
+	 * load them sequentially. The default is the number of processors.
+	 */
+	public void setLoadThreads(int threads) {
+		loadThreads = Math.max(threads, 1);
+	}
+
 	public void setEdgeShape(String edgeType) {
 		this.edgeShape = edgeType;
 	}
 
-	protected boolean confirmFileFormatWarning(String warning,
-			String dialogTitle) {
-		System.out.println(warning);
-
-		int answer = JOptionPane.showConfirmDialog(null, warning, dialogTitle,
-				2, JOptionPane.WARNING_MESSAGE);
-
-		if (answer == JOptionPane.CANCEL_OPTION) {
-			clearGraph();
-			return false;
-		}
-		return true;
-	}
 
 	/**
-	 * Loads the data stored in cxf format to the Cxf network
+	 * Loads the data stored in cxf format to the Cxf network. The file may be
+	 * compressed, see {@link CompressedStreams}.
 	 * 
 	 * @param graphFile
 	 * @throws FileNotFoundException
@@ -155,61 +220,537 @@ public class CxfNetwork extends BrowsableNetwork {
 	@Override
 	public void load(File graphFile) throws FileNotFoundException {
 		this.graphFile = graphFile;
-		hash = new HashMap<Integer, Vertex>();
 		setDirected(true);
 		edgeShape = Constants.LINE_CURVED;
 		hideVertexLabels = false;
 		hideEdgeLabels = false;
-		lineNum = 1;
-		line = null;
 
 		// First, empty the network
 		clearGraph();
 
-		br = new BufferedReader(new FileReader(graphFile));
+		InputStream in;
+		try {
+			in = CompressedStreams.openInput(graphFile);
+		} catch (FileNotFoundException fnfEx) {
+			throw fnfEx;
+		} catch (IOException ioEx) {
+			inputError(ioEx);
+			return;
+		}
+
+		// compressed files can only be read from the start
+		if (in instanceof FileInputStream && loadThreads > 1
+				&& graphFile.length() > CHUNK_SIZE) {
+			try {
+				in.close();
+			} catch (IOException ioEx) {
+				closeError(ioEx);
+			}
+			loadChunks(graphFile);
+			this.setNetworkFileName(graphFile.getName());
+			return;
+		}
+
+		lexer = new CxfLexer(in);
+		// all the records are read into the same token
+		Token record = new Token();
 		Token token;
-		ArrayList<Token> edgeTokens = new ArrayList<Token>();
-		while ((token = getNextToken()) != null) {
-			if (token.type.toLowerCase().contains("node")) {
-				Vertex v = createVertex(token);
-
-				if (hash.get(v.getId()) != null) {
-					if (!confirmFileFormatWarning("Double node identifier: "
-							+ v.getId() + " in line " + token.line, "cxf error"))
-						return;
-				} else {
-					addVertex(v);
-					// we store the ids and vertices in a hash table
-					hash.put(v.getId(), v);
+		EdgeRecords edges = new EdgeRecords();
+		NetworkBuilder builder = new NetworkBuilder(this);
+		long length = graphFile.length();
+		int records = 0;
+		boolean cancelled = false;
+		try {
+			while ((token = getNextToken(lexer, record)) != null) {
+				if (++records % PROGRESS_RECORDS == 0
+						&& !reportProgress(CompressedStreams
+								.getFilePosition(in), length, records)) {
+					cancelled = true;
+					return;
 				}
-			} else if (token.type.toLowerCase().contains("edge"))
-				edgeTokens.add(token);
-			else if (!token.type.toLowerCase()
-					.equalsIgnoreCase("configuration")) {
-				if (!confirmFileFormatWarning("Unknown command in line "
-						+ token.line, "cxf error"))
+
+				if (isEdge(token))
+					edges.add(token);
+				else if (!addRecord(token, builder))
 					return;
 			}
+
+			if (!addEdges(edges, 0, builder))
+				return;
+		} finally {
+			// what was read before an error is kept, nothing if cancelled
+			if (!cancelled)
+				builder.commit();
+			closeLexer();
 		}
 
-		for (Token t : edgeTokens) {
-			// We retrieve the vertex object from the identifiers in the edge
-			Vertex source = hash.get(t.id_source);
-			Vertex dest = hash.get(t.id_dest);
-			if ((source == null) || (dest == null)) {
-				if (!confirmFileFormatWarning(
-						"Malformed edge (nonexistent endpoint): ("
-								+ t.id_source + "," + t.id_dest + ") in line "
-								+ t.line, "cxf error"))
+		this.setNetworkFileName(graphFile.getName());
+	}
+
+	/**
+	 * Parses the file in chunks on loadThreads threads. The chunks start at
+	 * record boundaries. Their nodes are added to the graph in file order
+	 * first, then their edges, so the diagnostics are the same as when
+	 * loading sequentially. At most loadThreads + 1 chunks are read ahead of
+	 * the one whose nodes are being added, and only the edge records of a
+	 * chunk are kept once its nodes are in the builder.
+	 */
+	private void loadChunks(File graphFile) throws FileNotFoundException {
+		RandomAccessFile file = new RandomAccessFile(graphFile, "r");
+		ExecutorService executor = Executors.newFixedThreadPool(loadThreads);
+		NetworkBuilder builder = new NetworkBuilder(this);
+		boolean cancelled = false;
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+			List<Chunk> chunks = new ArrayList<Chunk>();
+			long from = 0;
+
+			int lineOffset = 0;
+			long bytes = 0;
+			int records = 0;
+			while (from < size || !pending.isEmpty()) {
+				while (from < size && pending.size() <= loadThreads) {
+					long to = CxfLexer.nextRecordStart(channel, from
+							+ CHUNK_SIZE);
+					pending.add(executor.submit(new ChunkParser(channel, from,
+							(int) (to - from))));
+					from = to;
+				}
+
+				Chunk chunk = pending.poll().get();
+				chunk.lineOffset = lineOffset;
+				lineOffset += chunk.lines;
+
+				bytes += chunk.bytes;
+				records += chunk.records;
+				if (!reportProgress(bytes, size, records)) {
+					cancelled = true;
+					return;
+				}
+
+				if (!addNodes(chunk, builder))
+					return;
+				chunk.nodes = null;
+				chunk.tokens = null;
+				chunks.add(chunk);
+			}
+
+			for (Chunk chunk : chunks)
+				if (!addEdges(chunk.edges, chunk.lineOffset, builder))
 					return;
+		} catch (ExecutionException exEx) {
+			if (exEx.getCause() instanceof RuntimeException)
+				throw (RuntimeException) exEx.getCause();
+			inputError(exEx.getCause());
+		} catch (IOException ioEx) {
+			inputError(ioEx);
+		} catch (InterruptedException iEx) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			if (!cancelled)
+				builder.commit();
+			try {
+				file.close();
+			} catch (IOException ioEx) {
+				closeError(ioEx);
+			}
+		}
+	}
+
+	private void inputError(Throwable t) {
+		getDiagnostics().error("Input error", String.valueOf(t.getMessage()));
+	}
+
+	/**
+	 * Reports a failure to close the input, after everything was read.
+	 */
+	private void closeError(IOException ioEx) {
+		getDiagnostics().warning("Input error",
+				"Closing the input failed: " + ioEx.getMessage());
+	}
+
+	/**
+	 * Adds the nodes of a chunk to the builder, and reports and applies the
+	 * other records kept with their tokens, in file order.
+	 * 
+	 * @return false if the loading has to stop
+	 */
+	private boolean addNodes(Chunk chunk, NetworkBuilder builder) {
+		NodeRecords nodes = chunk.nodes;
+		int k = 0;
+
+		for (int i = 0; i <= nodes.size; i++) {
+			for (; k < chunk.tokens.size() && chunk.positions[k] == i; k++) {
+				Token token = chunk.tokens.get(k);
+				token.line += chunk.lineOffset;
+				report(token);
+				applyConfiguration(token);
+				if (!isEdge(token) && !addRecord(token, builder))
+					return false;
+			}
+
+			if (i == nodes.size)
+				break;
+
+			VertexAttributes v = builder.addVertex(nodes.ids[i]);
+			if (v == null) {
+				if (!getDiagnostics().error("Double node identifier",
+						"Double node identifier: " + nodes.ids[i]
+								+ " in line "
+								+ (nodes.lines[i] + chunk.lineOffset)))
+					return false;
+				continue;
+			}
+			nodes.setAttributes(i, v);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Records parsed from a part of the file.
+	 */
+	private static class Chunk {
+		NodeRecords nodes = new NodeRecords();
+		final EdgeRecords edges = new EdgeRecords();
+		// the other records and the ones with warnings, kept with their
+		// tokens, and the number of node records before each of them
+		ArrayList<Token> tokens = new ArrayList<Token>();
+		int[] positions = new int[16];
+		int lines = 0;
+		int lineOffset = 0;
+		int bytes = 0;
+		int records = 0;
+
+		void keep(Token token) {
+			if (tokens.size() == positions.length)
+				positions = Arrays.copyOf(positions, positions.length * 2);
+			positions[tokens.size()] = nodes.size;
+			tokens.add(token);
+		}
+	}
+
+	private class ChunkParser implements Callable<Chunk> {
+
+		private final FileChannel channel;
+		private final long from;
+		private final int length;
+
+		ChunkParser(FileChannel channel, long from, int length) {
+			this.channel = channel;
+			this.from = from;
+			this.length = length;
+		}
+
+		@Override
+		public Chunk call() throws IOException {
+			byte[] data = new byte[length];
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining())
+				if (channel.read(buffer, from + buffer.position()) < 0)
+					break;
+
+			Chunk chunk = new Chunk();
+			chunk.bytes = buffer.position();
+			for (int i = 0; i < buffer.position(); i++)
+				if (data[i] == '\n')
+					chunk.lines++;
+
+			CxfLexer lexer = new CxfLexer(data, buffer.position());
+			// nodes and edges without warnings are copied, their token is
+			// reused
+			Token token = new Token();
+			while (readToken(lexer, token) != null) {
+				chunk.records++;
+				if (isEdge(token)) {
+					chunk.edges.add(token);
+					if (token.warnings == null)
+						continue;
+				} else if (isNode(token) && token.warnings == null) {
+					chunk.nodes.add(token);
+					continue;
+				}
+				chunk.keep(token);
+				token = new Token();
+			}
+
+			return chunk;
+		}
+	}
+
+	/**
+	 * Nodes parsed by a {@link ChunkParser}, copied from their tokens into
+	 * arrays until they are added in file order.
+	 */
+	private static class NodeRecords {
+		private static final byte POSITION = 1;
+		private static final byte HIDDEN = 2;
+		private static final byte ROOT = 4;
+
+		int size = 0;
+		int[] ids = new int[1024];
+		int[] lines = new int[1024];
+		String[] labels = new String[1024];
+		float[] sizes = new float[1024];
+		String[] shapes = new String[1024];
+		// packed RGB with the alpha bits set, 0 if not given
+		int[] colors = new int[1024];
+		int[] borderColors = new int[1024];
+		int[] widths = new int[1024];
+		String[] var1s = new String[1024];
+		String[] var2s = new String[1024];
+		double[] xs = new double[1024];
+		double[] ys = new double[1024];
+		byte[] flags = new byte[1024];
+
+		void add(Token token) {
+			if (size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				lines = Arrays.copyOf(lines, capacity);
+				labels = Arrays.copyOf(labels, capacity);
+				sizes = Arrays.copyOf(sizes, capacity);
+				shapes = Arrays.copyOf(shapes, capacity);
+				colors = Arrays.copyOf(colors, capacity);
+				borderColors = Arrays.copyOf(borderColors, capacity);
+				widths = Arrays.copyOf(widths, capacity);
+				var1s = Arrays.copyOf(var1s, capacity);
+				var2s = Arrays.copyOf(var2s, capacity);
+				xs = Arrays.copyOf(xs, capacity);
+				ys = Arrays.copyOf(ys, capacity);
+				flags = Arrays.copyOf(flags, capacity);
+			}
+
+			ids[size] = token.id;
+			lines[size] = token.line;
+			labels[size] = token.label;
+			sizes[size] = (float) token.size;
+			shapes[size] = token.shape;
+			colors[size] = token.color;
+			borderColors[size] = token.borderColor;
+			widths[size] = token.borderWidth;
+			var1s[size] = token.var1;
+			var2s[size] = token.var2;
+			xs[size] = token.x;
+			ys[size] = token.y;
+			flags[size] = (byte) ((token.hasPosition ? POSITION : 0)
+					| (token.hide ? HIDDEN : 0) | (token.isRoot ? ROOT : 0));
+			size++;
+		}
+
+		/**
+		 * Sets the attributes of a node, as
+		 * {@link CxfNetwork#setVertexAttributes(VertexAttributes, Token)}
+		 * does.
+		 */
+		void setAttributes(int i, VertexAttributes v) {
+			if (labels[i] != null)
+				v.setLabel(labels[i]);
+			if (!Float.isNaN(sizes[i]))
+				v.setSize(sizes[i]);
+			if (shapes[i] != null)
+				v.setShape(shapes[i]);
+			if (colors[i] != 0)
+				v.setFillRGB(colors[i]);
+			if (borderColors[i] != 0)
+				v.setBorderRGB(borderColors[i]);
+			if ((flags[i] & POSITION) != 0)
+				v.setPosition(xs[i], ys[i]);
+			if (widths[i] != NO_WIDTH)
+				v.setWidth(widths[i]);
+			if ((flags[i] & ROOT) != 0)
+				v.setIsRoot(true);
+			if (var1s[i] != null)
+				v.setVar1(var1s[i]);
+			if (var2s[i] != null)
+				v.setVar2(var2s[i]);
+			v.setExcluded((flags[i] & HIDDEN) != 0);
+		}
+	}
+
+	/**
+	 * Edges waiting for all the nodes to be loaded, copied from their tokens
+	 * into arrays. The attributes other than the weight are kept apart for
+	 * the edges that have any.
+	 */
+	private static class EdgeRecords {
+		int size = 0;
+		int[] sources = new int[1024];
+		int[] targets = new int[1024];
+		int[] lines = new int[1024];
+		float[] weights = new float[1024];
+		// the position of the attributes of the edge, -1 if it has none
+		int[] details = new int[1024];
+
+		int detailCount = 0;
+		boolean[] missingEndpoints = new boolean[16];
+		String[] labels = new String[16];
+		float[] widths = new float[16];
+		int[] colors = new int[16];
+		String[] var1s = new String[16];
+		String[] var2s = new String[16];
+		boolean[] hidden = new boolean[16];
+
+		void add(Token token) {
+			if (size == sources.length) {
+				int capacity = size * 2;
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				lines = Arrays.copyOf(lines, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+				details = Arrays.copyOf(details, capacity);
+			}
+
+			boolean plain = token.hasEndpoints && token.label == null
+					&& Double.isNaN(token.size) && token.color == 0
+					&& token.var1 == null && token.var2 == null
+					&& !token.hide;
+
+			sources[size] = token.id_source;
+			targets[size] = token.id_dest;
+			lines[size] = token.line;
+			weights[size] = Double.isNaN(token.weight) ? 1
+					: (float) token.weight;
+			details[size] = plain ? -1 : addDetails(token);
+			size++;
+		}
+
+		private int addDetails(Token token) {
+			if (detailCount == labels.length) {
+				int capacity = detailCount * 2;
+				missingEndpoints = Arrays.copyOf(missingEndpoints, capacity);
+				labels = Arrays.copyOf(labels, capacity);
+				widths = Arrays.copyOf(widths, capacity);
+				colors = Arrays.copyOf(colors, capacity);
+				var1s = Arrays.copyOf(var1s, capacity);
+				var2s = Arrays.copyOf(var2s, capacity);
+				hidden = Arrays.copyOf(hidden, capacity);
+			}
+
+			missingEndpoints[detailCount] = !token.hasEndpoints;
+			labels[detailCount] = token.label;
+			widths[detailCount] = (float) token.size;
+			colors[detailCount] = token.color;
+			var1s[detailCount] = token.var1;
+			var2s[detailCount] = token.var2;
+			hidden[detailCount] = token.hide;
+			return detailCount++;
+		}
+
+		/**
+		 * Sets the attributes kept for an edge, as
+		 * {@link CxfNetwork#setEdgeAttributes(EdgeAttributes, Token)} does.
+		 */
+		void setAttributes(int i, EdgeAttributes e) {
+			int d = details[i];
+			if (d < 0)
+				return;
+
+			if (labels[d] != null)
+				e.setLabel(labels[d]);
+			if (!Float.isNaN(widths[d]))
+				e.setWidth(widths[d]);
+			if (colors[d] != 0)
+				e.setRGB(colors[d]);
+			if (var1s[d] != null)
+				e.setVar1(var1s[d]);
+			if (var2s[d] != null)
+				e.setVar2(var2s[d]);
+			e.setExcluded(hidden[d]);
+		}
+
+		/**
+		 * @return the endpoints of an edge as written in the messages
+		 */
+		String endpoints(int i) {
+			int d = details[i];
+			if (d >= 0 && missingEndpoints[d])
+				return "null,null";
+			return sources[i] + "," + targets[i];
+		}
+	}
+
+	/**
+	 * @return whether the token is a well formed edge, malformed ones are
+	 *         reported by {@link #addRecord(Token, NetworkBuilder)}
+	 */
+	private static boolean isEdge(Token token) {
+		return token.malformed == null && token.type != null
+				&& token.type.contains("edge");
+	}
+
+	/**
+	 * @return whether the token is a well formed node with an identifier,
+	 *         the others are reported by
+	 *         {@link #addRecord(Token, NetworkBuilder)}
+	 */
+	private static boolean isNode(Token token) {
+		return token.malformed == null && token.type != null
+				&& token.type.contains("node") && token.hasId;
+	}
+
+	/**
+	 * Adds a parsed node to the builder. Edges are added by
+	 * {@link #addEdges(EdgeRecords, int, NetworkBuilder)} once all the nodes
+	 * are there.
+	 * 
+	 * @return false if the user cancelled the loading
+	 */
+	private boolean addRecord(Token token, NetworkBuilder builder) {
+		if (token.malformed != null)
+			return getDiagnostics().error("Malformed number",
+					"Malformed " + token.type + " in line " + token.line
+							+ ": " + token.malformed);
+
+		if (token.type != null && token.type.contains("node")) {
+			if (!token.hasId)
+				return getDiagnostics().error("Missing node identifier",
+						"Missing node identifier in line " + token.line);
+
+			VertexAttributes v = builder.addVertex(token.id);
+
+			if (v == null)
+				return getDiagnostics().error("Double node identifier",
+						"Double node identifier: " + token.id + " in line "
+								+ token.line);
+
+			setVertexAttributes(v, token);
+		} else if (!"configuration".equals(token.type)) {
+			return getDiagnostics().error("Unknown command",
+					"Unknown command in line " + token.line);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return false if the user cancelled the loading
+	 */
+	private boolean addEdges(EdgeRecords edges, int lineOffset,
+			NetworkBuilder builder) {
+		for (int i = 0; i < edges.size; i++) {
+			int d = edges.details[i];
+			// The builder resolves the identifiers of the endpoints
+			EdgeAttributes e = null;
+			if (d < 0 || !edges.missingEndpoints[d])
+				e = builder.addEdge(edges.sources[i], edges.targets[i],
+						edges.weights[i], isDirected());
+
+			if (e == null) {
+				if (!getDiagnostics().error("Malformed edge",
+						"Malformed edge (nonexistent endpoint): ("
+								+ edges.endpoints(i) + ") in line "
+								+ (edges.lines[i] + lineOffset)))
+					return false;
 			} else {
-				Edge e = createEdge(t);
-				addEdge(e);
+				edges.setAttributes(i, e);
 			}
 		}
-		line = null;
 
-		this.setNetworkFileName(graphFile.getName());
+		return true;
 	}
 
 	/**
@@ -220,420 +761,360 @@ public class CxfNetwork extends BrowsableNetwork {
 	public void reload() {
 		try {
 			load(graphFile);
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+		} catch (FileNotFoundException fnfEx) {
+			inputError(fnfEx);
+		}
+	}
+
+	/**
+	 * Closes the input of the lexer, if any.
+	 */
+	void closeLexer() {
+		if (lexer == null)
+			return;
+
+		try {
+			lexer.close();
+		} catch (IOException ioEx) {
+			closeError(ioEx);
 		}
+		lexer = null;
 	}
 
-	private static final String BRACES = "}";
-	private static final String WHITESPACES = " \t\r\n";
+	private static final String[] TYPES = { "node", "edge", "addnode",
+			"addedge", "removenode", "removeedge", "editnode", "editedge",
+			"options", "layout", "configuration" };
 
 	/**
-	 * Retrieves the next parsed token from the input
+	 * Retrieves the next parsed token from the input, after showing its
+	 * warnings and applying it if it is a configuration.
 	 * 
 	 * @return the created structure with the available data from the file
 	 */
 	Token getNextToken() {
-		Token token = new Token();
+		return getNextToken(lexer, new Token());
+	}
+
+	/**
+	 * @see #getNextToken()
+	 */
+	Token getNextToken(CxfLexer lexer) {
+		return getNextToken(lexer, new Token());
+	}
+
+	/**
+	 * Reads the next record into the given token, see {@link #getNextToken()}.
+	 * 
+	 * @return the token, or null at the end of the input
+	 */
+	Token getNextToken(CxfLexer lexer, Token token) {
 		try {
-			if (line == null) {
-				if ((line = br.readLine()) == null)
-					return null;
-				lineNum++;
+			token = readToken(lexer, token);
+			if (token != null) {
+				report(token);
+				applyConfiguration(token);
 			}
-			token.line = lineNum - 1;
+			return token;
+		} catch (IOException ioEx) {
+			inputError(ioEx);
+			return null;
+		}
+	}
 
-			ArrayList<String> lineFields = getFields(line);
+	/**
+	 * Parses the next record of the lexer into the given token, which is
+	 * cleared first. This method does not change the network, the problems
+	 * found are added to the token.
+	 * 
+	 * @return the token, or null at the end of the input
+	 */
+	Token readToken(CxfLexer lexer, Token token) throws IOException {
+		token.clear();
+
+		// records without fields, like leading blank lines, are skipped
+		do {
+			if (!lexer.nextRecord())
+				return null;
+		} while (!lexer.nextField());
+		token.line = lexer.getLine();
+		token.offset = lexer.getRecordOffset();
+
+		int from = 0;
+		int to = lexer.length();
+		if (lexer.charAt(0) == '[') {
+			token.freeze = true;
+			if (to >= 3)
+				from = 1;
+			else if (lexer.nextField())
+				to = lexer.length();
+			else
+				return token;
+		}
 
-			line = br.readLine();
+		if (to > from && lexer.charAt(to - 1) == ']') {
+			to--;
+			token.commit = true;
+		}
 
-			String lineLc;
-			if (line != null)
-				lineLc = new String(line.toLowerCase());
-			else
-				lineLc = null;
-			lineNum++;
-
-			while (notFinal(lineLc)) {
-
-				lineFields.addAll(getFields(line));
-				line = br.readLine();
-				if (line != null)
-					lineLc = new String(line.toLowerCase());
-				else
-					lineLc = null;
-				lineNum++;
-			}
+		int colon = lexer.indexOf(':', from);
+		String type = typeOf(lexer, from, colon < 0 || colon > to ? to
+				: colon);
 
-			Iterator<String> it = lineFields.iterator();
-			String field = it.next();
-			// if (field.equals("[")) {
-			// field = it.next();
-			if (field.startsWith("[")) {
-				if ((field.length() < 3) && (it.hasNext()))
-					field = it.next();
-				else
-					field = field.substring(1);
-				token.freeze = true;
-			}
+		try {
+			if (type.contains("node"))
+				parseNode(lexer, token, type);
 
-			if (field.endsWith("]")) {
-				// field = it.next();
-				field = field.substring(0, field.length() - 1);
-				token.commit = true;
-			}
+			else if (type.contains("edge"))
+				parseEdge(lexer, token, type);
 
-			if (field.toLowerCase().contains("node"))
-				token = parseNode(token, field.toLowerCase(), it);
-
-			else if (field.toLowerCase().contains("edge"))
-				token = parseEdge(token, field.toLowerCase(), it);
-
-			else if (field.toLowerCase().contains("options"))
-				token = parseOptions(token, field.toLowerCase(), it);
-
-			else if (lineFields.get(0).equalsIgnoreCase("configuration:")) {
-				while (it.hasNext()) {
-					field = it.next();
-					if (field.equalsIgnoreCase("undirected"))
-						setDirected(false);
-					else if (field.equalsIgnoreCase("hide_node_labels"))
-						hideVertexLabels = true;
-					else if (field.equalsIgnoreCase("hide_edge_labels"))
-						hideEdgeLabels = true;
-					else if (field.equalsIgnoreCase("draw_straight_edges"))
-						edgeShape = Constants.LINE_STRAIGHT;
-					else if (field.equalsIgnoreCase("multi_graph"))
-						multiGraph = true;
-					else {
-						JOptionPane.showMessageDialog(null,
-								"Unknown configuration line " + token.line,
-								"cxf error", JOptionPane.WARNING_MESSAGE);
-						System.out.println("Unknown field configuration line "
-								+ token.line);
-					}
-				}
-				token.type = "configuration";
+			else if (type.contains("options"))
+				parseOptions(lexer, token, type);
 
-			} else if (lineFields.get(0).equalsIgnoreCase("layout:")) {
-				token = parseLayout(token, field.toLowerCase(), it);
+			else if (type.equals("configuration"))
+				parseConfiguration(lexer, token);
 
-			} else if ((!lineFields.isEmpty()) && (!token.freeze)
-					&& (!token.commit)) {
-				JOptionPane.showMessageDialog(null, "Unknown object in line "
-						+ token.line, "cxf error", JOptionPane.WARNING_MESSAGE);
-				System.out.println("Unkown object in line " + token.line);
-			}
+			else if (type.equals("layout"))
+				parseLayout(lexer, token, type);
 
-		} catch (IOException ioEx) {
-			JOptionPane.showMessageDialog(null, ioEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("Input error");
-			ioEx.printStackTrace();
+			else if (!token.freeze && !token.commit)
+				token.warn("Unknown object");
+		} catch (NumberFormatException nfEx) {
+			// nextRecord() skips the fields left
+			token.malformed = nfEx.getMessage();
 		}
 
 		return token;
 	}
 
-	private ArrayList<String> getFields(String line) {
-		ArrayList<String> lineFields = new ArrayList<String>();
-		String currentDelims = WHITESPACES;
-		StringTokenizer parser = new StringTokenizer(line, currentDelims, true);
-
-		String field = null;
-		String fieldaux = null;
-		while (parser.hasMoreTokens()) {
-			field = parser.nextToken(currentDelims);
-			if (!field.equals(" ") && !field.equals("\t")
-					&& !field.equals("\n") && !field.equals("\r")) {
-				if ((!((field.contains("{") && !field.contains("}"))
-
-				|| (!field.contains("{") && field.contains("}"))))
-						&& (fieldaux == null)) {
-					lineFields.add(field.trim());
-				} else {
-					if (fieldaux == null) {
-						fieldaux = field;
-						currentDelims = flipDelimiters(currentDelims);
-					} else {
-						fieldaux = fieldaux.concat(field);
-						currentDelims = flipDelimiters(currentDelims);
-						fieldaux = fieldaux.concat(parser.nextToken());
-						lineFields.add(fieldaux);
-						fieldaux = null;
-					}
+	/**
+	 * Reports the problems found while parsing a token as warnings.
+	 */
+	private void report(Token token) {
+		if (token.warnings == null)
+			return;
+
+		for (String problem : token.warnings) {
+			getDiagnostics().warning(problem,
+					problem + " in line " + token.line);
+		}
+	}
+
+	/**
+	 * @return the lower case type of the record, without allocating for the
+	 *         known ones
+	 */
+	private static String typeOf(CxfLexer lexer, int from, int to) {
+		for (String type : TYPES)
+			if (type.length() == to - from
+					&& lexer.regionMatches(from, type, true))
+				return type;
+
+		return lexer.text(from, to).toLowerCase();
+	}
+
+	private static final String[] CONFIGURATION = { "undirected",
+			"hide_node_labels", "hide_edge_labels", "draw_straight_edges",
+			"multi_graph" };
+
+	private void parseConfiguration(CxfLexer lexer, Token token)
+			throws IOException {
+		token.type = "configuration";
+		token.params = new HashMap<String, String>();
+
+		fields: while (lexer.nextField()) {
+			for (String option : CONFIGURATION)
+				if (lexer.length() == option.length()
+						&& lexer.regionMatches(0, option, true)) {
+					token.params.put(option, "");
+					continue fields;
 				}
-			}
+
+			token.warn("Unknown configuration");
 		}
-		return lineFields;
-	}
-
-	private boolean notFinal(String lineLc) {
-		return (lineLc != null)
-				&& !(lineLc.startsWith("node") || lineLc.startsWith("edge")
-						|| lineLc.startsWith("addnode")
-						|| lineLc.startsWith("addedge")
-						|| lineLc.startsWith("removenode")
-						|| lineLc.startsWith("removeedge")
-						|| lineLc.startsWith("editnode")
-						|| lineLc.startsWith("editedge")
-						|| lineLc.startsWith("layout") || lineLc
-							.startsWith("["));
-	}
-
-	private Token parseOptions(Token t, String preField, Iterator<String> it) {
-		String field = null;
-		Token token = t;
-		token.type = preField.substring(0, preField.indexOf(":"));
-		while (it.hasNext()) {
-			field = it.next();
-			if (field.startsWith("label")) {
-				token.label = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			} else if (field.startsWith("sleepTime")) {
-				token.sleepTime = Integer.parseInt(field.substring(
-						field.indexOf('{') + 1, field.indexOf('}')));
-			} else if (field.startsWith("maxUpdateSteps")) {
-				token.maxUpdateSteps = Integer.parseInt(field.substring(
-						field.indexOf('{') + 1, field.indexOf('}')));
+	}
+
+	private void applyConfiguration(Token token) {
+		if (!"configuration".equals(token.type))
+			return;
+
+		if (token.params.containsKey("undirected"))
+			setDirected(false);
+		if (token.params.containsKey("hide_node_labels"))
+			hideVertexLabels = true;
+		if (token.params.containsKey("hide_edge_labels"))
+			hideEdgeLabels = true;
+		if (token.params.containsKey("draw_straight_edges"))
+			edgeShape = Constants.LINE_STRAIGHT;
+		if (token.params.containsKey("multi_graph"))
+			multiGraph = true;
+	}
+
+	private void parseOptions(CxfLexer lexer, Token token, String type)
+			throws IOException {
+		token.type = type;
+		while (lexer.nextField()) {
+			if (lexer.startsWith("label")) {
+				token.label = lexer.value();
+			} else if (lexer.startsWith("sleepTime")) {
+				token.sleepTime = lexer.integer();
+			} else if (lexer.startsWith("maxUpdateSteps")) {
+				token.maxUpdateSteps = lexer.integer();
 			} else {
-				System.out.println("WARNING: Improper use of label: "
-						+ token.line);
+				token.warn("Improper use of label");
 			}
 		}
-		return token;
 	}
 
 	// used to enable CEF layout parameters
 	private static final boolean USE_LAYOUT_PARAMS = true;
 
-	private Token parseLayout(Token token, String preField, Iterator<String> it) {
-		int i = preField.indexOf(":");
-		String field;
-		token.type = preField.substring(0, i); // type: layout
-		token.var1 = it.next(); // var1: layout name
+	private void parseLayout(CxfLexer lexer, Token token, String type)
+			throws IOException {
+		token.type = type; // type: layout
+		if (!lexer.nextField())
+			return;
+		token.var1 = lexer.text(); // var1: layout name
 
 		if (USE_LAYOUT_PARAMS) {
-			if (it.hasNext() && token.params == null) {
-				token.params = new HashMap<String, String>();
-			}
-
 			// arguments list
 			// arg{val}
-			while (it.hasNext()) {
-				field = it.next();
+			while (lexer.nextField()) {
+				if (token.params == null)
+					token.params = new HashMap<String, String>();
 
-				if (field.contains("]")) {
+				if (lexer.contains(']')) {
 					token.commit = true;
 					break;
 				}
 
-				int l = field.indexOf("{");
-				int r = field.indexOf("}");
-				String arg = field.substring(0, l);
-				String val = field.substring(l + 1, r);
-
-				token.params.put(arg, val);
+				token.params.put(lexer.name(), lexer.value());
 			}
 		}
-
-		return token;
 	}
 
-	private Token parseNode(Token t, String preField, Iterator<String> it) {
-		String field = null;
-		Token token = t;
-		token.type = preField.substring(0, preField.indexOf(":"));
-		float R, G, B;
-		double x, y;
-		while (it.hasNext()) {
-			field = it.next();
-			if (field.startsWith("(")) {
-				if (token.id == null)
-					token.id = Integer.parseInt(field.substring(1,
-							field.indexOf(')')));
-				else {
-					JOptionPane.showMessageDialog(null,
-							"Two identifiers for the same node in line "
-									+ token.line, "cxf error",
-							JOptionPane.WARNING_MESSAGE);
-					System.out
-							.println("WARNING: two identifiers for the same node: "
-									+ token.line);
-				}
-			} else if (field.startsWith("label")) {
-				while (field.indexOf('}') < 0)
-					field = field.concat(" " + it.next());
-				token.label = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			} else if (field.startsWith("color")) {
-				int pos = field.indexOf('{') + 1;
-				try {
-					R = Float.parseFloat(field.substring(pos,
-							field.indexOf(',', pos)));
-					pos = field.indexOf(',', pos) + 1;
-					G = Float.parseFloat(field.substring(pos,
-							field.indexOf(',', pos)));
-					pos = field.indexOf(',', pos) + 1;
-					B = Float.parseFloat(field.substring(pos,
-							field.indexOf('}', pos)));
-					token.color = new Color(R, G, B);
-				} catch (Exception nfEx) {
-					JOptionPane.showMessageDialog(null,
-							"Malformed color in line " + token.line,
-							"cxf error", JOptionPane.WARNING_MESSAGE);
-					System.out.println("Malformed color in line " + token.line);
-				}
-			} else if (field.startsWith("borderColor")) {
-				int pos = field.indexOf('{') + 1;
-
-				try {
-					R = Float.parseFloat(field.substring(pos,
-							field.indexOf(',', pos)));
-					pos = field.indexOf(',', pos) + 1;
-					G = Float.parseFloat(field.substring(pos,
-							field.indexOf(',', pos)));
-					pos = field.indexOf(',', pos) + 1;
-					B = Float.parseFloat(field.substring(pos,
-							field.indexOf('}', pos)));
-					token.borderColor = new Color(R, G, B);
-				} catch (Exception nfEx) {
-					JOptionPane.showMessageDialog(null,
-							"Malformed color in line " + token.line,
-							"cxf error", JOptionPane.WARNING_MESSAGE);
-					System.out.println("Malformed color in line " + token.line);
-				}
-			} else if (field.startsWith("root")) {
+	private void parseNode(CxfLexer lexer, Token token, String type)
+			throws IOException {
+		token.type = type;
+		boolean closing = false;
+		while (lexer.nextField()) {
+			closing = lexer.contains(']');
+			if (lexer.startsWith("(")) {
+				if (!token.hasId) {
+					token.id = lexer.integer();
+					token.hasId = true;
+				} else
+					token.warn("Two identifiers for the same node");
+			} else if (lexer.startsWith("label")) {
+				token.label = lexer.value();
+			} else if (lexer.startsWith("color")) {
+				token.color = parseColor(lexer, token);
+			} else if (lexer.startsWith("borderColor")) {
+				token.borderColor = parseColor(lexer, token);
+			} else if (lexer.startsWith("root")) {
 				token.isRoot = true;
-			} else if (field.startsWith("size"))
-				token.size = new Double(Double.parseDouble(field.substring(
-						field.indexOf('{') + 1, field.indexOf('}'))));
-			else if (field.startsWith("shape"))
-				token.shape = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			else if (field.startsWith("width"))
-				token.borderWidth = new Integer(Integer.parseInt(field
-						.substring(field.indexOf('{') + 1, field.indexOf('}'))));
-			else if (field.startsWith("position")) {
-				int pos = field.indexOf('{') + 1;
-				x = Double.parseDouble(field.substring(pos,
-						field.indexOf(',', pos)));
-				pos = field.indexOf(',', pos) + 1;
-				y = Double.parseDouble(field.substring(pos,
-						field.indexOf('}', pos)));
-				token.position = new Point2D.Double(x, y);
-			} else if (field.startsWith("var1"))
-				token.var1 = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			else if (field.startsWith("var2"))
-				token.var2 = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			else if (field.startsWith("hide"))
+			} else if (lexer.startsWith("size"))
+				token.size = lexer.number();
+			else if (lexer.startsWith("shape"))
+				token.shape = lexer.value();
+			else if (lexer.startsWith("width"))
+				token.borderWidth = lexer.integer();
+			else if (lexer.startsWith("position")) {
+				lexer.numbers(token.xy);
+				token.x = token.xy[0];
+				token.y = token.xy[1];
+				token.hasPosition = true;
+			} else if (lexer.startsWith("var1"))
+				token.var1 = lexer.value();
+			else if (lexer.startsWith("var2"))
+				token.var2 = lexer.value();
+			else if (lexer.startsWith("hide"))
 				token.hide = true;
-			else if (!(field.contains("[") || field.contains("]"))) {
-				JOptionPane.showMessageDialog(null,
-						"Unknown node property in line " + token.line,
-						"cxf error", JOptionPane.WARNING_MESSAGE);
-				System.out.println("Unknown node property in line "
-						+ (lineNum - 1));
-			}
+			else if (!(lexer.contains('[') || closing))
+				token.warn("Unknown node property");
 		}
-		if (field.contains("]"))
+		if (closing)
 			token.commit = true;
-		return token;
 	}
 
-	private Token parseEdge(Token t, String preField, Iterator<String> it) {
-		String field = null;
-		;
-		Token token = t;
-		token.type = preField.substring(0, preField.indexOf(":"));
-		float R, G, B;
-		while (it.hasNext()) {
-			field = it.next();
-			if (field.startsWith("(")) {
-				token.id_source = Integer.parseInt(field.substring(1,
-						field.indexOf(',')));
-				token.id_dest = Integer.parseInt(field.substring(
-						field.indexOf(',') + 1, field.indexOf(')')));
-			} else if (field.startsWith("label")) {
-				while (field.indexOf('}') < 0)
-					field = field.concat(" " + it.next());
-				token.label = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			} else if (field.startsWith("weight"))
-				token.weight = new Double(Double.parseDouble(field.substring(
-						field.indexOf('{') + 1, field.indexOf('}'))));
-			else if (field.startsWith("width"))
-				token.size = new Double(Double.parseDouble(field.substring(
-						field.indexOf('{') + 1, field.indexOf('}'))));
-			else if (field.startsWith("color")) {
-				int pos = field.indexOf('{') + 1;
-				try {
-					R = Float.parseFloat(field.substring(pos,
-							field.indexOf(',', pos)));
-					pos = field.indexOf(',', pos) + 1;
-					G = Float.parseFloat(field.substring(pos,
-							field.indexOf(',', pos)));
-					pos = field.indexOf(',', pos) + 1;
-					B = Float.parseFloat(field.substring(pos,
-							field.indexOf('}', pos)));
-					token.color = new Color(R, G, B);
-				} catch (Exception nfEx) {
-					JOptionPane.showMessageDialog(null,
-							"Malformed color in line " + token.line,
-							"cxf error", JOptionPane.WARNING_MESSAGE);
-					System.out.println("Malformed color in line " + token.line);
-				}
-			} else if (field.startsWith("var1"))
-				token.var1 = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			else if (field.startsWith("var2"))
-				token.var2 = field.substring(field.indexOf('{') + 1,
-						field.indexOf('}'));
-			else if (field.startsWith("hide"))
+	private void parseEdge(CxfLexer lexer, Token token, String type)
+			throws IOException {
+		token.type = type;
+		while (lexer.nextField()) {
+			if (lexer.startsWith("(")) {
+				lexer.integers(token.pair);
+				token.id_source = token.pair[0];
+				token.id_dest = token.pair[1];
+				token.hasEndpoints = true;
+			} else if (lexer.startsWith("label")) {
+				token.label = lexer.value();
+			} else if (lexer.startsWith("weight"))
+				token.weight = lexer.number();
+			else if (lexer.startsWith("width"))
+				token.size = lexer.number();
+			else if (lexer.startsWith("color")) {
+				token.color = parseColor(lexer, token);
+			} else if (lexer.startsWith("var1"))
+				token.var1 = lexer.value();
+			else if (lexer.startsWith("var2"))
+				token.var2 = lexer.value();
+			else if (lexer.startsWith("hide"))
 				token.hide = true;
-			else if (field.contains("]"))
+			else if (lexer.contains(']'))
 				token.commit = true;
-			else {
-				JOptionPane.showMessageDialog(null,
-						"Unknown edge property in line " + token.line,
-						"cxf error", JOptionPane.WARNING_MESSAGE);
-				System.out.println("Unknown edge property in line "
-						+ (lineNum - 1));
-			}
+			else
+				token.warn("Unknown edge property");
 		}
-		return token;
 	}
 
-	private String flipDelimiters(String aCurrentDelims) {
-		String result = null;
-		if (aCurrentDelims.equals(WHITESPACES)) {
-			result = BRACES;
-		} else {
-			result = WHITESPACES;
+	/**
+	 * @return the color{r,g,b} of the current field as packed RGB with the
+	 *         alpha bits set, or 0 if it is malformed
+	 */
+	private static int parseColor(CxfLexer lexer, Token token) {
+		double[] rgb = token.rgb;
+		try {
+			lexer.numbers(rgb);
+		} catch (Exception nfEx) {
+			token.warn("Malformed color");
+			return 0;
+		}
+
+		int color = 0xFF000000;
+		for (int k = 0; k < 3; k++) {
+			if (!(rgb[k] >= 0 && rgb[k] <= 1)) {
+				token.warn("Malformed color");
+				return 0;
+			}
+			// rounded as by the float constructor of Color
+			color |= (int) ((float) rgb[k] * 255 + 0.5) << (16 - 8 * k);
 		}
-		return result;
+
+		return color;
 	}
 
 	Vertex createVertex(Token token) {
 		Vertex v = new Vertex(token.id);
+		setVertexAttributes(v, token);
+
+		return v;
+	}
 
+	void setVertexAttributes(VertexAttributes v, Token token) {
 		if (token.label != null)
 			v.setLabel(token.label);
-		if (token.size != null)
+		if (!Double.isNaN(token.size))
 			v.setSize(token.size);
 		if (token.shape != null)
 			v.setShape(token.shape);
-		if (token.color != null)
-			v.setFillColor(token.color);
-		if (token.borderColor != null)
-			v.setBorderColor(token.borderColor);
-		if (token.position != null) {
+		if (token.color != 0)
+			v.setFillRGB(token.color);
+		if (token.borderColor != 0)
+			v.setBorderRGB(token.borderColor);
+		if (token.hasPosition) {
 			// v.setFixed(true);
-			v.setPosition(token.position);
+			v.setPosition(token.x, token.y);
 		}
-		if (token.borderWidth != null)
+		if (token.borderWidth != NO_WIDTH)
 			v.setWidth(token.borderWidth);
 		if (token.isRoot)
 			v.setIsRoot(token.isRoot);
@@ -642,34 +1123,59 @@ public class CxfNetwork extends BrowsableNetwork {
 		if (token.var2 != null)
 			v.setVar2(token.var2);
 		v.setExcluded(token.hide);
+	}
 
-		return v;
+	/**
+	 * @return the vertex with the identifier given in a token, or null if the
+	 *         identifier is missing or unknown
+	 */
+	Vertex vertexFor(Token token) {
+		return token.hasId ? getVertexById(token.id) : null;
+	}
+
+	/**
+	 * @return the source of the edge given in a token, or null if the
+	 *         endpoints are missing or the source is unknown
+	 */
+	Vertex sourceFor(Token token) {
+		return token.hasEndpoints ? getVertexById(token.id_source) : null;
+	}
+
+	/**
+	 * @return the target of the edge given in a token, or null if the
+	 *         endpoints are missing or the target is unknown
+	 */
+	Vertex targetFor(Token token) {
+		return token.hasEndpoints ? getVertexById(token.id_dest) : null;
 	}
 
 	Edge createEdge(Token token) {
 		Edge e = null;
 
-		if (token.id_source != null && token.id_dest != null) {
-			e = new Edge(hash.get(token.id_source), hash.get(token.id_dest),
-					isDirected());
-			if (token.weight != null)
-				e.setWeight(token.weight);
-			if (token.label != null)
-				e.setLabel(token.label);
-			if (token.size != null)
-				e.setWidth(token.size);
-			if (token.color != null)
-				e.setColor(token.color);
-			if (token.var1 != null)
-				e.setVar1(token.var1);
-			if (token.var2 != null)
-				e.setVar2(token.var2);
-			e.setExcluded(token.hide);
+		if (token.hasEndpoints) {
+			e = new Edge(sourceFor(token), targetFor(token), isDirected());
+			setEdgeAttributes(e, token);
 		}
 
 		return e;
 	}
 
+	void setEdgeAttributes(EdgeAttributes e, Token token) {
+		if (!Double.isNaN(token.weight))
+			e.setWeight(token.weight);
+		if (token.label != null)
+			e.setLabel(token.label);
+		if (!Double.isNaN(token.size))
+			e.setWidth(token.size);
+		if (token.color != 0)
+			e.setRGB(token.color);
+		if (token.var1 != null)
+			e.setVar1(token.var1);
+		if (token.var2 != null)
+			e.setVar2(token.var2);
+		e.setExcluded(token.hide);
+	}
+
 	public boolean hideVertexLabels() {
 		return hideVertexLabels;
 	}
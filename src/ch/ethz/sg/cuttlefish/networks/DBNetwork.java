@@ -37,8 +37,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.swing.JOptionPane;
-
 import ch.ethz.sg.cuttlefish.Cuttlefish;
 
 
@@ -52,7 +50,6 @@ public class DBNetwork extends BrowsableNetwork {
 	private static final long serialVersionUID = 1L;
 
 	protected Connection conn;
-	private HashMap<Integer, Vertex> hash = new HashMap<Integer, Vertex>();
 	private String nodeFilter = "";
 	private String edgeFilter = "";
 	private String schemaName = "";
@@ -124,38 +121,27 @@ public class DBNetwork extends BrowsableNetwork {
 				isValid = (conn.isValid(100));
 			}
 			if ((conn == null) || !isValid)
-				JOptionPane.showMessageDialog(null, null,
-						"Error connecting to database " + dbName,
-						JOptionPane.ERROR_MESSAGE);
+				reportError("Connection error",
+						"Error connecting to database " + dbName);
 		} catch (ClassNotFoundException cnfEx) {
 			connected = false;
-			JOptionPane.showMessageDialog(null, cnfEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("Class com.mysql.jdc.Driver not found");
+			databaseError("Class com.mysql.jdc.Driver not found", cnfEx);
 			// cnfEx.printStackTrace();
 		} catch (IllegalAccessException iaEx) {
 			connected = false;
-			JOptionPane.showMessageDialog(null, iaEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("Illegal access in database connection");
+			databaseError("Illegal access in database connection", iaEx);
 			// iaEx.printStackTrace();
 		} catch (InstantiationException iEx) {
 			connected = false;
-			JOptionPane.showMessageDialog(null, iEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("Instantation exception");
+			databaseError("Instantation exception", iEx);
 			// iEx.printStackTrace();
 		} catch (SQLException sqlEx) {
 			connected = false;
-			JOptionPane.showMessageDialog(null, sqlEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("SQL error");
+			databaseError("SQL error", sqlEx);
 			// sqlEx.printStackTrace();
 		} catch (HeadlessException hEx) {
 			connected = false;
-			JOptionPane.showMessageDialog(null, hEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("SQL error");
+			databaseError("SQL error", hEx);
 			// hEx.printStackTrace();
 		}
 		if (connected) {
@@ -355,6 +341,21 @@ public class DBNetwork extends BrowsableNetwork {
 
 	}
 
+	/**
+	 * Reports an error of the database to the diagnostics of the network, and
+	 * publishes it right away, as the database is also queried outside of
+	 * the loading.
+	 */
+	private void reportError(String kind, String message) {
+		Cuttlefish.err(kind);
+		getDiagnostics().error(kind, message);
+		getDiagnostics().publish();
+	}
+
+	private void databaseError(String kind, Exception ex) {
+		reportError(kind, String.valueOf(ex.getMessage()));
+	}
+
 	/**
 	 * Method that closes the connection to the database, if existed
 	 */
@@ -362,9 +363,7 @@ public class DBNetwork extends BrowsableNetwork {
 		try {
 			conn.close();
 		} catch (SQLException sqlEx) {
-			JOptionPane.showMessageDialog(null, sqlEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("SQL error");
+			databaseError("SQL error", sqlEx);
 			sqlEx.printStackTrace();
 		}
 	}
@@ -373,7 +372,6 @@ public class DBNetwork extends BrowsableNetwork {
 	 * Method that disposes all nodes and edges of the current network
 	 */
 	public void emptyNetwork() {
-		hash.clear();
 		clearGraph();
 
 	}
@@ -444,8 +442,7 @@ public class DBNetwork extends BrowsableNetwork {
 				return false;
 			}
 		} catch (SQLException e) {			
-			JOptionPane.showMessageDialog(null, e.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
+			databaseError("SQL error", e);
 			e.printStackTrace();
 		}
 		return false;
@@ -459,15 +456,26 @@ public class DBNetwork extends BrowsableNetwork {
 	 */
 	public void nodeQuery(String queryStringOriginal) {
 		lastAction = "exploreNetwork";
-		syncHashTable();
-		Set<Vertex> visitedVertices = new HashSet<Vertex>();
+		Set<Integer> visitedIds = new HashSet<Integer>();
+		NetworkBuilder builder = new NetworkBuilder(this);
 		try {
 			String queryString = applyFilter(queryStringOriginal, nodeFilter);
 			Statement st = conn.createStatement();
 			ResultSet rs = st.executeQuery(queryString);
 			while (rs.next()) {
 				int id = rs.getInt("id");
-				Vertex v = new Vertex(id);				
+				VertexAttributes v = builder.addVertex(id);
+				Vertex existing = null;
+				Vertex read = null;
+				if (v == null)
+					// a row repeated in the query overwrites the staged one
+					v = builder.getStagedVertex(id);
+				if (v == null) {
+					// read the row into a detached vertex to compare it
+					existing = getVertexById(id);
+					read = new Vertex(id);
+					v = read;
+				}
 				if (!derivedNodeTable) {
 					if (tableAvailableColumnsMap.get(nodeTable).contains( "label")) {
 						String label = rs.getString("label");
@@ -533,35 +541,29 @@ public class DBNetwork extends BrowsableNetwork {
 						v.setExcluded(hide);
 					}
 				}
-				if(hash.containsKey(v.getId())) {
+				if(existing != null) {
 					//the node is there, simply update the attributes if they are changed
-					updateVertexAttributes(v);
-					v = hash.get(v.getId());
-				} else {
-					addVertex(v);
-					hash.put(id, v);	
+					updateVertexAttributes(existing, read);
 				}
-				visitedVertices.add(v);
+				visitedIds.add(id);
 			}
 		} catch (SQLException sqlEx) {
-			JOptionPane.showMessageDialog(null, sqlEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("SQL error");
+			databaseError("SQL error", sqlEx);
 			sqlEx.printStackTrace();
 		}
+		builder.commit();
 		// remove vertices that are not visited, i.e. not present in the
 		// database anymore
 		// add them to a set to avoid concurrent modification exception
 		Set<Vertex> verticesToRemove = new HashSet<Vertex>();
 		for(Vertex v : getVertices()) {
-			if(!visitedVertices.contains(v)) {
+			if(!visitedIds.contains(v.getId())) {
 				verticesToRemove.add(v);
 			}
 		}
 		for(Vertex v : verticesToRemove) {
 			removeVertex(v);
 			System.out.println("Removing " + v.getId());
-			hash.remove(v.getId());
 		}
 		extendEdges();
 	}
@@ -583,12 +585,10 @@ public class DBNetwork extends BrowsableNetwork {
 	 */
 	public void extendNeighborhood(int id, int distance, boolean forward, Set<Vertex> visitedVertices, Set<Edge> visitedEdges) {
 		lastAction = "exploreNode";
-		// sync the hash table storing the nodes
 		boolean firstNode = false;
 		if(visitedVertices.size() == 0) {
 			firstNode = true;
 		}
-		syncHashTable();
 		
 		Vertex v = new Vertex(id);;		
 		// first read the vertex
@@ -665,19 +665,17 @@ public class DBNetwork extends BrowsableNetwork {
 				}
 			}			
 		} catch (SQLException sqlEx) {
-			JOptionPane.showMessageDialog(null, sqlEx.getMessage(),
-					"Error", JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("Node not found");
+			databaseError("Node not found", sqlEx);
 			sqlEx.printStackTrace();
 		}
 		//check if we need to add the node or simply update its attributes
-		if(hash.containsKey(v.getId())) {
+		Vertex existing = getVertexById(v.getId());
+		if(existing != null) {
 			// the node is there, just update the attributes
-			updateVertexAttributes(v);
-			v = hash.get(v.getId());
+			updateVertexAttributes(existing, v);
+			v = existing;
 		} else {
 			// we need to add the node
-			hash.put(v.getId(), v);
 			addVertex(v);
 		}
 		visitedVertices.add(v);
@@ -692,10 +690,12 @@ public class DBNetwork extends BrowsableNetwork {
 					int id_dest = rs.getInt("id_dest");
 					// we should check if the node was already explored, otherwise
 					// a loop would circle around unnecessarily
-					if(hash.get(id_dest) == null || !visitedVertices.contains(hash.get(id_dest))) {
+					Vertex dest = getVertexById(id_dest);
+					if(dest == null || !visitedVertices.contains(dest)) {
 						extendNeighborhood(id_dest, distance - 1, true, visitedVertices, visitedEdges);
+						dest = getVertexById(id_dest);
 					}
-					Edge e = new Edge(v, hash.get(id_dest), directed);
+					Edge e = new Edge(v, dest, directed);
 					if (tableAvailableColumnsMap.get(edgeTable).contains("label")) {
 						e.setLabel(rs.getString("label"));
 					}
@@ -743,8 +743,7 @@ public class DBNetwork extends BrowsableNetwork {
 					visitedEdges.add(e);
 				}
 			} catch (SQLException sqlEx) {
-				JOptionPane.showMessageDialog(null, sqlEx.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-				Cuttlefish.err("SQL error");
+				databaseError("SQL error", sqlEx);
 				sqlEx.printStackTrace();
 			}
 		}
@@ -756,10 +755,12 @@ public class DBNetwork extends BrowsableNetwork {
 				ResultSet rs = st.executeQuery(queryString);
 				while (rs.next()) {
 					int id_origin = rs.getInt("id_origin");
-					if(hash.get(id_origin) == null || !visitedVertices.contains(hash.get(id_origin))) {
+					Vertex origin = getVertexById(id_origin);
+					if(origin == null || !visitedVertices.contains(origin)) {
 						extendNeighborhood(id_origin, distance - 1, false, visitedVertices, visitedEdges);
-					}					
-					Edge e = new Edge(hash.get(id_origin), v, directed);
+						origin = getVertexById(id_origin);
+					}
+					Edge e = new Edge(origin, v, directed);
 					if (tableAvailableColumnsMap.get(edgeTable).contains("label")) {
 						e.setLabel(rs.getString("label"));
 					}
@@ -809,8 +810,7 @@ public class DBNetwork extends BrowsableNetwork {
 					visitedEdges.add(e);				
 				}
 			} catch (SQLException sqlEx) {
-				JOptionPane.showMessageDialog(null, sqlEx.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-				Cuttlefish.err("SQL error");
+				databaseError("SQL error", sqlEx);
 				sqlEx.printStackTrace();
 			}
 		}
@@ -830,20 +830,7 @@ public class DBNetwork extends BrowsableNetwork {
 		}
 	}
 
-	private void syncHashTable() {
-		if(hash.size() != getVertexCount() ) {			
-			Set<Integer> toRemove = new HashSet<Integer>(hash.keySet());
-			for(Vertex v : getVertices()) {
-				toRemove.remove(v.getId());
-			}
-			for(Integer i : toRemove) {
-				hash.remove(i);
-			}
-		}
-	}
-
-	private void updateVertexAttributes(Vertex v) {
-		Vertex n = hash.get(v.getId());
+	private void updateVertexAttributes(Vertex n, Vertex v) {
 		if(n.isExcluded() != v.isExcluded()) { n.setExcluded(v.isExcluded()); }
 		if(n.isFixed() != v.isFixed()) { n.setFixed(v.isFixed()); }
 		if(n.getBorderColor() != v.getBorderColor()) { n.setBorderColor(v.getBorderColor()); }
@@ -867,26 +854,6 @@ public class DBNetwork extends BrowsableNetwork {
 		if( toEdge.getWidth() != fromEdge.getWidth()) { toEdge.setWidth(fromEdge.getWidth()); }
 	}
 	
-	private Edge findEdge(int id_orig, int id_dest) {
-		Edge edge = null;
-		if (directed) {			
-			for(Edge cur_edge : getOutEdges(hash.get(id_orig))) {
-				if(cur_edge.getTarget() != null && cur_edge.getTarget() == hash.get(id_dest)) {
-					edge = cur_edge;
-					break;
-				}
-			}
-		} else {
-			for(Edge cur_edge : getIncidentEdges(hash.get(id_orig)) ) {
-				if(getEndpoints(cur_edge).getSecond() == hash.get(id_dest)) {
-					edge = cur_edge;
-					break;
-				}
-			}
-		}
-		return edge;
-	}
-
 	/**
 	 * Method that counts the number of nodes that match the selected nodes
 	 * filter
@@ -1052,7 +1019,7 @@ public class DBNetwork extends BrowsableNetwork {
 				ResultSet rs = st.executeQuery(queryString);
 				while (rs.next()) {
 					int id_dest = rs.getInt("id_dest");
-					Vertex v_dest = hash.get(id_dest);
+					Vertex v_dest = getVertexById(id_dest);
 					if (v_dest != null) {
 						Edge e = new Edge(v, v_dest, directed);
 
@@ -1104,9 +1071,7 @@ public class DBNetwork extends BrowsableNetwork {
 					}
 				}
 			} catch (SQLException sqlEx) {
-				JOptionPane.showMessageDialog(null, sqlEx.getMessage(),
-						"Error", JOptionPane.ERROR_MESSAGE);
-				Cuttlefish.err("SQL error");
+				databaseError("SQL error", sqlEx);
 				sqlEx.printStackTrace();
 			}
 
@@ -1128,8 +1093,7 @@ public class DBNetwork extends BrowsableNetwork {
 		for (Edge adjacentEdge : getOutEdges(vertex)) {
 			Vertex neighbor = getOpposite(vertex, adjacentEdge);
 			removeEdge(adjacentEdge);
-			if (getNeighborCount(neighbor) < 1) {
-				hash.put(neighbor.getId(), null);
+			if (getDegree(neighbor) < 1) {
 				removeVertex(neighbor);
 			}
 		}
@@ -1144,8 +1108,7 @@ public class DBNetwork extends BrowsableNetwork {
 		for (Edge adjacentEdge : getInEdges(vertex)) {
 			Vertex neighbor = getOpposite(vertex, adjacentEdge);
 			removeEdge(adjacentEdge);
-			if (getNeighborCount(neighbor) < 1) {
-				hash.put(neighbor.getId(), null);
+			if (getDegree(neighbor) < 1) {
 				removeVertex(neighbor);
 			}
 		}
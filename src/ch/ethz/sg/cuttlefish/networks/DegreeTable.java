@@ -0,0 +1,136 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.util.Arrays;
+
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+
+/**
+ * In and out degrees of the nodes of a graph together with a histogram of
+ * the total degrees, updated as edges are added and removed. The arrays are
+ * indexed by the id of the Gephi nodes. The total degree is the sum of the
+ * in and out degrees, so a self loop counts twice.
+ */
+final class DegreeTable {
+
+	private int[] in = new int[16];
+	private int[] out = new int[16];
+	private int[] histogram = new int[16];
+	private int maxDegree = 0;
+
+	/**
+	 * Counts the degrees of all the nodes of the graph.
+	 */
+	DegreeTable(Graph graph) {
+		for (Node n : graph.getNodes())
+			ensureCapacity(n.getId());
+		for (org.gephi.graph.api.Edge e : graph.getEdges()) {
+			ensureCapacity(e.getSource().getId());
+			ensureCapacity(e.getTarget().getId());
+			out[e.getSource().getId()]++;
+			in[e.getTarget().getId()]++;
+		}
+		for (Node n : graph.getNodes()) {
+			int d = getDegree(n.getId());
+			countDegree(d, 1);
+			maxDegree = Math.max(maxDegree, d);
+		}
+	}
+
+	private void ensureCapacity(int id) {
+		if (id < in.length)
+			return;
+
+		int length = Math.max(id + 1, in.length * 2);
+		in = Arrays.copyOf(in, length);
+		out = Arrays.copyOf(out, length);
+	}
+
+	private void countDegree(int degree, int delta) {
+		if (degree >= histogram.length)
+			histogram = Arrays.copyOf(histogram,
+					Math.max(degree + 1, histogram.length * 2));
+		histogram[degree] += delta;
+	}
+
+	/**
+	 * Moves a node from one bucket of the histogram to another one.
+	 */
+	private void changeDegree(int oldDegree, int newDegree) {
+		countDegree(oldDegree, -1);
+		countDegree(newDegree, 1);
+
+		if (newDegree > maxDegree)
+			maxDegree = newDegree;
+		else
+			while (maxDegree > 0 && histogram[maxDegree] == 0)
+				maxDegree--;
+	}
+
+	void addNode(int id) {
+		ensureCapacity(id);
+		in[id] = 0;
+		out[id] = 0;
+		countDegree(0, 1);
+	}
+
+	/**
+	 * Removes a node whose edges have already been removed.
+	 */
+	void removeNode(int id) {
+		countDegree(getDegree(id), -1);
+		while (maxDegree > 0 && histogram[maxDegree] == 0)
+			maxDegree--;
+	}
+
+	void addEdge(int source, int target) {
+		int d = getDegree(source);
+		out[source]++;
+		changeDegree(d, d + 1);
+
+		d = getDegree(target);
+		in[target]++;
+		changeDegree(d, d + 1);
+	}
+
+	void removeEdge(int source, int target) {
+		int d = getDegree(source);
+		out[source]--;
+		changeDegree(d, d - 1);
+
+		d = getDegree(target);
+		in[target]--;
+		changeDegree(d, d - 1);
+	}
+
+	int getInDegree(int id) {
+		return id < in.length ? in[id] : 0;
+	}
+
+	int getOutDegree(int id) {
+		return id < out.length ? out[id] : 0;
+	}
+
+	int getDegree(int id) {
+		return getInDegree(id) + getOutDegree(id);
+	}
+
+	int getMaxDegree() {
+		return maxDegree;
+	}
+
+	/**
+	 * @return the number of nodes with the given degree
+	 */
+	int getNodeCount(int degree) {
+		return degree < histogram.length ? histogram[degree] : 0;
+	}
+
+	/**
+	 * @return a copy of the histogram, element d holding the number of nodes
+	 *         of degree d
+	 */
+	int[] getHistogram() {
+		return Arrays.copyOf(histogram, maxDegree + 1);
+	}
+}
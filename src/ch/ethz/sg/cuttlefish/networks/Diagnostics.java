@@ -0,0 +1,171 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JOptionPane;
+
+/**
+ * Collects the problems found while loading a network, instead of showing a
+ * dialog for each of them. The problems are counted per kind, and the first
+ * messages are kept for the report.
+ *
+ * Warnings never stop a load. The policy decides when errors do: never
+ * (COLLECT), at the first one (FAIL_FAST) or when there are more than a
+ * maximum (MAX_ERRORS). Loaders stop as soon as error() returns false, and
+ * keep what they have read so far.
+ */
+public class Diagnostics {
+
+	public enum Policy {
+		COLLECT, FAIL_FAST, MAX_ERRORS
+	}
+
+	private static final int MAX_MESSAGES = 20;
+
+	private final Policy policy;
+	private final int maxErrors;
+
+	private final Map<String, Integer> counts;
+	private final List<String> messages = new ArrayList<String>();
+	private int warnings = 0;
+	private int errors = 0;
+	private boolean stopped = false;
+
+	/**
+	 * Creates a sink that collects all the problems.
+	 */
+	public Diagnostics() {
+		this(Policy.COLLECT, 0);
+	}
+
+	/**
+	 * @param maxErrors
+	 *            the number of errors tolerated by the MAX_ERRORS policy
+	 */
+	public Diagnostics(Policy policy, int maxErrors) {
+		this.policy = policy;
+		this.maxErrors = maxErrors;
+		counts = new LinkedHashMap<String, Integer>();
+	}
+
+	/**
+	 * @param kind
+	 *            the kind of the problem, under which it is counted
+	 * @param message
+	 *            the description of this occurrence, e.g. with its line
+	 */
+	public synchronized void warning(String kind, String message) {
+		record(kind, message);
+		warnings++;
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	public synchronized boolean error(String kind, String message) {
+		record(kind, message);
+		errors++;
+
+		if (policy == Policy.FAIL_FAST
+				|| (policy == Policy.MAX_ERRORS && errors > maxErrors))
+			stopped = true;
+
+		return !stopped;
+	}
+
+	private void record(String kind, String message) {
+		Integer count = counts.get(kind);
+		counts.put(kind, count == null ? 1 : count + 1);
+
+		if (messages.size() < MAX_MESSAGES)
+			messages.add(message);
+	}
+
+	/**
+	 * @return whether the policy stopped a load
+	 */
+	public synchronized boolean isStopped() {
+		return stopped;
+	}
+
+	public synchronized boolean isEmpty() {
+		return warnings == 0 && errors == 0;
+	}
+
+	public synchronized int getWarningCount() {
+		return warnings;
+	}
+
+	public synchronized int getErrorCount() {
+		return errors;
+	}
+
+	/**
+	 * @return the number of problems of the given kind
+	 */
+	public synchronized int getCount(String kind) {
+		Integer count = counts.get(kind);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * @return the counts per kind followed by the first messages
+	 */
+	public synchronized String getReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(errors).append(" errors, ").append(warnings)
+				.append(" warnings");
+		if (stopped)
+			report.append(", loading stopped");
+		report.append('\n');
+
+		for (Map.Entry<String, Integer> count : counts.entrySet())
+			report.append("  ").append(count.getKey()).append(": ")
+					.append(count.getValue()).append('\n');
+
+		if (!messages.isEmpty()) {
+			report.append("First problems:\n");
+			for (String message : messages)
+				report.append("  ").append(message).append('\n');
+		}
+
+		return report.toString();
+	}
+
+	public synchronized void clear() {
+		counts.clear();
+		messages.clear();
+		warnings = 0;
+		errors = 0;
+		stopped = false;
+	}
+
+	/**
+	 * Shows the report in one dialog, or on the error stream if there is no
+	 * display, and clears it. Does nothing if there are no problems.
+	 */
+	public void publish() {
+		String report;
+		boolean failed;
+
+		synchronized (this) {
+			if (isEmpty())
+				return;
+			report = getReport();
+			failed = errors > 0;
+			clear();
+		}
+
+		if (GraphicsEnvironment.isHeadless())
+			System.err.print(report);
+		else
+			JOptionPane.showMessageDialog(null, report,
+					"Problems while loading",
+					failed ? JOptionPane.ERROR_MESSAGE
+							: JOptionPane.WARNING_MESSAGE);
+	}
+}
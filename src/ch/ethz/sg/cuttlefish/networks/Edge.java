@@ -26,7 +26,10 @@ import java.awt.Color;
 import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.Attributes;
+import org.gephi.graph.api.EdgeData;
 import org.gephi.graph.api.GraphController;
+import org.gephi.graph.api.Node;
 import org.openide.util.Lookup;
 
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
@@ -36,36 +39,43 @@ import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
  * 
  * @author David Garcia Becerra
  */
-public class Edge implements Comparable<Edge> {
+public class Edge implements Comparable<Edge>, EdgeAttributes {
 
 	// Attribute keys that extend the EdgeData data structure
-	private final static String ATTR_WIDTH = "edge_double_width";
-	private final static String ATTR_CURVE_TYPE = "edge_string_curveType";
-	private final static String ATTR_VAR1 = "edge_string_var1";
-	private final static String ATTR_VAR2 = "edge_string_var2";
-	private final static String ATTR_IS_EXCLUDED = "edge_boolean_excluded";
+	final static String ATTR_VAR1 = "edge_string_var1";
+	final static String ATTR_VAR2 = "edge_string_var2";
 	private final static String ATTR_ID = "edge_int_id";
 
+	// Columns the rendering attributes are copied to for the Gephi exporters
+	private final static String COLUMN_WIDTH = "edge_double_width";
+	private final static String COLUMN_CURVE_TYPE = "edge_string_curveType";
+	private final static String COLUMN_EXCLUDED = "edge_boolean_excluded";
+
+	// Curve types as stored in the attribute table
+	private final static byte CURVE_CURVED = 0;
+	private final static byte CURVE_STRAIGHT = 1;
+	private final static byte CURVE_LOOP = 2;
+	private final static String[] CURVE_NAMES = { Constants.LINE_CURVED,
+			Constants.LINE_STRAIGHT, Constants.LINE_LOOP };
+
 	// Defaults
 	private final static Integer DEFAULT_ID = -1;
-	private final static Double DEFAULT_WIDTH = 1.0;
-	private final static Color DEFAULT_COLOR = Color.darkGray;
+	private final static float DEFAULT_WIDTH = 1.0f;
+	final static Color DEFAULT_COLOR = Color.darkGray;
 	private final static String DEFAULT_VAR1 = null;
 	private final static String DEFAULT_VAR2 = null;
-	private final static String DEFAULT_CURVE_TYPE = Constants.LINE_CURVED;
-	private final static Boolean DEFAULT_EXCLUDED = false;
 
 	static {
 		addAttribute(Edge.ATTR_ID, AttributeType.INT, DEFAULT_ID);
-		addAttribute(Edge.ATTR_WIDTH, AttributeType.DOUBLE, DEFAULT_WIDTH);
 		addAttribute(Edge.ATTR_VAR1, AttributeType.STRING, DEFAULT_VAR1);
 		addAttribute(Edge.ATTR_VAR2, AttributeType.STRING, DEFAULT_VAR2);
-		addAttribute(Edge.ATTR_IS_EXCLUDED, AttributeType.BOOLEAN,
-				DEFAULT_EXCLUDED);
-		addAttribute(Edge.ATTR_CURVE_TYPE, AttributeType.STRING,
-				DEFAULT_CURVE_TYPE);
 	}
 
+	// Rendering attributes, indexed by the id of the Gephi edge. The colour is
+	// kept in the EdgeData.
+	final static AttributeTable attributes = new AttributeTable(
+			DEFAULT_COLOR.getRGB(), CURVE_CURVED, DEFAULT_WIDTH);
+
 	public static void addAttribute(String name, AttributeType type,
 			Object defaultValue) {
 		Lookup.getDefault()
@@ -76,6 +86,34 @@ public class Edge implements Comparable<Edge> {
 						defaultValue);
 	}
 
+	/**
+	 * Copies the rendering attributes of the edges, which are kept outside of
+	 * Gephi, into Gephi attribute columns so that the Gephi exporters write
+	 * them. The columns are added on first use.
+	 */
+	static void exportAttributes(Iterable<org.gephi.graph.api.Edge> edges) {
+		addColumn(COLUMN_WIDTH, AttributeType.DOUBLE, (double) DEFAULT_WIDTH);
+		addColumn(COLUMN_CURVE_TYPE, AttributeType.STRING,
+				CURVE_NAMES[CURVE_CURVED]);
+		addColumn(COLUMN_EXCLUDED, AttributeType.BOOLEAN, Boolean.FALSE);
+
+		for (org.gephi.graph.api.Edge edge : edges) {
+			Edge e = new Edge(edge);
+			Attributes row = edge.getAttributes();
+
+			row.setValue(COLUMN_WIDTH, e.getWidth());
+			row.setValue(COLUMN_CURVE_TYPE, e.getShape());
+			row.setValue(COLUMN_EXCLUDED, e.isExcluded());
+		}
+	}
+
+	private static void addColumn(String name, AttributeType type,
+			Object defaultValue) {
+		if (!Lookup.getDefault().lookup(AttributeController.class).getModel()
+				.getEdgeTable().hasColumn(name))
+			addAttribute(name, type, defaultValue);
+	}
+
 	org.gephi.graph.api.Edge internalEdge;
 
 	public org.gephi.graph.api.Edge getInternalEdge() {
@@ -87,7 +125,7 @@ public class Edge implements Comparable<Edge> {
 				.getModel().factory()
 				.newEdge(source.internalNode, target.internalNode);
 
-		setColor(DEFAULT_COLOR);
+		initEdge(internalEdge);
 	}
 
 	public Edge(Vertex source, Vertex target, boolean directed) {
@@ -95,28 +133,56 @@ public class Edge implements Comparable<Edge> {
 				.getModel().factory()
 				.newEdge(source.internalNode, target.internalNode, 1, directed);
 
-		setColor(DEFAULT_COLOR);
+		initEdge(internalEdge);
 	}
 
 	public Edge(Vertex source, Vertex target, float weight, boolean directed) {
-		this.internalEdge = Lookup
-				.getDefault()
-				.lookup(GraphController.class)
-				.getModel()
-				.factory()
+		this.internalEdge = Lookup.getDefault().lookup(GraphController.class)
+				.getModel().factory()
 				.newEdge(source.internalNode, target.internalNode, weight,
 						directed);
 
-		setColor(DEFAULT_COLOR);
+		initEdge(internalEdge);
 	}
 
 	public Edge(org.gephi.graph.api.Edge internal) {
+		wrap(internal);
+	}
+
+	// Used for the flyweights of the traversal methods in BrowsableNetwork
+	Edge() {
+	}
+
+	/**
+	 * Sets the default attributes of a new edge, without recording a change
+	 * in the journal.
+	 */
+	static void initEdge(org.gephi.graph.api.Edge edge) {
+		resetAttributes(edge);
+		writeColor(edge, DEFAULT_COLOR);
+	}
+
+	/**
+	 * Clears the rendering attributes left by a removed edge that had the
+	 * same Gephi id. Must be called for every edge created outside of the
+	 * constructors of this class.
+	 */
+	static void resetAttributes(org.gephi.graph.api.Edge edge) {
+		attributes.reset(edge.getId());
+	}
+
+	/**
+	 * Points this wrapper to another Gephi edge.
+	 * 
+	 * @param internal
+	 */
+	void wrap(org.gephi.graph.api.Edge internal) {
 		this.internalEdge = internal;
 
 		// A new org.gephi.graph.api.Edge has an invalid colour
 		// so it must be adjusted
 		if (this.internalEdge.getEdgeData().r() < 0) {
-			setColor(DEFAULT_COLOR);
+			writeColor(internalEdge, DEFAULT_COLOR);
 		}
 	}
 
@@ -126,6 +192,7 @@ public class Edge implements Comparable<Edge> {
 	 */
 	public void setId(int id) {
 		this.internalEdge.getAttributes().setValue(Edge.ATTR_ID, id);
+		BrowsableNetwork.recordChanged(internalEdge);
 	}
 
 	/**
@@ -142,6 +209,7 @@ public class Edge implements Comparable<Edge> {
 	 */
 	public void setLabel(String label) {
 		this.internalEdge.getEdgeData().setLabel(label);
+		BrowsableNetwork.recordChanged(internalEdge);
 	}
 
 	/**
@@ -160,6 +228,16 @@ public class Edge implements Comparable<Edge> {
 	}
 
 	public static void setColor(org.gephi.graph.api.Edge edge, Color color) {
+		writeColor(edge, color);
+		BrowsableNetwork.recordChanged(edge);
+	}
+
+	public void setRGB(int rgb) {
+		writeRGB(internalEdge, rgb);
+		BrowsableNetwork.recordChanged(internalEdge);
+	}
+
+	private static void writeColor(org.gephi.graph.api.Edge edge, Color color) {
 		float[] rgb = color.getRGBColorComponents(null);
 
 		edge.getEdgeData().setR(rgb[0]);
@@ -167,6 +245,17 @@ public class Edge implements Comparable<Edge> {
 		edge.getEdgeData().setB(rgb[2]);
 	}
 
+	/**
+	 * Sets the colour from packed RGB without recording a change in the
+	 * journal, for edges that are not in the graph yet.
+	 */
+	static void writeRGB(org.gephi.graph.api.Edge edge, int rgb) {
+		EdgeData data = edge.getEdgeData();
+		data.setR(((rgb >> 16) & 0xFF) / 255f);
+		data.setG(((rgb >> 8) & 0xFF) / 255f);
+		data.setB((rgb & 0xFF) / 255f);
+	}
+
 	/**
 	 * @return the color
 	 */
@@ -178,6 +267,14 @@ public class Edge implements Comparable<Edge> {
 		return new Color(r, g, b);
 	}
 
+	/**
+	 * @return the color as packed RGB, see {@link Color#getRGB()}
+	 */
+	public int getRGB() {
+		EdgeData data = this.internalEdge.getEdgeData();
+		return AttributeTable.packColor(data.r(), data.g(), data.b());
+	}
+
 	/**
 	 * @param width
 	 *            the width to set
@@ -187,15 +284,15 @@ public class Edge implements Comparable<Edge> {
 	}
 
 	public static void setWidth(org.gephi.graph.api.Edge edge, double width) {
-		edge.getAttributes().setValue(Edge.ATTR_WIDTH, width);
+		attributes.setWidth(edge.getId(), (float) width);
+		BrowsableNetwork.recordChanged(edge);
 	}
 
 	/**
 	 * @return the width
 	 */
 	public double getWidth() {
-		return (Double) this.internalEdge.getAttributes().getValue(
-				Edge.ATTR_WIDTH);
+		return attributes.getWidth(internalEdge.getId());
 	}
 
 	/**
@@ -206,6 +303,7 @@ public class Edge implements Comparable<Edge> {
 	 */
 	public void setWeight(double weight) {
 		this.internalEdge.setWeight((float) weight);
+		BrowsableNetwork.recordWeightChanged(internalEdge);
 	}
 
 	/**
@@ -220,16 +318,24 @@ public class Edge implements Comparable<Edge> {
 	 *            the excluded to set
 	 */
 	public void setExcluded(boolean excluded) {
-		this.internalEdge.getAttributes().setValue(Edge.ATTR_IS_EXCLUDED,
+		attributes.setFlag(internalEdge.getId(), AttributeTable.FLAG_EXCLUDED,
 				excluded);
+		BrowsableNetwork.recordChanged(internalEdge);
 	}
 
 	/**
 	 * @return the exclude
 	 */
 	public boolean isExcluded() {
-		return (Boolean) this.internalEdge.getAttributes().getValue(
-				Edge.ATTR_IS_EXCLUDED);
+		return attributes.hasFlag(internalEdge.getId(),
+				AttributeTable.FLAG_EXCLUDED);
+	}
+
+	/**
+	 * @return the live mask of the ids of the excluded Gephi edges
+	 */
+	static ElementMask getExcludedMask() {
+		return attributes.getMask(AttributeTable.FLAG_EXCLUDED);
 	}
 
 	/**
@@ -237,20 +343,37 @@ public class Edge implements Comparable<Edge> {
 	 *            the shape to set
 	 */
 	public void setShape(String lineType) {
-		this.internalEdge.getAttributes().setValue(Edge.ATTR_CURVE_TYPE,
-				lineType);
+		byte curve = parseCurve(lineType);
+		if (curve < 0)
+			return;
+
+		attributes.setShape(internalEdge.getId(), curve);
+		BrowsableNetwork.recordChanged(internalEdge);
+	}
+
+	/**
+	 * @return the curve type as stored in the attribute table, or -1 if the
+	 *         name is unknown
+	 */
+	static byte parseCurve(String lineType) {
+		if (lineType.equalsIgnoreCase(Constants.LINE_CURVED))
+			return CURVE_CURVED;
+		else if (lineType.equalsIgnoreCase(Constants.LINE_STRAIGHT))
+			return CURVE_STRAIGHT;
+		else if (lineType.equalsIgnoreCase(Constants.LINE_LOOP))
+			return CURVE_LOOP;
+		return -1;
 	}
 
 	/**
 	 * @return the shape
 	 */
 	public String getShape() {
-		return (String) this.internalEdge.getAttributes().getValue(
-				Edge.ATTR_CURVE_TYPE);
+		return CURVE_NAMES[attributes.getShape(internalEdge.getId())];
 	}
 
 	public boolean isCurved() {
-		return getShape().equalsIgnoreCase(Constants.LINE_CURVED);
+		return attributes.getShape(internalEdge.getId()) == CURVE_CURVED;
 	}
 
 	public boolean isLoop() {
@@ -269,12 +392,27 @@ public class Edge implements Comparable<Edge> {
 		return new Vertex(this.internalEdge.getTarget());
 	}
 
+	/**
+	 * @return the Gephi node of the source, without creating a wrapper
+	 */
+	public Node getSourceNode() {
+		return this.internalEdge.getSource();
+	}
+
+	/**
+	 * @return the Gephi node of the target, without creating a wrapper
+	 */
+	public Node getTargetNode() {
+		return this.internalEdge.getTarget();
+	}
+
 	/**
 	 * @param var1
 	 *            the var1 to set
 	 */
 	public void setVar1(String var1) {
 		this.internalEdge.getAttributes().setValue(Edge.ATTR_VAR1, var1);
+		BrowsableNetwork.recordChanged(internalEdge);
 	}
 
 	/**
@@ -291,6 +429,7 @@ public class Edge implements Comparable<Edge> {
 	 */
 	public void setVar2(String var2) {
 		this.internalEdge.getAttributes().setValue(Edge.ATTR_VAR2, var2);
+		BrowsableNetwork.recordChanged(internalEdge);
 	}
 
 	/**
@@ -0,0 +1,33 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.awt.Color;
+
+/**
+ * Setters of the attributes that loaders read for an edge, implemented by
+ * {@link Edge} and by the edges staged in a {@link NetworkBuilder}, so that
+ * the same code can fill either.
+ */
+public interface EdgeAttributes {
+
+	public void setLabel(String label);
+
+	public void setColor(Color color);
+
+	/**
+	 * @param rgb
+	 *            the color as packed RGB, see {@link Color#getRGB()}
+	 */
+	public void setRGB(int rgb);
+
+	public void setWidth(double width);
+
+	public void setWeight(double weight);
+
+	public void setShape(String lineType);
+
+	public void setVar1(String var1);
+
+	public void setVar2(String var2);
+
+	public void setExcluded(boolean excluded);
+}
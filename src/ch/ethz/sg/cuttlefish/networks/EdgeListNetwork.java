@@ -0,0 +1,430 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
+import ch.ethz.sg.cuttlefish.misc.IntIntHashMap;
+
+/**
+ * Network loaded from a bare edge list, as distributed by SNAP: one edge per
+ * line, written as source and target ids and an optional weight, separated
+ * by blanks, commas or semicolons. Further columns are ignored, lines
+ * starting with # or % are comments, and a first line after them that does
+ * not start with numbers is taken as a header. The file may be compressed, see
+ * {@link CompressedStreams}.
+ *
+ * The bytes are scanned in place, without creating strings. The ids are
+ * mapped to dense indices, and the edges are grouped by source in compressed
+ * sparse row form, where duplicates are dropped, before they are added to
+ * the graph at once.
+ */
+public class EdgeListNetwork extends BrowsableNetwork {
+
+	private static final long serialVersionUID = 1L;
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	// exact powers of ten, dividing by them rounds plain numbers correctly
+	private static final double[] POWERS = new double[16];
+	static {
+		POWERS[0] = 1;
+		for (int k = 1; k < POWERS.length; k++)
+			POWERS[k] = POWERS[k - 1] * 10;
+	}
+
+	private boolean deduplicate = true;
+	private boolean selfLoops = true;
+
+	// the edges read so far, by node index
+	private transient IntIntHashMap indexById;
+	private transient int[] ids;
+	private transient int nodeCount;
+	private transient int[] sources;
+	private transient int[] targets;
+	private transient float[] weights;
+	private transient int edgeCount;
+
+	// the state of the scanner
+	private transient int line;
+	private transient boolean started;
+	private transient long number;
+	private transient float weight;
+
+	public EdgeListNetwork() {
+	}
+
+	/**
+	 * @param deduplicate
+	 *            whether repeated edges are dropped, in both directions if
+	 *            the network is undirected; on by default
+	 */
+	public void setDeduplicate(boolean deduplicate) {
+		this.deduplicate = deduplicate;
+	}
+
+	/**
+	 * @param selfLoops
+	 *            whether edges from a node to itself are kept; on by default
+	 */
+	public void setSelfLoops(boolean selfLoops) {
+		this.selfLoops = selfLoops;
+	}
+
+	/**
+	 * Loads the edge list, directed or not according to
+	 * {@link #isDirected()}.
+	 */
+	@Override
+	public void load(File file) throws IOException {
+		clearGraph();
+
+		indexById = new IntIntHashMap(1 << 16, -1);
+		ids = new int[1 << 16];
+		nodeCount = 0;
+		sources = new int[1 << 16];
+		targets = new int[1 << 16];
+		weights = null;
+		edgeCount = 0;
+		line = 0;
+		started = false;
+
+		InputStream in = CompressedStreams.openInput(file);
+		try {
+			if (scan(in, file))
+				build();
+		} finally {
+			in.close();
+			indexById = null;
+			ids = null;
+			sources = null;
+			targets = null;
+			weights = null;
+		}
+
+		this.setNetworkFileName(file.getName());
+	}
+
+	/**
+	 * Reads whole lines into the buffer and parses them, until the end of
+	 * the file or until the diagnostics stop the loading.
+	 *
+	 * @return false if the loading was cancelled, nothing is added then
+	 */
+	private boolean scan(InputStream in, File file) throws IOException {
+		byte[] buffer = new byte[BUFFER_BYTES];
+		int limit = 0;
+		boolean eof = false;
+
+		while (!eof) {
+			if (limit == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+			int n = in.read(buffer, limit, buffer.length - limit);
+			if (n < 0) {
+				eof = true;
+				if (limit == 0)
+					break;
+				// the last line may not end with a newline
+				if (limit == buffer.length)
+					buffer = Arrays.copyOf(buffer, buffer.length + 1);
+				buffer[limit++] = '\n';
+			} else {
+				limit += n;
+			}
+
+			int end = limit;
+			while (end > 0 && buffer[end - 1] != '\n')
+				end--;
+			if (end == 0)
+				continue;
+
+			// the edges read before the diagnostics stop are kept
+			if (!parseLines(buffer, end, file))
+				break;
+			if (!reportProgress(CompressedStreams.getFilePosition(in),
+					file.length(), edgeCount))
+				return false;
+
+			System.arraycopy(buffer, end, buffer, 0, limit - end);
+			limit -= end;
+		}
+
+		return true;
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t' || b == ',' || b == ';';
+	}
+
+	private static boolean isEnd(byte b) {
+		return isSeparator(b) || isBlank(b) || b == '\n';
+	}
+
+	/**
+	 * Parses the lines between the start of the buffer and end, which is
+	 * just after a newline.
+	 *
+	 * @return false if the loading has to stop
+	 */
+	private boolean parseLines(byte[] buffer, int end, File file) {
+		boolean directed = isDirected();
+		int p = 0;
+
+		while (p < end) {
+			line++;
+			while (isBlank(buffer[p]))
+				p++;
+
+			byte b = buffer[p];
+			if (b == '\n') {
+				p++;
+				continue;
+			}
+			if (b == '#' || b == '%') {
+				p = nextLine(buffer, p);
+				continue;
+			}
+
+			int q = scanInt(buffer, p);
+			int source = (int) number;
+			if (q >= 0) {
+				while (isSeparator(buffer[q]))
+					q++;
+				q = scanInt(buffer, q);
+			}
+			int target = (int) number;
+
+			boolean weighted = false;
+			if (q >= 0) {
+				while (isSeparator(buffer[q]))
+					q++;
+				if (buffer[q] != '\n' && buffer[q] != '\r') {
+					q = scanFloat(buffer, q);
+					weighted = true;
+				}
+			}
+
+			boolean first = !started;
+			started = true;
+
+			if (q < 0) {
+				p = nextLine(buffer, p);
+				if (first)
+					continue; // header
+				if (!getDiagnostics().error("Malformed edge",
+						"Malformed edge in line " + line + " of "
+								+ file.getName()))
+					return false;
+				continue;
+			}
+			p = nextLine(buffer, q);
+
+			if (source == target && !selfLoops)
+				continue;
+
+			int s = index(source);
+			int t = index(target);
+			if (!directed && s > t) {
+				int swap = s;
+				s = t;
+				t = swap;
+			}
+			addEdge(s, t, weighted ? weight : 1);
+		}
+
+		return true;
+	}
+
+	private static int nextLine(byte[] buffer, int p) {
+		while (buffer[p] != '\n')
+			p++;
+		return p + 1;
+	}
+
+	/**
+	 * Parses an int into number.
+	 *
+	 * @return the position after it, or -1 if there is none
+	 */
+	private int scanInt(byte[] buffer, int p) {
+		boolean negative = buffer[p] == '-';
+		if (negative || buffer[p] == '+')
+			p++;
+
+		long value = 0;
+		int start = p;
+		for (; buffer[p] >= '0' && buffer[p] <= '9'; p++) {
+			value = value * 10 + (buffer[p] - '0');
+			if (value > Integer.MAX_VALUE + 1L)
+				return -1;
+		}
+
+		value = negative ? -value : value;
+		if (p == start || value > Integer.MAX_VALUE || !isEnd(buffer[p]))
+			return -1;
+
+		number = value;
+		return p;
+	}
+
+	/**
+	 * Parses a decimal number into weight. Plain numbers are read in place,
+	 * others like 1e-3 are passed to Float.parseFloat().
+	 *
+	 * @return the position after it, or -1 if there is none
+	 */
+	private int scanFloat(byte[] buffer, int p) {
+		int start = p;
+		boolean negative = buffer[p] == '-';
+		if (negative || buffer[p] == '+')
+			p++;
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		for (; buffer[p] >= '0' && buffer[p] <= '9'; p++, digits++)
+			mantissa = mantissa * 10 + (buffer[p] - '0');
+		if (buffer[p] == '.')
+			for (p++; buffer[p] >= '0' && buffer[p] <= '9'; p++, digits++) {
+				mantissa = mantissa * 10 + (buffer[p] - '0');
+				scale++;
+			}
+
+		if (digits > 0 && digits <= 15 && isEnd(buffer[p])) {
+			double value = mantissa / POWERS[scale];
+			weight = (float) (negative ? -value : value);
+			return p;
+		}
+
+		int end = start;
+		while (!isEnd(buffer[end]))
+			end++;
+		try {
+			weight = Float.parseFloat(new String(buffer, start, end - start,
+					"US-ASCII"));
+			return end;
+		} catch (Exception nfEx) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the index of the node with the given id, added if it is new
+	 */
+	private int index(int id) {
+		int index = indexById.get(id);
+		if (index >= 0)
+			return index;
+
+		if (nodeCount == ids.length)
+			ids = Arrays.copyOf(ids, nodeCount * 2);
+		ids[nodeCount] = id;
+		indexById.put(id, nodeCount);
+		return nodeCount++;
+	}
+
+	private void addEdge(int s, int t, float w) {
+		if (edgeCount == sources.length) {
+			sources = Arrays.copyOf(sources, edgeCount * 2);
+			targets = Arrays.copyOf(targets, edgeCount * 2);
+			if (weights != null)
+				weights = Arrays.copyOf(weights, edgeCount * 2);
+		}
+		if (weights == null && w != 1) {
+			weights = new float[sources.length];
+			Arrays.fill(weights, 0, edgeCount, 1);
+		}
+
+		sources[edgeCount] = s;
+		targets[edgeCount] = t;
+		if (weights != null)
+			weights[edgeCount] = w;
+		edgeCount++;
+	}
+
+	/**
+	 * Sorts the edges by source, keeping their order within a source, drops
+	 * the duplicates of each row and passes the nodes and the rows to
+	 * {@link #addRows(int[], int, int[], int[], float[])}.
+	 */
+	private void build() throws IOException {
+		int n = nodeCount;
+		int m = edgeCount;
+
+		int[] offsets = new int[n + 1];
+		for (int e = 0; e < m; e++)
+			offsets[sources[e] + 1]++;
+		for (int i = 0; i < n; i++)
+			offsets[i + 1] += offsets[i];
+
+		int[] row = new int[m];
+		float[] rowWeights = weights == null ? null : new float[m];
+		int[] next = Arrays.copyOf(offsets, n);
+		for (int e = 0; e < m; e++) {
+			int k = next[sources[e]]++;
+			row[k] = targets[e];
+			if (rowWeights != null)
+				rowWeights[k] = weights[e];
+		}
+		sources = null;
+		targets = null;
+		weights = null;
+
+		if (deduplicate) {
+			// seen[t] == i if the edge (i, t) is already in the row
+			int[] seen = new int[n];
+			Arrays.fill(seen, -1);
+			int kept = 0;
+			int from = 0;
+			for (int i = 0; i < n; i++) {
+				int to = offsets[i + 1];
+				offsets[i] = kept;
+				for (int k = from; k < to; k++) {
+					if (seen[row[k]] == i)
+						continue;
+					seen[row[k]] = i;
+					row[kept] = row[k];
+					if (rowWeights != null)
+						rowWeights[kept] = rowWeights[k];
+					kept++;
+				}
+				from = to;
+			}
+			offsets[n] = kept;
+		}
+
+		addRows(ids, n, offsets, row, rowWeights);
+	}
+
+	/**
+	 * Adds the nodes and the edges read to the graph. The edges of node i
+	 * go to the nodes row[k] for offsets[i] <= k < offsets[i + 1].
+	 *
+	 * @param ids
+	 *            the ids of the nodes, by index
+	 * @param rowWeights
+	 *            the weights of the edges, or null if they are all 1
+	 */
+	protected void addRows(int[] ids, int n, int[] offsets, int[] row,
+			float[] rowWeights) throws IOException {
+		boolean directed = isDirected();
+		NetworkBuilder builder = new NetworkBuilder(this, n, offsets[n]);
+		try {
+			for (int i = 0; i < n; i++)
+				builder.addVertex(ids[i]);
+			for (int i = 0; i < n; i++)
+				for (int k = offsets[i]; k < offsets[i + 1]; k++)
+					builder.addEdgeByIndex(i, row[k],
+							rowWeights == null ? 1 : rowWeights[k], directed);
+		} finally {
+			builder.commit();
+		}
+	}
+
+}
@@ -0,0 +1,14 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+/**
+ * Callback for {@link BrowsableNetwork#forEachEdge(EdgeVisitor)} and
+ * {@link BrowsableNetwork#forEachIncidentEdge(Vertex, EdgeVisitor)}.
+ * 
+ * The edge passed to {@link #visit(Edge)} is a flyweight that is reused for
+ * every edge of the traversal. It must not be stored; use
+ * {@code new Edge(edge.getInternalEdge())} to keep a reference.
+ */
+public interface EdgeVisitor {
+
+	public void visit(Edge edge);
+}
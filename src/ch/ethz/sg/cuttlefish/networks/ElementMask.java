@@ -0,0 +1,78 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.util.Arrays;
+
+/**
+ * Set of Gephi node or edge ids stored as a bit mask, one bit per id.
+ * Reads take no lock and can run on the rendering thread while the mask is
+ * written on another one: the words are replaced and never shrunk, so a
+ * reader sees either the old or the new array.
+ */
+public final class ElementMask {
+
+	private long[] words = new long[0];
+
+	public boolean get(int id) {
+		long[] w = words;
+		int i = id >>> 6;
+		return i < w.length && (w[i] & (1L << id)) != 0;
+	}
+
+	public synchronized void set(int id, boolean value) {
+		int i = id >>> 6;
+
+		if (i >= words.length) {
+			if (!value)
+				return;
+			words = Arrays.copyOf(words, Math.max(i + 1, words.length * 2));
+		}
+
+		if (value)
+			words[i] |= 1L << id;
+		else
+			words[i] &= ~(1L << id);
+	}
+
+	public synchronized void clear() {
+		words = new long[0];
+	}
+
+	/**
+	 * @return the first id in the mask that is not smaller than the given
+	 *         one, or -1 if there is none
+	 */
+	public int nextSetBit(int from) {
+		long[] w = words;
+		int i = from >>> 6;
+
+		if (i >= w.length)
+			return -1;
+
+		long word = w[i] & (-1L << from);
+
+		while (true) {
+			if (word != 0)
+				return (i << 6) + Long.numberOfTrailingZeros(word);
+			if (++i == w.length)
+				return -1;
+			word = w[i];
+		}
+	}
+
+	public boolean isEmpty() {
+		for (long word : words)
+			if (word != 0)
+				return false;
+
+		return true;
+	}
+
+	public int cardinality() {
+		int count = 0;
+
+		for (long word : words)
+			count += Long.bitCount(word);
+
+		return count;
+	}
+}
@@ -0,0 +1,103 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.util.Arrays;
+
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+
+/**
+ * View of a network without the vertices and edges set in a list of masks.
+ * The masks are shared and not copied: the view follows them as they change,
+ * and composing views with {@link #hide(ElementMask, ElementMask)} only adds
+ * a reference. Testing an element costs one bit lookup per mask.
+ *
+ * Edges are filtered by the edge masks only, an edge between hidden vertices
+ * stays in the view unless it is masked itself.
+ */
+public final class FilteredView {
+
+	private static final ElementMask[] NO_MASKS = new ElementMask[0];
+
+	private final Graph graph;
+	private final ElementMask[] hiddenNodes;
+	private final ElementMask[] hiddenEdges;
+
+	FilteredView(Graph graph) {
+		this(graph, NO_MASKS, NO_MASKS);
+	}
+
+	private FilteredView(Graph graph, ElementMask[] hiddenNodes,
+			ElementMask[] hiddenEdges) {
+		this.graph = graph;
+		this.hiddenNodes = hiddenNodes;
+		this.hiddenEdges = hiddenEdges;
+	}
+
+	/**
+	 * @param nodes
+	 *            ids of the Gephi nodes to hide, or null
+	 * @param edges
+	 *            ids of the Gephi edges to hide, or null
+	 * @return a view that also hides the elements of the given masks
+	 */
+	public FilteredView hide(ElementMask nodes, ElementMask edges) {
+		return new FilteredView(graph, append(hiddenNodes, nodes), append(
+				hiddenEdges, edges));
+	}
+
+	private static ElementMask[] append(ElementMask[] masks, ElementMask mask) {
+		if (mask == null)
+			return masks;
+
+		ElementMask[] result = Arrays.copyOf(masks, masks.length + 1);
+		result[masks.length] = mask;
+		return result;
+	}
+
+	private static boolean isHidden(ElementMask[] masks, int id) {
+		for (ElementMask mask : masks)
+			if (mask.get(id))
+				return true;
+
+		return false;
+	}
+
+	public boolean containsVertex(Vertex v) {
+		return !isHidden(hiddenNodes, v.getInternalNode().getId());
+	}
+
+	public boolean containsEdge(Edge e) {
+		return !isHidden(hiddenEdges, e.getInternalEdge().getId());
+	}
+
+	/**
+	 * Calls the visitor for every vertex in the view, see
+	 * {@link VertexVisitor}.
+	 */
+	public void forEachVertex(VertexVisitor visitor) {
+		Vertex flyweight = new Vertex((Node) null);
+
+		for (Node node : graph.getNodes()) {
+			if (isHidden(hiddenNodes, node.getId()))
+				continue;
+
+			flyweight.internalNode = node;
+			visitor.visit(flyweight);
+		}
+	}
+
+	/**
+	 * Calls the visitor for every edge in the view, see {@link EdgeVisitor}.
+	 */
+	public void forEachEdge(EdgeVisitor visitor) {
+		Edge flyweight = new Edge();
+
+		for (org.gephi.graph.api.Edge e : graph.getEdges()) {
+			if (isHidden(hiddenEdges, e.getId()))
+				continue;
+
+			flyweight.wrap(e);
+			visitor.visit(flyweight);
+		}
+	}
+}
@@ -0,0 +1,343 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.util.Arrays;
+
+import org.gephi.graph.api.Edge;
+import org.gephi.graph.api.Graph;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+import ch.ethz.sg.cuttlefish.misc.IntIntHashMap;
+
+/**
+ * Array based copy of the structure of a graph. Nodes are numbered
+ * densely from 0 to {@link #getNodeCount()} - 1 and the adjacency is kept in
+ * compressed sparse row form: the neighbours of node i are
+ * {@code getNeighbor(k)} for {@code getNeighborStart(i) <= k <
+ * getNeighborEnd(i)}, sorted by index.
+ *
+ * The adjacency ignores edge direction, an edge is listed in the rows of both
+ * endpoints, so that the length of a row equals the degree of the node as
+ * reported by Gephi. Direction, weight and the Gephi objects of the edges are
+ * still available through the edge arrays.
+ *
+ * The structure must be rebuilt whenever nodes or edges are added or removed
+ * or edge weights change, which {@link #isCurrent(Graph)} tells. Positions
+ * and sizes are copied at build time and can be read again from the nodes
+ * with {@link #refreshPositions()}, by the owner of the snapshot only: a
+ * shared snapshot hands out {@link #withCurrentPositions()} copies instead.
+ * Algorithms that iterate over the whole graph many times should work on a
+ * snapshot instead of on the Vertex and Edge wrappers.
+ */
+public final class GraphSnapshot {
+
+	private final Node[] nodes;
+	private final IntIntHashMap indexById;
+
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final int[] neighborEdges;
+
+	private final Edge[] edges;
+	private final int[] edgeSources;
+	private final int[] edgeTargets;
+	private final float[] edgeWeights;
+	private final boolean[] edgeDirected;
+
+	private final float[] x;
+	private final float[] y;
+	private final float[] sizes;
+
+	// the versions of the journal when the snapshot was built
+	private final long structureVersion;
+	private final long weightVersion;
+
+	private GraphSnapshot(Node[] nodes, Edge[] edges, long structureVersion,
+			long weightVersion) {
+		int nodeCount = nodes.length;
+		int edgeCount = edges.length;
+
+		this.structureVersion = structureVersion;
+		this.weightVersion = weightVersion;
+		this.nodes = nodes;
+		this.edges = edges;
+		indexById = new IntIntHashMap(nodeCount, -1);
+		x = new float[nodeCount];
+		y = new float[nodeCount];
+		sizes = new float[nodeCount];
+
+		for (int i = 0; i < nodeCount; i++)
+			indexById.put(nodes[i].getId(), i);
+		refreshPositions();
+
+		edgeSources = new int[edgeCount];
+		edgeTargets = new int[edgeCount];
+		edgeWeights = new float[edgeCount];
+		edgeDirected = new boolean[edgeCount];
+		offsets = new int[nodeCount + 1];
+
+		for (int e = 0; e < edgeCount; e++) {
+			int s = indexById.get(edges[e].getSource().getId());
+			int t = indexById.get(edges[e].getTarget().getId());
+			edgeSources[e] = s;
+			edgeTargets[e] = t;
+			edgeWeights[e] = edges[e].getWeight();
+			edgeDirected[e] = edges[e].isDirected();
+			offsets[s + 1]++;
+			offsets[t + 1]++;
+		}
+
+		for (int i = 0; i < nodeCount; i++)
+			offsets[i + 1] += offsets[i];
+
+		int[] fill = new int[nodeCount];
+		System.arraycopy(offsets, 0, fill, 0, nodeCount);
+		neighbors = new int[offsets[nodeCount]];
+		neighborEdges = new int[offsets[nodeCount]];
+
+		for (int e = 0; e < edgeCount; e++) {
+			int s = edgeSources[e];
+			int t = edgeTargets[e];
+			neighbors[fill[s]] = t;
+			neighborEdges[fill[s]++] = e;
+			neighbors[fill[t]] = s;
+			neighborEdges[fill[t]++] = e;
+		}
+
+		sortRows();
+	}
+
+	private GraphSnapshot(GraphSnapshot structure) {
+		structureVersion = structure.structureVersion;
+		weightVersion = structure.weightVersion;
+		nodes = structure.nodes;
+		indexById = structure.indexById;
+		offsets = structure.offsets;
+		neighbors = structure.neighbors;
+		neighborEdges = structure.neighborEdges;
+		edges = structure.edges;
+		edgeSources = structure.edgeSources;
+		edgeTargets = structure.edgeTargets;
+		edgeWeights = structure.edgeWeights;
+		edgeDirected = structure.edgeDirected;
+
+		x = new float[nodes.length];
+		y = new float[nodes.length];
+		sizes = new float[nodes.length];
+		refreshPositions();
+	}
+
+	/**
+	 * Copies the structure, the positions and the sizes of the given graph.
+	 * The graph should not be modified while the snapshot is built.
+	 *
+	 * @param graph
+	 *            the graph to copy
+	 * @return a new snapshot
+	 */
+	public static GraphSnapshot build(Graph graph) {
+		// read before the graph, a change made meanwhile makes it stale
+		ChangeJournal journal = BrowsableNetwork.getJournal();
+		long structureVersion = journal.getStructureVersion();
+		long weightVersion = journal.getWeightVersion();
+
+		return new GraphSnapshot(graph.getNodes().toArray(), graph.getEdges()
+				.toArray(), structureVersion, weightVersion);
+	}
+
+	/**
+	 * Tells whether the structure and the edge weights still match the graph.
+	 * Changes made through any BrowsableNetwork or Edge.setWeight() are seen
+	 * in the {@link ChangeJournal}, changes made directly on the Gephi graph
+	 * by its node and edge counts.
+	 *
+	 * @param graph
+	 *            the graph the snapshot was built from
+	 */
+	public boolean isCurrent(Graph graph) {
+		ChangeJournal journal = BrowsableNetwork.getJournal();
+
+		return structureVersion == journal.getStructureVersion()
+				&& weightVersion == journal.getWeightVersion()
+				&& nodes.length == graph.getNodeCount()
+				&& edges.length == graph.getEdgeCount();
+	}
+
+	/**
+	 * @return a snapshot that shares this structure, with its own copy of
+	 *         the current positions and sizes of the nodes
+	 */
+	public GraphSnapshot withCurrentPositions() {
+		return new GraphSnapshot(this);
+	}
+
+	/**
+	 * Sorts every row by neighbour index, keeping the edge indices aligned,
+	 * so that adjacency tests can use a binary search.
+	 */
+	private void sortRows() {
+		long[] row = new long[16];
+
+		for (int i = 0; i < nodes.length; i++) {
+			int start = offsets[i];
+			int length = offsets[i + 1] - start;
+
+			if (length < 2)
+				continue;
+
+			if (row.length < length)
+				row = new long[length];
+
+			for (int k = 0; k < length; k++)
+				row[k] = ((long) neighbors[start + k] << 32)
+						| neighborEdges[start + k];
+
+			Arrays.sort(row, 0, length);
+
+			for (int k = 0; k < length; k++) {
+				neighbors[start + k] = (int) (row[k] >>> 32);
+				neighborEdges[start + k] = (int) row[k];
+			}
+		}
+	}
+
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	/**
+	 * @param node
+	 *            a node of the graph
+	 * @return the index of the node, or -1 if it was not in the graph when the
+	 *         snapshot was built
+	 */
+	public int indexOf(Node node) {
+		return indexById.get(node.getId());
+	}
+
+	public Node getNode(int index) {
+		return nodes[index];
+	}
+
+	public int getDegree(int index) {
+		return offsets[index + 1] - offsets[index];
+	}
+
+	public int getNeighborStart(int index) {
+		return offsets[index];
+	}
+
+	public int getNeighborEnd(int index) {
+		return offsets[index + 1];
+	}
+
+	/**
+	 * @param k
+	 *            a position between getNeighborStart(i) and getNeighborEnd(i)
+	 * @return the index of the neighbour stored at that position
+	 */
+	public int getNeighbor(int k) {
+		return neighbors[k];
+	}
+
+	/**
+	 * @param k
+	 *            a position between getNeighborStart(i) and getNeighborEnd(i)
+	 * @return the index of the edge that connects to the neighbour stored at
+	 *         that position
+	 */
+	public int getNeighborEdge(int k) {
+		return neighborEdges[k];
+	}
+
+	/**
+	 * Tests if an edge exists between the two nodes, in either direction.
+	 */
+	public boolean isAdjacent(int i, int j) {
+		return Arrays.binarySearch(neighbors, offsets[i], offsets[i + 1],
+				j) >= 0;
+	}
+
+	/**
+	 * Looks for an edge from node i to node j, as Graph.getEdge() does: a
+	 * directed edge only matches in its own direction.
+	 *
+	 * @return the index of the edge, or -1 if there is none
+	 */
+	public int findEdge(int i, int j) {
+		int k = Arrays.binarySearch(neighbors, offsets[i], offsets[i + 1], j);
+
+		if (k < 0)
+			return -1;
+
+		// rows may hold the same neighbour several times, go to the first one
+		while (k > offsets[i] && neighbors[k - 1] == j)
+			k--;
+
+		for (; k < offsets[i + 1] && neighbors[k] == j; k++) {
+			int e = neighborEdges[k];
+			if (!edgeDirected[e] || edgeSources[e] == i)
+				return e;
+		}
+
+		return -1;
+	}
+
+	public Edge getEdge(int index) {
+		return edges[index];
+	}
+
+	public int getEdgeSource(int index) {
+		return edgeSources[index];
+	}
+
+	public int getEdgeTarget(int index) {
+		return edgeTargets[index];
+	}
+
+	public float getEdgeWeight(int index) {
+		return edgeWeights[index];
+	}
+
+	public boolean isEdgeDirected(int index) {
+		return edgeDirected[index];
+	}
+
+	public float getX(int index) {
+		return x[index];
+	}
+
+	public float getY(int index) {
+		return y[index];
+	}
+
+	public float getSize(int index) {
+		return sizes[index];
+	}
+
+	/**
+	 * Reads the current positions and sizes of the nodes again, without
+	 * touching the structure.
+	 */
+	public void refreshPositions() {
+		for (int i = 0; i < nodes.length; i++) {
+			NodeData data = nodes[i].getNodeData();
+			x[i] = data.x();
+			y[i] = data.y();
+			sizes[i] = data.getSize();
+		}
+	}
+
+	/**
+	 * Copies the positions last read from the nodes into the given arrays,
+	 * which must hold at least getNodeCount() elements.
+	 */
+	public void copyPositions(float[] xs, float[] ys) {
+		System.arraycopy(x, 0, xs, 0, x.length);
+		System.arraycopy(y, 0, ys, 0, y.length);
+	}
+}
@@ -0,0 +1,359 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import org.gephi.graph.api.NodeData;
+
+import ch.ethz.sg.cuttlefish.misc.IntIntHashMap;
+
+/**
+ * Point-in-time copy of a network for exports that run while the layout
+ * keeps moving the nodes and the user keeps editing the network, see
+ * {@link BrowsableNetwork#freeze(PositionSource)}. Exporters read only from
+ * the version, never from the network.
+ *
+ * The structure is shared with the other versions taken since the last
+ * change of vertices or edges: it is the cached {@link GraphSnapshot} of the
+ * network, which is never changed. The attributes of the vertices and edges
+ * are copied into arrays indexed like the structure, and so are the
+ * positions, from the given source or from the nodes.
+ */
+public final class GraphVersion {
+
+	private static final byte EXCLUDED = 1;
+	private static final byte FIXED = 2;
+	private static final byte ROOT = 4;
+
+	private final GraphSnapshot structure;
+	private final long version;
+
+	private final boolean directed;
+	private final boolean hideVertexLabels;
+	private final boolean hideEdgeLabels;
+	private final String edgeShape;
+
+	private final int[] ids;
+	private final String[] labels;
+	private final int[] fillColors;
+	private final int[] borderColors;
+	private final float[] sizes;
+	private final int[] widths;
+	private final String[] shapes;
+	private final String[] vertexVar1;
+	private final String[] vertexVar2;
+	private final byte[] vertexFlags;
+	private final float[] x;
+	private final float[] y;
+
+	private final String[] edgeLabels;
+	private final int[] edgeColors;
+	private final float[] edgeWidths;
+	private final String[] edgeVar1;
+	private final String[] edgeVar2;
+	private final boolean[] edgeExcluded;
+
+	/**
+	 * Copies the network, which must hold the read lock of its graph.
+	 */
+	GraphVersion(BrowsableNetwork network, GraphSnapshot structure,
+			long version, PositionSource positions) {
+		int n = structure.getNodeCount();
+		int m = structure.getEdgeCount();
+
+		this.structure = structure;
+		this.version = version;
+		directed = network.isDirected();
+		hideVertexLabels = network.hideVertexLabels();
+		hideEdgeLabels = network.hideEdgeLabels();
+		edgeShape = network.getEdgeShape();
+
+		ids = new int[n];
+		labels = new String[n];
+		fillColors = new int[n];
+		borderColors = new int[n];
+		sizes = new float[n];
+		widths = new int[n];
+		shapes = new String[n];
+		vertexVar1 = new String[n];
+		vertexVar2 = new String[n];
+		vertexFlags = new byte[n];
+		x = new float[n];
+		y = new float[n];
+
+		Vertex v = new Vertex(n > 0 ? structure.getNode(0) : null);
+		for (int i = 0; i < n; i++) {
+			v.internalNode = structure.getNode(i);
+			ids[i] = v.getId();
+			labels[i] = v.getLabel();
+			fillColors[i] = v.getFillRGB();
+			borderColors[i] = v.getBorderRGB();
+			sizes[i] = (float) v.getSize();
+			widths[i] = v.getWidth();
+			shapes[i] = v.getShape();
+			vertexVar1[i] = v.getVar1();
+			vertexVar2[i] = v.getVar2();
+			if (v.isExcluded())
+				vertexFlags[i] |= EXCLUDED;
+			if (v.isFixed())
+				vertexFlags[i] |= FIXED;
+			if (v.isRoot())
+				vertexFlags[i] |= ROOT;
+		}
+		assignUniqueIds();
+
+		if (positions == null || !positions.copyPositions(structure, x, y)) {
+			for (int i = 0; i < n; i++) {
+				NodeData data = structure.getNode(i).getNodeData();
+				x[i] = data.x();
+				y[i] = data.y();
+			}
+		}
+
+		edgeLabels = new String[m];
+		edgeColors = new int[m];
+		edgeWidths = new float[m];
+		edgeVar1 = new String[m];
+		edgeVar2 = new String[m];
+		edgeExcluded = new boolean[m];
+
+		Edge e = null;
+		for (int k = 0; k < m; k++) {
+			if (e == null)
+				e = new Edge(structure.getEdge(k));
+			else
+				e.wrap(structure.getEdge(k));
+			edgeLabels[k] = e.getLabel();
+			edgeColors[k] = e.getRGB();
+			edgeWidths[k] = (float) e.getWidth();
+			edgeVar1[k] = e.getVar1();
+			edgeVar2[k] = e.getVar2();
+			edgeExcluded[k] = e.isExcluded();
+		}
+	}
+
+	private GraphVersion(GraphVersion other, float dx, float dy) {
+		structure = other.structure;
+		version = other.version;
+		directed = other.directed;
+		hideVertexLabels = other.hideVertexLabels;
+		hideEdgeLabels = other.hideEdgeLabels;
+		edgeShape = other.edgeShape;
+
+		ids = other.ids;
+		labels = other.labels;
+		fillColors = other.fillColors;
+		borderColors = other.borderColors;
+		sizes = other.sizes;
+		widths = other.widths;
+		shapes = other.shapes;
+		vertexVar1 = other.vertexVar1;
+		vertexVar2 = other.vertexVar2;
+		vertexFlags = other.vertexFlags;
+
+		edgeLabels = other.edgeLabels;
+		edgeColors = other.edgeColors;
+		edgeWidths = other.edgeWidths;
+		edgeVar1 = other.edgeVar1;
+		edgeVar2 = other.edgeVar2;
+		edgeExcluded = other.edgeExcluded;
+
+		x = new float[other.x.length];
+		y = new float[other.y.length];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = other.x[i] + dx;
+			y[i] = other.y[i] + dy;
+		}
+	}
+
+	/**
+	 * Exported files refer to the vertices by id, so the ids must be unique.
+	 * If they are not, the copy numbers the vertices from 0 in the order of
+	 * the structure, the network keeps its ids.
+	 */
+	private void assignUniqueIds() {
+		IntIntHashMap seen = new IntIntHashMap(ids.length, -1);
+
+		for (int i = 0; i < ids.length; i++) {
+			if (seen.get(ids[i]) >= 0) {
+				for (int j = 0; j < ids.length; j++)
+					ids[j] = j;
+				return;
+			}
+			seen.put(ids[i], i);
+		}
+	}
+
+	/**
+	 * Returns the structure of the version. Its positions are those from when
+	 * the structure was built, use the ones of the version instead.
+	 *
+	 * @return the shared structure
+	 */
+	public GraphSnapshot getStructure() {
+		return structure;
+	}
+
+	/**
+	 * @return the version of the {@link ChangeJournal} the copy was taken at
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public int getNodeCount() {
+		return ids.length;
+	}
+
+	public int getEdgeCount() {
+		return edgeLabels.length;
+	}
+
+	public boolean isDirected() {
+		return directed;
+	}
+
+	public boolean hideVertexLabels() {
+		return hideVertexLabels;
+	}
+
+	public boolean hideEdgeLabels() {
+		return hideEdgeLabels;
+	}
+
+	public String getEdgeShape() {
+		return edgeShape;
+	}
+
+	/**
+	 * @return the id of the vertex, unique within the version
+	 */
+	public int getId(int index) {
+		return ids[index];
+	}
+
+	public String getLabel(int index) {
+		return labels[index];
+	}
+
+	/**
+	 * @return the fill color as packed RGB, see {@link Vertex#getFillRGB()}
+	 */
+	public int getFillRGB(int index) {
+		return fillColors[index];
+	}
+
+	/**
+	 * @return the border color as packed RGB, see
+	 *         {@link Vertex#getBorderRGB()}
+	 */
+	public int getBorderRGB(int index) {
+		return borderColors[index];
+	}
+
+	public double getSize(int index) {
+		return sizes[index];
+	}
+
+	public int getWidth(int index) {
+		return widths[index];
+	}
+
+	public String getShape(int index) {
+		return shapes[index];
+	}
+
+	public String getVar1(int index) {
+		return vertexVar1[index];
+	}
+
+	public String getVar2(int index) {
+		return vertexVar2[index];
+	}
+
+	public boolean isExcluded(int index) {
+		return (vertexFlags[index] & EXCLUDED) != 0;
+	}
+
+	public boolean isFixed(int index) {
+		return (vertexFlags[index] & FIXED) != 0;
+	}
+
+	public boolean isRoot(int index) {
+		return (vertexFlags[index] & ROOT) != 0;
+	}
+
+	public float getX(int index) {
+		return x[index];
+	}
+
+	public float getY(int index) {
+		return y[index];
+	}
+
+	/**
+	 * @return the index of the source vertex of the edge
+	 */
+	public int getEdgeSource(int edge) {
+		return structure.getEdgeSource(edge);
+	}
+
+	/**
+	 * @return the index of the target vertex of the edge
+	 */
+	public int getEdgeTarget(int edge) {
+		return structure.getEdgeTarget(edge);
+	}
+
+	public boolean isEdgeDirected(int edge) {
+		return structure.isEdgeDirected(edge);
+	}
+
+	public double getEdgeWeight(int edge) {
+		return structure.getEdgeWeight(edge);
+	}
+
+	public String getEdgeLabel(int edge) {
+		return edgeLabels[edge];
+	}
+
+	/**
+	 * @return the color of the edge as packed RGB, see {@link Edge#getRGB()}
+	 */
+	public int getEdgeRGB(int edge) {
+		return edgeColors[edge];
+	}
+
+	public double getEdgeWidth(int edge) {
+		return edgeWidths[edge];
+	}
+
+	public String getEdgeVar1(int edge) {
+		return edgeVar1[edge];
+	}
+
+	public String getEdgeVar2(int edge) {
+		return edgeVar2[edge];
+	}
+
+	public boolean isEdgeExcluded(int edge) {
+		return edgeExcluded[edge];
+	}
+
+	/**
+	 * @return a version with the positions translated so that the smallest
+	 *         coordinates are 0, as LayoutLoader.normalizeLayout() does on the
+	 *         graph
+	 */
+	public GraphVersion normalized() {
+		if (x.length == 0)
+			return this;
+
+		float minX = Float.MAX_VALUE;
+		float minY = Float.MAX_VALUE;
+
+		for (int i = 0; i < x.length; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+		}
+
+		return new GraphVersion(this, -minX, -minY);
+	}
+}
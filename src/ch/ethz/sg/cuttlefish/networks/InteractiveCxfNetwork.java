@@ -21,24 +21,46 @@
 
 package ch.ethz.sg.cuttlefish.networks;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.swing.JOptionPane;
 
 import ch.ethz.sg.cuttlefish.Cuttlefish;
 import ch.ethz.sg.cuttlefish.layout.LayoutLoader;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
 import ch.ethz.sg.cuttlefish.misc.Observer;
 import ch.ethz.sg.cuttlefish.misc.Subject;
 
+/**
+ * Network that plays the instructions of a CEF file on a CXF network. The
+ * instructions are read while they are played, a few at a time. A frame is
+ * one step of the playback: a single instruction, or all the instructions of
+ * a [ ... ] block.
+ *
+ * Every {@link #KEYFRAME_INTERVAL} frames, the network is saved to a
+ * temporary cxb file together with the offset of the frame in the CEF file.
+ * Seeking to a frame restores the nearest keyframe before it and plays only
+ * the frames after it.
+ */
 public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 		Subject {
 
+	static final int KEYFRAME_INTERVAL = 500;
+	private static final int LOOKAHEAD = 256;
+
 	boolean done;
 	private static final long serialVersionUID = 1L;
 	private ArrayList<Observer> observers;
@@ -46,38 +68,216 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 	private int currentSleepTime = 0;
 	private int currentMaxStepUpdates = 50;
 
+	private File instructionsFile;
+	private transient CxfLexer instructions;
+	private final ArrayDeque<Token> lookahead = new ArrayDeque<Token>();
+	private int frame = 0;
+	private final TreeMap<Integer, Keyframe> keyframes;
+
+	/**
+	 * State of the playback at the beginning of a frame.
+	 */
+	private static class Keyframe {
+		File file;
+		long offset;
+		int line;
+		String label;
+		int sleepTime;
+		int maxStepUpdates;
+	}
+
 	public InteractiveCxfNetwork() {
 		super();
+		keyframes = new TreeMap<Integer, Keyframe>();
 		observers = new ArrayList<Observer>();
 		setIncremental(true);
 	}
 
 	public InteractiveCxfNetwork(File graphFile) throws FileNotFoundException {
+		keyframes = new TreeMap<Integer, Keyframe>();
 		load(graphFile);
 		setIncremental(true);
 		done = false;
 	}
 
+	/**
+	 * Starts the playback of the instructions of the file from the current
+	 * state of the network, which becomes the first keyframe.
+	 */
 	public void loadInstructions(File instructionsFile) {
 		setIncremental(true);
+		closeInstructions();
+		deleteKeyframes();
+
+		this.instructionsFile = instructionsFile;
+		frame = 0;
+		storeKeyframe(0, 1);
+		openInstructions(0, 1);
+		done = !hasNext();
+	}
+
+	/**
+	 * Opens the instructions file at the beginning of a frame.
+	 */
+	private void openInstructions(long offset, int line) {
 		try {
-			fr = new FileReader(instructionsFile);
+			// seeks in plain files, compressed ones are inflated up to the
+			// offset
+			InputStream in = CompressedStreams.openInput(instructionsFile);
+			long skipped = 0;
+			long n = 0;
+			while (skipped < offset && (n = in.skip(offset - skipped)) > 0)
+				skipped += n;
+			if (skipped < offset) {
+				in.close();
+				throw new IOException("Cannot seek to offset " + offset
+						+ " of " + instructionsFile);
+			}
+			instructions = new CxfLexer(in, offset, line);
 		} catch (FileNotFoundException fnfEx) {
-			JOptionPane.showMessageDialog(null, fnfEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
-			Cuttlefish.err("cxf network file not found");
+			getDiagnostics().error("File not found", fnfEx.getMessage());
+			Cuttlefish.err("cef instructions file not found");
 			fnfEx.printStackTrace();
+		} catch (IOException ioEx) {
+			getDiagnostics().error("Input error", ioEx.getMessage());
+			Cuttlefish.err("Input error");
+			ioEx.printStackTrace();
 		}
+	}
 
-		br = new BufferedReader(fr);
+	private void closeInstructions() {
+		lookahead.clear();
+		if (instructions == null)
+			return;
 
-		Token token;
-		instructionTokens = new ArrayList<Token>();
+		try {
+			instructions.close();
+		} catch (IOException ioEx) {
+			ioEx.printStackTrace();
+		}
+		instructions = null;
+	}
 
-		while ((token = getNextToken()) != null)
-			instructionTokens.add(token);
+	/**
+	 * @return whether there is another instruction, read ahead if needed
+	 */
+	private boolean hasNext() {
+		while (lookahead.size() < LOOKAHEAD && instructions != null) {
+			Token token = getNextToken(instructions);
+			if (token == null)
+				closeInstructions();
+			else
+				lookahead.add(token);
+		}
 
-		return;
+		return !lookahead.isEmpty();
+	}
+
+	/**
+	 * Saves the network at the beginning of the current frame, which starts
+	 * at the given offset and line of the instructions file.
+	 */
+	private void storeKeyframe(long offset, int line) {
+		Keyframe keyframe = new Keyframe();
+		keyframe.offset = offset;
+		keyframe.line = line;
+		keyframe.label = currentLabel;
+		keyframe.sleepTime = currentSleepTime;
+		keyframe.maxStepUpdates = currentMaxStepUpdates;
+
+		try {
+			keyframe.file = File.createTempFile("keyframe", ".cxb");
+			keyframe.file.deleteOnExit();
+
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(
+					keyframe.file));
+			try {
+				new CxbWriter(freeze()).write(out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException ioEx) {
+			// seeking goes back to an earlier keyframe instead
+			System.err.println("Cannot store keyframe " + frame + ": "
+					+ ioEx.getMessage());
+			if (keyframe.file != null)
+				keyframe.file.delete();
+			return;
+		}
+
+		keyframes.put(frame, keyframe);
+	}
+
+	private void deleteKeyframes() {
+		for (Keyframe keyframe : keyframes.values())
+			keyframe.file.delete();
+		keyframes.clear();
+	}
+
+	/**
+	 * Restores the network at the last keyframe at or before the target
+	 * frame, or reloads the network file if there is none.
+	 */
+	private void restore(int target) {
+		closeInstructions();
+
+		Map.Entry<Integer, Keyframe> entry;
+		while ((entry = keyframes.floorEntry(target)) != null) {
+			Keyframe keyframe = entry.getValue();
+			try {
+				new CxbReader(keyframe.file, this).read();
+			} catch (IOException ioEx) {
+				System.err.println("Dropping keyframe " + entry.getKey()
+						+ ": " + ioEx.getMessage());
+				keyframe.file.delete();
+				keyframes.remove(entry.getKey());
+				continue;
+			}
+
+			frame = entry.getKey();
+			currentLabel = keyframe.label;
+			currentSleepTime = keyframe.sleepTime;
+			currentMaxStepUpdates = keyframe.maxStepUpdates;
+			openInstructions(keyframe.offset, keyframe.line);
+			return;
+		}
+
+		reload();
+		frame = 0;
+		currentLabel = "";
+		currentSleepTime = 0;
+		currentMaxStepUpdates = 50;
+		openInstructions(0, 1);
+	}
+
+	/**
+	 * Plays the frames from the nearest keyframe up to the given one.
+	 * 
+	 * @return false if the instructions end before the frame
+	 */
+	public boolean seekFrame(int target) {
+		if (instructionsFile == null || target < 0)
+			return false;
+
+		Integer nearest = keyframes.floorKey(target);
+		if (target < frame || (nearest != null && nearest > frame))
+			restore(target);
+
+		while (frame < target && hasNext())
+			step();
+		done = !hasNext();
+
+		for (Observer o : observers)
+			o.update(this);
+
+		return frame == target;
+	}
+
+	/**
+	 * @return the number of frames played since the beginning
+	 */
+	public int getFrame() {
+		return frame;
 	}
 
 	public int getCurrentSleepTime() {
@@ -92,26 +292,32 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 		if (token.type == null)
 			return;
 
+		if (token.malformed != null) {
+			getDiagnostics().error("Malformed number",
+					"Malformed " + token.type + " in line " + token.line
+							+ ": " + token.malformed);
+			return;
+		}
+
 		if (token.type.equalsIgnoreCase("layout")) {
 			String layout = token.var1;
 			LayoutLoader.getInstance().setLayoutParameters(token.params);
 			LayoutLoader.getInstance().setLayoutByName(layout);
 
 		} else if (token.type.equalsIgnoreCase("addNode")) {
-			if (hash.containsKey(token.id))
+			if (vertexFor(token) != null)
 				System.out
 						.println("WARNING: trying to add an existing node -- Use editNode");
 			else {
 				Vertex v = createVertex(token);
-				hash.put(token.id, v);
 
 				// add the new vertex somewhere near the existing ones
 				v.setPosition(getPointNearGraph());
 				addVertex(v);
 			}
 		} else if (token.type.equalsIgnoreCase("removeNode")) {
-			if (hash.containsKey(token.id)) {
-				Vertex v = hash.get(token.id);
+			if (vertexFor(token) != null) {
+				Vertex v = vertexFor(token);
 
 				if (isDirected()) {
 					for (Edge e : getOutEdges(v))
@@ -122,12 +328,11 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 					for (Edge e : getIncidentEdges(v))
 						removeEdge(e);
 				removeVertex(v);
-				hash.remove(token.id);
 			}
 
 		} else if (token.type.equalsIgnoreCase("editNode")) {
-			if (hash.containsKey(token.id)) {
-				Vertex v = hash.get(token.id);
+			if (vertexFor(token) != null) {
+				Vertex v = vertexFor(token);
 				editVertex(v, token);
 			} else {
 				JOptionPane.showMessageDialog(null,
@@ -138,73 +343,63 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 			}
 
 		} else if (token.type.equalsIgnoreCase("addEdge")) {
-			if (hash.containsKey(token.id_source)
-					&& hash.containsKey(token.id_dest)) {
-				Vertex vSource = hash.get(token.id_source);
-				Vertex vDest = hash.get(token.id_dest);
+			if (sourceFor(token) != null && targetFor(token) != null) {
+				Vertex vSource = sourceFor(token);
+				Vertex vDest = targetFor(token);
 				if (findEdge(vSource, vDest) != null)
-					System.out.println("WARNING: the edge (" + token.id_source
-							+ "," + token.id_dest
+					System.out.println("WARNING: the edge (" + token.endpoints()
 							+ ") already existed -- use editEdge");
 				Edge e = createEdge(token);
 				addEdge(e);
 			} else if (!token.commit && !token.freeze) {
 				JOptionPane.showMessageDialog(null,
 						"One of the endpoints of the added edge ("
-								+ token.id_source + "," + token.id_dest
+								+ token.endpoints()
 								+ ") does not exist", "Warning",
 						JOptionPane.WARNING_MESSAGE);
 				System.out
 						.println("WARNING: one of the endpoints of the added edge ("
-								+ token.id_source
-								+ ","
-								+ token.id_dest
+								+ token.endpoints()
 								+ ") does not exist");
 			}
 		} else if (token.type.equalsIgnoreCase("removeEdge")) {
-			if (hash.containsKey(token.id_source)
-					&& hash.containsKey(token.id_dest)) {
-				Vertex vSource = hash.get(token.id_source);
-				Vertex vDest = hash.get(token.id_dest);
+			if (sourceFor(token) != null && targetFor(token) != null) {
+				Vertex vSource = sourceFor(token);
+				Vertex vDest = targetFor(token);
 				Edge e;
 				if ((e = findEdge(vSource, vDest)) != null)
 					removeEdge(e);
 			} else {
 				JOptionPane.showMessageDialog(null,
 						"One of the endpoints of the added edge ("
-								+ token.id_source + "," + token.id_dest
+								+ token.endpoints()
 								+ ") does not exist", "Warning",
 						JOptionPane.WARNING_MESSAGE);
 				System.out
 						.println("WARNING: one of the endpoints of the added edge ("
-								+ token.id_source
-								+ ","
-								+ token.id_dest
+								+ token.endpoints()
 								+ ") does not exist");
 			}
 		} else if (token.type.equalsIgnoreCase("editEdge")) {
-			if (hash.containsKey(token.id_source)
-					&& hash.containsKey(token.id_dest)) {
-				Vertex vSource = hash.get(token.id_source);
-				Vertex vDest = hash.get(token.id_dest);
+			if (sourceFor(token) != null && targetFor(token) != null) {
+				Vertex vSource = sourceFor(token);
+				Vertex vDest = targetFor(token);
 				Edge e;
 				if ((e = findEdge(vSource, vDest)) != null)
 					editEdge(e, token);
 				else
 					System.out.println("WARNING: the edited edge ("
-							+ token.id_source + "," + token.id_dest
+							+ token.endpoints()
 							+ ") didn't exist -- use addEdge");
 			} else {
 				JOptionPane.showMessageDialog(null,
 						"One of the endpoints of the added edge ("
-								+ token.id_source + "," + token.id_dest
+								+ token.endpoints()
 								+ ") does not exist", "Warning",
 						JOptionPane.WARNING_MESSAGE);
 				System.out
 						.println("WARNING: one of the endpoints of the added edge ("
-								+ token.id_source
-								+ ","
-								+ token.id_dest
+								+ token.endpoints()
 								+ ") does not exist");
 			}
 
@@ -226,17 +421,17 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 	private void editVertex(Vertex v, Token token) {
 		if (token.label != null)
 			v.setLabel(token.label);
-		if (token.size != null)
+		if (!Double.isNaN(token.size))
 			v.setSize(token.size);
 		if (token.shape != null)
 			v.setShape(token.shape);
-		if (token.color != null)
-			v.setFillColor(token.color);
-		if (token.borderColor != null)
-			v.setBorderColor(token.borderColor);
-		if (token.position != null)
-			v.setPosition(token.position);
-		if (token.borderWidth != null)
+		if (token.color != 0)
+			v.setFillRGB(token.color);
+		if (token.borderColor != 0)
+			v.setBorderRGB(token.borderColor);
+		if (token.hasPosition)
+			v.setPosition(token.x, token.y);
+		if (token.borderWidth != NO_WIDTH)
 			v.setWidth(token.borderWidth);
 		if (token.var1 != null)
 			v.setVar1(token.var1);
@@ -247,14 +442,14 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 	}
 
 	private void editEdge(Edge e, Token token) {
-		if (token.weight != null)
+		if (!Double.isNaN(token.weight))
 			e.setWeight(token.weight);
 		if (token.label != null)
 			e.setLabel(token.label);
-		if (token.size != null)
+		if (!Double.isNaN(token.size))
 			e.setWidth(token.size);
-		if (token.color != null)
-			e.setColor(token.color);
+		if (token.color != 0)
+			e.setRGB(token.color);
 		if (token.var1 != null)
 			e.setVar1(token.var1);
 		if (token.var2 != null)
@@ -265,16 +460,16 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 
 	@Override
 	public void reset() {
-		instructionIndex = 0;
-		currentLabel = "";
-
-		reload();
-		// resetNetwork(graphFile);
+		if (instructionsFile == null) {
+			currentLabel = "";
+			reload();
+		} else
+			restore(0);
 
 		for (Observer o : observers)
 			o.update(this);
 
-		done = false;
+		done = !hasNext();
 	}
 
 	/*
@@ -285,7 +480,7 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 	@SuppressWarnings("unused")
 	private void resetNetwork(File graphFile) {
 		try {
-			br = new BufferedReader(new FileReader(graphFile));
+			lexer = new CxfLexer(new FileInputStream(graphFile));
 			ArrayList<Token> edgeTokens = new ArrayList<Token>();
 			Token token;
 
@@ -293,11 +488,11 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 				if (token.type.toLowerCase().contains("node")) {
 					Vertex v = createVertex(token);
 
-					if (hash.get(v.getId()) != null) {
+					if (getVertexById(v.getId()) != null) {
 						// the node is already in the network, reset the
 						// attributes to the
 						// ones specified in the cxf file
-						Vertex w = hash.get(v.getId());
+						Vertex w = getVertexById(v.getId());
 						w.setBorderColor(v.getBorderColor());
 						w.setExcluded(v.isExcluded());
 						w.setFillColor(v.getFillColor());
@@ -312,15 +507,13 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 					} else {
 						// the node was removed, reinsert it in the network
 						addVertex(v);
-						// we store the ids and vertices in a hash table
-						hash.put(v.getId(), v);
 					}
 				} else if (token.type.toLowerCase().contains("edge")) {
 					edgeTokens.add(token);
 				} else if (!token.type.toLowerCase().equalsIgnoreCase(
 						"configuration")) {
-					if (!confirmFileFormatWarning("Unknown command in line "
-							+ token.line, "cxf error"))
+					if (!getDiagnostics().error("Unknown command",
+							"Unknown command in line " + token.line))
 						return;
 				}
 			}
@@ -333,13 +526,13 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 
 			for (Token t : edgeTokens) {
 				// Check if the edge is already there
-				Vertex source = hash.get(t.id_source);
-				Vertex dest = hash.get(t.id_dest);
+				Vertex source = sourceFor(t);
+				Vertex dest = targetFor(t);
 				if ((source == null) || (dest == null)) {
-					if (!confirmFileFormatWarning(
+					if (!getDiagnostics().error("Malformed edge",
 							"Malformed edge (nonexistent endpoint): ("
-									+ t.id_source + "," + t.id_dest
-									+ ") in line " + t.line, "cxf error"))
+									+ t.endpoints()
+									+ ") in line " + t.line))
 						return;
 				} else {
 					// check if the edge is already in the graph
@@ -367,40 +560,43 @@ public class InteractiveCxfNetwork extends CxfNetwork implements ISimulation,
 			for (Edge e : existingEdges) {
 				removeEdge(e);
 			}
-			line = null;
 
 		} catch (FileNotFoundException fnfEx) {
-			JOptionPane.showMessageDialog(null, fnfEx.getMessage(), "Error",
-					JOptionPane.ERROR_MESSAGE);
+			getDiagnostics().error("File not found", fnfEx.getMessage());
 			Cuttlefish.err("Network file not found");
 			fnfEx.printStackTrace();
+		} finally {
+			closeLexer();
 		}
 
 	}
 
 	@Override
 	public boolean update(long passedTime) {
-		if (!done) {
-			Token token = instructionTokens.get(instructionIndex);
-			if (token.freeze) {
-				execute(token);
-				instructionIndex++;
-				boolean commited = token.commit;
-				while ((instructionIndex < instructionTokens.size())
-						&& (!commited)) {
-					token = instructionTokens.get(instructionIndex);
-					execute(token);
-					instructionIndex++;
-					commited = token.commit;
-				}
+		if (!done)
+			step();
+		done = !hasNext();
+		return !done;
+	}
+
+	/**
+	 * Plays the next frame, storing a keyframe before it if it is due.
+	 */
+	private void step() {
+		Token token = lookahead.poll();
+		if (token == null)
+			return;
+
+		if (frame % KEYFRAME_INTERVAL == 0 && !keyframes.containsKey(frame))
+			storeKeyframe(token.offset, token.line);
 
-			} else if (instructionIndex < instructionTokens.size()) {
+		execute(token);
+		if (token.freeze)
+			while (!token.commit && hasNext()) {
+				token = lookahead.poll();
 				execute(token);
-				instructionIndex++;
 			}
-		}
-		done = !(instructionIndex < instructionTokens.size());
-		return !done;
+		frame++;
 	}
 
 	@Override
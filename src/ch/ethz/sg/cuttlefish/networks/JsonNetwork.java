@@ -25,18 +25,19 @@ package ch.ethz.sg.cuttlefish.networks;
 import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
-import javax.swing.JOptionPane;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
-
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedEdge;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
 
 public class JsonNetwork extends BrowsableNetwork {
 
@@ -71,141 +72,327 @@ public class JsonNetwork extends BrowsableNetwork {
 	 * @param jsonFile
 	 */
 	public void load(File file) throws IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(file));
-		String line = null;
-		StringBuilder stringBuilder = new StringBuilder();
-		String ls = System.getProperty("line.separator");
-
-		while ((line = reader.readLine()) != null) {
-			stringBuilder.append(line);
-			stringBuilder.append(ls);
+		Reader reader = new BufferedReader(CompressedStreams.openReader(file));
+		try {
+			load(reader);
+		} finally {
+			reader.close();
 		}
-		reader.close();
-
-		load(stringBuilder.toString());
 	}
 
 	private void load(String json) {
-		Gson gson = new Gson();
-
-		Type type = new TypeToken<JsonData>() {
-		}.getType();
-		JsonData jsonData = gson.fromJson(json, type);
-
-		Collection<JsonNode> jsonNodes = jsonData.nodes;
-		Collection<JsonEdge> jsonEdges = jsonData.edges;
-
-		// we need this map when adding the edges
-		Map<Integer, Vertex> idToNode = new HashMap<Integer, Vertex>();
-		// Add all nodes to the network
-		for (JsonNode jsonNode : jsonNodes) {
-
-			Vertex v = new Vertex(jsonNode.id);
-			if (jsonNode.label != null)
-				v.setLabel(jsonNode.label);
-			if (jsonNode.color != null) {
-				float R, G, B;
-				try {
-					int pos = jsonNode.color.indexOf('{') + 1;
-					R = Float.parseFloat(jsonNode.color.substring(pos,
-							jsonNode.color.indexOf(',', pos)));
-					pos = jsonNode.color.indexOf(',', pos) + 1;
-					G = Float.parseFloat(jsonNode.color.substring(pos,
-							jsonNode.color.indexOf(',', pos)));
-					pos = jsonNode.color.indexOf(',', pos) + 1;
-					B = Float.parseFloat(jsonNode.color.substring(pos,
-							jsonNode.color.indexOf('}', pos)));
-					v.setFillColor(new Color(R, G, B));
-				} catch (Exception nfEx) {
-					JOptionPane.showMessageDialog(null, "Malformed color "
-							+ jsonNode.color, "cxf error",
-							JOptionPane.WARNING_MESSAGE);
-					System.out.println("Malformed color " + jsonNode.color);
-				}
+		try {
+			load(new StringReader(json));
+		} catch (IOException e) {
+			// a string is always readable, so the json is malformed
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	/**
+	 * Streams the Json data: vertices and edges are staged in the builder as
+	 * the elements of their arrays are read, the document is never held as a
+	 * whole.
+	 */
+	private void load(Reader in) throws IOException {
+		JsonReader reader = new JsonReader(in);
+		// the names are not quoted in the files written by Cuttlefish
+		reader.setLenient(true);
+
+		NetworkBuilder builder = new NetworkBuilder(this);
+		JsonNode jsonNode = new JsonNode();
+		JsonEdge jsonEdge = new JsonEdge();
+		// edges listed before the nodes wait for them
+		List<JsonEdge> pending = new ArrayList<JsonEdge>();
+		boolean nodesRead = false;
+
+		// false once the diagnostics stop the loading
+		boolean proceed = true;
+
+		reader.beginObject();
+		while (proceed && reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+				reader.skipValue();
+				continue;
 			}
-			if (jsonNode.borderColor != null) {
-				float R, G, B;
-				try {
-					int pos = jsonNode.borderColor.indexOf('{') + 1;
-					R = Float.parseFloat(jsonNode.borderColor.substring(pos,
-							jsonNode.borderColor.indexOf(',', pos)));
-					pos = jsonNode.borderColor.indexOf(',', pos) + 1;
-					G = Float.parseFloat(jsonNode.borderColor.substring(pos,
-							jsonNode.borderColor.indexOf(',', pos)));
-					pos = jsonNode.borderColor.indexOf(',', pos) + 1;
-					B = Float.parseFloat(jsonNode.borderColor.substring(pos,
-							jsonNode.borderColor.indexOf('}', pos)));
-					v.setBorderColor(new Color(R, G, B));
-				} catch (Exception nfEx) {
-					JOptionPane.showMessageDialog(null, "Malformed color "
-							+ jsonNode.color, "cxf error",
-							JOptionPane.WARNING_MESSAGE);
-					System.out.println("Malformed color " + jsonNode.color);
+
+			if (name.equals("nodes")) {
+				reader.beginArray();
+				while (proceed && reader.hasNext()) {
+					readNode(reader, jsonNode);
+					proceed = addNode(builder, jsonNode);
+				}
+				nodesRead = true;
+				for (int i = 0; proceed && i < pending.size(); i++)
+					proceed = addEdge(builder, pending.get(i));
+				pending.clear();
+			} else if (name.equals("edges")) {
+				reader.beginArray();
+				while (proceed && reader.hasNext()) {
+					JsonEdge e = nodesRead ? jsonEdge : new JsonEdge();
+					readEdge(reader, e);
+					if (nodesRead)
+						proceed = addEdge(builder, e);
+					else
+						pending.add(e);
 				}
+			} else {
+				reader.skipValue();
+				continue;
 			}
 
-			if (jsonNode.width > 0)
-				v.setWidth(jsonNode.width);
-			if (jsonNode.size > 0)
-				v.setSize(jsonNode.size);
-			if (jsonNode.shape != null)
-				v.setShape(jsonNode.shape);
-			if (jsonNode.x > 0 && jsonNode.y > 0)
-				v.setPosition(jsonNode.x, jsonNode.y);
-			if (jsonNode.var1 != null)
-				v.setVar1(jsonNode.var1);
-			if (jsonNode.var2 != null)
-				v.setVar2(jsonNode.var2);
-			if (jsonNode.hide)
-				v.setExcluded(jsonNode.hide);
-			if (jsonNode.fixed)
-				v.setFixed(jsonNode.fixed);
-			// store in the map for later
-			idToNode.put(v.getId(), v);
-			// add to the network
-			addVertex(v);
+			if (proceed)
+				reader.endArray();
 		}
 
-		for (JsonEdge jsonEdge : jsonEdges) {
-			Edge e = new Edge(idToNode.get(jsonEdge.id_origin),
-					idToNode.get(jsonEdge.id_dest), directed);
-			if (jsonEdge.label != null)
-				e.setLabel(jsonEdge.label);
-			if (jsonEdge.weight > 0)
-				e.setWeight(jsonEdge.weight);
-			if (jsonEdge.width > 0)
-				e.setWidth(jsonEdge.width);
-			if (jsonEdge.color != null) {
-				float R, G, B;
-				try {
-					int pos = jsonEdge.color.indexOf('{') + 1;
-					R = Float.parseFloat(jsonEdge.color.substring(pos,
-							jsonEdge.color.indexOf(',', pos)));
-					pos = jsonEdge.color.indexOf(',', pos) + 1;
-					G = Float.parseFloat(jsonEdge.color.substring(pos,
-							jsonEdge.color.indexOf(',', pos)));
-					pos = jsonEdge.color.indexOf(',', pos) + 1;
-					B = Float.parseFloat(jsonEdge.color.substring(pos,
-							jsonEdge.color.indexOf('}', pos)));
-					e.setColor(new Color(R, G, B));
-				} catch (Exception nfEx) {
-					JOptionPane.showMessageDialog(null, "Malformed color "
-							+ jsonEdge.color, "cxf error",
-							JOptionPane.WARNING_MESSAGE);
-					System.out.println("Malformed color " + jsonEdge.color);
-				}
+		// edges of a document without nodes
+		for (int i = 0; proceed && i < pending.size(); i++)
+			proceed = addEdge(builder, pending.get(i));
+
+		// add everything to the network at once
+		builder.commit();
+	}
+
+	private void readNode(JsonReader reader, JsonNode node) throws IOException {
+		node.id = 0;
+		node.label = null;
+		node.color = null;
+		node.borderColor = null;
+		node.size = 0;
+		node.shape = null;
+		node.width = 0;
+		node.x = 0;
+		node.y = 0;
+		node.var1 = null;
+		node.var2 = null;
+		node.hide = false;
+		node.fixed = false;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				continue;
 			}
-			if (jsonEdge.var1 != null)
-				e.setVar1(jsonEdge.var1);
-			if (jsonEdge.var2 != null)
-				e.setVar2(jsonEdge.var2);
-			if (jsonEdge.hide)
-				e.setExcluded(jsonEdge.hide);
-			addEdge(e);
+
+			if (name.equals("id"))
+				node.id = reader.nextInt();
+			else if (name.equals("label"))
+				node.label = reader.nextString();
+			else if (name.equals("color"))
+				node.color = reader.nextString();
+			else if (name.equals("borderColor"))
+				node.borderColor = reader.nextString();
+			else if (name.equals("size"))
+				node.size = reader.nextDouble();
+			else if (name.equals("shape"))
+				node.shape = reader.nextString();
+			else if (name.equals("width"))
+				node.width = reader.nextInt();
+			else if (name.equals("x"))
+				node.x = (float) reader.nextDouble();
+			else if (name.equals("y"))
+				node.y = (float) reader.nextDouble();
+			else if (name.equals("var1"))
+				node.var1 = reader.nextString();
+			else if (name.equals("var2"))
+				node.var2 = reader.nextString();
+			else if (name.equals("hide"))
+				node.hide = reader.nextBoolean();
+			else if (name.equals("fixed"))
+				node.fixed = reader.nextBoolean();
+			else
+				reader.skipValue();
 		}
+		reader.endObject();
+	}
 
+	private void readEdge(JsonReader reader, JsonEdge edge) throws IOException {
+		edge.id_origin = 0;
+		edge.id_dest = 0;
+		edge.label = null;
+		edge.weight = 0;
+		edge.width = 0;
+		edge.color = null;
+		edge.var1 = null;
+		edge.var2 = null;
+		edge.hide = false;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				continue;
+			}
+
+			if (name.equals("id_origin"))
+				edge.id_origin = reader.nextInt();
+			else if (name.equals("id_dest"))
+				edge.id_dest = reader.nextInt();
+			else if (name.equals("label"))
+				edge.label = reader.nextString();
+			else if (name.equals("weight"))
+				edge.weight = reader.nextDouble();
+			else if (name.equals("width"))
+				edge.width = reader.nextDouble();
+			else if (name.equals("color"))
+				edge.color = reader.nextString();
+			else if (name.equals("var1"))
+				edge.var1 = reader.nextString();
+			else if (name.equals("var2"))
+				edge.var2 = reader.nextString();
+			else if (name.equals("hide"))
+				edge.hide = reader.nextBoolean();
+			else
+				reader.skipValue();
+		}
+		reader.endObject();
 	}
 
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean addNode(NetworkBuilder builder, JsonNode jsonNode) {
+		StagedVertex v = builder.addVertex(jsonNode.id);
+		if (v == null)
+			return getDiagnostics().error("Double node identifier",
+					"Double node identifier " + jsonNode.id);
+
+		if (jsonNode.label != null)
+			v.setLabel(jsonNode.label);
+		if (jsonNode.color != null) {
+			try {
+				v.setFillColor(parseColor(jsonNode.color));
+			} catch (Exception nfEx) {
+				getDiagnostics().warning("Malformed color",
+						"Malformed color " + jsonNode.color);
+			}
+		}
+		if (jsonNode.borderColor != null) {
+			try {
+				v.setBorderColor(parseColor(jsonNode.borderColor));
+			} catch (Exception nfEx) {
+				getDiagnostics().warning("Malformed color",
+						"Malformed color " + jsonNode.borderColor);
+			}
+		}
+
+		if (jsonNode.width > 0)
+			v.setWidth(jsonNode.width);
+		if (jsonNode.size > 0)
+			v.setSize(jsonNode.size);
+		if (jsonNode.shape != null)
+			v.setShape(jsonNode.shape);
+		if (jsonNode.x > 0 && jsonNode.y > 0)
+			v.setPosition(jsonNode.x, jsonNode.y);
+		if (jsonNode.var1 != null)
+			v.setVar1(jsonNode.var1);
+		if (jsonNode.var2 != null)
+			v.setVar2(jsonNode.var2);
+		if (jsonNode.hide)
+			v.setExcluded(jsonNode.hide);
+		if (jsonNode.fixed)
+			v.setFixed(jsonNode.fixed);
+
+		return true;
+	}
+
+	/**
+	 * @return false if the loading has to stop
+	 */
+	private boolean addEdge(NetworkBuilder builder, JsonEdge jsonEdge) {
+		StagedEdge e = builder.addEdge(jsonEdge.id_origin, jsonEdge.id_dest,
+				directed);
+		if (e == null)
+			return getDiagnostics().error("Malformed edge",
+					"Malformed edge (nonexistent endpoint): ("
+							+ jsonEdge.id_origin + "," + jsonEdge.id_dest
+							+ ")");
+
+		if (jsonEdge.label != null)
+			e.setLabel(jsonEdge.label);
+		if (jsonEdge.weight > 0)
+			e.setWeight(jsonEdge.weight);
+		if (jsonEdge.width > 0)
+			e.setWidth(jsonEdge.width);
+		if (jsonEdge.color != null) {
+			try {
+				e.setColor(parseColor(jsonEdge.color));
+			} catch (Exception nfEx) {
+				getDiagnostics().warning("Malformed color",
+						"Malformed color " + jsonEdge.color);
+			}
+		}
+		if (jsonEdge.var1 != null)
+			e.setVar1(jsonEdge.var1);
+		if (jsonEdge.var2 != null)
+			e.setVar2(jsonEdge.var2);
+		if (jsonEdge.hide)
+			e.setExcluded(jsonEdge.hide);
+
+		return true;
+	}
+
+	/**
+	 * Parses a color written as {r,g,b} with components between 0 and 1, in
+	 * one scan of the string.
+	 */
+	static Color parseColor(String color) {
+		float[] rgb = new float[3];
+		int pos = color.indexOf('{') + 1;
+
+		for (int k = 0; k < rgb.length; k++) {
+			char separator = k < rgb.length - 1 ? ',' : '}';
+			int end = pos;
+			while (end < color.length() && color.charAt(end) != separator)
+				end++;
+			if (end == color.length())
+				throw new NumberFormatException("Malformed color " + color);
+
+			rgb[k] = parseComponent(color, pos, end);
+			pos = end + 1;
+		}
+
+		return new Color(rgb[0], rgb[1], rgb[2]);
+	}
+
+	/**
+	 * Parses a plain decimal number, anything else is left to
+	 * Float.parseFloat().
+	 */
+	private static float parseComponent(String s, int from, int to) {
+		while (from < to && s.charAt(from) <= ' ')
+			from++;
+		while (to > from && s.charAt(to - 1) <= ' ')
+			to--;
+
+		long mantissa = 0;
+		double divisor = 1;
+		boolean fraction = false;
+		int digits = 0;
+
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9' && digits < 15) {
+				mantissa = mantissa * 10 + (c - '0');
+				if (fraction)
+					divisor *= 10;
+				digits++;
+			} else if (c == '.' && !fraction)
+				fraction = true;
+			else
+				return Float.parseFloat(s.substring(from, to));
+		}
+		if (digits == 0)
+			return Float.parseFloat(s.substring(from, to));
+
+		return (float) (mantissa / divisor);
+	}
+
+
 	/**
 	 * Setter for the directed field of the network
 	 * 
@@ -319,9 +506,4 @@ public class JsonNetwork extends BrowsableNetwork {
 		}
 	}
 
-	class JsonData {
-		Collection<JsonNode> nodes;
-		Collection<JsonEdge> edges;
-	}
-
 }
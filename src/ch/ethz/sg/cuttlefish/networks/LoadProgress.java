@@ -0,0 +1,26 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+/**
+ * Receives the progress of a network being loaded, see
+ * {@link BrowsableNetwork#setLoadProgress(LoadProgress)}. The loaders call it
+ * on the loading thread every few thousand elements, and stop when it is
+ * cancelled, keeping what they have read so far.
+ */
+public interface LoadProgress {
+
+	/**
+	 * @param bytesRead
+	 *            how far the input file has been read
+	 * @param totalBytes
+	 *            the length of the input file, or -1 if it is unknown
+	 * @param elements
+	 *            the number of nodes and edges read so far, or -1 if it is
+	 *            unknown
+	 */
+	void progress(long bytesRead, long totalBytes, int elements);
+
+	/**
+	 * @return whether the loading has to stop
+	 */
+	boolean isCancelled();
+}
@@ -0,0 +1,591 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import ch.ethz.sg.cuttlefish.misc.IntIntHashMap;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
+
+/**
+ * Graph kept in a memory mapped file instead of the Java heap, for networks
+ * too large to be held by Gephi. The layout of the data follows
+ * {@link GraphSnapshot}: nodes are numbered densely from 0 to
+ * {@link #getVertexCount()} - 1 and the adjacency is stored in compressed
+ * sparse row form, each edge listed in the rows of both endpoints and every
+ * row sorted by neighbour index.
+ *
+ * The store is written once with a {@link Writer} and can then be opened as
+ * often as needed. Only positions can be changed afterwards, they are written
+ * through to the file. Since the layouts and exporters work on the Gephi
+ * graph, parts of the store are browsed by copying them into a
+ * BrowsableNetwork with {@link #copyTo(BrowsableNetwork, int[])}, and the
+ * positions computed there are stored back with
+ * {@link #storePositions(BrowsableNetwork)}, see {@link MappedNetwork}.
+ * Positions and sizes are NaN until they are set.
+ *
+ * Each section of the file is mapped on its own, so a section is limited to
+ * 2 GB, that is about 250 million edges.
+ */
+public final class MappedGraphStore {
+
+	private static final int MAGIC = 0x43464d47; // "CFMG"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final int NODE_BYTES = 16; // id, x, y, size
+	private static final int EDGE_BYTES = 16; // source, target, weight, flags
+
+	private static final int FLAG_DIRECTED = 1;
+
+	private final int nodeCount;
+	private final int edgeCount;
+
+	private final MappedByteBuffer nodes;
+	private final IntBuffer offsets;
+	private final IntBuffer neighbors;
+	private final IntBuffer neighborEdges;
+	private final MappedByteBuffer edges;
+
+	// index of the nodes by id, the only structure kept on the heap
+	private final IntIntHashMap indexById;
+
+	private MappedGraphStore(FileChannel channel, int nodeCount, int edgeCount)
+			throws IOException {
+		this.nodeCount = nodeCount;
+		this.edgeCount = edgeCount;
+
+		long pos = HEADER_BYTES;
+		nodes = map(channel, pos, (long) nodeCount * NODE_BYTES);
+		pos += (long) nodeCount * NODE_BYTES;
+		offsets = map(channel, pos, (nodeCount + 1L) * 4).asIntBuffer();
+		pos += (nodeCount + 1L) * 4;
+		neighbors = map(channel, pos, 2L * edgeCount * 4).asIntBuffer();
+		pos += 2L * edgeCount * 4;
+		neighborEdges = map(channel, pos, 2L * edgeCount * 4).asIntBuffer();
+		pos += 2L * edgeCount * 4;
+		edges = map(channel, pos, (long) edgeCount * EDGE_BYTES);
+
+		indexById = new IntIntHashMap(nodeCount, -1);
+		for (int i = 0; i < nodeCount; i++)
+			indexById.put(getId(i), i);
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long position,
+			long size) throws IOException {
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Graph too large for a mapped store");
+
+		return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+	}
+
+	private static long fileSize(int nodeCount, int edgeCount) {
+		return HEADER_BYTES + (long) nodeCount * NODE_BYTES
+				+ (nodeCount + 1L) * 4 + 4L * edgeCount * 4
+				+ (long) edgeCount * EDGE_BYTES;
+	}
+
+	/**
+	 * @return whether the file starts like a store
+	 */
+	public static boolean isStore(File file) throws IOException {
+		if (file.length() < HEADER_BYTES)
+			return false;
+
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			return in.readInt() == MAGIC;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Maps a store written by a {@link Writer}.
+	 *
+	 * @param file
+	 *            the file of the store
+	 * @return the store
+	 * @throws IOException
+	 *             if the file cannot be read or is not a store
+	 */
+	public static MappedGraphStore open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			if (raf.length() < HEADER_BYTES || raf.readInt() != MAGIC)
+				throw new IOException(file + " is not a graph store");
+			if (raf.readInt() != VERSION)
+				throw new IOException(file + " has an unsupported version");
+
+			int nodeCount = raf.readInt();
+			int edgeCount = raf.readInt();
+
+			if (raf.length() != fileSize(nodeCount, edgeCount))
+				throw new IOException(file + " is truncated");
+
+			// the mappings stay valid after the channel is closed
+			return new MappedGraphStore(raf.getChannel(), nodeCount,
+					edgeCount);
+		} finally {
+			raf.close();
+		}
+	}
+
+	public int getVertexCount() {
+		return nodeCount;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * @return the index of the vertex with the given id, or -1 if there is
+	 *         none
+	 */
+	public int indexOf(int id) {
+		return indexById.get(id);
+	}
+
+	/**
+	 * @return the id of the vertex at the given index
+	 */
+	public int getId(int index) {
+		return nodes.getInt(index * NODE_BYTES);
+	}
+
+	public float getX(int index) {
+		return nodes.getFloat(index * NODE_BYTES + 4);
+	}
+
+	public float getY(int index) {
+		return nodes.getFloat(index * NODE_BYTES + 8);
+	}
+
+	public float getSize(int index) {
+		return nodes.getFloat(index * NODE_BYTES + 12);
+	}
+
+	public void setPosition(int index, float x, float y) {
+		nodes.putFloat(index * NODE_BYTES + 4, x);
+		nodes.putFloat(index * NODE_BYTES + 8, y);
+	}
+
+	public int getDegree(int index) {
+		return offsets.get(index + 1) - offsets.get(index);
+	}
+
+	public int getNeighborStart(int index) {
+		return offsets.get(index);
+	}
+
+	public int getNeighborEnd(int index) {
+		return offsets.get(index + 1);
+	}
+
+	/**
+	 * @param k
+	 *            a position between getNeighborStart(i) and getNeighborEnd(i)
+	 * @return the index of the neighbour stored at that position
+	 */
+	public int getNeighbor(int k) {
+		return neighbors.get(k);
+	}
+
+	/**
+	 * @param k
+	 *            a position between getNeighborStart(i) and getNeighborEnd(i)
+	 * @return the index of the edge that connects to the neighbour stored at
+	 *         that position
+	 */
+	public int getNeighborEdge(int k) {
+		return neighborEdges.get(k);
+	}
+
+	/**
+	 * @return the indices of the neighbours of the vertex, without duplicates
+	 */
+	public int[] getNeighbors(int index) {
+		int start = getNeighborStart(index);
+		int end = getNeighborEnd(index);
+		int[] result = new int[end - start];
+		int count = 0;
+
+		for (int k = start; k < end; k++) {
+			int n = neighbors.get(k);
+			if (count == 0 || result[count - 1] != n)
+				result[count++] = n;
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Looks for an edge from node i to node j, as Graph.getEdge() does: a
+	 * directed edge only matches in its own direction.
+	 *
+	 * @return the index of the edge, or -1 if there is none
+	 */
+	public int findEdge(int i, int j) {
+		int end = getNeighborEnd(i);
+		int low = getNeighborStart(i);
+		int high = end;
+
+		// first position holding a neighbour >= j
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (neighbors.get(mid) < j)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		for (int k = low; k < end && neighbors.get(k) == j; k++) {
+			int e = neighborEdges.get(k);
+			if (!isEdgeDirected(e) || getEdgeSource(e) == i)
+				return e;
+		}
+
+		return -1;
+	}
+
+	public int getEdgeSource(int index) {
+		return edges.getInt(index * EDGE_BYTES);
+	}
+
+	public int getEdgeTarget(int index) {
+		return edges.getInt(index * EDGE_BYTES + 4);
+	}
+
+	public float getEdgeWeight(int index) {
+		return edges.getFloat(index * EDGE_BYTES + 8);
+	}
+
+	public boolean isEdgeDirected(int index) {
+		return (edges.getInt(index * EDGE_BYTES + 12) & FLAG_DIRECTED) != 0;
+	}
+
+	/**
+	 * Collects the vertices reachable from a vertex in at most the given
+	 * number of steps, in breadth first order.
+	 *
+	 * @param limit
+	 *            the maximum number of vertices returned
+	 * @return the indices of the vertices, starting with the given one
+	 */
+	public int[] getNeighborhood(int index, int depth, int limit) {
+		int[] found = new int[Math.min(limit, 1024)];
+		IntIntHashMap seen = new IntIntHashMap(found.length, -1);
+		int count = 0;
+
+		found[count++] = index;
+		seen.put(index, 0);
+
+		for (int head = 0; head < count && count < limit; head++) {
+			int current = found[head];
+			int d = seen.get(current);
+
+			if (d == depth)
+				continue;
+
+			for (int k = getNeighborStart(current); k < getNeighborEnd(current)
+					&& count < limit; k++) {
+				int n = neighbors.get(k);
+
+				if (seen.containsKey(n))
+					continue;
+
+				if (count == found.length)
+					found = Arrays.copyOf(found, count * 2);
+				found[count++] = n;
+				seen.put(n, d + 1);
+			}
+		}
+
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Adds the given vertices and the edges between them to a network. The
+	 * vertices keep their ids and the positions and sizes that are set;
+	 * vertices already in the network are skipped.
+	 *
+	 * @param indices
+	 *            the indices of the vertices to copy
+	 */
+	public void copyTo(BrowsableNetwork network, int[] indices) {
+		IntIntHashMap selected = new IntIntHashMap(indices.length, -1);
+		NetworkBuilder builder = new NetworkBuilder(network, indices.length,
+				indices.length);
+
+		for (int i : indices) {
+			selected.put(i, i);
+			StagedVertex v = builder.addVertex(getId(i));
+
+			if (v == null)
+				continue;
+			if (!Float.isNaN(getX(i)))
+				v.setPosition(getX(i), getY(i));
+			if (!Float.isNaN(getSize(i)))
+				v.setSize(getSize(i));
+		}
+
+		for (int i : indices) {
+			int start = getNeighborStart(i);
+
+			for (int k = start; k < getNeighborEnd(i); k++) {
+				int e = neighborEdges.get(k);
+
+				// every edge is added from the row of its source, and only
+				// once for self loops, which are listed twice
+				if (getEdgeSource(e) != i
+						|| !selected.containsKey(neighbors.get(k))
+						|| (k > start && neighborEdges.get(k - 1) == e))
+					continue;
+
+				int targetId = getId(getEdgeTarget(e));
+
+				if (network.findEdge(getId(i), targetId) == null)
+					builder.addEdge(getId(i), targetId, getEdgeWeight(e),
+							isEdgeDirected(e));
+			}
+		}
+
+		builder.commit();
+	}
+
+	/**
+	 * Writes the positions of the vertices of the network back to the store.
+	 * Vertices that are not in the store are ignored.
+	 */
+	public void storePositions(BrowsableNetwork network) {
+		for (Vertex v : network.getVertices()) {
+			int index = indexOf(v.getId());
+
+			if (index >= 0)
+				setPosition(index, v.getX(), v.getY());
+		}
+	}
+
+	/**
+	 * Writes a store. Vertices are kept on the heap as they are added, edges
+	 * are spooled to a temporary file, so that only a few integers per
+	 * vertex are needed to write graphs with many more edges than fit in
+	 * memory.
+	 */
+	public static final class Writer {
+
+		private final File file;
+		private final File edgeFile;
+		private final DataOutputStream edgeOut;
+
+		private int[] ids = new int[1024];
+		private float[] coordinates = new float[3 * 1024];
+		private final IntIntHashMap indexById = new IntIntHashMap(1024, -1);
+		private int nodeCount = 0;
+		private int edgeCount = 0;
+
+		public Writer(File file) throws IOException {
+			this.file = file;
+			edgeFile = File.createTempFile("cuttlefish", ".edges");
+			edgeFile.deleteOnExit();
+			edgeOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(edgeFile)));
+		}
+
+		/**
+		 * @return false if a vertex with that id was already added
+		 */
+		public boolean addVertex(int id, float x, float y, float size) {
+			if (indexById.containsKey(id))
+				return false;
+
+			if (nodeCount == ids.length) {
+				ids = Arrays.copyOf(ids, nodeCount * 2);
+				coordinates = Arrays.copyOf(coordinates, 3 * nodeCount * 2);
+			}
+
+			indexById.put(id, nodeCount);
+			ids[nodeCount] = id;
+			coordinates[3 * nodeCount] = x;
+			coordinates[3 * nodeCount + 1] = y;
+			coordinates[3 * nodeCount + 2] = size;
+			nodeCount++;
+
+			return true;
+		}
+
+		/**
+		 * @return false if one of the vertices has not been added
+		 */
+		public boolean addEdge(int sourceId, int targetId, float weight,
+				boolean directed) throws IOException {
+			int source = indexById.get(sourceId);
+			int target = indexById.get(targetId);
+
+			if (source < 0 || target < 0)
+				return false;
+
+			edgeOut.writeInt(source);
+			edgeOut.writeInt(target);
+			edgeOut.writeFloat(weight);
+			edgeOut.writeInt(directed ? FLAG_DIRECTED : 0);
+			edgeCount++;
+
+			return true;
+		}
+
+		/**
+		 * Adds all vertices and edges of a network.
+		 */
+		public void addNetwork(BrowsableNetwork network) throws IOException {
+			for (Vertex v : network.getVertices())
+				addVertex(v.getId(), v.getX(), v.getY(), (float) v.getSize());
+
+			for (Edge e : network.getEdges())
+				addEdge(e.getSource().getId(), e.getTarget().getId(),
+						(float) e.getWeight(), e.isDirected());
+		}
+
+		/**
+		 * Writes the store and opens it.
+		 */
+		public MappedGraphStore finish() throws IOException {
+			edgeOut.close();
+
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+			try {
+				raf.setLength(0);
+				raf.setLength(fileSize(nodeCount, edgeCount));
+				raf.writeInt(MAGIC);
+				raf.writeInt(VERSION);
+				raf.writeInt(nodeCount);
+				raf.writeInt(edgeCount);
+
+				return writeSections(raf.getChannel());
+			} finally {
+				raf.close();
+				edgeFile.delete();
+			}
+		}
+
+		/**
+		 * Fills the sections of the file in three passes over the spooled
+		 * edges: counting the degrees, copying the edges and filling the
+		 * rows, which are then sorted one by one.
+		 */
+		private MappedGraphStore writeSections(FileChannel channel)
+				throws IOException {
+			long pos = HEADER_BYTES;
+			ByteBuffer nodes = map(channel, pos, (long) nodeCount
+					* NODE_BYTES);
+			pos += (long) nodeCount * NODE_BYTES;
+			IntBuffer offsets = map(channel, pos, (nodeCount + 1L) * 4)
+					.asIntBuffer();
+			pos += (nodeCount + 1L) * 4;
+			IntBuffer neighbors = map(channel, pos, 2L * edgeCount * 4)
+					.asIntBuffer();
+			pos += 2L * edgeCount * 4;
+			IntBuffer neighborEdges = map(channel, pos,
+					2L * edgeCount * 4).asIntBuffer();
+			pos += 2L * edgeCount * 4;
+			ByteBuffer edges = map(channel, pos, (long) edgeCount
+					* EDGE_BYTES);
+
+			for (int i = 0; i < nodeCount; i++) {
+				nodes.putInt(ids[i]);
+				nodes.putFloat(coordinates[3 * i]);
+				nodes.putFloat(coordinates[3 * i + 1]);
+				nodes.putFloat(coordinates[3 * i + 2]);
+			}
+
+			// degrees, turned into row offsets
+			int[] fill = new int[nodeCount + 1];
+			DataInputStream in = openEdges();
+			try {
+				for (int e = 0; e < edgeCount; e++) {
+					fill[in.readInt() + 1]++;
+					fill[in.readInt() + 1]++;
+					in.readLong();
+				}
+			} finally {
+				in.close();
+			}
+
+			for (int i = 0; i < nodeCount; i++)
+				fill[i + 1] += fill[i];
+			for (int i = 0; i <= nodeCount; i++)
+				offsets.put(i, fill[i]);
+
+			in = openEdges();
+			try {
+				for (int e = 0; e < edgeCount; e++) {
+					int s = in.readInt();
+					int t = in.readInt();
+					float weight = in.readFloat();
+					int flags = in.readInt();
+
+					edges.putInt(s);
+					edges.putInt(t);
+					edges.putFloat(weight);
+					edges.putInt(flags);
+
+					neighbors.put(fill[s], t);
+					neighborEdges.put(fill[s]++, e);
+					neighbors.put(fill[t], s);
+					neighborEdges.put(fill[t]++, e);
+				}
+			} finally {
+				in.close();
+			}
+
+			sortRows(offsets, neighbors, neighborEdges);
+
+			return new MappedGraphStore(channel, nodeCount, edgeCount);
+		}
+
+		private DataInputStream openEdges() throws IOException {
+			return new DataInputStream(new BufferedInputStream(
+					new FileInputStream(edgeFile), 1 << 16));
+		}
+
+		private void sortRows(IntBuffer offsets, IntBuffer neighbors,
+				IntBuffer neighborEdges) {
+			long[] row = new long[16];
+
+			for (int i = 0; i < nodeCount; i++) {
+				int start = offsets.get(i);
+				int length = offsets.get(i + 1) - start;
+
+				if (length < 2)
+					continue;
+
+				if (row.length < length)
+					row = new long[length];
+
+				for (int k = 0; k < length; k++)
+					row[k] = ((long) neighbors.get(start + k) << 32)
+							| neighborEdges.get(start + k);
+
+				Arrays.sort(row, 0, length);
+
+				for (int k = 0; k < length; k++) {
+					neighbors.put(start + k, (int) (row[k] >>> 32));
+					neighborEdges.put(start + k, (int) row[k]);
+				}
+			}
+		}
+	}
+}
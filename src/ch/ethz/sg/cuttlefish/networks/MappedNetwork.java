@@ -0,0 +1,131 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Network too large for the Gephi graph, kept in a {@link MappedGraphStore}
+ * and browsed one neighbourhood at a time. Only the vertices shown are
+ * copied into the graph, where they can be laid out and exported as usual;
+ * their positions are stored back when another neighbourhood is shown.
+ *
+ * Edge lists are read as by {@link EdgeListNetwork} and written to a store
+ * next to them, with the extension {@link #EXTENSION}, which is opened
+ * instead of the list as long as it is newer. Stores can also be opened
+ * directly.
+ */
+public class MappedNetwork extends EdgeListNetwork {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String EXTENSION = ".cfmg";
+
+	// the depth of the neighbourhoods shown when browsing
+	public static final int DEFAULT_DEPTH = 1;
+
+	private int limit = 2000;
+
+	private transient File storeFile;
+	private transient MappedGraphStore store;
+	// whether the graph holds vertices of the store
+	private transient boolean shown;
+
+	public MappedNetwork() {
+	}
+
+	/**
+	 * @param limit
+	 *            the maximum number of vertices shown at once, 2000 by
+	 *            default
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * @return the store, or null if no network is loaded
+	 */
+	public MappedGraphStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Opens a store, or the store of an edge list, writing it first if it
+	 * is missing or older than the list. Then shows the neighbourhood of the
+	 * vertex of highest degree.
+	 */
+	@Override
+	public void load(File file) throws IOException {
+		store = null;
+		shown = false;
+		storeFile = new File(file.getPath() + EXTENSION);
+
+		if (MappedGraphStore.isStore(file)) {
+			store = MappedGraphStore.open(file);
+		} else if (storeFile.lastModified() >= file.lastModified()
+				&& MappedGraphStore.isStore(storeFile)) {
+			store = MappedGraphStore.open(storeFile);
+		} else {
+			// writes and opens the store, unless the loading is cancelled
+			super.load(file);
+		}
+
+		clearGraph();
+		this.setNetworkFileName(file.getName());
+
+		if (store == null || store.getVertexCount() == 0)
+			return;
+
+		if (store.getEdgeCount() > 0
+				&& store.isEdgeDirected(0) != isDirected())
+			setDirected(store.isEdgeDirected(0));
+
+		int hub = 0;
+		for (int i = 1; i < store.getVertexCount(); i++)
+			if (store.getDegree(i) > store.getDegree(hub))
+				hub = i;
+
+		showNeighborhood(store.getId(hub), DEFAULT_DEPTH);
+	}
+
+	/**
+	 * Writes the edge list to the store instead of the graph.
+	 */
+	@Override
+	protected void addRows(int[] ids, int n, int[] offsets, int[] row,
+			float[] rowWeights) throws IOException {
+		boolean directed = isDirected();
+		MappedGraphStore.Writer writer = new MappedGraphStore.Writer(
+				storeFile);
+
+		for (int i = 0; i < n; i++)
+			writer.addVertex(ids[i], Float.NaN, Float.NaN, Float.NaN);
+		for (int i = 0; i < n; i++)
+			for (int k = offsets[i]; k < offsets[i + 1]; k++)
+				writer.addEdge(ids[i], ids[row[k]],
+						rowWeights == null ? 1 : rowWeights[k], directed);
+
+		store = writer.finish();
+	}
+
+	/**
+	 * Replaces the vertices shown by those reachable from the given one in
+	 * at most depth steps, up to the limit. The positions of the vertices
+	 * shown before are kept in the store.
+	 *
+	 * @return false if the store has no vertex with that id
+	 */
+	public boolean showNeighborhood(int id, int depth) {
+		int index = store == null ? -1 : store.indexOf(id);
+		if (index < 0)
+			return false;
+
+		if (shown)
+			store.storePositions(this);
+		clearGraph();
+		store.copyTo(this, store.getNeighborhood(index, depth, limit));
+		shown = true;
+
+		return true;
+	}
+}
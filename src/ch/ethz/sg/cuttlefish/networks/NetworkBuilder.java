@@ -0,0 +1,839 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.gephi.graph.api.GraphFactory;
+import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
+
+import ch.ethz.sg.cuttlefish.misc.IntIntHashMap;
+
+/**
+ * Stages vertices and edges for a network and adds them to its graph in one
+ * batch. Loaders should use it instead of calling addVertex() and addEdge()
+ * for every element: the staged ids, endpoints, weights and attributes are
+ * kept in primitive arrays, and the Gephi nodes and edges are only created
+ * by {@link #commit()}, which resolves the graph factory and locks the graph
+ * once.
+ *
+ * The attributes of a staged element are set through the
+ * {@link StagedVertex} or {@link StagedEdge} returned when it is staged. It
+ * is a flyweight that is pointed to the next element by the next call, so it
+ * must not be stored. Edges can refer to staged vertices as well as to
+ * vertices that are already in the network, unless the graph is cleared by
+ * the commit because it still holds the network shown before, see
+ * {@link BrowsableNetwork#deferClearing()}.
+ */
+public class NetworkBuilder {
+
+	// Flags of the staged vertices and edges
+	private static final byte FIXED = 1;
+	private static final byte EXCLUDED = 2;
+	private static final byte ROOT = 4;
+	private static final byte DIRECTED = 8;
+
+	// Marks attributes that are not staged
+	private static final int NO_WIDTH = Integer.MIN_VALUE;
+
+	private final BrowsableNetwork network;
+	// false if the graph is cleared at the commit, see deferClearing()
+	private final boolean keepsGraph;
+
+	private int vertexCount = 0;
+	private int[] ids;
+	private byte[] vertexFlags;
+	private final IntIntHashMap stagedIds;
+
+	// Attributes of the vertices, allocated when the first one is set
+	private String[] labels = null;
+	private int[] fillColors = null;
+	private int[] borderColors = null;
+	private float[] sizes = null;
+	private float[] xs = null;
+	private float[] ys = null;
+	private byte[] shapes = null;
+	private int[] widths = null;
+	private String[] vertexVar1 = null;
+	private String[] vertexVar2 = null;
+	private final ColumnValues vertexColumns = new ColumnValues();
+
+	// the positions of the vertices staged by name, see addVertex(String)
+	private Map<String, Integer> stagedNames = null;
+	private int nextFreeId = 0;
+
+	private int edgeCount = 0;
+	// the position of a staged vertex, or -1 - k for existingNodes[k]
+	private int[] sources;
+	private int[] targets;
+	private float[] weights;
+	private byte[] edgeFlags;
+
+	// Attributes of the edges, allocated when the first one is set
+	private String[] edgeLabels = null;
+	private int[] edgeColors = null;
+	private float[] edgeWidths = null;
+	private byte[] curves = null;
+	private String[] edgeVar1 = null;
+	private String[] edgeVar2 = null;
+	private final ColumnValues edgeColumns = new ColumnValues();
+
+	// vertices of the network that staged edges refer to
+	private Node[] existingNodes = new Node[16];
+	private int existingCount = 0;
+	private IntIntHashMap existingIndex = null;
+
+	private final StagedVertex stagedVertex = new StagedVertex();
+	private final StagedEdge stagedEdge = new StagedEdge();
+
+	public NetworkBuilder(BrowsableNetwork network) {
+		this(network, 1024, 1024);
+	}
+
+	/**
+	 * @param expectedVertices
+	 *            the number of vertices that are going to be staged
+	 * @param expectedEdges
+	 *            the number of edges that are going to be staged
+	 */
+	public NetworkBuilder(BrowsableNetwork network, int expectedVertices,
+			int expectedEdges) {
+		this.network = network;
+		keepsGraph = !network.isClearPending();
+
+		int vertexCapacity = Math.max(expectedVertices, 16);
+		ids = new int[vertexCapacity];
+		vertexFlags = new byte[vertexCapacity];
+		stagedIds = new IntIntHashMap(expectedVertices, -1);
+
+		int edgeCapacity = Math.max(expectedEdges, 16);
+		sources = new int[edgeCapacity];
+		targets = new int[edgeCapacity];
+		weights = new float[edgeCapacity];
+		edgeFlags = new byte[edgeCapacity];
+	}
+
+	/**
+	 * Values of Gephi data columns staged for vertices or edges, as parallel
+	 * arrays of element positions, column indices and values.
+	 */
+	private static final class ColumnValues {
+		int[] elements = new int[0];
+		int[] columns = new int[0];
+		Object[] values = new Object[0];
+		int size = 0;
+
+		void add(int element, int column, Object value) {
+			if (size == elements.length) {
+				int length = Math.max(16, size * 2);
+				elements = Arrays.copyOf(elements, length);
+				columns = Arrays.copyOf(columns, length);
+				values = Arrays.copyOf(values, length);
+			}
+			elements[size] = element;
+			columns[size] = column;
+			values[size++] = value;
+		}
+
+		void clear() {
+			Arrays.fill(values, 0, size, null);
+			size = 0;
+		}
+	}
+
+	/**
+	 * Sets the attributes of the vertex staged last, see
+	 * {@link NetworkBuilder}. Attributes that are not set keep the defaults
+	 * of {@link Vertex}.
+	 */
+	public final class StagedVertex implements VertexAttributes {
+
+		private int index;
+
+		private StagedVertex() {
+		}
+
+		/**
+		 * @return the position of the vertex among the vertices staged since
+		 *         the last commit
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public int getId() {
+			return ids[index];
+		}
+
+		@Override
+		public void setLabel(String label) {
+			if (labels == null)
+				labels = new String[ids.length];
+			labels[index] = label;
+		}
+
+		@Override
+		public void setFillColor(Color fillColor) {
+			setFillRGB(fillColor.getRGB());
+		}
+
+		@Override
+		public void setFillRGB(int rgb) {
+			if (fillColors == null)
+				fillColors = new int[ids.length];
+			// the alpha bit tells a staged colour from none
+			fillColors[index] = 0xFF000000 | rgb;
+		}
+
+		/**
+		 * @return the staged fill colour as packed RGB, or the default one
+		 */
+		public int getFillRGB() {
+			if (fillColors == null || fillColors[index] == 0)
+				return Vertex.DEFAULT_FILL_COLOR.getRGB();
+			return fillColors[index];
+		}
+
+		@Override
+		public void setBorderColor(Color borderColor) {
+			setBorderRGB(borderColor.getRGB());
+		}
+
+		@Override
+		public void setBorderRGB(int rgb) {
+			if (borderColors == null)
+				borderColors = new int[ids.length];
+			borderColors[index] = 0xFF000000 | rgb;
+		}
+
+		@Override
+		public void setSize(double size) {
+			if (sizes == null)
+				sizes = filled(new float[ids.length], Float.NaN);
+			sizes[index] = (float) size;
+		}
+
+		@Override
+		public void setShape(String shapeType) {
+			byte shape = Vertex.parseShape(shapeType);
+			if (shape < 0)
+				return;
+
+			if (shapes == null)
+				shapes = filled(new byte[ids.length], (byte) -1);
+			shapes[index] = shape;
+		}
+
+		@Override
+		public void setWidth(int width) {
+			if (widths == null)
+				widths = filled(new int[ids.length], NO_WIDTH);
+			widths[index] = width;
+		}
+
+		@Override
+		public void setPosition(double x, double y) {
+			if (xs == null) {
+				xs = filled(new float[ids.length], Float.NaN);
+				ys = filled(new float[ids.length], Float.NaN);
+			}
+			xs[index] = (float) x;
+			ys[index] = (float) y;
+		}
+
+		/**
+		 * @return the staged x coordinate, or 0 if none is staged
+		 */
+		public float getX() {
+			return xs == null || Float.isNaN(xs[index]) ? 0 : xs[index];
+		}
+
+		/**
+		 * @return the staged y coordinate, or 0 if none is staged
+		 */
+		public float getY() {
+			return ys == null || Float.isNaN(ys[index]) ? 0 : ys[index];
+		}
+
+		@Override
+		public void setVar1(String var1) {
+			if (vertexVar1 == null)
+				vertexVar1 = new String[ids.length];
+			vertexVar1[index] = var1;
+		}
+
+		@Override
+		public void setVar2(String var2) {
+			if (vertexVar2 == null)
+				vertexVar2 = new String[ids.length];
+			vertexVar2[index] = var2;
+		}
+
+		@Override
+		public void setFixed(boolean fixed) {
+			vertexFlags[index] = flag(vertexFlags[index], FIXED, fixed);
+		}
+
+		@Override
+		public void setExcluded(boolean excluded) {
+			vertexFlags[index] = flag(vertexFlags[index], EXCLUDED, excluded);
+		}
+
+		@Override
+		public void setIsRoot(boolean b) {
+			vertexFlags[index] = flag(vertexFlags[index], ROOT, b);
+		}
+
+		/**
+		 * Sets the value of a Gephi data column.
+		 *
+		 * @param column
+		 *            the index of the column in the node table
+		 */
+		public void setAttribute(int column, Object value) {
+			vertexColumns.add(index, column, value);
+		}
+	}
+
+	/**
+	 * Sets the attributes of the edge staged last, see {@link NetworkBuilder}.
+	 * Attributes that are not set keep the defaults of {@link Edge}.
+	 */
+	public final class StagedEdge implements EdgeAttributes {
+
+		private int index;
+
+		private StagedEdge() {
+		}
+
+		/**
+		 * @return the position of the edge among the edges staged since the
+		 *         last commit
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		@Override
+		public void setLabel(String label) {
+			if (edgeLabels == null)
+				edgeLabels = new String[sources.length];
+			edgeLabels[index] = label;
+		}
+
+		@Override
+		public void setColor(Color color) {
+			setRGB(color.getRGB());
+		}
+
+		@Override
+		public void setRGB(int rgb) {
+			if (edgeColors == null)
+				edgeColors = new int[sources.length];
+			// the alpha bit tells a staged colour from none
+			edgeColors[index] = 0xFF000000 | rgb;
+		}
+
+		/**
+		 * @return the staged colour as packed RGB, or the default one
+		 */
+		public int getRGB() {
+			if (edgeColors == null || edgeColors[index] == 0)
+				return Edge.DEFAULT_COLOR.getRGB();
+			return edgeColors[index];
+		}
+
+		@Override
+		public void setWidth(double width) {
+			if (edgeWidths == null)
+				edgeWidths = filled(new float[sources.length], Float.NaN);
+			edgeWidths[index] = (float) width;
+		}
+
+		@Override
+		public void setWeight(double weight) {
+			weights[index] = (float) weight;
+		}
+
+		@Override
+		public void setShape(String lineType) {
+			byte curve = Edge.parseCurve(lineType);
+			if (curve < 0)
+				return;
+
+			if (curves == null)
+				curves = filled(new byte[sources.length], (byte) -1);
+			curves[index] = curve;
+		}
+
+		@Override
+		public void setVar1(String var1) {
+			if (edgeVar1 == null)
+				edgeVar1 = new String[sources.length];
+			edgeVar1[index] = var1;
+		}
+
+		@Override
+		public void setVar2(String var2) {
+			if (edgeVar2 == null)
+				edgeVar2 = new String[sources.length];
+			edgeVar2[index] = var2;
+		}
+
+		@Override
+		public void setExcluded(boolean excluded) {
+			edgeFlags[index] = flag(edgeFlags[index], EXCLUDED, excluded);
+		}
+
+		/**
+		 * Sets the value of a Gephi data column.
+		 *
+		 * @param column
+		 *            the index of the column in the edge table
+		 */
+		public void setAttribute(int column, Object value) {
+			edgeColumns.add(index, column, value);
+		}
+	}
+
+	/**
+	 * Stages a new vertex with the given id.
+	 *
+	 * @return the staged vertex, or null if a vertex with that id is already
+	 *         staged or in the network
+	 */
+	public StagedVertex addVertex(int id) {
+		if (hasVertex(id))
+			return null;
+
+		if (vertexCount == ids.length)
+			growVertices();
+
+		ids[vertexCount] = id;
+		vertexFlags[vertexCount] = 0;
+		stagedIds.put(id, vertexCount);
+
+		stagedVertex.index = vertexCount++;
+		return stagedVertex;
+	}
+
+	/**
+	 * Stages a new vertex named by a string id, as in GEXF and GraphML files.
+	 * A name made of digits is taken as the id of the vertex if that id is
+	 * free; other vertices get the next free id and their name as label.
+	 * Edges refer to named vertices with
+	 * {@link #addEdge(String, String, float, boolean)} until the next commit.
+	 *
+	 * @return the staged vertex, or null if a vertex with that name is
+	 *         already staged
+	 */
+	public StagedVertex addVertex(String name) {
+		if (stagedNames == null)
+			stagedNames = new HashMap<String, Integer>();
+		else if (stagedNames.containsKey(name))
+			return null;
+
+		StagedVertex v = isId(name) ? addVertex(Integer.parseInt(name)) : null;
+		if (v == null) {
+			do
+				v = addVertex(nextFreeId++);
+			while (v == null);
+			v.setLabel(name);
+		}
+
+		stagedNames.put(name, vertexCount - 1);
+		return v;
+	}
+
+	/**
+	 * @return whether the name is an int, without the cost of an exception
+	 */
+	private static boolean isId(String name) {
+		int length = name.length();
+		if (length == 0 || length > 9)
+			return false;
+
+		for (int i = 0; i < length; i++)
+			if (name.charAt(i) < '0' || name.charAt(i) > '9')
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * @return whether a vertex with the given id is staged, or in the network
+	 *         and kept by the commit
+	 */
+	public boolean hasVertex(int id) {
+		return stagedIds.containsKey(id)
+				|| (keepsGraph && network.lookupNode(id) != null);
+	}
+
+	/**
+	 * @return the staged vertex with the given id, or null if none is staged
+	 */
+	public StagedVertex getStagedVertex(int id) {
+		int pos = stagedIds.get(id);
+		if (pos < 0)
+			return null;
+
+		stagedVertex.index = pos;
+		return stagedVertex;
+	}
+
+	/**
+	 * @return the position of the staged vertex with the given id, -1 - k
+	 *         for the k-th vertex of the network referred to, or
+	 *         Integer.MIN_VALUE if there is no such vertex
+	 */
+	private int findVertex(int id) {
+		int pos = stagedIds.get(id);
+
+		if (pos >= 0)
+			return pos;
+		if (!keepsGraph)
+			return Integer.MIN_VALUE;
+
+		Node n = network.lookupNode(id);
+		if (n == null)
+			return Integer.MIN_VALUE;
+
+		if (existingIndex == null)
+			existingIndex = new IntIntHashMap(16, -1);
+
+		int k = existingIndex.get(n.getId());
+		if (k < 0) {
+			if (existingCount == existingNodes.length)
+				existingNodes = Arrays.copyOf(existingNodes,
+						existingCount * 2);
+			k = existingCount;
+			existingNodes[existingCount++] = n;
+			existingIndex.put(n.getId(), k);
+		}
+
+		return -1 - k;
+	}
+
+	/**
+	 * Stages a new edge of weight 1 between the vertices with the given ids.
+	 *
+	 * @return the staged edge, or null if one of the vertices does not exist
+	 */
+	public StagedEdge addEdge(int sourceId, int targetId, boolean directed) {
+		return addEdge(sourceId, targetId, 1, directed);
+	}
+
+	/**
+	 * Stages a new edge between the vertices with the given ids.
+	 *
+	 * @return the staged edge, or null if one of the vertices does not exist
+	 */
+	public StagedEdge addEdge(int sourceId, int targetId, float weight,
+			boolean directed) {
+		int source = findVertex(sourceId);
+		int target = findVertex(targetId);
+
+		if (source == Integer.MIN_VALUE || target == Integer.MIN_VALUE)
+			return null;
+
+		return stageEdge(source, target, weight, directed);
+	}
+
+	/**
+	 * Stages a new edge between vertices staged by name since the last
+	 * commit.
+	 *
+	 * @return the staged edge, or null if one of the vertices was not staged
+	 */
+	public StagedEdge addEdge(String sourceName, String targetName,
+			float weight, boolean directed) {
+		if (stagedNames == null)
+			return null;
+
+		Integer source = stagedNames.get(sourceName);
+		Integer target = stagedNames.get(targetName);
+		if (source == null || target == null)
+			return null;
+
+		return stageEdge(source, target, weight, directed);
+	}
+
+	/**
+	 * Stages a new edge between staged vertices, given by the order in which
+	 * they were staged since the last commit. Loaders that number their
+	 * vertices densely avoid looking up the ids this way.
+	 *
+	 * @return the staged edge
+	 */
+	public StagedEdge addEdgeByIndex(int sourceIndex, int targetIndex,
+			float weight, boolean directed) {
+		if (sourceIndex >= vertexCount || targetIndex >= vertexCount)
+			throw new IndexOutOfBoundsException("Vertex index "
+					+ Math.max(sourceIndex, targetIndex) + " of "
+					+ vertexCount);
+
+		return stageEdge(sourceIndex, targetIndex, weight, directed);
+	}
+
+	private StagedEdge stageEdge(int source, int target, float weight,
+			boolean directed) {
+		if (edgeCount == sources.length)
+			growEdges();
+
+		sources[edgeCount] = source;
+		targets[edgeCount] = target;
+		weights[edgeCount] = weight;
+		edgeFlags[edgeCount] = directed ? DIRECTED : 0;
+
+		stagedEdge.index = edgeCount++;
+		return stagedEdge;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Creates the Gephi nodes and edges of all staged vertices and edges,
+	 * adds them to the network and empties the builder, which can be used
+	 * again afterwards.
+	 */
+	public void commit() {
+		GraphFactory factory = network.graphModel.factory();
+
+		Node[] nodes = new Node[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			nodes[i] = factory.newNode();
+			Vertex.initNode(nodes[i], ids[i]);
+			applyVertexAttributes(i, nodes[i]);
+		}
+		for (int k = 0; k < vertexColumns.size; k++)
+			nodes[vertexColumns.elements[k]].getAttributes().setValue(
+					vertexColumns.columns[k], vertexColumns.values[k]);
+
+		org.gephi.graph.api.Edge[] edges =
+				new org.gephi.graph.api.Edge[edgeCount];
+		for (int e = 0; e < edgeCount; e++) {
+			edges[e] = factory.newEdge(node(nodes, sources[e]),
+					node(nodes, targets[e]), weights[e],
+					(edgeFlags[e] & DIRECTED) != 0);
+			Edge.initEdge(edges[e]);
+			applyEdgeAttributes(e, edges[e]);
+		}
+		for (int k = 0; k < edgeColumns.size; k++)
+			edges[edgeColumns.elements[k]].getAttributes().setValue(
+					edgeColumns.columns[k], edgeColumns.values[k]);
+
+		network.addBatch(nodes, vertexCount, edges, edgeCount);
+		clear();
+	}
+
+	private Node node(Node[] nodes, int pos) {
+		return pos >= 0 ? nodes[pos] : existingNodes[-1 - pos];
+	}
+
+	/**
+	 * Writes the staged attributes of a vertex to its new node. The node is
+	 * not in the graph yet, so nothing is recorded in the journal.
+	 */
+	private void applyVertexAttributes(int i, Node node) {
+		NodeData data = node.getNodeData();
+		int id = node.getId();
+
+		if (labels != null && labels[i] != null)
+			data.setLabel(labels[i]);
+		if (fillColors != null && fillColors[i] != 0)
+			Vertex.writeFillRGB(node, fillColors[i]);
+		if (borderColors != null && borderColors[i] != 0)
+			Vertex.attributes.setColor(id, borderColors[i]);
+		if (sizes != null && !Float.isNaN(sizes[i]))
+			data.setSize(sizes[i]);
+		if (xs != null && !Float.isNaN(xs[i])) {
+			data.setX(xs[i]);
+			data.setY(ys[i]);
+			data.setZ(0);
+		}
+		if (shapes != null && shapes[i] >= 0)
+			Vertex.attributes.setShape(id, shapes[i]);
+		if (widths != null && widths[i] != NO_WIDTH)
+			Vertex.attributes.setWidth(id, widths[i]);
+		if (vertexVar1 != null && vertexVar1[i] != null)
+			node.getAttributes().setValue(Vertex.ATTR_VAR1, vertexVar1[i]);
+		if (vertexVar2 != null && vertexVar2[i] != null)
+			node.getAttributes().setValue(Vertex.ATTR_VAR2, vertexVar2[i]);
+
+		byte flags = vertexFlags[i];
+		if ((flags & FIXED) != 0)
+			data.setFixed(true);
+		if ((flags & EXCLUDED) != 0)
+			Vertex.attributes.setFlag(id, AttributeTable.FLAG_EXCLUDED, true);
+		if ((flags & ROOT) != 0)
+			Vertex.attributes.setFlag(id, AttributeTable.FLAG_ROOT, true);
+	}
+
+	/**
+	 * Writes the staged attributes of an edge to its new Gephi edge.
+	 */
+	private void applyEdgeAttributes(int e, org.gephi.graph.api.Edge edge) {
+		int id = edge.getId();
+
+		if (edgeLabels != null && edgeLabels[e] != null)
+			edge.getEdgeData().setLabel(edgeLabels[e]);
+		if (edgeColors != null && edgeColors[e] != 0)
+			Edge.writeRGB(edge, edgeColors[e]);
+		if (edgeWidths != null && !Float.isNaN(edgeWidths[e]))
+			Edge.attributes.setWidth(id, edgeWidths[e]);
+		if (curves != null && curves[e] >= 0)
+			Edge.attributes.setShape(id, curves[e]);
+		if (edgeVar1 != null && edgeVar1[e] != null)
+			edge.getAttributes().setValue(Edge.ATTR_VAR1, edgeVar1[e]);
+		if (edgeVar2 != null && edgeVar2[e] != null)
+			edge.getAttributes().setValue(Edge.ATTR_VAR2, edgeVar2[e]);
+		if ((edgeFlags[e] & EXCLUDED) != 0)
+			Edge.attributes.setFlag(id, AttributeTable.FLAG_EXCLUDED, true);
+	}
+
+	/**
+	 * Forgets the staged elements and resets their attributes, keeping the
+	 * arrays for the next batch.
+	 */
+	private void clear() {
+		clearStrings(labels, vertexCount);
+		clearStrings(vertexVar1, vertexCount);
+		clearStrings(vertexVar2, vertexCount);
+		if (fillColors != null)
+			Arrays.fill(fillColors, 0, vertexCount, 0);
+		if (borderColors != null)
+			Arrays.fill(borderColors, 0, vertexCount, 0);
+		if (sizes != null)
+			Arrays.fill(sizes, 0, vertexCount, Float.NaN);
+		if (xs != null) {
+			Arrays.fill(xs, 0, vertexCount, Float.NaN);
+			Arrays.fill(ys, 0, vertexCount, Float.NaN);
+		}
+		if (shapes != null)
+			Arrays.fill(shapes, 0, vertexCount, (byte) -1);
+		if (widths != null)
+			Arrays.fill(widths, 0, vertexCount, NO_WIDTH);
+		vertexColumns.clear();
+
+		clearStrings(edgeLabels, edgeCount);
+		clearStrings(edgeVar1, edgeCount);
+		clearStrings(edgeVar2, edgeCount);
+		if (edgeColors != null)
+			Arrays.fill(edgeColors, 0, edgeCount, 0);
+		if (edgeWidths != null)
+			Arrays.fill(edgeWidths, 0, edgeCount, Float.NaN);
+		if (curves != null)
+			Arrays.fill(curves, 0, edgeCount, (byte) -1);
+		edgeColumns.clear();
+
+		Arrays.fill(existingNodes, 0, existingCount, null);
+		existingCount = 0;
+		existingIndex = null;
+
+		vertexCount = 0;
+		edgeCount = 0;
+		stagedIds.clear();
+		stagedNames = null;
+	}
+
+	private void growVertices() {
+		int length = ids.length * 2;
+
+		ids = Arrays.copyOf(ids, length);
+		vertexFlags = Arrays.copyOf(vertexFlags, length);
+		if (labels != null)
+			labels = Arrays.copyOf(labels, length);
+		if (fillColors != null)
+			fillColors = Arrays.copyOf(fillColors, length);
+		if (borderColors != null)
+			borderColors = Arrays.copyOf(borderColors, length);
+		if (sizes != null)
+			sizes = grow(sizes, length, Float.NaN);
+		if (xs != null) {
+			xs = grow(xs, length, Float.NaN);
+			ys = grow(ys, length, Float.NaN);
+		}
+		if (shapes != null)
+			shapes = grow(shapes, length, (byte) -1);
+		if (widths != null)
+			widths = grow(widths, length, NO_WIDTH);
+		if (vertexVar1 != null)
+			vertexVar1 = Arrays.copyOf(vertexVar1, length);
+		if (vertexVar2 != null)
+			vertexVar2 = Arrays.copyOf(vertexVar2, length);
+	}
+
+	private void growEdges() {
+		int length = sources.length * 2;
+
+		sources = Arrays.copyOf(sources, length);
+		targets = Arrays.copyOf(targets, length);
+		weights = Arrays.copyOf(weights, length);
+		edgeFlags = Arrays.copyOf(edgeFlags, length);
+		if (edgeLabels != null)
+			edgeLabels = Arrays.copyOf(edgeLabels, length);
+		if (edgeColors != null)
+			edgeColors = Arrays.copyOf(edgeColors, length);
+		if (edgeWidths != null)
+			edgeWidths = grow(edgeWidths, length, Float.NaN);
+		if (curves != null)
+			curves = grow(curves, length, (byte) -1);
+		if (edgeVar1 != null)
+			edgeVar1 = Arrays.copyOf(edgeVar1, length);
+		if (edgeVar2 != null)
+			edgeVar2 = Arrays.copyOf(edgeVar2, length);
+	}
+
+	private static byte flag(byte flags, byte flag, boolean value) {
+		return (byte) (value ? flags | flag : flags & ~flag);
+	}
+
+	private static void clearStrings(String[] a, int count) {
+		if (a != null)
+			Arrays.fill(a, 0, count, null);
+	}
+
+	private static float[] filled(float[] a, float value) {
+		Arrays.fill(a, value);
+		return a;
+	}
+
+	private static byte[] filled(byte[] a, byte value) {
+		Arrays.fill(a, value);
+		return a;
+	}
+
+	private static int[] filled(int[] a, int value) {
+		Arrays.fill(a, value);
+		return a;
+	}
+
+	private static float[] grow(float[] a, int length, float value) {
+		int oldLength = a.length;
+		a = Arrays.copyOf(a, length);
+		Arrays.fill(a, oldLength, length, value);
+		return a;
+	}
+
+	private static byte[] grow(byte[] a, int length, byte value) {
+		int oldLength = a.length;
+		a = Arrays.copyOf(a, length);
+		Arrays.fill(a, oldLength, length, value);
+		return a;
+	}
+
+	private static int[] grow(int[] a, int length, int value) {
+		int oldLength = a.length;
+		a = Arrays.copyOf(a, length);
+		Arrays.fill(a, oldLength, length, value);
+		return a;
+	}
+}
@@ -0,0 +1,221 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * On-disk cache of parsed networks. A network read from a file is stored in
+ * the binary Cuttlefish format, see {@link CxbFormat}, under a fingerprint
+ * of the file: its size, its modification time and a hash of sampled blocks
+ * of its content. Opening the unchanged file again reads the cached copy
+ * instead of parsing it.
+ *
+ * The cache is bounded: when it grows over its maximum size, the entries
+ * used least recently are deleted. An entry is used when it is written or
+ * read, which updates the modification time of its file.
+ */
+public final class NetworkCache {
+
+	public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+	private static final String EXTENSION = ".cxb";
+	private static final int SAMPLES = 16;
+	private static final int SAMPLE_BYTES = 4096;
+
+	private final File directory;
+	private final long maxBytes;
+
+	/**
+	 * @param directory
+	 *            the directory of the entries, created when needed
+	 * @param maxBytes
+	 *            the maximum total size of the entries
+	 */
+	public NetworkCache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the directory .cuttlefish/cache in the home of the user
+	 */
+	public static File getDefaultDirectory() {
+		return new File(new File(System.getProperty("user.home"),
+				".cuttlefish"), "cache");
+	}
+
+	/**
+	 * Loads the network from the cache if the file was cached unchanged.
+	 * Unreadable entries are deleted.
+	 *
+	 * @return true if the network was loaded
+	 */
+	public boolean load(File input, BrowsableNetwork network) {
+		File entry;
+		try {
+			entry = entryFor(input, network);
+		} catch (IOException e) {
+			return false;
+		}
+
+		if (!entry.isFile())
+			return false;
+
+		try {
+			new CxbReader(entry, network).read();
+		} catch (IOException e) {
+			System.err.println("Dropping cache entry " + entry + ": "
+					+ e.getMessage());
+			entry.delete();
+			network.clearGraph();
+			return false;
+		}
+
+		entry.setLastModified(System.currentTimeMillis());
+		network.setNetworkFileName(input.getName());
+		return true;
+	}
+
+	/**
+	 * Stores a network just read from the file. Networks with problems are
+	 * not stored, so that they are reported again when the file is opened.
+	 */
+	public void store(File input, BrowsableNetwork network) {
+		if (!network.getDiagnostics().isEmpty())
+			return;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			System.err.println("Cannot create the cache " + directory);
+			return;
+		}
+
+		File entry = null;
+		File temporary = null;
+		try {
+			entry = entryFor(input, network);
+			temporary = File.createTempFile("network", ".tmp", directory);
+
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(
+					temporary));
+			try {
+				new CxbWriter(network.freeze()).write(out);
+			} finally {
+				out.close();
+			}
+
+			// readers never see a partially written entry
+			entry.delete();
+			if (!temporary.renameTo(entry))
+				throw new IOException("Cannot rename " + temporary);
+
+		} catch (IOException e) {
+			System.err.println("Cannot cache " + input + ": "
+					+ e.getMessage());
+			if (temporary != null)
+				temporary.delete();
+			return;
+		}
+
+		evict();
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache fits its
+	 * maximum size.
+	 */
+	public synchronized void evict() {
+		File[] entries = directory.listFiles();
+		if (entries == null)
+			return;
+
+		long total = 0;
+		for (File entry : entries)
+			if (entry.getName().endsWith(EXTENSION))
+				total += entry.length();
+
+		Arrays.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				long ta = a.lastModified();
+				long tb = b.lastModified();
+				return ta < tb ? -1 : (ta == tb ? 0 : 1);
+			}
+		});
+
+		for (int i = 0; i < entries.length && total > maxBytes; i++) {
+			if (!entries[i].getName().endsWith(EXTENSION))
+				continue;
+
+			long length = entries[i].length();
+			if (entries[i].delete())
+				total -= length;
+		}
+	}
+
+	/**
+	 * Deletes all entries.
+	 */
+	public synchronized void clear() {
+		File[] entries = directory.listFiles();
+		if (entries == null)
+			return;
+
+		for (File entry : entries)
+			if (entry.getName().endsWith(EXTENSION))
+				entry.delete();
+	}
+
+	private File entryFor(File input, BrowsableNetwork network)
+			throws IOException {
+		return new File(directory, fingerprint(input, network) + EXTENSION);
+	}
+
+	/**
+	 * Hashes the size, the modification time and blocks sampled evenly
+	 * over the content of the file, together with the type of network it
+	 * is read into, since the types parse the same file differently.
+	 */
+	static String fingerprint(File input, BrowsableNetwork network)
+			throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage());
+		}
+
+		long size = input.length();
+		digest.update(network.getClass().getName().getBytes("UTF-8"));
+		digest.update(Long.toString(size).getBytes("UTF-8"));
+		digest.update(Long.toString(input.lastModified()).getBytes("UTF-8"));
+
+		RandomAccessFile raf = new RandomAccessFile(input, "r");
+		try {
+			int n = (int) Math.min(SAMPLE_BYTES, size);
+			byte[] sample = new byte[n];
+
+			// from the first to the last n bytes of the file
+			for (int k = 0; k < SAMPLES; k++) {
+				raf.seek((size - n) * k / (SAMPLES - 1));
+				raf.readFully(sample);
+				digest.update(sample);
+			}
+		} finally {
+			raf.close();
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+			hex.append(Integer.toHexString((b & 0xFF) | 0x100).substring(1));
+
+		return hex.toString();
+	}
+}
@@ -0,0 +1,18 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+/**
+ * Supplies the positions a {@link GraphVersion} is taken with, see
+ * {@link BrowsableNetwork#freeze(PositionSource)}.
+ */
+public interface PositionSource {
+
+	/**
+	 * Copies the positions of the nodes of the structure, indexed like the
+	 * structure. Called with the read lock of the graph held.
+	 *
+	 * @return false if no positions are available, in which case they are
+	 *         read from the nodes
+	 */
+	public boolean copyPositions(GraphSnapshot structure, float[] x,
+			float[] y);
+}
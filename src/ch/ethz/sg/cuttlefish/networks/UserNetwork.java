@@ -25,20 +25,30 @@ import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 
 import ch.ethz.sg.cuttlefish.Cuttlefish;
+import ch.ethz.sg.cuttlefish.misc.CompressedStreams;
+import ch.ethz.sg.cuttlefish.networks.NetworkBuilder.StagedVertex;
 
 
 public class UserNetwork extends BrowsableNetwork {
 
 	private static final long serialVersionUID = 1L;
 	
-	FileReader fr;
+	Reader fr;
 	BufferedReader br;
 	int orig, dest;
 	
@@ -48,21 +58,18 @@ public class UserNetwork extends BrowsableNetwork {
 
 	public void load(File graphFile){
 		
-		HashMap<Integer,Vertex> hash = new HashMap<Integer,Vertex>();
-		
 			try {
-				fr = new FileReader(graphFile);
+				fr = CompressedStreams.openReader(graphFile);
 				br = new BufferedReader(fr);
 				
 				Vertex v;
 				while ((v = getNextVertex()) != null)
 				{
 					addVertex(v);
-					hash.put(v.getId(), v);
 				}
 				
 				Edge e;
-				while (( e = getNextEdge(hash.get(orig), hash.get(dest))) != null)
+				while (( e = getNextEdge(getVertexById(orig), getVertexById(dest))) != null)
 					addEdge(e);
 			
 			} catch (FileNotFoundException fnfEx) {
@@ -76,8 +83,456 @@ public class UserNetwork extends BrowsableNetwork {
 			}
 	}
 	
-	public void load(File nodeFile, File edgeFile){
+	/**
+	 * Columns of the node and edge tables, see
+	 * {@link UserNetwork#setColumn(Column, int)}.
+	 */
+	public enum Column {
+		ID, LABEL, COLOR, SIZE, X, Y, SOURCE, TARGET, WEIGHT
+	}
+
+	// rows read between two reports of the progress
+	private static final int PROGRESS_ROWS = 1 << 12;
+
+	private char delimiter = '\t';
+	// the index of each column, by ordinal
+	private final int[] columns = { 0, 1, -1, -1, -1, -1, 0, 1, 2 };
+
+	// the progress of the node reader, reported by the edge reader
+	private transient volatile long nodeBytes;
+	private transient volatile int nodeRows;
+	private transient volatile boolean cancelled;
+
+	/**
+	 * Sets the separator of the fields of the tables, a tab by default.
+	 */
+	public void setDelimiter(char delimiter) {
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Maps a column of the tables. By default the node table holds the id
+	 * and the label, and the edge table the source, the target and the
+	 * weight, in this order.
+	 * 
+	 * @param index
+	 *            the index of the column in its table, counting from 0, or
+	 *            -1 if the table does not have it
+	 */
+	public void setColumn(Column column, int index) {
+		columns[column.ordinal()] = index;
+	}
+
+	private int column(Column column) {
+		return columns[column.ordinal()];
+	}
+
+	/**
+	 * Loads a network from a table of nodes and a table of edges, with one
+	 * row per line and the columns set by {@link #setColumn(Column, int)}.
+	 * Fields may be quoted with double quotes. A first line whose id is not
+	 * a number is taken as a header. Colors are written like #ff8000.
+	 * 
+	 * Both files are parsed at the same time, the edges into arrays of ids,
+	 * and the graph is built at once when both are read.
+	 */
+	public void load(final File nodeFile, final File edgeFile)
+			throws IOException {
+		clearGraph();
+		nodeBytes = 0;
+		nodeRows = 0;
+		cancelled = false;
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<NodeTable> nodes = executor
+					.submit(new Callable<NodeTable>() {
+						@Override
+						public NodeTable call() throws IOException {
+							return readNodes(nodeFile);
+						}
+					});
+			Future<EdgeTable> edges = executor
+					.submit(new Callable<EdgeTable>() {
+						@Override
+						public EdgeTable call() throws IOException {
+							return readEdges(edgeFile, nodeFile);
+						}
+					});
+
+			NodeTable nodeTable = nodes.get();
+			EdgeTable edgeTable = edges.get();
+			if (!cancelled)
+				addTables(nodeTable, nodeFile, edgeTable, edgeFile);
+		} catch (ExecutionException exEx) {
+			if (exEx.getCause() instanceof IOException)
+				throw (IOException) exEx.getCause();
+			if (exEx.getCause() instanceof RuntimeException)
+				throw (RuntimeException) exEx.getCause();
+			throw new IOException(String.valueOf(exEx.getCause()));
+		} catch (InterruptedException iEx) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		this.setNetworkFileName(nodeFile.getName());
+	}
+
+	/**
+	 * Rows of the node table.
+	 */
+	private static class NodeTable {
+		int size = 0;
+		int[] lines = new int[1024];
+		int[] ids = new int[1024];
+		String[] labels = new String[1024];
+		// -1 for no color
+		int[] colors = new int[1024];
+		float[] sizes = new float[1024];
+		float[] xs = new float[1024];
+		float[] ys = new float[1024];
+
+		void grow() {
+			if (size < ids.length)
+				return;
+
+			int capacity = size * 2;
+			lines = Arrays.copyOf(lines, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+			labels = Arrays.copyOf(labels, capacity);
+			colors = Arrays.copyOf(colors, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+	}
+
+	/**
+	 * Rows of the edge table, with the endpoints as ids.
+	 */
+	private static class EdgeTable {
+		int size = 0;
+		int[] lines = new int[1024];
+		int[] sources = new int[1024];
+		int[] targets = new int[1024];
+		float[] weights = new float[1024];
+
+		void add(int line, int source, int target, float weight) {
+			if (size == sources.length) {
+				int capacity = size * 2;
+				lines = Arrays.copyOf(lines, capacity);
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+			}
+
+			lines[size] = line;
+			sources[size] = source;
+			targets[size] = target;
+			weights[size] = weight;
+			size++;
+		}
+	}
+
+	private NodeTable readNodes(File file) throws IOException {
+		NodeTable table = new NodeTable();
+		TableReader reader = new TableReader(file, delimiter);
+		int id = column(Column.ID);
+		int label = column(Column.LABEL);
+		int color = column(Column.COLOR);
+		int size = column(Column.SIZE);
+		int x = column(Column.X);
+		int y = column(Column.Y);
+
+		try {
+			while (reader.next()) {
+				if (reader.getLine() % PROGRESS_ROWS == 0) {
+					nodeBytes = reader.getPosition();
+					nodeRows = reader.getLine();
+					if (cancelled)
+						break;
+				}
+				if (reader.isBlank())
+					continue;
+
+				int i = table.size;
+				table.grow();
+				try {
+					table.ids[i] = reader.integer(id);
+				} catch (NumberFormatException nfEx) {
+					if (reader.getLine() == 1)
+						continue; // header
+					if (!getDiagnostics().error("Malformed node",
+							"Malformed node in line " + reader.getLine()
+									+ " of " + file.getName()))
+						break;
+					continue;
+				}
+
+				table.lines[i] = reader.getLine();
+				table.labels[i] = reader.has(label) ? reader.text(label)
+						: null;
+				table.colors[i] = -1;
+				table.sizes[i] = Float.NaN;
+				table.xs[i] = Float.NaN;
+				table.ys[i] = Float.NaN;
+				try {
+					if (reader.has(color))
+						table.colors[i] = Color.decode(reader.text(color))
+								.getRGB() & 0xFFFFFF;
+					if (reader.has(size))
+						table.sizes[i] = reader.number(size);
+					if (reader.has(x) && reader.has(y)) {
+						table.xs[i] = reader.number(x);
+						table.ys[i] = reader.number(y);
+					}
+				} catch (NumberFormatException nfEx) {
+					String problem = "Malformed node attribute";
+					getDiagnostics().warning(problem, problem + " in line "
+							+ reader.getLine() + " of " + file.getName());
+				}
+				table.size++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		return table;
+	}
+
+	private EdgeTable readEdges(File file, File nodeFile) throws IOException {
+		EdgeTable table = new EdgeTable();
+		TableReader reader = new TableReader(file, delimiter);
+		int source = column(Column.SOURCE);
+		int target = column(Column.TARGET);
+		int weight = column(Column.WEIGHT);
+		long length = nodeFile.length() + file.length();
+
+		try {
+			while (reader.next()) {
+				if (reader.getLine() % PROGRESS_ROWS == 0
+						&& !reportProgress(nodeBytes + reader.getPosition(),
+								length, nodeRows + reader.getLine())) {
+					cancelled = true;
+					break;
+				}
+				if (reader.isBlank())
+					continue;
+
+				try {
+					table.add(reader.getLine(), reader.integer(source),
+							reader.integer(target),
+							reader.has(weight) ? reader.number(weight) : 1);
+				} catch (NumberFormatException nfEx) {
+					if (reader.getLine() == 1)
+						continue; // header
+					if (!getDiagnostics().error("Malformed edge",
+							"Malformed edge in line " + reader.getLine()
+									+ " of " + file.getName()))
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return table;
+	}
+
+	private void addTables(NodeTable nodes, File nodeFile, EdgeTable edges,
+			File edgeFile) {
+		NetworkBuilder builder = new NetworkBuilder(this, nodes.size,
+				edges.size);
+		try {
+			for (int i = 0; i < nodes.size; i++) {
+				StagedVertex v = builder.addVertex(nodes.ids[i]);
+				if (v == null) {
+					if (!getDiagnostics().error("Double node identifier",
+							"Double node identifier: " + nodes.ids[i]
+									+ " in line " + nodes.lines[i] + " of "
+									+ nodeFile.getName()))
+						return;
+					continue;
+				}
+
+				if (nodes.labels[i] != null)
+					v.setLabel(nodes.labels[i]);
+				if (nodes.colors[i] != -1)
+					v.setFillRGB(nodes.colors[i]);
+				if (!Float.isNaN(nodes.sizes[i]))
+					v.setSize(nodes.sizes[i]);
+				if (!Float.isNaN(nodes.xs[i]))
+					v.setPosition(nodes.xs[i], nodes.ys[i]);
+			}
+
+			for (int e = 0; e < edges.size; e++) {
+				if (builder.addEdge(edges.sources[e], edges.targets[e],
+						edges.weights[e], isDirected()) == null
+						&& !getDiagnostics().error("Malformed edge",
+								"Malformed edge (nonexistent endpoint): ("
+										+ edges.sources[e] + ","
+										+ edges.targets[e] + ") in line "
+										+ edges.lines[e] + " of "
+										+ edgeFile.getName()))
+					return;
+			}
+		} finally {
+			builder.commit();
+		}
+	}
+
+
+	/**
+	 * Reads a delimiter separated table line by line, splitting each line
+	 * into fields without copying them.
+	 */
+	private static class TableReader {
+		private final InputStream in;
+		private final BufferedReader reader;
+		private final char delimiter;
+
+		private String line;
+		private int lineNumber = 0;
+		private int fields = 0;
+		private int[] starts = new int[16];
+		private int[] ends = new int[16];
+		private boolean[] quoted = new boolean[16];
 
+		TableReader(File file, char delimiter) throws IOException {
+			this.in = CompressedStreams.openInput(file);
+			this.reader = new BufferedReader(new InputStreamReader(in),
+					1 << 16);
+			this.delimiter = delimiter;
+		}
+
+		void close() throws IOException {
+			reader.close();
+		}
+
+		/**
+		 * @return false at the end of the table
+		 */
+		boolean next() throws IOException {
+			line = reader.readLine();
+			if (line == null)
+				return false;
+
+			lineNumber++;
+			split();
+			return true;
+		}
+
+		int getLine() {
+			return lineNumber;
+		}
+
+		/**
+		 * @return how far the file has been read, or -1 if unknown
+		 */
+		long getPosition() {
+			return CompressedStreams.getFilePosition(in);
+		}
+
+		boolean isBlank() {
+			return line.trim().length() == 0;
+		}
+
+		private void split() {
+			fields = 0;
+			int n = line.length();
+			int i = 0;
+
+			while (true) {
+				if (fields == starts.length) {
+					starts = Arrays.copyOf(starts, fields * 2);
+					ends = Arrays.copyOf(ends, fields * 2);
+					quoted = Arrays.copyOf(quoted, fields * 2);
+				}
+
+				boolean q = i < n && line.charAt(i) == '"';
+				int start = q ? i + 1 : i;
+				int end;
+				if (q) {
+					// "" stands for a quote inside a quoted field
+					end = start;
+					while (end < n) {
+						if (line.charAt(end) != '"')
+							end++;
+						else if (end + 1 < n && line.charAt(end + 1) == '"')
+							end += 2;
+						else
+							break;
+					}
+					i = line.indexOf(delimiter, end);
+				} else {
+					i = line.indexOf(delimiter, start);
+					end = i < 0 ? n : i;
+				}
+
+				starts[fields] = start;
+				ends[fields] = end;
+				quoted[fields] = q;
+				fields++;
+
+				if (i < 0)
+					return;
+				i++;
+			}
+		}
+
+		/**
+		 * @return whether the line has a non empty field for the column
+		 */
+		boolean has(int column) {
+			return column >= 0 && column < fields
+					&& starts[column] < ends[column];
+		}
+
+		String text(int column) {
+			String text = line.substring(starts[column], ends[column]);
+			return quoted[column] ? text.replace("\"\"", "\"") : text;
+		}
+
+		float number(int column) {
+			return Float.parseFloat(text(column).trim());
+		}
+
+		/**
+		 * Parses an integer field without creating a string.
+		 */
+		int integer(int column) {
+			if (!has(column))
+				throw new NumberFormatException("Missing column " + column);
+
+			int from = starts[column];
+			int to = ends[column];
+			while (from < to && line.charAt(from) <= ' ')
+				from++;
+			while (to > from && line.charAt(to - 1) <= ' ')
+				to--;
+
+			boolean negative = from < to && line.charAt(from) == '-';
+			if (negative || (from < to && line.charAt(from) == '+'))
+				from++;
+			if (from == to || to - from > 10)
+				throw new NumberFormatException(text(column));
+
+			long value = 0;
+			for (int i = from; i < to; i++) {
+				char c = line.charAt(i);
+				if (c < '0' || c > '9')
+					throw new NumberFormatException(text(column));
+				value = value * 10 + (c - '0');
+			}
+
+			value = negative ? -value : value;
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+				throw new NumberFormatException(text(column));
+
+			return (int) value;
+		}
 	}
 	
 	private Vertex getNextVertex() throws IOException{
@@ -27,8 +27,10 @@ import java.awt.geom.Point2D;
 import org.gephi.data.attributes.api.AttributeController;
 import org.gephi.data.attributes.api.AttributeOrigin;
 import org.gephi.data.attributes.api.AttributeType;
+import org.gephi.graph.api.Attributes;
 import org.gephi.graph.api.GraphController;
 import org.gephi.graph.api.Node;
+import org.gephi.graph.api.NodeData;
 import org.openide.util.Lookup;
 
 import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
@@ -41,50 +43,48 @@ import ch.ethz.sg.cuttlefish.gui.visualization.Constants;
  * 
  * @author david
  */
-public class Vertex implements Comparable<Vertex> {
+public class Vertex implements Comparable<Vertex>, VertexAttributes {
 
 	// Attribute keys that extend the NodeData data structure
 	private final static String ATTR_ID = "vertex_int_id";
-	private final static String ATTR_IS_ROOT = "vertex_boolean_root";
-	private final static String ATTR_IS_EXCLUDED = "vertex_boolean_excluded";
-	private final static String ATTR_VAR1 = "vertex_string_var1";
-	private final static String ATTR_VAR2 = "vertex_string_var2";
-	private final static String ATTR_SHAPE_TYPE = "vertex_string_shapeType";
-	private final static String ATTR_IS_SHADOWED = "vertex_boolean_shadowed";
-	private final static String ATTR_WIDTH = "vertex_int_width";
-	private final static String ATTR_BORDER_R = "vertex_float_border_color_R";
-	private final static String ATTR_BORDER_G = "vertex_float_border_color_G";
-	private final static String ATTR_BORDER_B = "vertex_float_border_color_B";
+	final static String ATTR_VAR1 = "vertex_string_var1";
+	final static String ATTR_VAR2 = "vertex_string_var2";
+
+	// Columns the rendering attributes are copied to for the Gephi exporters
+	private final static String COLUMN_ROOT = "vertex_boolean_root";
+	private final static String COLUMN_EXCLUDED = "vertex_boolean_excluded";
+	private final static String COLUMN_SHADOWED = "vertex_boolean_shadowed";
+	private final static String COLUMN_SHAPE = "vertex_string_shapeType";
+	private final static String COLUMN_WIDTH = "vertex_int_width";
+	private final static String COLUMN_BORDER_R = "vertex_float_border_color_R";
+	private final static String COLUMN_BORDER_G = "vertex_float_border_color_G";
+	private final static String COLUMN_BORDER_B = "vertex_float_border_color_B";
+
+	// Shapes as stored in the attribute table
+	private final static byte SHAPE_DISK = 0;
+	private final static byte SHAPE_SQUARE = 1;
+	private final static String[] SHAPE_NAMES = { Constants.SHAPE_DISK,
+			Constants.SHAPE_SQUARE };
 
 	// Defaults
 	private final static Integer DEFAULT_ID = -1;
-	private final static Integer DEFAULT_WIDTH = 1;
+	private final static int DEFAULT_WIDTH = 1;
 	private final static Integer DEFAULT_SIZE = 10;
 	private final static String DEFAULT_VAR1 = null;
 	private final static String DEFAULT_VAR2 = null;
-	private final static String DEFAULT_SHAPE = Constants.SHAPE_DISK;
-	private final static Boolean DEFAULT_ROOT = false;
-	private final static Boolean DEFAULT_EXCLUDED = false;
-	private final static Boolean DEFAULT_SHADOWED = false;
-	private final static Color DEFAULT_FILL_COLOR = Color.lightGray;
+	final static Color DEFAULT_FILL_COLOR = Color.lightGray;
 	private final static Color DEFAULT_BORDER_COLOR = Color.darkGray;
 
 	static {
 		addAttribute(ATTR_ID, AttributeType.INT, DEFAULT_ID);
-		addAttribute(ATTR_IS_ROOT, AttributeType.BOOLEAN, DEFAULT_ROOT);
-		addAttribute(ATTR_IS_EXCLUDED, AttributeType.BOOLEAN, DEFAULT_EXCLUDED);
 		addAttribute(ATTR_VAR1, AttributeType.STRING, DEFAULT_VAR1);
 		addAttribute(ATTR_VAR2, AttributeType.STRING, DEFAULT_VAR2);
-		addAttribute(ATTR_SHAPE_TYPE, AttributeType.STRING, DEFAULT_SHAPE);
-		addAttribute(ATTR_IS_SHADOWED, AttributeType.BOOLEAN, DEFAULT_SHADOWED);
-		addAttribute(ATTR_WIDTH, AttributeType.INT, DEFAULT_WIDTH);
-
-		float[] color = DEFAULT_BORDER_COLOR.getColorComponents(null);
-		addAttribute(ATTR_BORDER_R, AttributeType.FLOAT, new Float(color[0]));
-		addAttribute(ATTR_BORDER_G, AttributeType.FLOAT, new Float(color[1]));
-		addAttribute(ATTR_BORDER_B, AttributeType.FLOAT, new Float(color[2]));
 	}
 
+	// Rendering attributes, indexed by the id of the Gephi node
+	final static AttributeTable attributes = new AttributeTable(
+			DEFAULT_BORDER_COLOR.getRGB(), SHAPE_DISK, DEFAULT_WIDTH);
+
 	public static void addAttribute(String name, AttributeType type,
 			Object defaultValue) {
 
@@ -96,6 +96,47 @@ public class Vertex implements Comparable<Vertex> {
 						defaultValue);
 	}
 
+	/**
+	 * Copies the rendering attributes of the nodes, which are kept outside of
+	 * Gephi, into Gephi attribute columns so that the Gephi exporters write
+	 * them. The columns are added on first use.
+	 */
+	static void exportAttributes(Iterable<Node> nodes) {
+		addColumn(COLUMN_ROOT, AttributeType.BOOLEAN, Boolean.FALSE);
+		addColumn(COLUMN_EXCLUDED, AttributeType.BOOLEAN, Boolean.FALSE);
+		addColumn(COLUMN_SHADOWED, AttributeType.BOOLEAN, Boolean.FALSE);
+		addColumn(COLUMN_SHAPE, AttributeType.STRING,
+				SHAPE_NAMES[SHAPE_DISK]);
+		addColumn(COLUMN_WIDTH, AttributeType.INT, DEFAULT_WIDTH);
+
+		float[] color = DEFAULT_BORDER_COLOR.getColorComponents(null);
+		addColumn(COLUMN_BORDER_R, AttributeType.FLOAT, color[0]);
+		addColumn(COLUMN_BORDER_G, AttributeType.FLOAT, color[1]);
+		addColumn(COLUMN_BORDER_B, AttributeType.FLOAT, color[2]);
+
+		for (Node node : nodes) {
+			Vertex v = new Vertex(node);
+			Attributes row = node.getAttributes();
+			int border = v.getBorderRGB();
+
+			row.setValue(COLUMN_ROOT, v.isRoot());
+			row.setValue(COLUMN_EXCLUDED, v.isExcluded());
+			row.setValue(COLUMN_SHADOWED, v.isShadowed());
+			row.setValue(COLUMN_SHAPE, v.getShape());
+			row.setValue(COLUMN_WIDTH, v.getWidth());
+			row.setValue(COLUMN_BORDER_R, ((border >> 16) & 0xFF) / 255f);
+			row.setValue(COLUMN_BORDER_G, ((border >> 8) & 0xFF) / 255f);
+			row.setValue(COLUMN_BORDER_B, (border & 0xFF) / 255f);
+		}
+	}
+
+	private static void addColumn(String name, AttributeType type,
+			Object defaultValue) {
+		if (!Lookup.getDefault().lookup(AttributeController.class).getModel()
+				.getNodeTable().hasColumn(name))
+			addAttribute(name, type, defaultValue);
+	}
+
 	Node internalNode;
 
 	public Node getInternalNode() {
@@ -111,9 +152,7 @@ public class Vertex implements Comparable<Vertex> {
 		this.internalNode = Lookup.getDefault().lookup(GraphController.class)
 				.getModel().factory().newNode();
 
-		setId(id);
-		setSize(DEFAULT_SIZE);
-		setFillColor(DEFAULT_FILL_COLOR);
+		initNode(internalNode, id);
 	}
 
 	/**
@@ -126,10 +165,8 @@ public class Vertex implements Comparable<Vertex> {
 		this.internalNode = Lookup.getDefault().lookup(GraphController.class)
 				.getModel().factory().newNode(label);
 
-		setId(id);
-		setLabel(label);
-		setSize(DEFAULT_SIZE);
-		setFillColor(DEFAULT_FILL_COLOR);
+		initNode(internalNode, id);
+		internalNode.getNodeData().setLabel(label);
 	}
 
 	/**
@@ -139,9 +176,7 @@ public class Vertex implements Comparable<Vertex> {
 		this.internalNode = Lookup.getDefault().lookup(GraphController.class)
 				.getModel().factory().newNode();
 
-		setId(DEFAULT_ID);
-		setSize(DEFAULT_SIZE);
-		setFillColor(DEFAULT_FILL_COLOR);
+		initNode(internalNode, DEFAULT_ID);
 	}
 
 	// Used to wrap Gephi nodes to Cuttlefish vertices
@@ -149,19 +184,44 @@ public class Vertex implements Comparable<Vertex> {
 		this.internalNode = node;
 	}
 
+	/**
+	 * Sets the id and the default attributes of a new node, without recording
+	 * a change in the journal.
+	 */
+	static void initNode(Node node, int id) {
+		resetAttributes(node);
+		node.getAttributes().setValue(ATTR_ID, id);
+		node.getNodeData().setSize(DEFAULT_SIZE);
+		writeFillColor(node, DEFAULT_FILL_COLOR);
+	}
+
+	/**
+	 * Clears the rendering attributes left by a removed node that had the
+	 * same Gephi id. Must be called for every node created outside of the
+	 * constructors of this class.
+	 */
+	static void resetAttributes(Node node) {
+		attributes.reset(node.getId());
+	}
+
 	/**
 	 * @param id
 	 *            the id to set
 	 */
 	public void setId(int id) {
 		this.internalNode.getAttributes().setValue(ATTR_ID, id);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
 	 * @return the id
 	 */
 	public int getId() {
-		return (Integer) this.internalNode.getAttributes().getValue(ATTR_ID);
+		return getId(this.internalNode);
+	}
+
+	public static int getId(Node node) {
+		return (Integer) node.getAttributes().getValue(ATTR_ID);
 	}
 
 	/**
@@ -169,15 +229,16 @@ public class Vertex implements Comparable<Vertex> {
 	 *            boolean specifying whether the vertex is a root vertex
 	 */
 	public void setIsRoot(boolean b) {
-		this.internalNode.getAttributes().setValue(ATTR_IS_ROOT, b);
+		attributes.setFlag(internalNode.getId(), AttributeTable.FLAG_ROOT, b);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
 	 * @return isRoot
 	 */
 	public boolean isRoot() {
-		return (Boolean) this.internalNode.getAttributes().getValue(
-				ATTR_IS_ROOT);
+		return attributes.hasFlag(internalNode.getId(),
+				AttributeTable.FLAG_ROOT);
 	}
 
 	/**
@@ -190,6 +251,7 @@ public class Vertex implements Comparable<Vertex> {
 
 	public static void setLabel(Node node, String label) {
 		node.getNodeData().setLabel(label);
+		BrowsableNetwork.recordChanged(node);
 	}
 
 	/**
@@ -213,6 +275,16 @@ public class Vertex implements Comparable<Vertex> {
 	}
 
 	public static void setFillColor(Node node, Color fillColor) {
+		writeFillColor(node, fillColor);
+		BrowsableNetwork.recordChanged(node);
+	}
+
+	public void setFillRGB(int rgb) {
+		writeFillRGB(internalNode, rgb);
+		BrowsableNetwork.recordChanged(internalNode);
+	}
+
+	private static void writeFillColor(Node node, Color fillColor) {
 		float[] comp = fillColor.getRGBColorComponents(null);
 
 		node.getNodeData().setR(comp[0]);
@@ -220,6 +292,17 @@ public class Vertex implements Comparable<Vertex> {
 		node.getNodeData().setB(comp[2]);
 	}
 
+	/**
+	 * Sets the fill colour from packed RGB without recording a change in the
+	 * journal, for nodes that are not in the graph yet.
+	 */
+	static void writeFillRGB(Node node, int rgb) {
+		NodeData data = node.getNodeData();
+		data.setR(((rgb >> 16) & 0xFF) / 255f);
+		data.setG(((rgb >> 8) & 0xFF) / 255f);
+		data.setB((rgb & 0xFF) / 255f);
+	}
+
 	/**
 	 * @return the fillColor
 	 */
@@ -230,6 +313,14 @@ public class Vertex implements Comparable<Vertex> {
 		return new Color(r, g, b);
 	}
 
+	/**
+	 * @return the fill color as packed RGB, see {@link Color#getRGB()}
+	 */
+	public int getFillRGB() {
+		NodeData data = this.internalNode.getNodeData();
+		return AttributeTable.packColor(data.r(), data.g(), data.b());
+	}
+
 	/**
 	 * @param color
 	 *            the color to set
@@ -239,25 +330,27 @@ public class Vertex implements Comparable<Vertex> {
 	}
 
 	public static void setBorderColor(Node node, Color borderColor) {
-		float[] comp = borderColor.getRGBColorComponents(null);
+		attributes.setColor(node.getId(), 0xFF000000 | borderColor.getRGB());
+		BrowsableNetwork.recordChanged(node);
+	}
 
-		node.getAttributes().setValue(ATTR_BORDER_R, comp[0]);
-		node.getAttributes().setValue(ATTR_BORDER_G, comp[1]);
-		node.getAttributes().setValue(ATTR_BORDER_B, comp[2]);
+	public void setBorderRGB(int rgb) {
+		attributes.setColor(internalNode.getId(), 0xFF000000 | rgb);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
 	 * @return the color
 	 */
 	public Color getBorderColor() {
-		float r = (Float) this.internalNode.getAttributes().getValue(
-				ATTR_BORDER_R);
-		float g = (Float) this.internalNode.getAttributes().getValue(
-				ATTR_BORDER_G);
-		float b = (Float) this.internalNode.getAttributes().getValue(
-				ATTR_BORDER_B);
+		return new Color(getBorderRGB());
+	}
 
-		return new Color(r, g, b);
+	/**
+	 * @return the border color as packed RGB, see {@link Color#getRGB()}
+	 */
+	public int getBorderRGB() {
+		return attributes.getColor(internalNode.getId());
 	}
 
 	/**
@@ -265,15 +358,17 @@ public class Vertex implements Comparable<Vertex> {
 	 *            the shadowed to set
 	 */
 	public void setShadowed(boolean shadowed) {
-		this.internalNode.getAttributes().setValue(ATTR_IS_SHADOWED, shadowed);
+		attributes.setFlag(internalNode.getId(), AttributeTable.FLAG_SHADOWED,
+				shadowed);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
 	 * @return the shadowed
 	 */
 	public boolean isShadowed() {
-		return (Boolean) this.internalNode.getAttributes().getValue(
-				ATTR_IS_SHADOWED);
+		return attributes.hasFlag(internalNode.getId(),
+				AttributeTable.FLAG_SHADOWED);
 	}
 
 	/**
@@ -281,15 +376,31 @@ public class Vertex implements Comparable<Vertex> {
 	 *            the excluded to set
 	 */
 	public void setExcluded(boolean excluded) {
-		this.internalNode.getAttributes().setValue(ATTR_IS_EXCLUDED, excluded);
+		attributes.setFlag(internalNode.getId(), AttributeTable.FLAG_EXCLUDED,
+				excluded);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
 	 * @return the exclude
 	 */
 	public boolean isExcluded() {
-		return (Boolean) this.internalNode.getAttributes().getValue(
-				ATTR_IS_EXCLUDED);
+		return attributes.hasFlag(internalNode.getId(),
+				AttributeTable.FLAG_EXCLUDED);
+	}
+
+	/**
+	 * @return the live mask of the ids of the excluded Gephi nodes
+	 */
+	static ElementMask getExcludedMask() {
+		return attributes.getMask(AttributeTable.FLAG_EXCLUDED);
+	}
+
+	/**
+	 * @return the live mask of the ids of the shadowed Gephi nodes
+	 */
+	static ElementMask getShadowedMask() {
+		return attributes.getMask(AttributeTable.FLAG_SHADOWED);
 	}
 
 	/**
@@ -298,6 +409,7 @@ public class Vertex implements Comparable<Vertex> {
 	 */
 	public void setFixed(boolean fixed) {
 		this.internalNode.getNodeData().setFixed(fixed);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
@@ -314,6 +426,10 @@ public class Vertex implements Comparable<Vertex> {
 		return this.internalNode.getNodeData().getSize();
 	}
 
+	public static float getSize(Node node) {
+		return node.getNodeData().getSize();
+	}
+
 	/**
 	 * Sets the size of the vertex
 	 * 
@@ -321,6 +437,7 @@ public class Vertex implements Comparable<Vertex> {
 	 */
 	public void setSize(double size) {
 		this.internalNode.getNodeData().setSize((float) size);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
@@ -331,16 +448,32 @@ public class Vertex implements Comparable<Vertex> {
 	 */
 
 	public void setShape(String shapeType) {
-		if (shapeType.equalsIgnoreCase(Constants.SHAPE_DISK)
-				|| shapeType.equalsIgnoreCase(Constants.SHAPE_SQUARE)) {
-			this.internalNode.getAttributes().setValue(ATTR_SHAPE_TYPE,
-					shapeType);
-		}
+		byte shape = parseShape(shapeType);
+		if (shape < 0)
+			return;
+
+		attributes.setShape(internalNode.getId(), shape);
+		BrowsableNetwork.recordChanged(internalNode);
+	}
+
+	/**
+	 * @return the shape as stored in the attribute table, or -1 if the name
+	 *         is unknown
+	 */
+	static byte parseShape(String shapeType) {
+		if (shapeType.equalsIgnoreCase(Constants.SHAPE_DISK))
+			return SHAPE_DISK;
+		else if (shapeType.equalsIgnoreCase(Constants.SHAPE_SQUARE))
+			return SHAPE_SQUARE;
+		return -1;
 	}
 
 	public String getShape() {
-		return (String) this.internalNode.getAttributes().getValue(
-				ATTR_SHAPE_TYPE);
+		return getShape(internalNode);
+	}
+
+	public static String getShape(Node node) {
+		return SHAPE_NAMES[attributes.getShape(node.getId())];
 	}
 
 	/**
@@ -359,6 +492,7 @@ public class Vertex implements Comparable<Vertex> {
 	 */
 	public void setVar1(String var1) {
 		this.internalNode.getAttributes().setValue(ATTR_VAR1, var1);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
@@ -377,6 +511,7 @@ public class Vertex implements Comparable<Vertex> {
 	 */
 	public void setVar2(String var2) {
 		this.internalNode.getAttributes().setValue(ATTR_VAR2, var2);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
@@ -384,14 +519,29 @@ public class Vertex implements Comparable<Vertex> {
 	 *            the width to set
 	 */
 	public void setWidth(int width) {
-		this.internalNode.getAttributes().setValue(ATTR_WIDTH, width);
+		attributes.setWidth(internalNode.getId(), width);
+		BrowsableNetwork.recordChanged(internalNode);
 	}
 
 	/**
 	 * @return the width
 	 */
 	public int getWidth() {
-		return (Integer) this.internalNode.getAttributes().getValue(ATTR_WIDTH);
+		return (int) attributes.getWidth(internalNode.getId());
+	}
+
+	/**
+	 * @return the x coordinate of the vertex
+	 */
+	public float getX() {
+		return this.internalNode.getNodeData().x();
+	}
+
+	/**
+	 * @return the y coordinate of the vertex
+	 */
+	public float getY() {
+		return this.internalNode.getNodeData().y();
 	}
 
 	/**
@@ -0,0 +1,47 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+import java.awt.Color;
+
+/**
+ * Setters of the attributes that loaders read for a vertex, implemented by
+ * {@link Vertex} and by the vertices staged in a {@link NetworkBuilder}, so
+ * that the same code can fill either.
+ */
+public interface VertexAttributes {
+
+	public void setLabel(String label);
+
+	public void setFillColor(Color fillColor);
+
+	/**
+	 * @param rgb
+	 *            the fill color as packed RGB, see {@link Color#getRGB()}
+	 */
+	public void setFillRGB(int rgb);
+
+	public void setBorderColor(Color borderColor);
+
+	/**
+	 * @param rgb
+	 *            the border color as packed RGB, see {@link Color#getRGB()}
+	 */
+	public void setBorderRGB(int rgb);
+
+	public void setSize(double size);
+
+	public void setShape(String shapeType);
+
+	public void setWidth(int width);
+
+	public void setPosition(double x, double y);
+
+	public void setVar1(String var1);
+
+	public void setVar2(String var2);
+
+	public void setFixed(boolean fixed);
+
+	public void setExcluded(boolean excluded);
+
+	public void setIsRoot(boolean b);
+}
@@ -0,0 +1,14 @@
+package ch.ethz.sg.cuttlefish.networks;
+
+/**
+ * Callback for {@link BrowsableNetwork#forEachVertex(VertexVisitor)} and
+ * {@link BrowsableNetwork#forEachNeighbor(Vertex, VertexVisitor)}.
+ * 
+ * The vertex passed to {@link #visit(Vertex)} is a flyweight that is reused
+ * for every node of the traversal. It must not be stored; use
+ * {@code new Vertex(vertex.getInternalNode())} to keep a reference.
+ */
+public interface VertexVisitor {
+
+	public void visit(Vertex vertex);
+}
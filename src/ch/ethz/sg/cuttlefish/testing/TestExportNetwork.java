@@ -23,7 +23,7 @@
 package ch.ethz.sg.cuttlefish.testing;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -51,7 +51,7 @@ import ch.ethz.sg.cuttlefish.networks.Vertex;
 
 public class TestExportNetwork {
 
-	public void testGraphMLExport() throws FileNotFoundException {
+	public void testGraphMLExport() throws IOException {
 		log("Testing GraphML Export/Import");
 
 		RandomNetworkGenerator rng = new RandomNetworkGenerator();